@@ -12,6 +12,7 @@ import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import io.patchfox.data_service.components.EnvironmentComponent;
 import io.patchfox.data_service.controllers.RestInfoController;
@@ -24,6 +25,7 @@ import lombok.extern.slf4j.Slf4j;
 @SpringBootApplication
 @EntityScan("io.patchfox.db_entities.entities")
 @EnableSpringDataWebSupport
+@EnableScheduling
 public class App {
 
     @Autowired 
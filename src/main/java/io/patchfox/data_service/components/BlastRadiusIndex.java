@@ -0,0 +1,227 @@
+package io.patchfox.data_service.components;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Precomputed reachability from a finding identifier (eg - a CVE id) to the packages it affects and from those packages
+ * to the datasets and datasources currently exposed to them.
+ *
+ *   dataset exposure     package_indexes of each dataset's current, non-forecast DatasetMetrics record
+ *   datasource exposure  datasource_event_package rows of each datasource's latest package-enriched event
+ *   finding -> package   Finding.packages association, keeping only packages something is exposed to
+ *
+ * Rebuilt as a whole every "refresh-interval-ms" into a new immutable snapshot that replaces the old one, so readers
+ * never see a half built index and never block. Findings newer than the snapshot are looked up live by the service.
+ */
+@Slf4j
+@Component
+public class BlastRadiusIndex {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EnvironmentComponent env;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private static final String CURRENT_DATASET_PACKAGES_SQL = """
+        SELECT DISTINCT ON (dm.dataset_id) dm.dataset_id, d.name, dm.package_indexes
+        FROM dataset_metrics dm
+        INNER JOIN dataset d ON d.id = dm.dataset_id
+        WHERE dm.is_current = true
+          AND dm.is_forecast_same_course = false
+          AND dm.is_forecast_recommendations_taken = false
+        ORDER BY dm.dataset_id, dm.commit_date_time DESC
+        """;
+
+    private static final String CURRENT_DATASOURCE_PACKAGES_SQL = """
+        SELECT ds.id, ds.purl, dep.package_id
+        FROM datasource ds
+        INNER JOIN LATERAL (
+            SELECT de.id
+            FROM datasource_event de
+            WHERE de.datasource_id = ds.id AND de.package_index_enriched = true
+            ORDER BY de.commit_date_time DESC, de.id DESC
+            LIMIT 1
+        ) e ON true
+        INNER JOIN datasource_event_package dep ON dep.datasource_event_id = e.id
+        """;
+
+    // JPQL over the mapped association so the link table's name and columns stay the entity library's business
+    private static final String FINDING_PACKAGES_JPQL = "SELECT f.identifier, p.id FROM Finding f JOIN f.packages p";
+
+    private static final String FINDING_PACKAGES_BY_IDENTIFIER_JPQL =
+        "SELECT p.id FROM Finding f JOIN f.packages p WHERE f.identifier = :identifier";
+
+    private volatile Snapshot snapshot = null;
+
+
+    /**
+     * immutable view of the index at one point in time. package ids map to indexes into datasetNames and
+     * datasourcePurls so each name is held once.
+     */
+    public record Snapshot(
+        Map<String, long[]> packagesByFinding,
+        Map<Long, int[]> datasetsByPackage,
+        Map<Long, int[]> datasourcesByPackage,
+        String[] datasetNames,
+        String[] datasourcePurls,
+        ZonedDateTime builtAt
+    ) {}
+
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        if ( !env.isBlastRadiusIndexEnabled() ) {
+            log.info("blast radius index is disabled");
+            return;
+        }
+
+        // a failed warm leaves the snapshot null - the service answers live until a later refresh succeeds
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.error("failed to warm blast radius index", e);
+        }
+    }
+
+
+    @Scheduled(
+        fixedDelayString = "${custom.blast-radius.refresh-interval-ms}",
+        initialDelayString = "${custom.blast-radius.refresh-interval-ms}"
+    )
+    public void scheduledRefresh() {
+        if ( !env.isBlastRadiusIndexEnabled() ) { return; }
+
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.error("failed to refresh blast radius index - keeping the previous snapshot", e);
+        }
+    }
+
+
+    public Optional<Snapshot> getSnapshot() {
+        return Optional.ofNullable(snapshot);
+    }
+
+
+    /**
+     * live lookup for findings not in the snapshot (eg - reported since it was built)
+     */
+    public long[] loadPackagesForFinding(String identifier) {
+        return entityManager.createQuery(FINDING_PACKAGES_BY_IDENTIFIER_JPQL, Long.class)
+                            .setParameter("identifier", identifier)
+                            .getResultList()
+                            .stream()
+                            .mapToLong(Long::longValue)
+                            .toArray();
+    }
+
+
+    //
+    // helpers
+    //
+
+
+    private synchronized void refresh() {
+        var startMillis = System.currentTimeMillis();
+
+        var datasetNames = new ArrayList<String>();
+        var datasetsByPackage = new HashMap<Long, List<Integer>>();
+        jdbcTemplate.query(CURRENT_DATASET_PACKAGES_SQL, rs -> {
+            var datasetIndex = datasetNames.size();
+            datasetNames.add(rs.getString("name"));
+
+            var packageIndexes = rs.getArray("package_indexes");
+            if (packageIndexes == null) { return; }
+            // package_indexes repeats a package once per datasource holding it - one entry per dataset is enough
+            for (var packageId : new HashSet<>(List.of((Long[]) packageIndexes.getArray()))) {
+                datasetsByPackage.computeIfAbsent(packageId, k -> new ArrayList<>()).add(datasetIndex);
+            }
+        });
+
+        var datasourcePurls = new ArrayList<String>();
+        var datasourceIndexes = new HashMap<Long, Integer>();
+        var datasourcesByPackage = new HashMap<Long, Set<Integer>>();
+        jdbcTemplate.query(CURRENT_DATASOURCE_PACKAGES_SQL, rs -> {
+            var datasourceId = rs.getLong("id");
+            var datasourceIndex = datasourceIndexes.get(datasourceId);
+            if (datasourceIndex == null) {
+                datasourceIndex = datasourcePurls.size();
+                datasourcePurls.add(rs.getString("purl"));
+                datasourceIndexes.put(datasourceId, datasourceIndex);
+            }
+            datasourcesByPackage.computeIfAbsent(rs.getLong("package_id"), k -> new HashSet<>()).add(datasourceIndex);
+        });
+
+        var packagesByFinding = new HashMap<String, List<Long>>();
+        try (var rows = entityManager.createQuery(FINDING_PACKAGES_JPQL, Object[].class).getResultStream()) {
+            rows.forEach(row -> {
+                // every known finding gets a key, even with nothing exposed, so the service only goes live for new ones
+                var packageIds = packagesByFinding.computeIfAbsent((String) row[0], k -> new ArrayList<>());
+                var packageId = (Long) row[1];
+                if ( !datasetsByPackage.containsKey(packageId) && !datasourcesByPackage.containsKey(packageId) ) {
+                    return;
+                }
+                packageIds.add(packageId);
+            });
+        }
+
+        var rv = new Snapshot(
+            compact(packagesByFinding),
+            toIntArrays(datasetsByPackage),
+            toIntArrays(datasourcesByPackage),
+            datasetNames.toArray(String[]::new),
+            datasourcePurls.toArray(String[]::new),
+            ZonedDateTime.now()
+        );
+
+        snapshot = rv;
+        log.info(
+            "built blast radius index of {} findings over {} packages, {} datasets and {} datasources in {}ms",
+            rv.packagesByFinding().size(),
+            Math.max(rv.datasetsByPackage().size(), rv.datasourcesByPackage().size()),
+            rv.datasetNames().length,
+            rv.datasourcePurls().length,
+            System.currentTimeMillis() - startMillis
+        );
+    }
+
+
+    private static Map<String, long[]> compact(Map<String, List<Long>> source) {
+        var rv = new HashMap<String, long[]>(source.size() * 2);
+        source.forEach((k, v) -> rv.put(k, v.stream().mapToLong(Long::longValue).distinct().toArray()));
+        return rv;
+    }
+
+
+    private static Map<Long, int[]> toIntArrays(Map<Long, ? extends Collection<Integer>> source) {
+        var rv = new HashMap<Long, int[]>(source.size() * 2);
+        source.forEach((k, v) -> rv.put(k, v.stream().mapToInt(Integer::intValue).toArray()));
+        return rv;
+    }
+
+}
@@ -0,0 +1,374 @@
+package io.patchfox.data_service.components;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32C;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import io.patchfox.data_service.helpers.DeflaterPool;
+import io.patchfox.data_service.helpers.InflaterPool;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Durable append only log of submitted DatasourceEvents, one file per datasource purl.
+ *
+ * Every write is handed to a single writer thread that drains whatever has queued up, writes it all, then fsyncs each
+ * file it touched once before completing the callers' futures (group commit). A burst of thousands of submissions
+ * costs one fsync per file per batch rather than one per submission.
+ *
+ * Record layout: [int length][int crc32c][byte type][body]. An EVENT record body is the submission JSON, deflated
+ * (zlib) on the submitting thread so compression runs in parallel rather than on the writer. A RELEASED record body
+ * is the 8 byte offset of the EVENT record it retires. A torn record at the tail of a file (crash mid
+ * write) fails its length or crc check and is truncated away on replay.
+ */
+@Slf4j
+@Component
+public class DatasourceEventLog {
+
+    public static final byte EVENT = 1;
+    public static final byte RELEASED = 2;
+    public static final byte EVENT_DEFLATED = 3;
+
+    private static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + Byte.BYTES;
+
+    // files are named by hash, so replay reads each file's purl back out of its first event. shared - readers are
+    // immutable and thread safe
+    private static final ObjectReader SUBMISSION_READER = new ObjectMapper().reader();
+
+    @Autowired
+    EnvironmentComponent env;
+
+    private Path directory;
+
+    private DeflaterPool deflaterPool;
+
+    private InflaterPool inflaterPool;
+
+    private final BlockingQueue<Write> queue = new LinkedBlockingQueue<>();
+
+    // only ever opened, written, or closed by the writer thread. positional reads from other threads are fine.
+    private final ConcurrentHashMap<String, FileChannel> channels = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> sizes = new HashMap<>();
+
+    private Thread writer;
+
+    private volatile boolean running = true;
+
+
+    /**
+     * an event record as found on replay
+     */
+    public record Entry(String datasourcePurl, long offset, byte[] body) {}
+
+
+    // purl == null with body == null means "delete the file for this purl"
+    private record Write(String datasourcePurl, byte type, byte[] body, CompletableFuture<Long> done) {}
+
+
+    @PostConstruct
+    void start() throws IOException {
+        directory = Path.of(env.getIngestLogDirectory());
+        Files.createDirectories(directory);
+        deflaterPool = new DeflaterPool(Runtime.getRuntime().availableProcessors(), env.getIngestLogDeflateLevel());
+        inflaterPool = new InflaterPool(Runtime.getRuntime().availableProcessors());
+
+        writer = Thread.ofPlatform().name("datasource-event-log-writer").daemon().start(this::writeLoop);
+    }
+
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(10_000);
+        for (var channel : channels.values()) {
+            try { channel.close(); } catch (IOException e) { log.warn("error closing event log", e); }
+        }
+    }
+
+
+    /**
+     * appends an event record. the future completes with the record's offset once the record is durable.
+     */
+    public CompletableFuture<Long> appendEvent(String datasourcePurl, byte[] submissionJson) {
+        var body = deflaterPool.deflate(submissionJson);
+        return enqueue(new Write(datasourcePurl, EVENT_DEFLATED, body, new CompletableFuture<>()));
+    }
+
+
+    /**
+     * appends a record retiring the event record at argument offset
+     */
+    public CompletableFuture<Long> appendReleased(String datasourcePurl, long offset) {
+        var body = ByteBuffer.allocate(Long.BYTES).putLong(offset).array();
+        return enqueue(new Write(datasourcePurl, RELEASED, body, new CompletableFuture<>()));
+    }
+
+
+    /**
+     * removes the log file for argument datasource. callers must only do this once every event in it is released.
+     */
+    public CompletableFuture<Long> delete(String datasourcePurl) {
+        return enqueue(new Write(datasourcePurl, (byte) 0, null, new CompletableFuture<>()));
+    }
+
+
+    /**
+     * @return the submission JSON of the event record at argument offset
+     */
+    public byte[] readEvent(String datasourcePurl, long offset) throws IOException {
+        var channel = channels.get(fileName(datasourcePurl));
+        if (channel == null) { throw new IOException("no open event log for datasource " + datasourcePurl); }
+
+        var header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header, offset);
+        header.flip();
+        var length = header.getInt();
+        header.getInt();
+        var type = header.get();
+
+        var body = ByteBuffer.allocate(length);
+        readFully(channel, body, offset + HEADER_BYTES);
+        return eventJson(type, body.array());
+    }
+
+
+    /**
+     * reads every log file and returns the events not yet released, grouped by datasource purl in log order. files
+     * with nothing left to release are deleted. called once at startup before any appends.
+     */
+    public Map<String, List<Entry>> replay() throws IOException {
+        var rv = new LinkedHashMap<String, List<Entry>>();
+
+        try (var files = Files.list(directory)) {
+            for (var file : files.filter(f -> f.toString().endsWith(".log")).toList()) {
+                var pending = new LinkedHashMap<Long, Entry>();
+                var released = new HashSet<Long>();
+                String datasourcePurl = null;
+
+                var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                var position = 0L;
+                var size = channel.size();
+                while (position + HEADER_BYTES <= size) {
+                    var header = ByteBuffer.allocate(HEADER_BYTES);
+                    readFully(channel, header, position);
+                    header.flip();
+                    var length = header.getInt();
+                    var crc = header.getInt();
+                    var type = header.get();
+                    if (length < 0 || position + HEADER_BYTES + length > size) { break; }
+
+                    var body = ByteBuffer.allocate(length);
+                    readFully(channel, body, position + HEADER_BYTES);
+                    if (crc(type, body.array()) != crc) { break; }
+
+                    if (type == EVENT || type == EVENT_DEFLATED) {
+                        var json = eventJson(type, body.array());
+                        pending.put(position, new Entry(null, position, json));
+                        if (datasourcePurl == null) { datasourcePurl = purlOf(json); }
+                    } else if (type == RELEASED) {
+                        released.add(ByteBuffer.wrap(body.array()).getLong());
+                    }
+                    position += HEADER_BYTES + length;
+                }
+
+                if (position < size) {
+                    log.warn("truncating torn tail of event log {} at {} of {} bytes", file, position, size);
+                    channel.truncate(position);
+                    channel.force(true);
+                }
+
+                released.forEach(pending::remove);
+                if (pending.isEmpty() || datasourcePurl == null) {
+                    channel.close();
+                    Files.delete(file);
+                    continue;
+                }
+
+                var purl = datasourcePurl;
+                channels.put(file.getFileName().toString(), channel);
+                synchronized (sizes) { sizes.put(file.getFileName().toString(), position); }
+                rv.put(
+                    purl,
+                    new ArrayList<>(pending.values().stream().map(e -> new Entry(purl, e.offset(), e.body())).toList())
+                );
+            }
+        }
+
+        return rv;
+    }
+
+
+    //
+    // helpers
+    //
+
+
+    private CompletableFuture<Long> enqueue(Write write) {
+        if ( !running ) {
+            write.done().completeExceptionally(new IllegalStateException("event log is shut down"));
+            return write.done();
+        }
+
+        queue.add(write);
+        return write.done();
+    }
+
+
+    private void writeLoop() {
+        var batch = new ArrayList<Write>();
+        while (running || !queue.isEmpty()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                if ( !running ) { queue.drainTo(batch); } else { continue; }
+            }
+            queue.drainTo(batch, env.getIngestLogMaxBatch() - batch.size());
+
+            var touched = new LinkedHashMap<String, FileChannel>();
+            var offsets = new HashMap<Write, Long>();
+            for (var write : batch) {
+                try {
+                    var fileName = fileName(write.datasourcePurl());
+                    if (write.body() == null) {
+                        touched.remove(fileName);
+                        var channel = channels.remove(fileName);
+                        if (channel != null) { channel.close(); }
+                        synchronized (sizes) { sizes.remove(fileName); }
+                        Files.deleteIfExists(directory.resolve(fileName));
+                        offsets.put(write, -1L);
+                        continue;
+                    }
+
+                    var channel = channelFor(fileName);
+                    long offset;
+                    synchronized (sizes) { offset = sizes.getOrDefault(fileName, 0L); }
+
+                    var record = ByteBuffer.allocate(HEADER_BYTES + write.body().length);
+                    record.putInt(write.body().length).putInt(crc(write.type(), write.body())).put(write.type());
+                    record.put(write.body()).flip();
+                    var position = offset;
+                    while (record.hasRemaining()) { position += channel.write(record, position); }
+
+                    synchronized (sizes) { sizes.put(fileName, position); }
+                    touched.put(fileName, channel);
+                    offsets.put(write, offset);
+                } catch (IOException e) {
+                    log.error("unable to write event log record for datasource {}", write.datasourcePurl(), e);
+                    write.done().completeExceptionally(e);
+                }
+            }
+
+            IOException syncError = null;
+            for (var channel : touched.values()) {
+                try {
+                    channel.force(false);
+                } catch (IOException e) {
+                    log.error("unable to sync event log", e);
+                    syncError = e;
+                }
+            }
+
+            for (var write : batch) {
+                if (write.done().isDone()) { continue; }
+                if (syncError != null) {
+                    write.done().completeExceptionally(syncError);
+                } else {
+                    write.done().complete(offsets.get(write));
+                }
+            }
+
+            batch.clear();
+        }
+    }
+
+
+    private FileChannel channelFor(String fileName) throws IOException {
+        var channel = channels.get(fileName);
+        if (channel != null) { return channel; }
+
+        channel = FileChannel.open(
+            directory.resolve(fileName),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE
+        );
+        synchronized (sizes) { sizes.put(fileName, channel.size()); }
+        channels.put(fileName, channel);
+        return channel;
+    }
+
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        var at = position;
+        while (buffer.hasRemaining()) {
+            var read = channel.read(buffer, at);
+            if (read < 0) { throw new IOException("unexpected end of event log"); }
+            at += read;
+        }
+    }
+
+
+    private byte[] eventJson(byte type, byte[] body) throws IOException {
+        return type == EVENT_DEFLATED ? inflaterPool.inflate(body) : body;
+    }
+
+
+    private static int crc(byte type, byte[] body) {
+        var crc = new CRC32C();
+        crc.update(type);
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+
+    /**
+     * purls contain characters that aren't safe in file names and can be long, so files are named by hash
+     */
+    private static String fileName(String datasourcePurl) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(datasourcePurl.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest) + ".log";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    private static String purlOf(byte[] submissionJson) {
+        try {
+            var node = SUBMISSION_READER.readTree(submissionJson);
+            return node.path("datasourcePurl").asText(null);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+}
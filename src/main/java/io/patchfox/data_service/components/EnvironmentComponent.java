@@ -30,7 +30,136 @@ public class EnvironmentComponent {
     @Value("${spring.kafka.group-name}")
     String kafkaGroupName;
 
+    @Value("${spring.kafka.producer.properties.pf.codec}")
+    String kafkaProducerCodec;
+
+    @Value("${custom.kafka.request.max-in-flight}")
+    int kafkaRequestMaxInFlight;
+
+    @Value("${custom.kafka.response.chunk-rows}")
+    int kafkaResponseChunkRows;
+
+    @Value("${custom.kafka.response.claim-check-threshold-bytes}")
+    int kafkaResponseClaimCheckThresholdBytes;
+
+    @Value("${custom.kafka.response.claim-check-retention-hours}")
+    int kafkaResponseClaimCheckRetentionHours;
+
     @Value("${custom.db.rest.query.valid-tables}")
     List<String> validDbTables;
 
+    @Value("${custom.db.batch.max-queries}")
+    int dbBatchMaxQueries;
+
+    @Value("${custom.db.batch.parallelism}")
+    int dbBatchParallelism;
+
+    @Value("${custom.db.batch.max-connections}")
+    int dbBatchMaxConnections;
+
+    @Value("${custom.db.lookup.max-keys}")
+    int dbLookupMaxKeys;
+
+    @Value("${custom.db.lookup.fetch-size}")
+    int dbLookupFetchSize;
+
+    @Value("${custom.query-job.parallelism}")
+    int queryJobParallelism;
+
+    @Value("${custom.query-job.max-queued}")
+    int queryJobMaxQueued;
+
+    @Value("${custom.query-job.ttl-ms}")
+    long queryJobTtlMillis;
+
+    @Value("${custom.query-job.max-run-ms}")
+    long queryJobMaxRunMillis;
+
+    @Value("${custom.track.max-datasets}")
+    int trackMaxDatasets;
+
+    @Value("${custom.recommend.cache.max-entries}")
+    int recommendCacheMaxEntries;
+
+    @Value("${custom.recommend.detail.page-size}")
+    int recommendDetailPageSize;
+
+    @Value("${custom.request-coalescing.enabled}")
+    boolean requestCoalescingEnabled;
+
+    @Value("${custom.datasource-event.latest-index.enabled}")
+    boolean latestDatasourceEventIndexEnabled;
+
+    @Value("${custom.datasource-event.latest-index.status-ttl-ms}")
+    long latestDatasourceEventIndexStatusTtlMillis;
+
+    @Value("${custom.datasource-event.latest-index.poll-batch-size}")
+    int latestDatasourceEventIndexPollBatchSize;
+
+    @Value("${custom.datasource-event.latest-index.poll-overlap-ids}")
+    int latestDatasourceEventIndexPollOverlapIds;
+
+    @Value("${custom.package-event-index.enabled}")
+    boolean packageEventIndexEnabled;
+
+    @Value("${custom.package-event-index.poll-batch-size}")
+    int packageEventIndexPollBatchSize;
+
+    @Value("${custom.package-event-index.max-watermark-lag-ids}")
+    long packageEventIndexMaxWatermarkLagIds;
+
+    @Value("${custom.blast-radius.enabled}")
+    boolean blastRadiusIndexEnabled;
+
+    @Value("${custom.purl-catalog.enabled}")
+    boolean purlCatalogEnabled;
+
+    @Value("${custom.purl-catalog.poll-batch-size}")
+    int purlCatalogPollBatchSize;
+
+    @Value("${custom.purl-catalog.id-overlap}")
+    int purlCatalogIdOverlap;
+
+    @Value("${custom.purl-catalog.updated-at-overlap-ms}")
+    long purlCatalogUpdatedAtOverlapMillis;
+
+    @Value("${custom.purl-catalog.snapshot.path}")
+    String purlCatalogSnapshotPath;
+
+    @Value("${custom.search.similarity-threshold}")
+    double searchSimilarityThreshold;
+
+    @Value("${custom.ingest.log.dir}")
+    String ingestLogDirectory;
+
+    @Value("${custom.ingest.log.max-batch}")
+    int ingestLogMaxBatch;
+
+    @Value("${custom.ingest.log.deflate-level}")
+    int ingestLogDeflateLevel;
+
+    @Value("${custom.ingest.bulk.max-items}")
+    int ingestBulkMaxItems;
+
+    @Value("${custom.ingest.bulk.parallelism}")
+    int ingestBulkParallelism;
+
+    @Value("${custom.ingest.hold-statuses}")
+    List<String> ingestHoldStatuses;
+
+    @Value("${custom.ingest.allowed-lateness-ms}")
+    long ingestAllowedLatenessMillis;
+
+    @Value("${custom.ingest.idle-release-ms}")
+    long ingestIdleReleaseMillis;
+
+    @Value("${custom.ingest.release-max-per-tick}")
+    int ingestReleaseMaxPerTick;
+
+    @Value("${custom.ingest.release-topic}")
+    String ingestReleaseTopicName;
+
+    @Value("${custom.ingest.release-send-timeout-ms}")
+    long ingestReleaseSendTimeoutMillis;
+
 }
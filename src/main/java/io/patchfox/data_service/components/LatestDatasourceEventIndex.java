@@ -0,0 +1,220 @@
+package io.patchfox.data_service.components;
+
+import java.sql.ResultSet;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.patchfox.data_service.json.DatasourceEventView;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * In memory map of datasource purl -> the six fields of its latest (by commitDateTime) DatasourceEvent. Warmed at
+ * startup with a single DISTINCT ON query and kept fresh by polling for new event ids.
+ *
+ * Ids come from a sequence and are handed out before commit, so a row can become visible after one with a higher id
+ * has already been read. Each poll therefore starts from a low watermark "poll-overlap-ids" below the highest id seen
+ * and re-reads that window - offering an event twice is harmless.
+ *
+ * Status is the only field of an event that changes after insert, so entries whose status was read more than
+ * "status-ttl-ms" ago have it re-read by primary key before being served.
+ */
+@Slf4j
+@Component
+public class LatestDatasourceEventIndex {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EnvironmentComponent env;
+
+    private static final String PROJECTION =
+        "ds.purl AS datasource_purl, e.id, e.purl, e.txid, e.commit_hash, e.commit_branch, e.commit_date_time, e.status";
+
+    private static final String WARM_SQL =
+        "SELECT DISTINCT ON (ds.purl) " + PROJECTION + " " +
+        "FROM datasource_event e " +
+        "INNER JOIN datasource ds ON e.datasource_id = ds.id " +
+        "ORDER BY ds.purl, e.commit_date_time DESC, e.id DESC";
+
+    private static final String POLL_SQL =
+        "SELECT " + PROJECTION + " " +
+        "FROM datasource_event e " +
+        "INNER JOIN datasource ds ON e.datasource_id = ds.id " +
+        "WHERE e.id > ? " +
+        "ORDER BY e.id ASC " +
+        "LIMIT ?";
+
+    private static final String STATUS_SQL = "SELECT status FROM datasource_event WHERE id = ?";
+
+    private final ConcurrentHashMap<String, LatestEvent> latestByDatasourcePurl = new ConcurrentHashMap<>();
+
+    private volatile long highestSeenId = 0;
+
+    private volatile boolean warm = false;
+
+
+    /**
+     * compact projection of a DatasourceEvent - everything DatasourceEventView needs and nothing else
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class LatestEvent {
+        // null when the datasource exists but has no events
+        private final Long id;
+        private final String purl;
+        private final UUID txid;
+        private final String commitHash;
+        private final String commitBranch;
+        private final ZonedDateTime commitDateTime;
+        private final String status;
+        private final long statusReadAtMillis;
+
+        public boolean isNewerThan(LatestEvent other) {
+            var compare = commitDateTime.compareTo(other.commitDateTime);
+            return compare > 0 || (compare == 0 && id > other.id);
+        }
+
+        public LatestEvent withStatus(String newStatus) {
+            return new LatestEvent(
+                id, purl, txid, commitHash, commitBranch, commitDateTime, newStatus, System.currentTimeMillis()
+            );
+        }
+
+        public DatasourceEventView toView() {
+            return new DatasourceEventView(
+                purl,
+                txid == null ? null : txid.toString(),
+                commitHash,
+                commitBranch,
+                commitDateTime == null ? null : commitDateTime.toString(),
+                status
+            );
+        }
+    }
+
+
+    /**
+     * maps PROJECTION columns. the event columns may all be null when the row came from an outer join.
+     */
+    public static final RowMapper<LatestEvent> ROW_MAPPER = (ResultSet rs, int rowNum) -> {
+        var id = rs.getObject("id") == null ? null : rs.getLong("id");
+        var txidStr = rs.getString("txid");
+        var commitDateTime = rs.getObject("commit_date_time", OffsetDateTime.class);
+
+        return new LatestEvent(
+            id,
+            rs.getString("purl"),
+            txidStr == null ? null : UUID.fromString(txidStr),
+            rs.getString("commit_hash"),
+            rs.getString("commit_branch"),
+            commitDateTime == null ? null : commitDateTime.atZoneSameInstant(ZoneOffset.UTC),
+            rs.getString("status"),
+            System.currentTimeMillis()
+        );
+    };
+
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        if ( !env.isLatestDatasourceEventIndexEnabled() ) {
+            log.info("latest datasource event index is disabled");
+            return;
+        }
+
+        // read the high water mark first - anything inserted while warming gets picked up (again) by the first poll
+        var maxId = jdbcTemplate.queryForObject("SELECT COALESCE(max(id), 0) FROM datasource_event", Long.class);
+
+        jdbcTemplate.query(WARM_SQL, rs -> { offer(rs.getString("datasource_purl"), ROW_MAPPER.mapRow(rs, 0)); });
+
+        highestSeenId = maxId == null ? 0 : maxId;
+        warm = true;
+        log.info("warmed latest datasource event index with {} datasources up to event id {}", size(), highestSeenId);
+    }
+
+
+    @Scheduled(
+        fixedDelayString = "${custom.datasource-event.latest-index.poll-interval-ms}",
+        initialDelayString = "${custom.datasource-event.latest-index.poll-interval-ms}"
+    )
+    public void poll() {
+        if ( !warm ) { return; }
+
+        var batchSize = env.getLatestDatasourceEventIndexPollBatchSize();
+        var cursor = new long[] { Math.max(0, highestSeenId - env.getLatestDatasourceEventIndexPollOverlapIds()) };
+        int read;
+        do {
+            var rows = new int[1];
+            jdbcTemplate.query(
+                POLL_SQL,
+                rs -> {
+                    var event = ROW_MAPPER.mapRow(rs, rows[0]++);
+                    offer(rs.getString("datasource_purl"), event);
+                    cursor[0] = event.getId();
+                },
+                cursor[0],
+                batchSize
+            );
+
+            read = rows[0];
+            highestSeenId = Math.max(highestSeenId, cursor[0]);
+        } while (read == batchSize);
+    }
+
+
+    /**
+     * latest event for argument datasource purl if the index holds it. a stale status is re-read by id first.
+     */
+    public Optional<LatestEvent> get(String datasourcePurl) {
+        if ( !warm ) { return Optional.empty(); }
+
+        var rv = latestByDatasourcePurl.get(datasourcePurl);
+        if (rv == null) { return Optional.empty(); }
+
+        var statusAgeMillis = System.currentTimeMillis() - rv.getStatusReadAtMillis();
+        if (statusAgeMillis > env.getLatestDatasourceEventIndexStatusTtlMillis()) {
+            var statuses = jdbcTemplate.queryForList(STATUS_SQL, String.class, rv.getId());
+            if (statuses.isEmpty()) {
+                // event was deleted out from under us - let the caller take the slow path
+                latestByDatasourcePurl.remove(datasourcePurl, rv);
+                return Optional.empty();
+            }
+
+            var refreshed = rv.withStatus(statuses.getFirst());
+            latestByDatasourcePurl.replace(datasourcePurl, rv, refreshed);
+            rv = refreshed;
+        }
+
+        return Optional.of(rv);
+    }
+
+
+    /**
+     * records argument event as the latest for its datasource unless the index already holds a newer one
+     */
+    public void offer(String datasourcePurl, LatestEvent event) {
+        if (event.getId() == null || event.getCommitDateTime() == null) { return; }
+        latestByDatasourcePurl.merge(datasourcePurl, event, (held, offered) -> offered.isNewerThan(held) ? offered : held);
+    }
+
+
+    public int size() {
+        return latestByDatasourcePurl.size();
+    }
+
+}
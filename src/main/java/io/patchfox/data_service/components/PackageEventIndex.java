@@ -0,0 +1,234 @@
+package io.patchfox.data_service.components;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.patchfox.data_service.helpers.PostingList;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Inverted index of package purl -> the DatasourceEvents (and their datasources) whose package index contains it. Two
+ * keys are kept per package: the full purl (pkg:maven/org.apache.logging.log4j/log4j-core@2.14.1) and the purl
+ * without version, qualifiers or subpath (pkg:maven/org.apache.logging.log4j/log4j-core) so "any version of X" is
+ * a single lookup. Postings are varint delta encoded PostingLists.
+ *
+ * An event's datasource_event_package rows are written when its package index is enriched, which can be well after
+ * the event row itself and not in id order. So the index tracks a low watermark - every event at or below it is
+ * either indexed or will never be - plus the ids above it already indexed, and each poll picks up enriched events
+ * above the watermark it hasn't seen. Events that failed processing never get enriched and don't hold it back, and
+ * neither do events stuck unenriched for good - once the watermark trails the highest indexed id by more than
+ * "max-watermark-lag-ids" it's moved up to that distance regardless, skipping whatever is still unenriched below.
+ */
+@Slf4j
+@Component
+public class PackageEventIndex {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EnvironmentComponent env;
+
+    private static final String ENRICHED_EVENTS_SQL =
+        "SELECT id, datasource_id FROM datasource_event " +
+        "WHERE id > ? AND package_index_enriched = true " +
+        "ORDER BY id ASC " +
+        "LIMIT ?";
+
+    private static final String EVENT_PACKAGES_SQL =
+        "SELECT dep.datasource_event_id, p.purl FROM datasource_event_package dep " +
+        "INNER JOIN package p ON p.id = dep.package_id " +
+        "WHERE dep.datasource_event_id = ANY(?)";
+
+    private static final String FIRST_UNFINISHED_SQL =
+        "SELECT min(id) FROM datasource_event " +
+        "WHERE id > ? AND package_index_enriched = false AND status <> 'PROCESSING_ERROR'";
+
+    private static final String STUCK_COUNT_SQL =
+        "SELECT count(*) FROM datasource_event " +
+        "WHERE id > ? AND id <= ? AND package_index_enriched = false AND status <> 'PROCESSING_ERROR'";
+
+    private final ConcurrentHashMap<String, PostingList> byPurl = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, PostingList> byVersionlessPurl = new ConcurrentHashMap<>();
+
+    private final ConcurrentSkipListSet<Long> indexedAboveWatermark = new ConcurrentSkipListSet<>();
+
+    private volatile long lowWatermark = 0;
+
+    private volatile boolean warm = false;
+
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        if ( !env.isPackageEventIndexEnabled() ) {
+            log.info("package event index is disabled");
+            return;
+        }
+
+        var indexed = poll();
+        warm = true;
+        log.info(
+            "warmed package event index with {} events, {} purls and {} packages up to event id {}",
+            indexed,
+            byPurl.size(),
+            byVersionlessPurl.size(),
+            lowWatermark
+        );
+    }
+
+
+    @Scheduled(
+        fixedDelayString = "${custom.package-event-index.poll-interval-ms}",
+        initialDelayString = "${custom.package-event-index.poll-interval-ms}"
+    )
+    public void scheduledPoll() {
+        if ( !warm ) { return; }
+        poll();
+    }
+
+
+    /**
+     * @return the newest postings for argument purl after skipping "skipNewest" of them, with counts over all of them.
+     *         a purl without a version matches every version of the package.
+     */
+    public Optional<PostingList.Slice> get(String purl, int skipNewest, int limit) {
+        if ( !warm ) { return Optional.empty(); }
+
+        var versionless = versionless(purl);
+        var list = versionless.equals(purl) ? byVersionlessPurl.get(purl) : byPurl.get(purl);
+        return Optional.of(
+            list == null
+                ? new PostingList.Slice(new PostingList.Postings(new long[0], new long[0]), 0, 0)
+                : list.decodeNewest(skipNewest, limit)
+        );
+    }
+
+
+    /**
+     * strips version, qualifiers and subpath. the version separator is the first '@' after the last '/' so npm
+     * scopes (pkg:npm/@angular/core@1.0.0) are left alone.
+     */
+    public static String versionless(String purl) {
+        var nameStart = purl.lastIndexOf('/') + 1;
+        var end = purl.length();
+        for (var separator : new char[] { '@', '?', '#' }) {
+            var at = purl.indexOf(separator, nameStart);
+            if (at >= 0 && at < end) { end = at; }
+        }
+        return purl.substring(0, end);
+    }
+
+
+    //
+    // helpers
+    //
+
+
+    /**
+     * indexes every enriched event above the watermark not already indexed, then advances the watermark
+     *
+     * @return number of events indexed
+     */
+    private synchronized int poll() {
+        var batchSize = env.getPackageEventIndexPollBatchSize();
+        var cursor = lowWatermark;
+        var highestSeen = lowWatermark;
+        var rv = 0;
+        var touched = Collections.newSetFromMap(new IdentityHashMap<PostingList, Boolean>());
+
+        while (true) {
+            var eventIds = new ArrayList<Long>();
+            var datasourceIds = new HashMap<Long, Long>();
+            jdbcTemplate.query(
+                ENRICHED_EVENTS_SQL,
+                rs -> {
+                    var id = rs.getLong("id");
+                    eventIds.add(id);
+                    datasourceIds.put(id, rs.getLong("datasource_id"));
+                },
+                cursor,
+                batchSize
+            );
+            if (eventIds.isEmpty()) { break; }
+
+            cursor = eventIds.getLast();
+            highestSeen = Math.max(highestSeen, cursor);
+
+            var unindexed = eventIds.stream().filter(id -> !indexedAboveWatermark.contains(id)).toList();
+            if ( !unindexed.isEmpty() ) {
+                index(unindexed, datasourceIds, touched);
+                indexedAboveWatermark.addAll(unindexed);
+                rv += unindexed.size();
+            }
+
+            if (eventIds.size() < batchSize) { break; }
+        }
+
+        // events indexed out of id order were buffered by their lists - fold them in once per list
+        touched.forEach(PostingList::mergeLate);
+        advanceWatermark(highestSeen);
+        return rv;
+    }
+
+
+    private void index(List<Long> eventIds, Map<Long, Long> datasourceIds, Set<PostingList> touched) {
+        jdbcTemplate.query(
+            EVENT_PACKAGES_SQL,
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", eventIds.toArray())),
+            rs -> {
+                var eventId = rs.getLong("datasource_event_id");
+                var purl = rs.getString("purl");
+                if (purl == null) { return; }
+
+                var datasourceId = datasourceIds.get(eventId);
+                var purlList = byPurl.computeIfAbsent(purl, k -> new PostingList());
+                var versionlessList = byVersionlessPurl.computeIfAbsent(versionless(purl), k -> new PostingList());
+                purlList.add(eventId, datasourceId);
+                versionlessList.add(eventId, datasourceId);
+                touched.add(purlList);
+                touched.add(versionlessList);
+            }
+        );
+    }
+
+
+    private void advanceWatermark(long highestSeen) {
+        var firstUnfinished = jdbcTemplate.queryForObject(FIRST_UNFINISHED_SQL, Long.class, lowWatermark);
+        var newWatermark = firstUnfinished == null ? highestSeen : Math.min(highestSeen, firstUnfinished - 1);
+
+        var floor = highestSeen - env.getPackageEventIndexMaxWatermarkLagIds();
+        if (newWatermark < floor && floor > lowWatermark) {
+            var stuck = jdbcTemplate.queryForObject(STUCK_COUNT_SQL, Long.class, lowWatermark, floor);
+            log.warn(
+                "giving up on {} unenriched events between ids {} and {} - they held the watermark {} ids back",
+                stuck,
+                lowWatermark,
+                floor,
+                highestSeen - newWatermark
+            );
+            newWatermark = floor;
+        }
+        if (newWatermark <= lowWatermark) { return; }
+
+        lowWatermark = newWatermark;
+        indexedAboveWatermark.headSet(newWatermark, true).clear();
+    }
+
+}
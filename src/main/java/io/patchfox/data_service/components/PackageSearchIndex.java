@@ -0,0 +1,304 @@
+package io.patchfox.data_service.components;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Search over the PurlCatalog for the search box - one result per package (all versions of a purl folded together),
+ * ranked, top k. Three modes:
+ *
+ *   PREFIX   name starts with the query, or the purl does when the query starts with "pkg:"
+ *   TRIGRAM  name is similar to the query - pg_trgm style trigrams and similarity, so typos still match
+ *   TOKEN    every word of the query is a word of the namespace or name (split on . / - _ : and spaces)
+ *
+ * Entries are folded in as the catalog grows. Packages are looked up by lower cased name, so matching is case
+ * insensitive.
+ */
+@Slf4j
+@Component
+public class PackageSearchIndex {
+
+    @Autowired
+    PurlCatalog purlCatalog;
+
+    @Autowired
+    EnvironmentComponent env;
+
+    public enum Mode {
+        PREFIX, TRIGRAM, TOKEN;
+
+        public static Optional<Mode> fromParameter(String value) {
+            return Arrays.stream(values()).filter(m -> m.name().equalsIgnoreCase(value)).findFirst();
+        }
+    }
+
+    /**
+     * a package (all versions of one versionless purl) and its score for the query that found it. higher is better.
+     */
+    public record Hit(
+        String purl,
+        PurlCatalog.Kind kind,
+        String type,
+        String namespace,
+        String name,
+        int versionCount,
+        double score
+    ) {}
+
+    private static final String TOKEN_SEPARATORS = "[./\\-_:\\s]+";
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // guarded by lock
+    private final List<Group> groups = new ArrayList<>();
+
+    private final Map<String, Integer> groupIdsByPurl = new HashMap<>();
+
+    private final TreeMap<String, IntList> groupIdsByName = new TreeMap<>();
+
+    private final TreeMap<String, Integer> groupIdsBySortedPurl = new TreeMap<>();
+
+    private final Map<Long, IntList> groupIdsByTrigram = new HashMap<>();
+
+    private final Map<String, IntList> groupIdsByToken = new HashMap<>();
+
+    private volatile int indexedUpTo = 0;
+
+
+    @Scheduled(
+        fixedDelayString = "${custom.purl-catalog.refresh-interval-ms}",
+        initialDelayString = "${custom.purl-catalog.refresh-interval-ms}"
+    )
+    public void scheduledCatchUp() {
+        catchUp();
+    }
+
+
+    /**
+     * @return up to limit best hits for argument query, or empty if the catalog isn't loaded yet
+     */
+    public Optional<List<Hit>> search(String query, Mode mode, int limit) {
+        if ( !purlCatalog.isWarm() ) { return Optional.empty(); }
+        catchUp();
+
+        var normalized = query.trim().toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            var scores = switch (mode) {
+                case PREFIX -> prefix(normalized);
+                case TRIGRAM -> trigram(normalized);
+                case TOKEN -> token(normalized);
+            };
+
+            var rv = scores.entrySet()
+                           .stream()
+                           .sorted(
+                               Comparator.<Map.Entry<Integer, Double>>comparingDouble(Map.Entry::getValue)
+                                         .reversed()
+                                         .thenComparing(e -> groups.get(e.getKey()).versionCount, Comparator.reverseOrder())
+                                         .thenComparing(e -> groups.get(e.getKey()).purl)
+                           )
+                           .limit(limit)
+                           .map(e -> groups.get(e.getKey()).toHit(e.getValue()))
+                           .toList();
+            return Optional.of(rv);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    //
+    // helpers
+    //
+
+
+    private Map<Integer, Double> prefix(String query) {
+        var rv = new HashMap<Integer, Double>();
+        if (query.startsWith("pkg:")) {
+            for (var groupId : groupIdsBySortedPurl.subMap(query, true, query + Character.MAX_VALUE, false).values()) {
+                rv.put(groupId, (double) query.length() / groups.get(groupId).purl.length());
+            }
+            return rv;
+        }
+
+        // shorter names are closer to what was typed - an exact name scores 1
+        for (var entry : groupIdsByName.subMap(query, true, query + Character.MAX_VALUE, false).entrySet()) {
+            var score = (double) query.length() / entry.getKey().length();
+            entry.getValue().forEach(groupId -> rv.put(groupId, score));
+        }
+        return rv;
+    }
+
+
+    /**
+     * similarity is shared trigrams / all distinct trigrams of both, same as pg_trgm's similarity()
+     */
+    private Map<Integer, Double> trigram(String query) {
+        var queryTrigrams = trigrams(query);
+        var shared = new HashMap<Integer, Integer>();
+        for (var trigram : queryTrigrams) {
+            var postings = groupIdsByTrigram.get(trigram);
+            if (postings == null) { continue; }
+            postings.forEach(groupId -> shared.merge(groupId, 1, Integer::sum));
+        }
+
+        var threshold = env.getSearchSimilarityThreshold();
+        var rv = new HashMap<Integer, Double>();
+        shared.forEach((groupId, count) -> {
+            var groupTrigrams = groups.get(groupId).trigramCount;
+            var similarity = (double) count / (queryTrigrams.size() + groupTrigrams - count);
+            if (similarity >= threshold) { rv.put(groupId, similarity); }
+        });
+        return rv;
+    }
+
+
+    private Map<Integer, Double> token(String query) {
+        var tokens = tokens(query);
+        if (tokens.isEmpty()) { return Map.of(); }
+
+        // intersect starting from the rarest token
+        var postings = new ArrayList<IntList>();
+        for (var token : tokens) {
+            var list = groupIdsByToken.get(token);
+            if (list == null) { return Map.of(); }
+            postings.add(list);
+        }
+        postings.sort(Comparator.comparingInt(l -> l.size));
+
+        var candidates = new HashSet<Integer>();
+        postings.getFirst().forEach(candidates::add);
+        for (var list : postings.subList(1, postings.size())) {
+            var next = new HashSet<Integer>();
+            list.forEach(groupId -> { if (candidates.contains(groupId)) { next.add(groupId); } });
+            candidates.retainAll(next);
+        }
+
+        // the fewer other words a package has, the better it matches
+        var rv = new HashMap<Integer, Double>();
+        for (var groupId : candidates) { rv.put(groupId, (double) tokens.size() / groups.get(groupId).tokenCount); }
+        return rv;
+    }
+
+
+    private void catchUp() {
+        if (purlCatalog.size() <= indexedUpTo) { return; }
+
+        lock.writeLock().lock();
+        try {
+            var catalogSize = purlCatalog.size();
+            var from = indexedUpTo;
+            for (int id = from; id < catalogSize; id++) { index(purlCatalog.entry(id)); }
+            indexedUpTo = catalogSize;
+            log.debug("indexed {} catalog entries for search, {} packages total", catalogSize - from, groups.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    private void index(PurlCatalog.Entry entry) {
+        if (entry.name() == null) { return; }
+
+        var purl = PackageEventIndex.versionless(entry.purl());
+        var existing = groupIdsByPurl.get(purl);
+        if (existing != null) {
+            groups.get(existing).versionCount++;
+            return;
+        }
+
+        var name = entry.name().toLowerCase(Locale.ROOT);
+        var nameTrigrams = trigrams(name);
+        var tokens = new HashSet<String>(tokens(name));
+        if (entry.namespace() != null) { tokens.addAll(tokens(entry.namespace().toLowerCase(Locale.ROOT))); }
+
+        var groupId = groups.size();
+        groups.add(new Group(purl, entry, nameTrigrams.size(), tokens.size()));
+        groupIdsByPurl.put(purl, groupId);
+        groupIdsBySortedPurl.put(purl.toLowerCase(Locale.ROOT), groupId);
+        groupIdsByName.computeIfAbsent(name, k -> new IntList()).add(groupId);
+        for (var trigram : nameTrigrams) { groupIdsByTrigram.computeIfAbsent(trigram, k -> new IntList()).add(groupId); }
+        for (var token : tokens) { groupIdsByToken.computeIfAbsent(token, k -> new IntList()).add(groupId); }
+    }
+
+
+    /**
+     * distinct trigrams of each word, padded with two spaces in front and one behind, packed three chars to a long
+     */
+    static HashSet<Long> trigrams(String value) {
+        var rv = new HashSet<Long>();
+        for (var word : value.split("[^\\p{Alnum}]+")) {
+            if (word.isEmpty()) { continue; }
+            var padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                rv.add(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+            }
+        }
+        return rv;
+    }
+
+
+    static List<String> tokens(String value) {
+        return Arrays.stream(value.split(TOKEN_SEPARATORS)).filter(t -> !t.isEmpty()).distinct().toList();
+    }
+
+
+    private static class Group {
+        final String purl;
+        final PurlCatalog.Kind kind;
+        final String type;
+        final String namespace;
+        final String name;
+        final int trigramCount;
+        final int tokenCount;
+        int versionCount = 1;
+
+        Group(String purl, PurlCatalog.Entry entry, int trigramCount, int tokenCount) {
+            this.purl = purl;
+            this.kind = entry.kind();
+            this.type = entry.type();
+            this.namespace = entry.namespace();
+            this.name = entry.name();
+            this.trigramCount = trigramCount;
+            this.tokenCount = Math.max(1, tokenCount);
+        }
+
+        Hit toHit(double score) {
+            return new Hit(purl, kind, type, namespace, name, versionCount, score);
+        }
+    }
+
+
+    private static class IntList {
+        int[] values = new int[2];
+        int size = 0;
+
+        void add(int value) {
+            if (size == values.length) { values = Arrays.copyOf(values, size * 2); }
+            values[size++] = value;
+        }
+
+        void forEach(IntConsumer consumer) {
+            for (int i = 0; i < size; i++) { consumer.accept(values[i]); }
+        }
+    }
+
+}
@@ -0,0 +1,587 @@
+package io.patchfox.data_service.components;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.github.packageurl.MalformedPackageURLException;
+import com.github.packageurl.PackageURL;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Dictionary of every package.purl and datasource.purl. Each purl gets a dense int id, is held as one shared String
+ * and is parsed into its components once, so callers can compare, hash and group by int instead of re-reading,
+ * re-parsing and re-hashing the same long strings per request. Packages also carry their version lag fields.
+ *
+ * Purls are immutable once written so the catalog only grows - each refresh appends rows with a db id above the
+ * highest seen less "id-overlap" (ids are handed out before commit, so a row can show up after a higher one was
+ * already read - add() skips rows already cataloged), and re-reads the lag fields of packages whose updated_at moved.
+ * A purl written since the last refresh isn't in the catalog yet; callers fall back to the db (or the raw string) on
+ * a miss.
+ *
+ * The catalog is periodically written to a PurlCatalogSnapshot file and on shutdown. At startup that file is mapped
+ * and only the delta since its watermarks is read from the db, rather than the whole package table.
+ */
+@Slf4j
+@Component
+public class PurlCatalog {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EnvironmentComponent env;
+
+    private static final String PACKAGE_COLUMNS =
+        "id, purl, number_versions_behind_head, number_major_versions_behind_head, " +
+        "number_minor_versions_behind_head, number_patch_versions_behind_head, most_recent_version, updated_at";
+
+    private static final String NEW_PACKAGES_SQL =
+        "SELECT " + PACKAGE_COLUMNS + " FROM package WHERE id > ? ORDER BY id ASC LIMIT ?";
+
+    // keyset paged on (updated_at, id) - served by UPDATED_AT_INDEX_SQL's index, without which every refresh is a
+    // full scan of package. only rows already in the catalog - new ones come from NEW_PACKAGES_SQL
+    private static final String UPDATED_PACKAGES_SQL =
+        "SELECT " + PACKAGE_COLUMNS + " FROM package " +
+        "WHERE (updated_at, id) > (?, ?) AND id <= ? " +
+        "ORDER BY updated_at ASC, id ASC LIMIT ?";
+
+    // package belongs to the entity library's schema, so the one index the catalog needs on it is created here.
+    // CONCURRENTLY so building it on a large table doesn't hold up writers
+    private static final String UPDATED_AT_INDEX_SQL =
+        "CREATE INDEX CONCURRENTLY IF NOT EXISTS package_updated_at_id_idx ON package (updated_at, id)";
+
+    // a CONCURRENTLY build that fails leaves the index behind marked invalid, which IF NOT EXISTS would then skip
+    // forever. one still being built by another instance is invalid too, so that's told apart by its build progress
+    private static final String UPDATED_AT_INDEX_VALID_SQL =
+        "SELECT i.indisvalid, EXISTS (" +
+        "SELECT 1 FROM pg_stat_progress_create_index p WHERE p.index_relid = i.indexrelid" +
+        ") AS building " +
+        "FROM pg_index i WHERE i.indexrelid = to_regclass('package_updated_at_id_idx')";
+
+    private static final String DROP_UPDATED_AT_INDEX_SQL =
+        "DROP INDEX CONCURRENTLY IF EXISTS package_updated_at_id_idx";
+
+    private static final String NEW_DATASOURCES_SQL =
+        "SELECT id, purl FROM datasource WHERE id > ? ORDER BY id ASC LIMIT ?";
+
+    public enum Kind { PACKAGE, DATASOURCE }
+
+    /**
+     * a package's distance from the newest version of itself
+     */
+    public record VersionLag(
+        int versionsBehindHead,
+        int majorVersionsBehindHead,
+        int minorVersionsBehindHead,
+        int patchVersionsBehindHead,
+        String mostRecentVersion
+    ) {}
+
+    /**
+     * one purl. components are null when the purl doesn't parse. lag is null for datasources.
+     */
+    public record Entry(
+        int id,
+        Kind kind,
+        long rowId,
+        String purl,
+        String type,
+        String namespace,
+        String name,
+        String version,
+        VersionLag lag
+    ) {}
+
+    private volatile Entry[] entries = new Entry[1024];
+
+    private volatile int size = 0;
+
+    private final ConcurrentHashMap<String, Integer> idsByPurl = new ConcurrentHashMap<>();
+
+    private final ConcurrentSkipListMap<String, Integer> sortedPurls = new ConcurrentSkipListMap<>();
+
+    private final ConcurrentHashMap<String, int[]> idsByName = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Long, Integer> idsByPackageId = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Long, Integer> idsByDatasourceId = new ConcurrentHashMap<>();
+
+    // datasources are few and filtered by substring a lot, so they're also kept as their own list
+    private volatile int[] datasourceIds = new int[0];
+
+    // component strings repeat heavily (type, namespace) - one instance of each
+    private final ConcurrentHashMap<String, String> components = new ConcurrentHashMap<>();
+
+    private volatile long packageWatermark = 0;
+
+    private volatile long datasourceWatermark = 0;
+
+    // highest package updated_at seen, epoch microseconds
+    private volatile long updatedAtWatermark = 0;
+
+    // changed since the snapshot was last written
+    private volatile boolean dirty = false;
+
+    private volatile boolean warm = false;
+
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        if ( !env.isPurlCatalogEnabled() ) {
+            log.info("purl catalog is disabled");
+            return;
+        }
+
+        var startMillis = System.currentTimeMillis();
+        createUpdatedAtIndex();
+        var fromSnapshot = loadSnapshot();
+        var delta = refresh();
+        warm = true;
+        log.info(
+            "warmed purl catalog with {} purls ({} datasources) in {}ms - {} from snapshot, {} read from db",
+            size,
+            datasourceIds.length,
+            System.currentTimeMillis() - startMillis,
+            fromSnapshot,
+            delta
+        );
+
+        // a cold start just paid for the full scan - make sure the next one doesn't
+        if (fromSnapshot == 0) { writeSnapshot(); }
+    }
+
+
+    @Scheduled(
+        fixedDelayString = "${custom.purl-catalog.refresh-interval-ms}",
+        initialDelayString = "${custom.purl-catalog.refresh-interval-ms}"
+    )
+    public void scheduledRefresh() {
+        if ( !warm ) { return; }
+        refresh();
+    }
+
+
+    @Scheduled(
+        fixedDelayString = "${custom.purl-catalog.snapshot.write-interval-ms}",
+        initialDelayString = "${custom.purl-catalog.snapshot.write-interval-ms}"
+    )
+    public void scheduledSnapshot() {
+        if ( !warm || !dirty ) { return; }
+        writeSnapshot();
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        if ( !warm || !dirty ) { return; }
+        writeSnapshot();
+    }
+
+
+    public boolean isWarm() {
+        return warm;
+    }
+
+
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * @return catalog id of argument purl or -1 if it isn't in the catalog
+     */
+    public int idOf(String purl) {
+        var rv = idsByPurl.get(purl);
+        return rv == null ? -1 : rv;
+    }
+
+
+    public Optional<Entry> get(String purl) {
+        var id = idOf(purl);
+        return id < 0 ? Optional.empty() : Optional.of(entry(id));
+    }
+
+
+    public Entry entry(int id) {
+        // size is read before entries - entries is only ever replaced by a larger copy
+        if (id < 0 || id >= size) { throw new IndexOutOfBoundsException(id); }
+        return entries[id];
+    }
+
+
+    /**
+     * @return catalog id of argument package row or -1 if it isn't in the catalog
+     */
+    public int idOfPackage(long packageId) {
+        var rv = idsByPackageId.get(packageId);
+        return rv == null ? -1 : rv;
+    }
+
+
+    /**
+     * @return catalog id of argument datasource row or -1 if it isn't in the catalog
+     */
+    public int idOfDatasource(long datasourceId) {
+        var rv = idsByDatasourceId.get(datasourceId);
+        return rv == null ? -1 : rv;
+    }
+
+
+    /**
+     * @return catalog ids of every purl whose parsed name is argument name, in any type, namespace or version
+     */
+    public int[] withName(String name) {
+        var rv = idsByName.get(name);
+        return rv == null ? new int[0] : rv.clone();
+    }
+
+
+    /**
+     * @return catalog ids of every purl starting with argument prefix, in purl order. eg - "pkg:maven/org.apache."
+     */
+    public int[] withPrefix(String prefix) {
+        return sortedPurls.subMap(prefix, true, prefix + Character.MAX_VALUE, false)
+                          .values()
+                          .stream()
+                          .mapToInt(Integer::intValue)
+                          .toArray();
+    }
+
+
+    /**
+     * @return catalog ids of every datasource whose purl contains any of argument fragments. covers at least every
+     *         datasource with an id below the size() read before calling this.
+     */
+    public BitSet datasourcesContaining(Collection<String> fragments) {
+        var rv = new BitSet();
+        for (var id : datasourceIds) {
+            // listed but not published yet - ids only grow, so neither is anything after it
+            if (id >= size) { break; }
+            var purl = entry(id).purl();
+            for (var fragment : fragments) {
+                if (purl.contains(fragment)) {
+                    rv.set(id);
+                    break;
+                }
+            }
+        }
+        return rv;
+    }
+
+
+    //
+    // helpers
+    //
+
+
+    /**
+     * @return number of rows read from the db that changed the catalog
+     */
+    private synchronized int refresh() {
+        var rv = 0;
+        rv += loadNewPackages();
+        rv += loadUpdatedPackages();
+        rv += loadNewDatasources();
+        if (rv > 0) {
+            dirty = true;
+            log.debug("read {} rows into purl catalog", rv);
+        }
+        return rv;
+    }
+
+
+    private int loadNewPackages() {
+        var batchSize = env.getPurlCatalogPollBatchSize();
+        var cursor = Math.max(0, packageWatermark - env.getPurlCatalogIdOverlap());
+        var rv = 0;
+
+        while (true) {
+            var rows = new ArrayList<PackageRow>(batchSize);
+            jdbcTemplate.query(NEW_PACKAGES_SQL, rs -> { rows.add(PackageRow.of(rs)); }, cursor, batchSize);
+            if (rows.isEmpty()) { break; }
+
+            for (var row : rows) {
+                if (row.purl() == null || !add(parse(size, Kind.PACKAGE, row.rowId(), row.purl(), row.lag()))) {
+                    continue;
+                }
+                advanceUpdatedAtWatermark(row.updatedAtMicros());
+                rv++;
+            }
+            cursor = rows.getLast().rowId();
+            packageWatermark = Math.max(packageWatermark, cursor);
+
+            if (rows.size() < batchSize) { break; }
+        }
+
+        return rv;
+    }
+
+
+    /**
+     * re-reads lag fields of cataloged packages updated since the watermark. the watermark is backed off by the
+     * configured overlap to catch updates that committed late with an earlier updated_at - applying one twice is
+     * harmless.
+     */
+    private int loadUpdatedPackages() {
+        var batchSize = env.getPurlCatalogPollBatchSize();
+        var cursorUpdatedAt = toOffsetDateTime(updatedAtWatermark).minus(
+            env.getPurlCatalogUpdatedAtOverlapMillis(),
+            ChronoUnit.MILLIS
+        );
+        var cursorId = 0L;
+        var rv = 0;
+
+        while (true) {
+            var rows = new ArrayList<PackageRow>(batchSize);
+            jdbcTemplate.query(
+                UPDATED_PACKAGES_SQL,
+                rs -> { rows.add(PackageRow.of(rs)); },
+                cursorUpdatedAt,
+                cursorId,
+                packageWatermark,
+                batchSize
+            );
+            if (rows.isEmpty()) { break; }
+
+            for (var row : rows) {
+                var id = idOfPackage(row.rowId());
+                // the overlap re-reads rows already applied - only a change counts
+                if (id >= 0 && !row.lag().equals(entries[id].lag())) {
+                    var current = entries[id];
+                    entries[id] = new Entry(
+                        id,
+                        current.kind(),
+                        current.rowId(),
+                        current.purl(),
+                        current.type(),
+                        current.namespace(),
+                        current.name(),
+                        current.version(),
+                        row.lag()
+                    );
+                    rv++;
+                }
+                advanceUpdatedAtWatermark(row.updatedAtMicros());
+            }
+            cursorUpdatedAt = toOffsetDateTime(rows.getLast().updatedAtMicros());
+            cursorId = rows.getLast().rowId();
+
+            if (rows.size() < batchSize) { break; }
+        }
+
+        return rv;
+    }
+
+
+    private int loadNewDatasources() {
+        var batchSize = env.getPurlCatalogPollBatchSize();
+        var cursor = Math.max(0, datasourceWatermark - env.getPurlCatalogIdOverlap());
+        var rv = 0;
+
+        while (true) {
+            var rowIds = new ArrayList<Long>(batchSize);
+            var purls = new ArrayList<String>(batchSize);
+            jdbcTemplate.query(
+                NEW_DATASOURCES_SQL,
+                rs -> {
+                    rowIds.add(rs.getLong("id"));
+                    purls.add(rs.getString("purl"));
+                },
+                cursor,
+                batchSize
+            );
+            if (rowIds.isEmpty()) { break; }
+
+            for (int i = 0; i < rowIds.size(); i++) {
+                if (purls.get(i) == null) { continue; }
+                if (add(parse(size, Kind.DATASOURCE, rowIds.get(i), purls.get(i), null))) { rv++; }
+            }
+            cursor = rowIds.getLast();
+            datasourceWatermark = Math.max(datasourceWatermark, cursor);
+
+            if (rowIds.size() < batchSize) { break; }
+        }
+
+        return rv;
+    }
+
+
+    /**
+     * @return false if argument entry's row is already in the catalog, which is left as is
+     */
+    private boolean add(Entry entry) {
+        var byRowId = entry.kind() == Kind.PACKAGE ? idsByPackageId : idsByDatasourceId;
+        if (byRowId.containsKey(entry.rowId())) { return false; }
+
+        // a package and a datasource can share a purl - the first one in keeps the purl -> id slot
+        var id = entry.id();
+        if (id == entries.length) { entries = Arrays.copyOf(entries, entries.length * 2); }
+        entries[id] = entry;
+        // before size, so every datasource below a size a reader saw is already in the list
+        if (entry.kind() == Kind.DATASOURCE) { datasourceIds = concat(datasourceIds, new int[] { id }); }
+        size = id + 1;
+
+        idsByPurl.putIfAbsent(entry.purl(), id);
+        sortedPurls.putIfAbsent(entry.purl(), id);
+        if (entry.name() != null) { idsByName.merge(entry.name(), new int[] { id }, PurlCatalog::concat); }
+        if (entry.kind() == Kind.PACKAGE) {
+            idsByPackageId.put(entry.rowId(), id);
+        } else {
+            idsByDatasourceId.put(entry.rowId(), id);
+        }
+        return true;
+    }
+
+
+    private Entry parse(int id, Kind kind, long rowId, String purl, VersionLag lag) {
+        try {
+            var parsed = new PackageURL(purl);
+            return new Entry(
+                id,
+                kind,
+                rowId,
+                purl,
+                intern(parsed.getType()),
+                intern(parsed.getNamespace()),
+                intern(parsed.getName()),
+                parsed.getVersion(),
+                lag
+            );
+        } catch (MalformedPackageURLException e) {
+            log.debug("purl {} doesn't parse: {}", purl, e.getMessage());
+            return new Entry(id, kind, rowId, purl, null, null, null, null, lag);
+        }
+    }
+
+
+    private void createUpdatedAtIndex() {
+        try {
+            var states = jdbcTemplate.query(
+                UPDATED_AT_INDEX_VALID_SQL,
+                (rs, rowNum) -> !rs.getBoolean("indisvalid") && !rs.getBoolean("building")
+            );
+            if (states.contains(true)) {
+                log.warn("package (updated_at, id) index was left invalid by a failed build - rebuilding it");
+                jdbcTemplate.execute(DROP_UPDATED_AT_INDEX_SQL);
+            }
+            jdbcTemplate.execute(UPDATED_AT_INDEX_SQL);
+        } catch (RuntimeException e) {
+            // the catalog still works without it, just with a full scan of package per refresh
+            log.warn("unable to create package (updated_at, id) index: {}", e.getMessage());
+        }
+    }
+
+
+    /**
+     * @return number of entries loaded from the snapshot file, 0 if there is none or it's unusable
+     */
+    private synchronized int loadSnapshot() {
+        var path = Path.of(env.getPurlCatalogSnapshotPath());
+        if ( !Files.exists(path) ) {
+            log.info("no purl catalog snapshot at {} - loading from db", path);
+            return 0;
+        }
+
+        try {
+            var contents = PurlCatalogSnapshot.read(path, this::intern);
+            entries = new Entry[Math.max(1024, Integer.highestOneBit(Math.max(1, contents.entries().size())) * 2)];
+            for (var entry : contents.entries()) { add(entry); }
+
+            var header = contents.header();
+            packageWatermark = header.packageIdWatermark();
+            datasourceWatermark = header.datasourceIdWatermark();
+            updatedAtWatermark = header.updatedAtWatermarkMicros();
+            return size;
+        } catch (IOException e) {
+            log.warn("ignoring purl catalog snapshot at {}: {}", path, e.getMessage());
+            return 0;
+        }
+    }
+
+
+    private synchronized void writeSnapshot() {
+        var path = Path.of(env.getPurlCatalogSnapshotPath());
+        var startMillis = System.currentTimeMillis();
+        try {
+            var header = new PurlCatalogSnapshot.Header(
+                size,
+                packageWatermark,
+                datasourceWatermark,
+                updatedAtWatermark
+            );
+            PurlCatalogSnapshot.write(path, header, entries);
+            dirty = false;
+            log.info("wrote {} purls to catalog snapshot {} in {}ms", size, path, System.currentTimeMillis() - startMillis);
+        } catch (IOException e) {
+            log.error("failed to write purl catalog snapshot to {}", path, e);
+        }
+    }
+
+
+    private void advanceUpdatedAtWatermark(long updatedAtMicros) {
+        if (updatedAtMicros > updatedAtWatermark) { updatedAtWatermark = updatedAtMicros; }
+    }
+
+
+    private String intern(String component) {
+        return component == null ? null : components.computeIfAbsent(component, k -> k);
+    }
+
+
+    private static OffsetDateTime toOffsetDateTime(long epochMicros) {
+        return OffsetDateTime.ofInstant(Instant.EPOCH.plus(epochMicros, ChronoUnit.MICROS), ZoneOffset.UTC);
+    }
+
+
+    private static int[] concat(int[] a, int[] b) {
+        var rv = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, rv, a.length, b.length);
+        return rv;
+    }
+
+
+    private record PackageRow(long rowId, String purl, VersionLag lag, long updatedAtMicros) {
+
+        static PackageRow of(ResultSet rs) throws SQLException {
+            var updatedAt = rs.getObject("updated_at", OffsetDateTime.class);
+            return new PackageRow(
+                rs.getLong("id"),
+                rs.getString("purl"),
+                new VersionLag(
+                    rs.getInt("number_versions_behind_head"),
+                    rs.getInt("number_major_versions_behind_head"),
+                    rs.getInt("number_minor_versions_behind_head"),
+                    rs.getInt("number_patch_versions_behind_head"),
+                    rs.getString("most_recent_version")
+                ),
+                updatedAt == null ? 0 : ChronoUnit.MICROS.between(Instant.EPOCH, updatedAt.toInstant())
+            );
+        }
+    }
+
+}
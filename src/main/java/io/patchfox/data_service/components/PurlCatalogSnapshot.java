@@ -0,0 +1,180 @@
+package io.patchfox.data_service.components;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+
+/**
+ * On disk form of a PurlCatalog, so a restarted service maps a file and reads the db delta since it was written
+ * rather than scanning the package table.
+ *
+ *   header   [magic:int][format version:int][entry count:int]
+ *            [package id watermark:long][datasource id watermark:long][package updated_at watermark:long (epoch us)]
+ *   entries  [kind:byte][row id:long][purl][type][namespace][name][version][has lag:byte]
+ *            ([versions behind:int][major:int][minor:int][patch:int][most recent version])
+ *   trailer  [crc32c of everything before it:int]
+ *
+ * strings are [utf-8 length:int (-1 for null)][bytes]. entries are in catalog id order so ids survive a restart. a
+ * file with the wrong magic, an unknown format version or a bad checksum is ignored and the catalog loads from the db.
+ */
+class PurlCatalogSnapshot {
+
+    static final int MAGIC = 0x50465043;
+
+    static final int FORMAT_VERSION = 1;
+
+    private static final int TRAILER_SIZE = 4;
+
+
+    record Header(int count, long packageIdWatermark, long datasourceIdWatermark, long updatedAtWatermarkMicros) {}
+
+    record Contents(Header header, List<PurlCatalog.Entry> entries) {}
+
+
+    /**
+     * writes to a temp file beside argument path and moves it into place, so a crash mid write leaves the previous
+     * snapshot intact
+     */
+    static void write(Path path, Header header, PurlCatalog.Entry[] entries) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        var temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        var crc = new CRC32C();
+        try (
+            var fileOut = Files.newOutputStream(temp);
+            var out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(fileOut, crc), 1 << 16))
+        ) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(header.count());
+            out.writeLong(header.packageIdWatermark());
+            out.writeLong(header.datasourceIdWatermark());
+            out.writeLong(header.updatedAtWatermarkMicros());
+
+            for (int i = 0; i < header.count(); i++) {
+                var entry = entries[i];
+                out.writeByte(entry.kind().ordinal());
+                out.writeLong(entry.rowId());
+                writeString(out, entry.purl());
+                writeString(out, entry.type());
+                writeString(out, entry.namespace());
+                writeString(out, entry.name());
+                writeString(out, entry.version());
+
+                var lag = entry.lag();
+                out.writeByte(lag == null ? 0 : 1);
+                if (lag != null) {
+                    out.writeInt(lag.versionsBehindHead());
+                    out.writeInt(lag.majorVersionsBehindHead());
+                    out.writeInt(lag.minorVersionsBehindHead());
+                    out.writeInt(lag.patchVersionsBehindHead());
+                    writeString(out, lag.mostRecentVersion());
+                }
+            }
+
+            out.flush();
+            // the trailer itself is written past the checksummed stream
+            var trailer = ByteBuffer.allocate(TRAILER_SIZE).putInt((int) crc.getValue()).array();
+            fileOut.write(trailer);
+        }
+
+        try (var channel = FileChannel.open(temp, StandardOpenOption.WRITE)) { channel.force(true); }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    /**
+     * maps argument file and decodes it in one pass
+     *
+     * @param intern applied to type, namespace and name so repeats share one instance
+     * @throws IOException if the file can't be read or isn't a valid snapshot
+     */
+    static Contents read(Path path, UnaryOperator<String> intern) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 36 + TRAILER_SIZE) { throw new IOException("snapshot is truncated"); }
+
+            var crc = new CRC32C();
+            crc.update(buffer.slice(0, buffer.limit() - TRAILER_SIZE));
+            if ((int) crc.getValue() != buffer.getInt(buffer.limit() - TRAILER_SIZE)) {
+                throw new IOException("snapshot checksum mismatch");
+            }
+
+            if (buffer.getInt() != MAGIC) { throw new IOException("not a purl catalog snapshot"); }
+            var formatVersion = buffer.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("unsupported snapshot format version " + formatVersion);
+            }
+
+            var header = new Header(buffer.getInt(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+            var kinds = PurlCatalog.Kind.values();
+            var entries = new ArrayList<PurlCatalog.Entry>(header.count());
+            for (int id = 0; id < header.count(); id++) {
+                var kind = kinds[buffer.get()];
+                var rowId = buffer.getLong();
+                var purl = readString(buffer);
+                var type = intern.apply(readString(buffer));
+                var namespace = intern.apply(readString(buffer));
+                var name = intern.apply(readString(buffer));
+                var version = readString(buffer);
+
+                PurlCatalog.VersionLag lag = null;
+                if (buffer.get() == 1) {
+                    lag = new PurlCatalog.VersionLag(
+                        buffer.getInt(),
+                        buffer.getInt(),
+                        buffer.getInt(),
+                        buffer.getInt(),
+                        readString(buffer)
+                    );
+                }
+
+                entries.add(new PurlCatalog.Entry(id, kind, rowId, purl, type, namespace, name, version, lag));
+            }
+
+            return new Contents(header, entries);
+        } catch (RuntimeException e) {
+            // a short or garbled body under a valid checksum - treat like any other bad file
+            throw new IOException("snapshot is malformed", e);
+        }
+    }
+
+
+    //
+    // helpers
+    //
+
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+
+    private static String readString(ByteBuffer buffer) {
+        var length = buffer.getInt();
+        if (length < 0) { return null; }
+        var bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,47 @@
+package io.patchfox.data_service.config;
+
+
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+
+import io.patchfox.data_service.components.EnvironmentComponent;
+import io.patchfox.data_service.kafka.KeyOrderedExecutor;
+import lombok.extern.slf4j.Slf4j;
+
+
+@Slf4j
+@Configuration
+public class KafkaConfig {
+
+    public static final String CONCURRENT_REQUEST_CONTAINER_FACTORY = "concurrentRequestListenerContainerFactory";
+
+
+    /**
+     * container factory for the "concurrent" request processing mode. records are acked by hand once their handler
+     * finishes, in whatever order that happens. with async acks the container holds each commit back until every
+     * earlier offset on the partition has been acked, so only the contiguous completed watermark is ever committed.
+     */
+    @Bean(CONCURRENT_REQUEST_CONTAINER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> concurrentRequestListenerContainerFactory(
+        ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+        ConsumerFactory<Object, Object> consumerFactory
+    ) {
+        var factory = new ConcurrentKafkaListenerContainerFactory<Object, Object>();
+        // picks up everything under spring.kafka.listener.* just like the default factory does
+        configurer.configure(factory, consumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        return factory;
+    }
+
+
+    @Bean(destroyMethod = "close")
+    public KeyOrderedExecutor kafkaRequestExecutor(EnvironmentComponent env) {
+        return new KeyOrderedExecutor(env.getKafkaRequestMaxInFlight());
+    }
+
+}
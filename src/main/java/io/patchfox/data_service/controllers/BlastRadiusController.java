@@ -0,0 +1,61 @@
+package io.patchfox.data_service.controllers;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.patchfox.data_service.helpers.RequestCoalescer;
+import io.patchfox.data_service.services.BlastRadiusService;
+import io.patchfox.package_utils.json.ApiResponse;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * "what is exposed to finding X" - served from BlastRadiusIndex
+ */
+@Slf4j
+@RestController
+public class BlastRadiusController {
+
+    public static final String API_PATH_PREFIX = "/api/v1";
+
+    public static final String BLAST_RADIUS_PATH = API_PATH_PREFIX + "/findings/{identifier}/blastRadius";
+    public static final String GET_BLAST_RADIUS_SIGNATURE = "GET_" + BLAST_RADIUS_PATH;
+
+    @Autowired
+    BlastRadiusService blastRadiusService;
+
+    @Autowired
+    RequestCoalescer requestCoalescer;
+
+
+    /**
+     * @param identifier finding identifier, eg - CVE-2021-44228
+     */
+    @GetMapping(
+        value = BLAST_RADIUS_PATH,
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    ResponseEntity<ApiResponse> blastRadiusHandler(
+        @RequestAttribute UUID txid,
+        @RequestAttribute ZonedDateTime requestReceivedAt,
+        @PathVariable String identifier
+    ) {
+        // a new critical finding means everyone asks at once - coalescing collapses that to one walk of the index
+        var apiResponse = requestCoalescer.coalesce(
+            RequestCoalescer.key(GET_BLAST_RADIUS_SIGNATURE, identifier),
+            txid,
+            requestReceivedAt,
+            () -> blastRadiusService.getBlastRadius(txid, requestReceivedAt, identifier)
+        );
+        return ResponseEntity.status(apiResponse.getCode()).body(apiResponse);
+    }
+
+}
@@ -0,0 +1,48 @@
+package io.patchfox.data_service.controllers;
+
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.patchfox.data_service.services.ClaimCheckService;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Fetches response bodies that were too large to send over kafka. The body is returned exactly as it was serialized -
+ * a complete ApiResponse - so it isn't wrapped in another one.
+ */
+@Slf4j
+@RestController
+public class ClaimCheckController {
+
+    public static final String API_PATH_PREFIX = "/api/v1";
+
+    public static final String CLAIM_CHECK_PATH = API_PATH_PREFIX + "/claimCheck/{id}";
+    public static final String GET_CLAIM_CHECK_SIGNATURE = "GET_" + CLAIM_CHECK_PATH;
+
+    @Autowired
+    ClaimCheckService claimCheckService;
+
+
+    @GetMapping(
+        value = CLAIM_CHECK_PATH,
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    ResponseEntity<byte[]> claimCheckHandler(@PathVariable("id") UUID id) {
+        var bodyOptional = claimCheckService.fetch(id);
+        if (bodyOptional.isEmpty()) {
+            log.warn("claim check {} not found or expired", id);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(bodyOptional.get());
+    }
+
+}
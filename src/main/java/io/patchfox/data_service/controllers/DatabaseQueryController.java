@@ -4,19 +4,36 @@ import java.time.ZonedDateTime;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.patchfox.data_service.components.EnvironmentComponent;
+import io.patchfox.data_service.dto.DatasourceEventDTO;
+import io.patchfox.data_service.helpers.PayloadFieldExtractor;
+import io.patchfox.data_service.json.DatabaseBatchQuery;
+import io.patchfox.data_service.json.DatabaseLookupRequest;
+import io.patchfox.data_service.helpers.RequestCoalescer;
+import io.patchfox.data_service.services.DatabaseBatchQueryService;
+import io.patchfox.data_service.services.DatabaseLookupService;
 import io.patchfox.data_service.services.DatabaseQueryService;
+import io.patchfox.data_service.services.QueryJobService;
 import io.patchfox.package_utils.json.ApiResponse;
 
 import lombok.extern.slf4j.Slf4j;
@@ -34,11 +51,44 @@ public class DatabaseQueryController {
     @Autowired
     private DatabaseQueryService databaseQueryService;
 
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    @Autowired
+    private DatabaseBatchQueryService databaseBatchQueryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DatabaseLookupService databaseLookupService;
+
+    @Autowired
+    private QueryJobService queryJobService;
+
     public static final String API_PATH_PREFIX = "/api/v1/db";    
     
     public static final String TABLE_QUERY_PATH = API_PATH_PREFIX + "/{table}/query";
     public static final String GET_TABLE_QUERY_SIGNATURE = "GET_" + TABLE_QUERY_PATH;
 
+    // several table queries in one request, run against one snapshot of the db
+    public static final String BATCH_QUERY_PATH = API_PATH_PREFIX + "/batch";
+    public static final String POST_BATCH_QUERY_SIGNATURE = "POST_" + BATCH_QUERY_PATH;
+
+    // over kafka there is no request body so the same JSON object is passed in this query string parameter instead
+    public static final String BATCH_QUERIES_KEY = "queries";
+
+    // rows by id or purl, with the keys in the request body rather than the query string
+    public static final String TABLE_LOOKUP_PATH = API_PATH_PREFIX + "/{table}/lookup";
+    public static final String POST_TABLE_LOOKUP_SIGNATURE = "POST_" + TABLE_LOOKUP_PATH;
+
+    // results of queries sent with async=true
+    public static final String QUERY_JOB_PATH = API_PATH_PREFIX + "/jobs/{id}";
+    public static final String GET_QUERY_JOB_SIGNATURE = "GET_" + QUERY_JOB_PATH;
+
+    public static final String TABLE_LOOKUP_STREAM_PATH = TABLE_LOOKUP_PATH + "/stream";
+    public static final String POST_TABLE_LOOKUP_STREAM_SIGNATURE = "POST_" + TABLE_LOOKUP_STREAM_PATH;
+
     //
 
     // here when we filter by datasource we get all datasetMetrics records that contain the datasource as a member of 
@@ -89,6 +139,11 @@ public class DatabaseQueryController {
     public static final String DATASOURCE_KEY = "datasource";
     public static final String EDIT_DATASOURCES_PURL_KEY = "datasources.purl";
 
+    // any of the GET queries here can be run as a background job instead - see QueryJobService
+    public static final String ASYNC_KEY = "async";
+
+    private static final TypeReference<Map<String, DatabaseBatchQuery>> BATCH_QUERIES_TYPE = new TypeReference<>() {};
+
 
     @GetMapping(TABLE_QUERY_PATH)
     public ResponseEntity<ApiResponse> queryDatabase (
@@ -113,11 +168,163 @@ public class DatabaseQueryController {
             return ResponseEntity.status(rv.getCode()).body(rv);         
         }
 
-        var rv = databaseQueryService.process(txid, requestReceivedAt, table, params, pageable);
+        var payloadArgument = params.get(DatasourceEventDTO.PayloadMode.PARAMETER);
+        if (DatasourceEventDTO.PayloadMode.fromParameter(payloadArgument).isEmpty()) {
+            log.warn("payload argument: {} is not valid", payloadArgument);
+            var rv = ApiResponse.builder()
+                                .txid(txid)
+                                .requestReceivedAt(requestReceivedAt)
+                                .code(HttpStatus.BAD_REQUEST.value())
+                                .serverMessage("invalid payload argument - expected one of none, lazy, full")
+                                .build();
+
+            return ResponseEntity.status(rv.getCode()).body(rv);
+        }
+
+        var payloadFieldsRv = validatePayloadFieldsArgument(txid, requestReceivedAt, params);
+        if (payloadFieldsRv.isPresent()) { return payloadFieldsRv.get(); }
+
+        var async = isAsync(params);
+        var rv = answer(
+            async,
+            RequestCoalescer.key(GET_TABLE_QUERY_SIGNATURE, table, params, pageable),
+            txid,
+            requestReceivedAt,
+            () -> databaseQueryService.process(txid, requestReceivedAt, table, params, pageable)
+        );
         return ResponseEntity.status(rv.getCode()).body(rv);
     }
     
 
+    /**
+     * runs every named query of the request body - an object of name -> { "table": ..., "params": { ... } } where
+     * params are what GET /api/v1/db/{table}/query would take - and answers with each one's page under its name.
+     */
+    @PostMapping(BATCH_QUERY_PATH)
+    public ResponseEntity<ApiResponse> queryDatabaseBatch (
+        @RequestAttribute UUID txid, 
+        @RequestAttribute ZonedDateTime requestReceivedAt,
+        @RequestParam(name = BATCH_QUERIES_KEY, required = false) String queriesArgument,
+        @RequestBody(required = false) Map<String, DatabaseBatchQuery> queries
+    ) {
+
+        if (queries == null && queriesArgument != null) {
+            try {
+                queries = objectMapper.readValue(queriesArgument, BATCH_QUERIES_TYPE);
+            } catch (JsonProcessingException e) {
+                log.warn("queries argument is not valid: {}", e.getOriginalMessage());
+                var rv = ApiResponse.builder()
+                                    .txid(txid)
+                                    .requestReceivedAt(requestReceivedAt)
+                                    .code(HttpStatus.BAD_REQUEST.value())
+                                    .serverMessage("invalid queries argument: " + e.getOriginalMessage())
+                                    .build();
+
+                return ResponseEntity.status(rv.getCode()).body(rv);
+            }
+        }
+
+        var maxQueries = env.getDbBatchMaxQueries();
+        if (queries == null || queries.isEmpty() || queries.size() > maxQueries) {
+            var message = String.format("batch query requires between 1 and %d named queries", maxQueries);
+            log.warn(message);
+            var rv = ApiResponse.builder()
+                                .txid(txid)
+                                .requestReceivedAt(requestReceivedAt)
+                                .code(HttpStatus.BAD_REQUEST.value())
+                                .serverMessage(message)
+                                .build();
+
+            return ResponseEntity.status(rv.getCode()).body(rv);
+        }
+
+        var batch = queries;
+        var rv = requestCoalescer.coalesce(
+            RequestCoalescer.key(POST_BATCH_QUERY_SIGNATURE, batch),
+            txid,
+            requestReceivedAt,
+            () -> databaseBatchQueryService.process(txid, requestReceivedAt, batch)
+        );
+        return ResponseEntity.status(rv.getCode()).body(rv);
+    }
+
+
+    /**
+     * rows whose id or purl is one of the keys in the request body, in key order, plus the keys that matched no row.
+     * available for package, finding (by id or identifier), edit (by id) and datasource.
+     */
+    @PostMapping(
+        value = TABLE_LOOKUP_PATH,
+        consumes = MediaType.APPLICATION_JSON_VALUE,
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<ApiResponse> lookupDatabase (
+        @RequestAttribute UUID txid, 
+        @RequestAttribute ZonedDateTime requestReceivedAt,
+        @PathVariable("table") String table,
+        @RequestBody(required = false) DatabaseLookupRequest lookupRequest
+    ) {
+
+        // over kafka there is no request body to bind
+        var errors = databaseLookupService.getValidationErrors(table, lookupRequest);
+        if ( !errors.isEmpty() ) {
+            log.warn("rejecting {} lookup: {}", table, errors);
+            var rv = ApiResponse.builder()
+                                .txid(txid)
+                                .requestReceivedAt(requestReceivedAt)
+                                .code(HttpStatus.BAD_REQUEST.value())
+                                .serverMessage(String.join(", ", errors))
+                                .build();
+
+            return ResponseEntity.status(rv.getCode()).body(rv);
+        }
+
+        var rv = databaseLookupService.lookup(txid, requestReceivedAt, table, lookupRequest);
+        return ResponseEntity.status(rv.getCode()).body(rv);
+    }
+
+
+    /**
+     * same as the lookup above but the rows are streamed back as NDJSON while they're read, and the keys that matched
+     * no row aren't reported. not available over kafka as it isn't an ApiResponse.
+     */
+    @PostMapping(
+        value = TABLE_LOOKUP_STREAM_PATH,
+        consumes = MediaType.APPLICATION_JSON_VALUE,
+        produces = DatasourceEventController.NDJSON_VALUE
+    )
+    ResponseEntity<StreamingResponseBody> lookupDatabaseStream (
+        @PathVariable("table") String table,
+        @RequestBody DatabaseLookupRequest lookupRequest
+    ) {
+
+        var errors = databaseLookupService.getValidationErrors(table, lookupRequest);
+        if ( !errors.isEmpty() ) {
+            log.warn("rejecting streamed {} lookup: {}", table, errors);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+
+        StreamingResponseBody body = out -> databaseLookupService.stream(table, lookupRequest, out);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(DatasourceEventController.NDJSON_VALUE)).body(body);
+    }
+
+
+    /**
+     * where a query sent with async=true is at - 202 while it's queued or running, the query's own response once it's
+     * done (plus a "job" entry)
+     */
+    @GetMapping(QUERY_JOB_PATH)
+    public ResponseEntity<ApiResponse> getQueryJob (
+        @RequestAttribute UUID txid, 
+        @RequestAttribute ZonedDateTime requestReceivedAt,
+        @PathVariable("id") UUID id
+    ) {
+
+        var rv = queryJobService.fetch(txid, requestReceivedAt, id);
+        return ResponseEntity.status(rv.getCode()).body(rv);
+    }
+
+
     //
 
     @GetMapping(DATASET_METRICS_EDIT_QUERY_PATH)
@@ -130,7 +337,14 @@ public class DatabaseQueryController {
 
         var optionalRv = validateDsmArguments(txid, requestReceivedAt, params);
         if (optionalRv.isPresent()) { return optionalRv.get(); }
-        var rv = databaseQueryService.handleDatasetMetricsEditSubQuery(txid, requestReceivedAt, params, pageable);
+        var async = isAsync(params);
+        var rv = answer(
+            async,
+            RequestCoalescer.key(GET_DATASET_METRICS_EDIT_QUERY_SIGNATURE, params, pageable),
+            txid,
+            requestReceivedAt,
+            () -> databaseQueryService.handleDatasetMetricsEditSubQuery(txid, requestReceivedAt, params, pageable)
+        );
         return ResponseEntity.status(rv.getCode()).body(rv);
     }
 
@@ -145,7 +359,14 @@ public class DatabaseQueryController {
 
         var optionalRv = validateDsmArguments(txid, requestReceivedAt, params);
         if (optionalRv.isPresent()) { return optionalRv.get(); }
-        var rv = databaseQueryService.handleDatasetMetricsPackageTypeSubQuery(txid, requestReceivedAt, params, pageable);
+        var async = isAsync(params);
+        var rv = answer(
+            async,
+            RequestCoalescer.key(GET_DATASET_METRICS_PACKAGE_TYPE_QUERY_SIGNATURE, params, pageable),
+            txid,
+            requestReceivedAt,
+            () -> databaseQueryService.handleDatasetMetricsPackageTypeSubQuery(txid, requestReceivedAt, params, pageable)
+        );
         return ResponseEntity.status(rv.getCode()).body(rv);
     }
 
@@ -159,7 +380,14 @@ public class DatabaseQueryController {
 
         var optionalRv = validateDsmArguments(txid, requestReceivedAt, params);
         if (optionalRv.isPresent()) { return optionalRv.get(); }
-        var rv = databaseQueryService.handleDatasetMetricsPackageSubQuery(txid, requestReceivedAt, params, pageable);
+        var async = isAsync(params);
+        var rv = answer(
+            async,
+            RequestCoalescer.key(GET_DATASET_METRICS_PACKAGE_QUERY_SIGNATURE, params, pageable),
+            txid,
+            requestReceivedAt,
+            () -> databaseQueryService.handleDatasetMetricsPackageSubQuery(txid, requestReceivedAt, params, pageable)
+        );
         return ResponseEntity.status(rv.getCode()).body(rv);
     }
 
@@ -174,7 +402,14 @@ public class DatabaseQueryController {
 
         var optionalRv = validateDsmArguments(txid, requestReceivedAt, params);
         if (optionalRv.isPresent()) { return optionalRv.get(); }
-        var rv = databaseQueryService.handleDatasetMetricsPackageSubQueryReturnFindingType(txid, requestReceivedAt, params, pageable);
+        var async = isAsync(params);
+        var rv = answer(
+            async,
+            RequestCoalescer.key(GET_DATASET_METRICS_PACKAGE_FINDING_QUERY_SIGNATURE, params, pageable),
+            txid,
+            requestReceivedAt,
+            () -> databaseQueryService.handleDatasetMetricsPackageSubQueryReturnFindingType(txid, requestReceivedAt, params, pageable)
+        );
         return ResponseEntity.status(rv.getCode()).body(rv);
     }
 
@@ -207,7 +442,17 @@ public class DatabaseQueryController {
             return ResponseEntity.status(rv.getCode()).body(rv);
         }
 
-        var rv = databaseQueryService.handleDatasourceEditSubQuery(txid, requestReceivedAt, params, pageable);
+        var payloadFieldsRv = validatePayloadFieldsArgument(txid, requestReceivedAt, params);
+        if (payloadFieldsRv.isPresent()) { return payloadFieldsRv.get(); }
+
+        var async = isAsync(params);
+        var rv = answer(
+            async,
+            RequestCoalescer.key(GET_DATASOURCE_EDIT_QUERY_SIGNATURE, params, pageable),
+            txid,
+            requestReceivedAt,
+            () -> databaseQueryService.handleDatasourceEditSubQuery(txid, requestReceivedAt, params, pageable)
+        );
         return ResponseEntity.status(rv.getCode()).body(rv);
     }
 
@@ -239,7 +484,17 @@ public class DatabaseQueryController {
             return ResponseEntity.status(rv.getCode()).body(rv);
         }
 
-        var rv = databaseQueryService.handleDatasourcePackageSubQuery(txid, requestReceivedAt, params, pageable);
+        var payloadFieldsRv = validatePayloadFieldsArgument(txid, requestReceivedAt, params);
+        if (payloadFieldsRv.isPresent()) { return payloadFieldsRv.get(); }
+
+        var async = isAsync(params);
+        var rv = answer(
+            async,
+            RequestCoalescer.key(GET_DATASOURCE_PACKAGE_QUERY_SIGNATURE, params, pageable),
+            txid,
+            requestReceivedAt,
+            () -> databaseQueryService.handleDatasourcePackageSubQuery(txid, requestReceivedAt, params, pageable)
+        );
         return ResponseEntity.status(rv.getCode()).body(rv);
     }
 
@@ -271,13 +526,49 @@ public class DatabaseQueryController {
             return ResponseEntity.status(rv.getCode()).body(rv);
         }
 
-        var rv = databaseQueryService.handleDatasetMetricsDatasourcePackageSubQueryReturnFindingType(txid, requestReceivedAt, params, pageable);
+        var payloadFieldsRv = validatePayloadFieldsArgument(txid, requestReceivedAt, params);
+        if (payloadFieldsRv.isPresent()) { return payloadFieldsRv.get(); }
+
+        var async = isAsync(params);
+        var rv = answer(
+            async,
+            RequestCoalescer.key(GET_DATASOURCE_PACKAGE_FINDING_QUERY_SIGNATURE, params, pageable),
+            txid,
+            requestReceivedAt,
+            () -> databaseQueryService.handleDatasetMetricsDatasourcePackageSubQueryReturnFindingType(txid, requestReceivedAt, params, pageable)
+        );
         return ResponseEntity.status(rv.getCode()).body(rv);
     }
 
     
 
 
+    /**
+     * removes the async parameter so it isn't taken for a filter
+     *
+     * @return whether the query should be run as a background job
+     */
+    private static boolean isAsync(Map<String, String> params) {
+        return Boolean.parseBoolean(params.remove(ASYNC_KEY));
+    }
+
+
+    /**
+     * runs argument computation now, sharing the result with identical requests in flight, or queues it as a job
+     */
+    private ApiResponse answer(
+        boolean async,
+        String key,
+        UUID txid,
+        ZonedDateTime requestReceivedAt,
+        Supplier<ApiResponse> computation
+    ) {
+        return async
+                ? queryJobService.submit(txid, requestReceivedAt, key, computation)
+                : requestCoalescer.coalesce(key, txid, requestReceivedAt, computation);
+    }
+
+
     /**
      * 
      * @param table
@@ -338,4 +629,26 @@ public class DatabaseQueryController {
         return rvOptional;
     }
 
+
+    /**
+     * @return a 400 response if the payloadFields argument is present and malformed, otherwise empty
+     */
+    public Optional<ResponseEntity<ApiResponse>> validatePayloadFieldsArgument(
+            UUID txid, 
+            ZonedDateTime requestReceivedAt, 
+            Map<String, String> params
+    ) {
+        return PayloadFieldExtractor.getValidationError(params).map(message -> {
+            log.warn("payloadFields argument: {} is not valid", params.get(PayloadFieldExtractor.PARAMETER));
+            var rv = ApiResponse.builder()
+                                .txid(txid)
+                                .requestReceivedAt(requestReceivedAt)
+                                .code(HttpStatus.BAD_REQUEST.value())
+                                .serverMessage(message)
+                                .build();
+
+            return ResponseEntity.status(rv.getCode()).body(rv);
+        });
+    }
+
 }
@@ -2,6 +2,8 @@ package io.patchfox.data_service.controllers;
 
 import java.net.http.HttpResponse;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -19,6 +21,7 @@ import org.springframework.web.bind.annotation.RestController;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import io.patchfox.data_service.helpers.Validator;
+import io.patchfox.data_service.services.DatabaseQueryService;
 import io.patchfox.data_service.services.DatasourceService;
 import io.patchfox.package_utils.json.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
@@ -46,7 +49,10 @@ public class DatasourceController {
     ResponseEntity<ApiResponse> datasourcesHandler(
         @RequestAttribute UUID txid, 
         @RequestAttribute ZonedDateTime requestReceivedAt,
-        @PathVariable(required = false) Optional<String> dataset
+        @PathVariable(required = false) Optional<String> dataset,
+        @RequestParam(required = false) Optional<String> fields,
+        @RequestParam(required = false) Optional<Integer> page,
+        @RequestParam(required = false) Optional<Integer> size
     ) throws JsonProcessingException {
         if (dataset.isPresent()) {
             var isValid = Validator.validateDatasetNameArg(dataset.get());
@@ -61,7 +67,30 @@ public class DatasourceController {
                 return ResponseEntity.status(apiResponse.getCode()).body(apiResponse);
             }
         }
-        var apiResponse = datasourceService.getDatasources(txid, requestReceivedAt, dataset);
+
+        // sparse columns - comma separated DatasourceView field names
+        var fieldSet = new LinkedHashSet<String>();
+        if (fields.isPresent()) {
+            Arrays.stream(fields.get().split(",")).map(String::trim).filter(f -> !f.isEmpty()).forEach(fieldSet::add);
+            if ( !DatasourceService.VIEW_COLUMNS.keySet().containsAll(fieldSet) ) {
+                var apiResponse = ApiResponse.builder()
+                                             .code(HttpStatus.BAD_REQUEST.value())
+                                             .serverMessage(
+                                                "bad fields argument. valid fields are: " + 
+                                                DatasourceService.VIEW_COLUMNS.keySet()
+                                             )
+                                             .txid(txid)
+                                             .requestReceivedAt(requestReceivedAt)
+                                             .build();
+
+                return ResponseEntity.status(apiResponse.getCode()).body(apiResponse);
+            }
+        }
+
+        var pageArg = page.map(p -> Math.max(p, 0));
+        var sizeArg = size.map(s -> Math.min(Math.max(s, DatabaseQueryService.MIN_SIZE), DatabaseQueryService.MAX_SIZE));
+
+        var apiResponse = datasourceService.getDatasources(txid, requestReceivedAt, dataset, fieldSet, pageArg, sizeArg);
         return ResponseEntity.status(apiResponse.getCode()).body(apiResponse);
     }
 
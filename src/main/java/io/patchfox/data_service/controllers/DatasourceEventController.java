@@ -1,14 +1,24 @@
 package io.patchfox.data_service.controllers;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -16,8 +26,13 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.github.packageurl.MalformedPackageURLException;
 import com.github.packageurl.PackageURLBuilder;
 
+import io.patchfox.data_service.json.DatasourceEventSubmission;
+import io.patchfox.data_service.services.DatasourceEventBufferService;
+import io.patchfox.data_service.services.DatasourceEventBulkService;
 import io.patchfox.data_service.services.DatasourceEventService;
 import io.patchfox.package_utils.json.ApiResponse;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 
 
@@ -29,6 +44,15 @@ public class DatasourceEventController {
 
     public static final String DATASOURCE_EVENTS_PATH = API_PATH_PREFIX + "/datasourceEvents";
     public static final String GET_DATASOURCES_SIGNATURE = "GET_" + DATASOURCE_EVENTS_PATH;
+    public static final String POST_DATASOURCE_EVENTS_SIGNATURE = "POST_" + DATASOURCE_EVENTS_PATH;
+
+    public static final String DATASOURCE_EVENTS_BULK_PATH = DATASOURCE_EVENTS_PATH + "/bulk";
+    public static final String POST_DATASOURCE_EVENTS_BULK_SIGNATURE = "POST_" + DATASOURCE_EVENTS_BULK_PATH;
+
+    public static final String DATASOURCE_EVENT_PAYLOAD_PATH = DATASOURCE_EVENTS_PATH + "/{id}/payload";
+    public static final String GET_DATASOURCE_EVENT_PAYLOAD_SIGNATURE = "GET_" + DATASOURCE_EVENT_PAYLOAD_PATH;
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
 
     public static final String DATASOURCE_EVENTS_LATEST_PATH = DATASOURCE_EVENTS_PATH + "/latest";
     public static final String GET_DATASOURCES_LATEST_SIGNATURE = "GET_" + DATASOURCE_EVENTS_LATEST_PATH;
@@ -36,6 +60,144 @@ public class DatasourceEventController {
     @Autowired
     DatasourceEventService datasourceEventService;
 
+    @Autowired
+    DatasourceEventBufferService datasourceEventBufferService;
+
+    @Autowired
+    DatasourceEventBulkService datasourceEventBulkService;
+
+
+    /**
+     * accepts a DatasourceEvent for ingestion. responds 202 once the event is durably buffered - it is released
+     * downstream later, in commit order, once its datasource is ready.
+     */
+    @PostMapping(
+        value = DATASOURCE_EVENTS_PATH,
+        consumes = MediaType.APPLICATION_JSON_VALUE,
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    ResponseEntity<ApiResponse> datasourceEventsSubmitHandler(
+        @RequestAttribute UUID txid,
+        @RequestAttribute ZonedDateTime requestReceivedAt,
+        @RequestBody(required = false) DatasourceEventSubmission submission
+    ) {
+        var apiResponseBuilder = ApiResponse.builder()
+                                            .txid(txid)
+                                            .requestReceivedAt(requestReceivedAt)
+                                            .responderResourceSignature(POST_DATASOURCE_EVENTS_SIGNATURE);
+
+        // over kafka there is no request body to bind
+        var errors = submission == null ? List.of("missing request body") : submission.getValidationErrors();
+        if ( !errors.isEmpty() ) {
+            log.warn("rejecting datasource event submission: {}", errors);
+            var apiResponse = apiResponseBuilder.code(HttpStatus.BAD_REQUEST.value())
+                                                .serverMessage(String.join(", ", errors))
+                                                .build();
+
+            return ResponseEntity.status(apiResponse.getCode()).body(apiResponse);
+        }
+
+        try {
+            var offset = datasourceEventBufferService.submit(submission).get();
+            log.debug(
+                "buffered event {} for datasource {} at log offset {}",
+                submission.getTxid(),
+                submission.getDatasourcePurl(),
+                offset
+            );
+        } catch (ExecutionException | InterruptedException e) {
+            log.error("unable to buffer datasource event {}", submission.getTxid(), e);
+            if (e instanceof InterruptedException) { Thread.currentThread().interrupt(); }
+            var apiResponse = apiResponseBuilder.code(HttpStatus.INTERNAL_SERVER_ERROR.value())
+                                                .serverMessage("unable to buffer event")
+                                                .build();
+
+            return ResponseEntity.status(apiResponse.getCode()).body(apiResponse);
+        }
+
+        var apiResponse = apiResponseBuilder.code(HttpStatus.ACCEPTED.value()).build();
+        return ResponseEntity.status(apiResponse.getCode()).body(apiResponse);
+    }
+
+
+    /**
+     * accepts many DatasourceEvents at once, either as an NDJSON body or as a multipart upload whose parts each hold
+     * one or more events. responds with the status of every item: 202 if all were buffered, 207 if only some were.
+     */
+    @PostMapping(
+        value = DATASOURCE_EVENTS_BULK_PATH,
+        consumes = { NDJSON_VALUE, MediaType.MULTIPART_FORM_DATA_VALUE },
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    ResponseEntity<ApiResponse> datasourceEventsBulkSubmitHandler(
+        @RequestAttribute UUID txid,
+        @RequestAttribute ZonedDateTime requestReceivedAt,
+        HttpServletRequest request
+    ) throws IOException, ServletException {
+        // over kafka there is no request body to stream
+        if (request == null) {
+            var apiResponse = ApiResponse.builder()
+                                         .txid(txid)
+                                         .requestReceivedAt(requestReceivedAt)
+                                         .code(HttpStatus.BAD_REQUEST.value())
+                                         .serverMessage("bulk submission requires a request body")
+                                         .responderResourceSignature(POST_DATASOURCE_EVENTS_BULK_SIGNATURE)
+                                         .build();
+
+            return ResponseEntity.status(apiResponse.getCode()).body(apiResponse);
+        }
+
+        var inputs = new ArrayList<InputStream>();
+        var contentType = request.getContentType();
+        if (contentType != null && contentType.startsWith(MediaType.MULTIPART_FORM_DATA_VALUE)) {
+            for (var part : request.getParts()) { inputs.add(part.getInputStream()); }
+        } else {
+            inputs.add(request.getInputStream());
+        }
+
+        var apiResponse = datasourceEventBulkService.ingest(txid, requestReceivedAt, inputs);
+        return ResponseEntity.status(apiResponse.getCode()).body(apiResponse);
+    }
+
+
+    /**
+     * the event's payload as stored - deflated JSON - marked Content-Encoding: deflate so HTTP clients inflate it
+     * themselves. nothing is decompressed or parsed server side unless the client's Accept-Encoding rules deflate out,
+     * in which case it's inflated here and sent as plain JSON. not available over kafka as it isn't an ApiResponse.
+     */
+    @GetMapping(
+        value = DATASOURCE_EVENT_PAYLOAD_PATH,
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    ResponseEntity<byte[]> datasourceEventPayloadHandler(
+        @PathVariable("id") long id,
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        var payloadOptional = datasourceEventService.getCompressedPayload(id);
+        if (payloadOptional.isEmpty()) {
+            log.warn("no payload for datasource event {}", id);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+
+        var responseBuilder = ResponseEntity.ok()
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (acceptsDeflate(acceptEncoding)) {
+            return responseBuilder.header(HttpHeaders.CONTENT_ENCODING, "deflate")
+                                  .contentLength(payloadOptional.get().length)
+                                  .body(payloadOptional.get());
+        }
+
+        try {
+            var payload = datasourceEventService.inflatePayload(payloadOptional.get());
+            return responseBuilder.contentLength(payload.length).body(payload);
+        } catch (IOException e) {
+            log.error("unable to inflate payload for datasource event {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
 
     @GetMapping(
         value = DATASOURCE_EVENTS_LATEST_PATH, 
@@ -77,4 +239,39 @@ public class DatasourceEventController {
         return ResponseEntity.status(apiResponse.getCode()).body(apiResponse);
 
     }
+
+
+    //
+    // helpers
+    //
+
+
+    /**
+     * @return true if argument Accept-Encoding header value allows deflate, by name or by *. no header at all is
+     *         taken as no - plenty of clients that send none can't inflate
+     */
+    private static boolean acceptsDeflate(String acceptEncoding) {
+        if (acceptEncoding == null) { return false; }
+
+        Boolean wildcard = null;
+        for (var coding : acceptEncoding.split(",")) {
+            var parts = coding.split(";");
+            var name = parts[0].trim().toLowerCase();
+            var accepted = true;
+            for (int i = 1; i < parts.length; i++) {
+                var parameter = parts[i].trim();
+                if ( !parameter.startsWith("q=") ) { continue; }
+                try {
+                    accepted = Double.parseDouble(parameter.substring(2)) > 0;
+                } catch (NumberFormatException e) {
+                    accepted = false;
+                }
+            }
+
+            if (name.equals("deflate")) { return accepted; }
+            if (name.equals("*")) { wildcard = accepted; }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
 }
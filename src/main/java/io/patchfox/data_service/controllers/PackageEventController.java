@@ -0,0 +1,79 @@
+package io.patchfox.data_service.controllers;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.patchfox.data_service.helpers.RequestCoalescer;
+import io.patchfox.data_service.services.PackageEventService;
+import io.patchfox.package_utils.json.ApiResponse;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * "which events contain package X" - served from PackageEventIndex
+ */
+@Slf4j
+@RestController
+public class PackageEventController {
+
+    public static final String API_PATH_PREFIX = "/api/v1";
+
+    public static final String PACKAGE_EVENTS_PATH = API_PATH_PREFIX + "/packageEvents";
+    public static final String GET_PACKAGE_EVENTS_SIGNATURE = "GET_" + PACKAGE_EVENTS_PATH;
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    @Autowired
+    PackageEventService packageEventService;
+
+    @Autowired
+    RequestCoalescer requestCoalescer;
+
+
+    /**
+     * @param purl a full purl for one version of a package or a purl without version for all of them
+     */
+    @GetMapping(
+        value = PACKAGE_EVENTS_PATH,
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    ResponseEntity<ApiResponse> packageEventsHandler(
+        @RequestAttribute UUID txid,
+        @RequestAttribute ZonedDateTime requestReceivedAt,
+        @RequestParam("purl") String purl,
+        @RequestParam(value = "page", defaultValue = "0") int page,
+        @RequestParam(value = "size", defaultValue = "50") int size
+    ) {
+        if ( !purl.startsWith("pkg:") || page < 0 || size < 1 || size > MAX_PAGE_SIZE ) {
+            log.warn("bad package events arguments - purl: {} page: {} size: {}", purl, page, size);
+            var apiResponse = ApiResponse.builder()
+                                         .txid(txid)
+                                         .requestReceivedAt(requestReceivedAt)
+                                         .code(HttpStatus.BAD_REQUEST.value())
+                                         .serverMessage(
+                                             "purl must be a package url, page >= 0 and size between 1 and " + MAX_PAGE_SIZE
+                                         )
+                                         .build();
+
+            return ResponseEntity.status(apiResponse.getCode()).body(apiResponse);
+        }
+
+        var apiResponse = requestCoalescer.coalesce(
+            RequestCoalescer.key(GET_PACKAGE_EVENTS_SIGNATURE, purl, page, size),
+            txid,
+            requestReceivedAt,
+            () -> packageEventService.getPackageEvents(txid, requestReceivedAt, purl, page, size)
+        );
+        return ResponseEntity.status(apiResponse.getCode()).body(apiResponse);
+    }
+
+}
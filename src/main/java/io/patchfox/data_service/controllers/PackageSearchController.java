@@ -0,0 +1,84 @@
+package io.patchfox.data_service.controllers;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.patchfox.data_service.components.PackageSearchIndex;
+import io.patchfox.data_service.helpers.RequestCoalescer;
+import io.patchfox.data_service.services.PackageSearchService;
+import io.patchfox.package_utils.json.ApiResponse;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * package and datasource search / autocomplete - served from PackageSearchIndex
+ */
+@Slf4j
+@RestController
+public class PackageSearchController {
+
+    public static final String API_PATH_PREFIX = "/api/v1";
+
+    public static final String PACKAGE_SEARCH_PATH = API_PATH_PREFIX + "/search/packages";
+    public static final String GET_PACKAGE_SEARCH_SIGNATURE = "GET_" + PACKAGE_SEARCH_PATH;
+
+    public static final int MAX_LIMIT = 100;
+
+    @Autowired
+    PackageSearchService packageSearchService;
+
+    @Autowired
+    RequestCoalescer requestCoalescer;
+
+
+    /**
+     * @param q what was typed
+     * @param mode prefix, trigram or token
+     * @param limit how many of the best hits to return
+     */
+    @GetMapping(
+        value = PACKAGE_SEARCH_PATH,
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    ResponseEntity<ApiResponse> packageSearchHandler(
+        @RequestAttribute UUID txid,
+        @RequestAttribute ZonedDateTime requestReceivedAt,
+        @RequestParam("q") String q,
+        @RequestParam(value = "mode", defaultValue = "prefix") String mode,
+        @RequestParam(value = "limit", defaultValue = "10") int limit
+    ) {
+        var modeOptional = PackageSearchIndex.Mode.fromParameter(mode);
+        if ( q.isBlank() || modeOptional.isEmpty() || limit < 1 || limit > MAX_LIMIT ) {
+            log.warn("bad package search arguments - q: {} mode: {} limit: {}", q, mode, limit);
+            var apiResponse = ApiResponse.builder()
+                                         .txid(txid)
+                                         .requestReceivedAt(requestReceivedAt)
+                                         .code(HttpStatus.BAD_REQUEST.value())
+                                         .serverMessage(
+                                             "q must not be blank, mode one of prefix, trigram or token and limit " +
+                                             "between 1 and " + MAX_LIMIT
+                                         )
+                                         .build();
+
+            return ResponseEntity.status(apiResponse.getCode()).body(apiResponse);
+        }
+
+        var apiResponse = requestCoalescer.coalesce(
+            RequestCoalescer.key(GET_PACKAGE_SEARCH_SIGNATURE, q, modeOptional.get(), limit),
+            txid,
+            requestReceivedAt,
+            () -> packageSearchService.search(txid, requestReceivedAt, q, modeOptional.get(), limit)
+        );
+        return ResponseEntity.status(apiResponse.getCode()).body(apiResponse);
+    }
+
+}
@@ -17,11 +17,14 @@ import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import io.patchfox.data_service.components.EnvironmentComponent;
+import io.patchfox.data_service.helpers.RequestCoalescer;
 import io.patchfox.data_service.helpers.Validator;
 import io.patchfox.data_service.json.RecommendDetailView;
 import io.patchfox.data_service.json.RecommendTopView;
 import io.patchfox.data_service.repositories.DatasetMetricsRepository;
 import io.patchfox.data_service.repositories.DatasetRepository;
+import io.patchfox.data_service.services.DatabaseQueryService;
 import io.patchfox.data_service.services.RecommendViewService;
 import io.patchfox.db_entities.entities.Dataset;
 import io.patchfox.db_entities.entities.DatasetMetrics;
@@ -58,6 +61,12 @@ public class RecommendViewController {
     @Autowired
     DatasetMetricsRepository datasetMetricsRepository;
 
+    @Autowired
+    EnvironmentComponent env;
+
+    @Autowired
+    RequestCoalescer requestCoalescer;
+
     @GetMapping(
         value = {
             RECOMMEND_TOP_PATH, 
@@ -69,7 +78,9 @@ public class RecommendViewController {
         @RequestAttribute UUID txid,
         @RequestAttribute ZonedDateTime requestReceivedAt,
         @PathVariable(required = false) Optional<String> type,
-        @RequestParam(required = false) Optional<String> dataset
+        @RequestParam(required = false) Optional<String> dataset,
+        @RequestParam(required = false) Optional<Integer> page,
+        @RequestParam(required = false) Optional<Integer> size
     ) {
 
         var apiResponse = ApiResponse.builder()
@@ -125,13 +136,29 @@ public class RecommendViewController {
             } else if (jobIdOptional.isEmpty()) {
                 apiResponse.setData(Map.of("payload", new RecommendDetailView()));
             } else {
-                apiResponse = 
-                    recommendViewService.getDetailRecommendView(
-                        jobIdOptional.get(), 
+                // detail view is paged by card
+                var pageArg = Math.max(page.orElse(0), 0);
+                var sizeArg = size.orElse(env.getRecommendDetailPageSize());
+                sizeArg = sizeArg < DatabaseQueryService.MIN_SIZE ? DatabaseQueryService.MIN_SIZE : sizeArg;
+                sizeArg = sizeArg > DatabaseQueryService.MAX_SIZE ? DatabaseQueryService.MAX_SIZE : sizeArg;
+
+                var jobId = jobIdOptional.get();
+                var detailType = typeValue;
+                var detailPage = pageArg;
+                var detailSize = sizeArg;
+                apiResponse = requestCoalescer.coalesce(
+                    RequestCoalescer.key(GET_RECOMMEND_DETAIL_SIGNATURE, jobId, detailType, dataset, detailPage, detailSize),
+                    txid,
+                    requestReceivedAt,
+                    () -> recommendViewService.getDetailRecommendView(
+                        jobId, 
                         requestReceivedAt, 
-                        typeValue,
-                        dataset
-                    );
+                        detailType,
+                        dataset,
+                        detailPage,
+                        detailSize
+                    )
+                );
             }
 
         } 
@@ -141,7 +168,13 @@ public class RecommendViewController {
             if (jobIdOptional.isEmpty()) {
                 apiResponse.setData(Map.of("cards", new RecommendTopView()));
             } else {
-                apiResponse = recommendViewService.getTopRecommendView(jobIdOptional.get(), requestReceivedAt, dataset);
+                var jobId = jobIdOptional.get();
+                apiResponse = requestCoalescer.coalesce(
+                    RequestCoalescer.key(GET_RECOMMEND_TOP_SIGNATURE, jobId, dataset),
+                    txid,
+                    requestReceivedAt,
+                    () -> recommendViewService.getTopRecommendView(jobId, requestReceivedAt, dataset)
+                );
             }
     
         }
@@ -1,6 +1,7 @@
 package io.patchfox.data_service.controllers;
 
 import java.time.ZonedDateTime;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -14,6 +15,8 @@ import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import io.patchfox.data_service.components.EnvironmentComponent;
+import io.patchfox.data_service.helpers.RequestCoalescer;
 import io.patchfox.data_service.helpers.Validator;
 import io.patchfox.data_service.services.TrackViewService;
 import io.patchfox.package_utils.json.ApiResponse;
@@ -26,6 +29,12 @@ public class TrackViewController {
     @Autowired
     TrackViewService trackViewService;
 
+    @Autowired
+    EnvironmentComponent env;
+
+    @Autowired
+    RequestCoalescer requestCoalescer;
+
     public static final String API_PATH_PREFIX = "/api/v1";
     public static final String TRACK_PATH = API_PATH_PREFIX + "/track";
     public static final String TRACK_BY_DATASET_PATH = TRACK_PATH + "/{dataset}";
@@ -40,8 +49,41 @@ public class TrackViewController {
         @RequestAttribute UUID txid, 
         @RequestAttribute ZonedDateTime requestReceivedAt,
         @RequestParam Optional<Boolean> synopsis,
-        @PathVariable(required = false) Optional<String> dataset
+        @PathVariable(required = false) Optional<String> dataset,
+        @RequestParam Optional<String> datasets
     ) {
+        if (datasets.isPresent()) {
+            if (dataset.isPresent()) {
+                return badRequest(txid, requestReceivedAt, "dataset path argument can not be combined with datasets");
+            }
+
+            var datasetNames = Arrays.stream(datasets.get().split(","))
+                                     .map(String::trim)
+                                     .filter(d -> !d.isEmpty())
+                                     .distinct()
+                                     .toList();
+
+            if (datasetNames.isEmpty() || !datasetNames.stream().allMatch(Validator::validateDatasetNameArg)) {
+                return badRequest(txid, requestReceivedAt, "bad datasets argument");
+            }
+
+            if (datasetNames.size() > env.getTrackMaxDatasets()) {
+                return badRequest(
+                    txid, 
+                    requestReceivedAt, 
+                    "datasets argument exceeds max number of datasets: " + env.getTrackMaxDatasets()
+                );
+            }
+
+            var apiResponse = requestCoalescer.coalesce(
+                RequestCoalescer.key(GET_TRACK_SIGNATURE, synopsis, datasetNames),
+                txid,
+                requestReceivedAt,
+                () -> trackViewService.getTrackViewForDatasets(txid, requestReceivedAt, synopsis, datasetNames)
+            );
+            return ResponseEntity.status(apiResponse.getCode()).body(apiResponse);
+        }
+
         if (dataset.isPresent()) {
             var isValid = Validator.validateDatasetNameArg(dataset.get());
             if (!isValid) {
@@ -55,7 +97,24 @@ public class TrackViewController {
                 return ResponseEntity.status(apiResponse.getCode()).body(apiResponse);
             }
         }
-        var apiResponse = trackViewService.getTrackView(txid, requestReceivedAt, synopsis, dataset);
+        var apiResponse = requestCoalescer.coalesce(
+            RequestCoalescer.key(GET_TRACK_BY_DATASET_SIGNATURE, synopsis, dataset),
+            txid,
+            requestReceivedAt,
+            () -> trackViewService.getTrackView(txid, requestReceivedAt, synopsis, dataset)
+        );
+        return ResponseEntity.status(apiResponse.getCode()).body(apiResponse);
+    }
+
+
+    private ResponseEntity<ApiResponse> badRequest(UUID txid, ZonedDateTime requestReceivedAt, String serverMessage) {
+        var apiResponse = ApiResponse.builder()
+                                     .code(HttpStatus.BAD_REQUEST.value())
+                                     .serverMessage(serverMessage)
+                                     .txid(txid)
+                                     .requestReceivedAt(requestReceivedAt)
+                                     .build();
+
         return ResponseEntity.status(apiResponse.getCode()).body(apiResponse);
     }
 
@@ -0,0 +1,184 @@
+package io.patchfox.data_service.dto;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import lombok.Getter;
+
+/**
+ * Columnar view of a DatasetMetrics history - one primitive array per metric the track cards
+ * read plus a single array of commit timestamps and their pre-formatted labels.
+ * Rows are appended straight off the ResultSet in ascending commit order so the track cards
+ * can be computed in one pass without materializing DatasetMetrics entities.
+ */
+public class DatasetMetricsSeries {
+
+    private static final int INITIAL_CAPACITY = 128;
+
+    /**
+     * Metric columns carried by the series. Ordinal order matches SELECT_COLUMNS.
+     */
+    public enum Column {
+        CRITICAL_FINDINGS("critical_findings"),
+        HIGH_FINDINGS("high_findings"),
+        MEDIUM_FINDINGS("medium_findings"),
+        LOW_FINDINGS("low_findings"),
+
+        FINDINGS_IN_BACKLOG_THIRTY_TO_SIXTY("findings_in_backlog_between_thirty_and_sixty_days"),
+        CRITICAL_FINDINGS_IN_BACKLOG_THIRTY_TO_SIXTY("critical_findings_in_backlog_between_thirty_and_sixty_days"),
+        HIGH_FINDINGS_IN_BACKLOG_THIRTY_TO_SIXTY("high_findings_in_backlog_between_thirty_and_sixty_days"),
+        MEDIUM_FINDINGS_IN_BACKLOG_THIRTY_TO_SIXTY("medium_findings_in_backlog_between_thirty_and_sixty_days"),
+        LOW_FINDINGS_IN_BACKLOG_THIRTY_TO_SIXTY("low_findings_in_backlog_between_thirty_and_sixty_days"),
+
+        FINDINGS_IN_BACKLOG_SIXTY_TO_NINETY("findings_in_backlog_between_sixty_and_ninety_days"),
+        CRITICAL_FINDINGS_IN_BACKLOG_SIXTY_TO_NINETY("critical_findings_in_backlog_between_sixty_and_ninety_days"),
+        HIGH_FINDINGS_IN_BACKLOG_SIXTY_TO_NINETY("high_findings_in_backlog_between_sixty_and_ninety_days"),
+        MEDIUM_FINDINGS_IN_BACKLOG_SIXTY_TO_NINETY("medium_findings_in_backlog_between_sixty_and_ninety_days"),
+        LOW_FINDINGS_IN_BACKLOG_SIXTY_TO_NINETY("low_findings_in_backlog_between_sixty_and_ninety_days"),
+
+        FINDINGS_IN_BACKLOG_OVER_NINETY("findings_in_backlog_over_ninety_days"),
+        CRITICAL_FINDINGS_IN_BACKLOG_OVER_NINETY("critical_findings_in_backlog_over_ninety_days"),
+        HIGH_FINDINGS_IN_BACKLOG_OVER_NINETY("high_findings_in_backlog_over_ninety_days"),
+        MEDIUM_FINDINGS_IN_BACKLOG_OVER_NINETY("medium_findings_in_backlog_over_ninety_days"),
+        LOW_FINDINGS_IN_BACKLOG_OVER_NINETY("low_findings_in_backlog_over_ninety_days"),
+
+        STALE_PACKAGES("stale_packages"),
+        STALE_PACKAGES_SIX_MONTHS("stale_packages_six_months"),
+        STALE_PACKAGES_ONE_YEAR("stale_packages_one_year"),
+        STALE_PACKAGES_ONE_YEAR_SIX_MONTHS("stale_packages_one_year_six_months"),
+        STALE_PACKAGES_TWO_YEARS("stale_packages_two_years"),
+
+        DOWNLEVEL_PACKAGES("downlevel_packages"),
+        DOWNLEVEL_PACKAGES_MAJOR("downlevel_packages_major"),
+        DOWNLEVEL_PACKAGES_MINOR("downlevel_packages_minor"),
+        DOWNLEVEL_PACKAGES_PATCH("downlevel_packages_patch"),
+
+        PATCH_EFFICACY_SCORE("patch_efficacy_score"),
+        PATCH_IMPACT("patch_impact"),
+        PATCH_EFFORT("patch_effort"),
+        RPS_SCORE("rps_score");
+
+        @Getter
+        private final String columnName;
+
+        Column(String columnName) {
+            this.columnName = columnName;
+        }
+    }
+
+    private static final Column[] COLUMNS = Column.values();
+
+    /**
+     * Column list for SELECT. Expects dataset_metrics to be aliased as dm.
+     */
+    public static final String SELECT_COLUMNS =
+        "dm.commit_date_time, " +
+        Arrays.stream(COLUMNS).map(c -> "dm." + c.getColumnName()).collect(Collectors.joining(", "));
+
+    @Getter
+    private int size;
+
+    private ZonedDateTime[] commitDateTimes = new ZonedDateTime[INITIAL_CAPACITY];
+    private String[] labels = new String[INITIAL_CAPACITY];
+    private final double[][] metrics = new double[COLUMNS.length][INITIAL_CAPACITY];
+
+
+    /**
+     * Appends the current row of a ResultSet selected with SELECT_COLUMNS.
+     * Each commit timestamp is formatted into its series label exactly once here.
+     */
+    public void append(ResultSet rs) throws SQLException {
+        ensureCapacity(size + 1);
+
+        var commitDateTime = rs.getObject(1, OffsetDateTime.class).atZoneSameInstant(ZoneOffset.UTC);
+        commitDateTimes[size] = commitDateTime;
+        labels[size] = commitDateTime.toString();
+
+        for (int c = 0; c < COLUMNS.length; c++) {
+            metrics[c][size] = rs.getDouble(c + 2);
+        }
+
+        size++;
+    }
+
+
+    /**
+     * Compacts the series in place so only the last datapoint of each calendar day (UTC) remains.
+     * Relies on rows having been appended in ascending commit order.
+     *
+     * @return number of datapoints removed
+     */
+    public int applySynopsis() {
+        var kept = 0;
+        for (int i = 0; i < size; i++) {
+            var isLastOfDay = i == size - 1 || !day(i).equals(day(i + 1));
+            if (!isLastOfDay) { continue; }
+
+            if (kept != i) {
+                commitDateTimes[kept] = commitDateTimes[i];
+                labels[kept] = labels[i];
+                for (var column : metrics) {
+                    column[kept] = column[i];
+                }
+            }
+            kept++;
+        }
+
+        var removed = size - kept;
+        Arrays.fill(commitDateTimes, kept, size, null);
+        Arrays.fill(labels, kept, size, null);
+        size = kept;
+        return removed;
+    }
+
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+
+    public ZonedDateTime getCommitDateTime(int index) {
+        return commitDateTimes[index];
+    }
+
+
+    public String getLabel(int index) {
+        return labels[index];
+    }
+
+
+    public double get(Column column, int index) {
+        return metrics[column.ordinal()][index];
+    }
+
+
+    /**
+     * Raw backing array for a metric. Only the first size() entries are meaningful.
+     */
+    public double[] column(Column column) {
+        return metrics[column.ordinal()];
+    }
+
+
+    private LocalDate day(int index) {
+        return commitDateTimes[index].toLocalDate();
+    }
+
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= labels.length) { return; }
+
+        var newCapacity = Math.max(capacity, labels.length * 2);
+        commitDateTimes = Arrays.copyOf(commitDateTimes, newCapacity);
+        labels = Arrays.copyOf(labels, newCapacity);
+        for (int c = 0; c < metrics.length; c++) {
+            metrics[c] = Arrays.copyOf(metrics[c], newCapacity);
+        }
+    }
+}
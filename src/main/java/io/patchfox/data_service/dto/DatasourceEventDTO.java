@@ -1,26 +1,36 @@
 package io.patchfox.data_service.dto;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.zip.DataFormatException;
-import java.util.zip.Inflater;
 
 import org.springframework.jdbc.core.RowMapper;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import io.patchfox.data_service.helpers.InflaterPool;
+import io.patchfox.data_service.helpers.PayloadFieldExtractor;
 
 import io.patchfox.package_utils.data.pkg.PackageWrapper;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -58,15 +68,107 @@ public class DatasourceEventDTO {
     // Foreign key reference instead of full entity
     private Long datasourceId;
 
-    // Payload - decompressed from database and deserialized
+    // Payload - decompressed from database and deserialized. kept out of toString / equals as lombok would read it
+    // through getPackageWrapper(), which decodes a LAZY payload just to log or compare the DTO
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private PackageWrapper packageWrapper;
 
+    // Payload as stored, held instead of packageWrapper in LAZY mode until someone asks for the wrapper
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private byte[] compressedPayload;
+
+    // values picked out of the payload by the "payloadFields" query parameter - path -> values (or count)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, Object> payloadFields;
+
     // NO packages - that's the death spiral to Package -> Finding -> FindingReporter
 
     /**
-     * RowMapper for converting JDBC ResultSet to DatasourceEventDTO.
+     * Shared payload decoding state. Building a mapper with findAndRegisterModules scans the classpath, so it is done
+     * once here rather than per row. ObjectReader is immutable and safe to share between threads.
+     */
+    private static final ObjectReader PACKAGE_WRAPPER_READER =
+        new ObjectMapper().findAndRegisterModules().readerFor(PackageWrapper.class);
+
+    private static final InflaterPool INFLATER_POOL = new InflaterPool(Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * How much of the payload a query loads, selected with the "payload" query parameter.
+     */
+    public enum PayloadMode {
+        // payload column isn't selected at all
+        NONE,
+        // stored bytes are kept and only inflated and deserialized if packageWrapper is read (eg - serialized)
+        LAZY,
+        // inflated and deserialized in the row mapper
+        FULL;
+
+        public static final String PARAMETER = "payload";
+
+        /**
+         * @return mode named by argument parameter value (case insensitive), FULL if there is none, empty if invalid
+         */
+        public static Optional<PayloadMode> fromParameter(String value) {
+            if (value == null || value.isBlank()) { return Optional.of(FULL); }
+            return Arrays.stream(values()).filter(m -> m.name().equalsIgnoreCase(value.trim())).findFirst();
+        }
+    }
+
+
+    /**
+     * In LAZY mode the stored payload is decoded here on first read. Synchronized as a coalesced response can be
+     * serialized for more than one caller at once.
      */
-    public static final RowMapper<DatasourceEventDTO> ROW_MAPPER = (ResultSet rs, int rowNum) -> {
+    public synchronized PackageWrapper getPackageWrapper() {
+        if (packageWrapper == null && compressedPayload != null) {
+            packageWrapper = decodePayload(id, compressedPayload);
+            compressedPayload = null;
+        }
+        return packageWrapper;
+    }
+
+
+    /**
+     * RowMapper for converting JDBC ResultSet to DatasourceEventDTO. Loads the payload in FULL.
+     */
+    public static final RowMapper<DatasourceEventDTO> ROW_MAPPER = rowMapper(PayloadMode.FULL);
+
+
+    /**
+     * RowMapper loading the payload per argument mode. Pair with selectColumns(mode).
+     */
+    public static RowMapper<DatasourceEventDTO> rowMapper(PayloadMode payloadMode) {
+        return rowMapper(payloadMode, List.of());
+    }
+
+
+    /**
+     * RowMapper loading the payload per argument mode and, if any paths are given, extracting their values from the
+     * payload into payloadFields. Pair with selectColumns(mode, !paths.isEmpty()).
+     */
+    public static RowMapper<DatasourceEventDTO> rowMapper(
+        PayloadMode payloadMode,
+        List<PayloadFieldExtractor.Path> payloadFieldPaths
+    ) {
+        return (ResultSet rs, int rowNum) -> {
+            DatasourceEventDTO dto = mapScalars(rs);
+            if ( !payloadFieldPaths.isEmpty() ) {
+                dto.setPayloadFields(extractPayloadFields(dto.getId(), rs.getBytes("payload"), payloadFieldPaths));
+            }
+            switch (payloadMode) {
+                case NONE -> { }
+                case LAZY -> dto.setCompressedPayload(rs.getBytes("payload"));
+                case FULL -> dto.setPackageWrapper(decodePayload(dto.getId(), rs.getBytes("payload")));
+            }
+            return dto;
+        };
+    }
+
+
+    private static DatasourceEventDTO mapScalars(ResultSet rs) throws SQLException {
         DatasourceEventDTO dto = new DatasourceEventDTO();
         dto.setId(rs.getLong("id"));
         dto.setPurl(rs.getString("purl"));
@@ -104,40 +206,26 @@ public class DatasourceEventDTO {
         dto.setForecasted(rs.getBoolean("forecasted"));
         dto.setRecommended(rs.getBoolean("recommended"));
         dto.setDatasourceId(rs.getLong("datasource_id"));
+        return dto;
+    }
 
-        // Decompress payload from database and deserialize to PackageWrapper
-        byte[] compressedPayload = rs.getBytes("payload");
-        if (compressedPayload != null && compressedPayload.length > 0) {
-            try {
-                Inflater inflater = new Inflater();
-                inflater.setInput(compressedPayload);
-
-                try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-                    byte[] buffer = new byte[1024];
-
-                    while (!inflater.finished()) {
-                        int decompressedSize = inflater.inflate(buffer);
-                        outputStream.write(buffer, 0, decompressedSize);
-                    }
-
-                    inflater.end();
-                    byte[] decompressedPayload = outputStream.toByteArray();
 
-                    // Deserialize to PackageWrapper
-                    ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
-                    PackageWrapper packageWrapper = mapper.readValue(decompressedPayload, PackageWrapper.class);
-                    dto.setPackageWrapper(packageWrapper);
-                }
-            } catch (IOException | DataFormatException e) {
-                log.error("Failed to decompress/deserialize payload for datasource event id={}", rs.getLong("id"), e);
-                dto.setPackageWrapper(null);
-            }
-        } else {
-            dto.setPackageWrapper(null);
+    /**
+     * Decompress payload from database and deserialize to PackageWrapper, parsing straight off the inflater.
+     * Returns null if there is no payload or it can't be read.
+     */
+    private static PackageWrapper decodePayload(Long id, byte[] compressedPayload) {
+        if (compressedPayload == null || compressedPayload.length == 0) {
+            return null;
         }
 
-        return dto;
-    };
+        try {
+            return INFLATER_POOL.inflate(compressedPayload, PACKAGE_WRAPPER_READER::readValue);
+        } catch (IOException e) {
+            log.error("Failed to decompress/deserialize payload for datasource event id={}", id, e);
+            return null;
+        }
+    }
 
     /**
      * Column list for SELECT.
@@ -149,4 +237,46 @@ public class DatasourceEventDTO {
         "commit_date_time, event_date_time, status, processing_error, " +
         "oss_enriched, package_index_enriched, analyzed, forecasted, recommended, " +
         "datasource_id, payload";
+
+    /**
+     * Inflate payload and stream it through PayloadFieldExtractor - no tree or PackageWrapper is built.
+     * Returns null if there is no payload or it can't be read.
+     */
+    private static Map<String, Object> extractPayloadFields(
+        Long id,
+        byte[] compressedPayload,
+        List<PayloadFieldExtractor.Path> paths
+    ) {
+        if (compressedPayload == null || compressedPayload.length == 0) {
+            return null;
+        }
+
+        try {
+            return INFLATER_POOL.inflate(compressedPayload, in -> {
+                try (var parser = PACKAGE_WRAPPER_READER.createParser(in)) {
+                    return PayloadFieldExtractor.extract(parser, paths);
+                }
+            });
+        } catch (IOException e) {
+            log.error("Failed to extract payload fields for datasource event id={}", id, e);
+            return null;
+        }
+    }
+
+    /**
+     * Column list for SELECT without the payload (PayloadMode.NONE).
+     */
+    public static final String SCALAR_COLUMNS =
+        "id, purl, txid, job_id, commit_hash, commit_branch, " +
+        "commit_date_time, event_date_time, status, processing_error, " +
+        "oss_enriched, package_index_enriched, analyzed, forecasted, recommended, " +
+        "datasource_id";
+
+    public static String selectColumns(PayloadMode payloadMode) {
+        return selectColumns(payloadMode, false);
+    }
+
+    public static String selectColumns(PayloadMode payloadMode, boolean extractingPayloadFields) {
+        return payloadMode == PayloadMode.NONE && !extractingPayloadFields ? SCALAR_COLUMNS : SELECT_COLUMNS;
+    }
 }
@@ -0,0 +1,69 @@
+package io.patchfox.data_service.helpers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Small thread safe LRU cache with a hard cap on the number of entries. Intended for values that never change once
+ * computed (eg - anything keyed by a completed job id) so there is no expiry beyond eviction.
+ */
+@Slf4j
+public class BoundedCache<K, V> {
+
+    private final String name;
+
+    private final Map<K, V> entries;
+
+    public BoundedCache(String name, int maxEntries) {
+        this.name = name;
+        // access ordered so the eldest entry is always the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+
+    public synchronized Optional<V> get(K key) {
+        return Optional.ofNullable(entries.get(key));
+    }
+
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, value);
+    }
+
+
+    /**
+     * returns the cached value for argument key, computing and caching it on a miss. the loader runs outside the lock
+     * so a slow load never blocks readers of other keys - two concurrent misses on the same key may both load, last
+     * one in wins. null values are returned but not cached.
+     */
+    public V get(K key, Supplier<V> loader) {
+        var cached = get(key);
+        if (cached.isPresent()) { return cached.get(); }
+
+        log.debug("{} cache miss for key: {}", name, key);
+        var rv = loader.get();
+        if (rv != null) { put(key, rv); }
+        return rv;
+    }
+
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+}
@@ -0,0 +1,54 @@
+package io.patchfox.data_service.helpers;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.Deflater;
+
+
+/**
+ * Fixed set of reusable Deflaters. Each Deflater holds a sizable chunk of native memory that is only freed by end()
+ * or finalization, so creating one per payload under a burst of submissions churns native memory badly.
+ *
+ * Output is the zlib format (header plus adler32 trailer) a default Inflater reads - the same format payloads are
+ * stored in the datasource_event table with and DatasourceEventDTO decodes.
+ */
+public class DeflaterPool {
+
+    private final ArrayBlockingQueue<Deflater> idle;
+
+    private final int level;
+
+
+    public DeflaterPool(int size, int level) {
+        this.idle = new ArrayBlockingQueue<>(size);
+        this.level = level;
+    }
+
+
+    /**
+     * @return argument bytes compressed
+     */
+    public byte[] deflate(byte[] input) {
+        var deflater = idle.poll();
+        if (deflater == null) { deflater = new Deflater(level); }
+
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+
+            // json payloads compress well - start at a quarter of the input and let the stream grow if needed
+            var out = new ByteArrayOutputStream(Math.max(64, input.length / 4));
+            var buffer = new byte[8192];
+            while ( !deflater.finished() ) {
+                var written = deflater.deflate(buffer);
+                out.write(buffer, 0, written);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.reset();
+            // pool is full - more callers than slots were deflating at once
+            if ( !idle.offer(deflater) ) { deflater.end(); }
+        }
+    }
+
+}
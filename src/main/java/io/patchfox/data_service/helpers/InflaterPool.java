@@ -0,0 +1,58 @@
+package io.patchfox.data_service.helpers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+
+/**
+ * Fixed set of reusable Inflaters, the read side of DeflaterPool. Callers get the decompressed bytes as a stream so
+ * they can parse straight out of the inflater rather than materializing the whole document first.
+ */
+public class InflaterPool {
+
+    private static final int MIN_BUFFER_BYTES = 512;
+    private static final int MAX_BUFFER_BYTES = 64 * 1024;
+
+    private final ArrayBlockingQueue<Inflater> idle;
+
+
+    @FunctionalInterface
+    public interface StreamReader<T> {
+        T read(InputStream in) throws IOException;
+    }
+
+
+    public InflaterPool(int size) {
+        this.idle = new ArrayBlockingQueue<>(size);
+    }
+
+
+    /**
+     * hands argument reader a stream of argument zlib bytes decompressed. the stream is only valid inside the reader.
+     */
+    public <T> T inflate(byte[] compressed, StreamReader<T> reader) throws IOException {
+        var inflater = idle.poll();
+        if (inflater == null) { inflater = new Inflater(); }
+
+        // the whole input is already in memory so there's no point buffering more of it than exists
+        var bufferBytes = Math.min(Math.max(compressed.length, MIN_BUFFER_BYTES), MAX_BUFFER_BYTES);
+
+        // closing an InflaterInputStream built around a supplied Inflater leaves the Inflater usable
+        try (var in = new InflaterInputStream(new ByteArrayInputStream(compressed), inflater, bufferBytes)) {
+            return reader.read(in);
+        } finally {
+            inflater.reset();
+            if ( !idle.offer(inflater) ) { inflater.end(); }
+        }
+    }
+
+
+    public byte[] inflate(byte[] compressed) throws IOException {
+        return inflate(compressed, InputStream::readAllBytes);
+    }
+
+}
@@ -0,0 +1,231 @@
+package io.patchfox.data_service.helpers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+
+/**
+ * Pulls selected values out of a JSON document in one streaming pass, without binding it or building its tree. Only
+ * values a path selects are materialized; everything else is skipped token by token, so peak heap stays near the size
+ * of the result no matter how large the document is.
+ *
+ * Path syntax (the "payloadFields" query parameter is a comma separated list of these):
+ *
+ *   a.b.c          field c of object b of object a
+ *   a.[].b         field b of every element of array a
+ *   a.*            every field value of object a (or every element if a is an array)
+ *   a.[].b#count   number of values a.[].b selects rather than the values themselves
+ *
+ * A path that selects an object or array gets that subtree as a JsonNode.
+ */
+public class PayloadFieldExtractor {
+
+    public static final String PARAMETER = "payloadFields";
+
+    private static final String ANY_ELEMENT = "[]";
+    private static final String ANY = "*";
+    private static final String COUNT_SUFFIX = "#count";
+
+
+    public record Path(String expression, String[] segments, boolean count) {}
+
+
+    /**
+     * @return paths in argument parameter value, in order
+     * @throws IllegalArgumentException if any path is malformed
+     */
+    public static List<Path> parse(String parameter) {
+        var rv = new ArrayList<Path>();
+        for (var raw : parameter.split(",")) {
+            var expression = raw.trim();
+            if (expression.isEmpty()) { continue; }
+
+            var count = expression.endsWith(COUNT_SUFFIX);
+            var body = count ? expression.substring(0, expression.length() - COUNT_SUFFIX.length()) : expression;
+            var segments = body.split("\\.", -1);
+            if (Arrays.stream(segments).anyMatch(String::isEmpty)) {
+                throw new IllegalArgumentException("malformed payload field path: " + expression);
+            }
+            rv.add(new Path(expression, segments, count));
+        }
+
+        if (rv.isEmpty()) { throw new IllegalArgumentException("no payload field paths given"); }
+        return rv;
+    }
+
+
+    /**
+     * @return what's wrong with the payloadFields argument of argument query params - empty if it's absent or valid
+     */
+    public static Optional<String> getValidationError(Map<String, String> params) {
+        var parameter = params.get(PARAMETER);
+        if (parameter == null || parameter.isBlank()) { return Optional.empty(); }
+
+        try {
+            parse(parameter);
+            return Optional.empty();
+        } catch (IllegalArgumentException e) {
+            return Optional.of(e.getMessage());
+        }
+    }
+
+
+    /**
+     * @param parser positioned before the document's first token. must have a codec if any path selects a subtree.
+     * @return path expression -> list of selected values (or count of them) for every argument path
+     */
+    public static Map<String, Object> extract(JsonParser parser, List<Path> paths) throws IOException {
+        var values = new LinkedHashMap<Path, List<Object>>();
+        var counts = new LinkedHashMap<Path, long[]>();
+        for (var path : paths) {
+            if (path.count()) { counts.put(path, new long[1]); } else { values.put(path, new ArrayList<>()); }
+        }
+
+        if (parser.nextToken() != null) {
+            walk(parser, paths, 0, values, counts);
+        }
+
+        var rv = new LinkedHashMap<String, Object>();
+        for (var path : paths) {
+            rv.put(path.expression(), path.count() ? (Object) counts.get(path)[0] : values.get(path));
+        }
+        return rv;
+    }
+
+
+    //
+    // helpers
+    //
+
+
+    /**
+     * parser is on the first token of a value whose location matches the first "depth" segments of every candidate
+     */
+    private static void walk(
+        JsonParser parser,
+        List<Path> candidates,
+        int depth,
+        Map<Path, List<Object>> values,
+        Map<Path, long[]> counts
+    ) throws IOException {
+        var deeper = new ArrayList<Path>(candidates.size());
+        var selecting = false;
+        var selectingValues = false;
+        for (var path : candidates) {
+            if (path.segments().length == depth) {
+                selecting = true;
+                selectingValues |= !path.count();
+            } else {
+                deeper.add(path);
+            }
+        }
+
+        var token = parser.currentToken();
+        var isContainer = token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY;
+
+        if (selecting && !isContainer) {
+            select(candidates, depth, scalar(parser), values, counts);
+            return;
+        }
+
+        if (selecting && !selectingValues) {
+            // only counted - the subtree itself is never needed, so stream past it or on into it for deeper paths
+            select(candidates, depth, null, values, counts);
+            selecting = false;
+        }
+
+        if (selecting) {
+            // the subtree is wanted whole, so build it once and resolve any deeper paths against it
+            JsonNode subtree = parser.readValueAsTree();
+            select(candidates, depth, subtree, values, counts);
+            if ( !deeper.isEmpty() ) {
+                try (var subtreeParser = subtree.traverse(parser.getCodec())) {
+                    subtreeParser.nextToken();
+                    walk(subtreeParser, deeper, depth, values, counts);
+                }
+            }
+            return;
+        }
+
+        if ( !isContainer ) { return; }
+
+        if (deeper.isEmpty()) {
+            parser.skipChildren();
+            return;
+        }
+
+        if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var name = parser.currentName();
+                parser.nextToken();
+                descend(parser, matching(deeper, depth, name, false), depth, values, counts);
+            }
+        } else {
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                descend(parser, matching(deeper, depth, null, true), depth, values, counts);
+            }
+        }
+    }
+
+
+    private static void descend(
+        JsonParser parser,
+        List<Path> candidates,
+        int depth,
+        Map<Path, List<Object>> values,
+        Map<Path, long[]> counts
+    ) throws IOException {
+        if (candidates.isEmpty()) {
+            parser.skipChildren();
+        } else {
+            walk(parser, candidates, depth + 1, values, counts);
+        }
+    }
+
+
+    private static List<Path> matching(List<Path> paths, int depth, String fieldName, boolean isArrayElement) {
+        var rv = new ArrayList<Path>(paths.size());
+        for (var path : paths) {
+            var segment = path.segments()[depth];
+            var matches = ANY.equals(segment)
+                    || (isArrayElement ? ANY_ELEMENT.equals(segment) : segment.equals(fieldName));
+            if (matches) { rv.add(path); }
+        }
+        return rv;
+    }
+
+
+    private static void select(
+        List<Path> candidates,
+        int depth,
+        Object value,
+        Map<Path, List<Object>> values,
+        Map<Path, long[]> counts
+    ) {
+        for (var path : candidates) {
+            if (path.segments().length != depth) { continue; }
+            if (path.count()) { counts.get(path)[0]++; } else { values.get(path).add(value); }
+        }
+    }
+
+
+    private static Object scalar(JsonParser parser) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_STRING -> parser.getText();
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getNumberValue();
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            default -> null;
+        };
+    }
+
+}
@@ -0,0 +1,218 @@
+package io.patchfox.data_service.helpers;
+
+import java.util.Arrays;
+
+
+/**
+ * Compact, append mostly list of (event id, datasource id) postings kept in ascending event id order. Each posting is
+ * stored as two unsigned varints: the gap from the previous event id and the datasource id. Ids are dense so most
+ * postings take 2-4 bytes instead of the 16 two longs would.
+ *
+ * Appends in id order are O(1). An out of order add (an older event indexed late) is buffered and the buffer merged
+ * in one re-encode by mergeLate(), so a poll that indexes many late events re-encodes each list once rather than once
+ * per event. Reads merge the buffer first, so they always see every posting added.
+ */
+public class PostingList {
+
+    private byte[] bytes = new byte[8];
+
+    private int length = 0;
+
+    private int size = 0;
+
+    private long lastEventId = 0;
+
+    private long[] lateEventIds = new long[0];
+
+    private long[] lateDatasourceIds = new long[0];
+
+    private int lateSize = 0;
+
+    // distinct datasource ids, -1 when it needs counting again
+    private int datasourceCount = -1;
+
+
+    /**
+     * event ids and their datasource ids in ascending event id order
+     */
+    public record Postings(long[] eventIds, long[] datasourceIds) {
+        public int size() { return eventIds.length; }
+    }
+
+
+    /**
+     * some of a list's postings plus counts over all of them, read together
+     *
+     * @param postings the postings asked for, in ascending event id order
+     * @param total postings in the whole list
+     * @param datasourceCount distinct datasource ids in the whole list
+     */
+    public record Slice(Postings postings, int total, int datasourceCount) {}
+
+
+    /**
+     * adds argument posting. adding an event id already present does nothing.
+     */
+    public synchronized void add(long eventId, long datasourceId) {
+        if (size == 0 || eventId > lastEventId) {
+            append(eventId, datasourceId);
+            datasourceCount = -1;
+            return;
+        }
+        if (eventId == lastEventId) { return; }
+
+        if (lateSize == lateEventIds.length) {
+            lateEventIds = Arrays.copyOf(lateEventIds, Math.max(4, lateSize * 2));
+            lateDatasourceIds = Arrays.copyOf(lateDatasourceIds, lateEventIds.length);
+        }
+        lateEventIds[lateSize] = eventId;
+        lateDatasourceIds[lateSize] = datasourceId;
+        lateSize++;
+    }
+
+
+    /**
+     * merges postings added out of order into the list, re-encoding it once
+     */
+    public synchronized void mergeLate() {
+        if (lateSize == 0) { return; }
+
+        var order = new Integer[lateSize];
+        for (int i = 0; i < lateSize; i++) { order[i] = i; }
+        Arrays.sort(order, (a, b) -> Long.compare(lateEventIds[a], lateEventIds[b]));
+
+        var current = decodeRange(0, size);
+        var eventIds = new long[size + lateSize];
+        var datasourceIds = new long[size + lateSize];
+        var merged = 0;
+        var i = 0;
+        var j = 0;
+        while (i < size || j < lateSize) {
+            long eventId;
+            long datasourceId;
+            if (j == lateSize || (i < size && current.eventIds()[i] <= lateEventIds[order[j]])) {
+                eventId = current.eventIds()[i];
+                datasourceId = current.datasourceIds()[i++];
+            } else {
+                eventId = lateEventIds[order[j]];
+                datasourceId = lateDatasourceIds[order[j++]];
+            }
+            // the first posting for an event id wins, whether it was already in the list or added late
+            if (merged > 0 && eventIds[merged - 1] == eventId) { continue; }
+            eventIds[merged] = eventId;
+            datasourceIds[merged++] = datasourceId;
+        }
+
+        bytes = new byte[Math.max(8, length + lateSize * 20)];
+        length = 0;
+        size = 0;
+        lastEventId = 0;
+        for (int k = 0; k < merged; k++) { append(eventIds[k], datasourceIds[k]); }
+
+        lateEventIds = new long[0];
+        lateDatasourceIds = new long[0];
+        lateSize = 0;
+        datasourceCount = -1;
+    }
+
+
+    public synchronized int size() {
+        mergeLate();
+        return size;
+    }
+
+
+    /**
+     * @return bytes held, for reporting
+     */
+    public synchronized int byteSize() {
+        return bytes.length;
+    }
+
+
+    /**
+     * @return a consistent copy of every posting
+     */
+    public synchronized Postings decode() {
+        mergeLate();
+        return decodeRange(0, size);
+    }
+
+
+    /**
+     * decodes only the postings asked for. postings before them are read past without being kept.
+     *
+     * @param skipNewest number of newest postings to pass over
+     * @param limit maximum number of postings to return
+     */
+    public synchronized Slice decodeNewest(int skipNewest, int limit) {
+        mergeLate();
+        var to = (int) Math.max(0, size - (long) skipNewest);
+        var from = (int) Math.max(0, to - (long) limit);
+        return new Slice(decodeRange(from, to), size, datasourceCount());
+    }
+
+
+    //
+    // helpers
+    //
+
+
+    /**
+     * postings at ascending positions from (inclusive) to (exclusive)
+     */
+    private Postings decodeRange(int from, int to) {
+        var eventIds = new long[to - from];
+        var datasourceIds = new long[to - from];
+        var position = new int[] { 0 };
+        var eventId = 0L;
+        for (int i = 0; i < to; i++) {
+            eventId += readVarint(position);
+            var datasourceId = readVarint(position);
+            if (i < from) { continue; }
+            eventIds[i - from] = eventId;
+            datasourceIds[i - from] = datasourceId;
+        }
+        return new Postings(eventIds, datasourceIds);
+    }
+
+
+    private int datasourceCount() {
+        if (datasourceCount < 0) {
+            datasourceCount = (int) Arrays.stream(decodeRange(0, size).datasourceIds()).distinct().count();
+        }
+        return datasourceCount;
+    }
+
+
+    private void append(long eventId, long datasourceId) {
+        writeVarint(eventId - lastEventId);
+        writeVarint(datasourceId);
+        lastEventId = eventId;
+        size++;
+    }
+
+
+    private void writeVarint(long value) {
+        if (length + 10 > bytes.length) { bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 10)); }
+        while ((value & ~0x7FL) != 0) {
+            bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte) value;
+    }
+
+
+    private long readVarint(int[] position) {
+        long rv = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position[0]++];
+            rv |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return rv;
+    }
+
+}
@@ -0,0 +1,103 @@
+package io.patchfox.data_service.helpers;
+
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.patchfox.data_service.components.EnvironmentComponent;
+import io.patchfox.package_utils.json.ApiResponse;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Single flight for read requests. While a computation for a given normalized request is running, every other caller
+ * asking the identical thing waits for it and gets its result instead of running its own. Nothing is kept once the
+ * computation finishes - this collapses bursts, it isn't a cache.
+ *
+ * Applied in the controllers so REST and Kafka callers (which are routed through the same handlers) share flights.
+ */
+@Slf4j
+@Component
+public class RequestCoalescer {
+
+    @Autowired
+    EnvironmentComponent env;
+
+    // the caller that runs a flight is remembered so its txid and requestReceivedAt can be swapped for the joiner's
+    private record Flight(UUID txid, ZonedDateTime requestReceivedAt, CompletableFuture<ApiResponse> result) {}
+
+    private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+
+    /**
+     * builds a key from a resource signature and the arguments that determine its result. maps are keyed in sorted
+     * order so parameter order doesn't matter.
+     */
+    public static String key(String signature, Object... arguments) {
+        var sb = new StringBuilder(signature);
+        for (var argument : arguments) {
+            sb.append('|');
+            sb.append(argument instanceof Map<?, ?> map ? new TreeMap<>(map) : argument);
+        }
+        return sb.toString();
+    }
+
+
+    /**
+     * runs argument computation unless an identical one is already in flight, in which case its result is shared.
+     * a shared response is re-stamped with the joining caller's txid and requestReceivedAt wherever it carried the
+     * ones of the caller that ran the flight. the data map itself is shared, not copied.
+     */
+    public ApiResponse coalesce(String key, UUID txid, ZonedDateTime requestReceivedAt, Supplier<ApiResponse> computation) {
+        if ( !env.isRequestCoalescingEnabled() ) { return computation.get(); }
+
+        var flight = new Flight(txid, requestReceivedAt, new CompletableFuture<>());
+        var existing = inFlight.putIfAbsent(key, flight);
+
+        if (existing == null) {
+            try {
+                var rv = computation.get();
+                flight.result().complete(rv);
+                return rv;
+            } catch (RuntimeException | Error e) {
+                flight.result().completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, flight);
+            }
+        }
+
+        log.debug("joining in flight request for key: {}", key);
+        ApiResponse shared;
+        try {
+            shared = existing.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) { throw cause; }
+            throw e;
+        }
+
+        return ApiResponse.builder()
+                          .code(shared.getCode())
+                          .txid(Objects.equals(shared.getTxid(), existing.txid()) ? txid : shared.getTxid())
+                          .requestReceivedAt(
+                              Objects.equals(shared.getRequestReceivedAt(), existing.requestReceivedAt())
+                                  ? requestReceivedAt
+                                  : shared.getRequestReceivedAt()
+                          )
+                          .serverMessage(shared.getServerMessage())
+                          .responderName(shared.getResponderName())
+                          .responderResourceSignature(shared.getResponderResourceSignature())
+                          .data(shared.getData())
+                          .build();
+    }
+
+}
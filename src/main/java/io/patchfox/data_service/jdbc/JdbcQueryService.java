@@ -2,9 +2,11 @@ package io.patchfox.data_service.jdbc;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,9 +15,11 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
 
+import io.patchfox.data_service.components.PurlCatalog;
 import io.patchfox.data_service.dto.DatasetDTO;
 import io.patchfox.data_service.dto.DatasetMetricsDTO;
 import io.patchfox.data_service.dto.DatasourceDTO;
@@ -27,6 +31,7 @@ import io.patchfox.data_service.dto.FindingDTO;
 import io.patchfox.data_service.dto.FindingDataDTO;
 import io.patchfox.data_service.dto.FindingReporterDTO;
 import io.patchfox.data_service.dto.PackageDTO;
+import io.patchfox.data_service.helpers.PayloadFieldExtractor;
 import io.patchfox.db_entities.entities.Dataset;
 import io.patchfox.db_entities.entities.DatasetMetrics;
 import io.patchfox.db_entities.entities.Datasource;
@@ -35,6 +40,7 @@ import io.patchfox.db_entities.entities.DatasourceMetrics;
 import io.patchfox.db_entities.entities.DatasourceMetricsCurrent;
 import io.patchfox.db_entities.entities.Edit;
 import io.patchfox.db_entities.entities.FindingData;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -57,9 +63,43 @@ public class JdbcQueryService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private PurlCatalog purlCatalog;
+
+    private static final String TRIGRAM_EXTENSION_SQL =
+        "SELECT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm')";
+
+    // whether the sim. operator can be used. without pg_trgm the % operator doesn't exist
+    private volatile boolean trigramAvailable;
+
     // Table metadata registry
     private static final Map<String, TableMetadata> TABLES = new HashMap<>();
 
+    /**
+     * A field rows of a table can be looked up by in bulk - the column it lives in and the SQL type the keys are
+     * bound as an array of.
+     */
+    private record LookupKey(String column, String arrayType) {}
+
+    // Bulk lookup keys registry - table -> field -> key
+    private static final Map<String, Map<String, LookupKey>> LOOKUP_KEYS = Map.of(
+        "package", Map.of(
+            "id", new LookupKey("id", "bigint"),
+            "purl", new LookupKey("purl", "text")
+        ),
+        "datasource", Map.of(
+            "id", new LookupKey("id", "bigint"),
+            "purl", new LookupKey("purl", "text")
+        ),
+        "finding", Map.of(
+            "id", new LookupKey("f.id", "bigint"),
+            "identifier", new LookupKey("f.identifier", "text")
+        ),
+        "edit", Map.of(
+            "id", new LookupKey("id", "bigint")
+        )
+    );
+
     static {
         // Dataset table metadata
         TABLES.put("dataset", new TableMetadata(
@@ -290,6 +330,14 @@ public class JdbcQueryService {
         ));
     }
 
+    @PostConstruct
+    void detectTrigramExtension() {
+        trigramAvailable = Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRIGRAM_EXTENSION_SQL, Boolean.class));
+        if (!trigramAvailable) {
+            log.warn("pg_trgm extension is not installed - sim. query conditions will be rejected");
+        }
+    }
+
     /**
      * Execute a query for Dataset, including related Datasources (without heavy fields).
      */
@@ -297,7 +345,7 @@ public class JdbcQueryService {
         TableMetadata meta = TABLES.get("dataset");
 
         // Build WHERE clause
-        SqlWhereBuilder whereBuilder = new SqlWhereBuilder(meta);
+        SqlWhereBuilder whereBuilder = new SqlWhereBuilder(meta, trigramAvailable);
         String whereClause = whereBuilder.build(params);
 
         // Build ORDER BY
@@ -307,7 +355,7 @@ public class JdbcQueryService {
         String countSql = buildCountSql("dataset", whereClause);
         log.debug("Dataset count SQL: {}", countSql);
 
-        Long total = jdbcTemplate.queryForObject(countSql, Long.class);
+        Long total = jdbcTemplate.queryForObject(countSql, Long.class, whereBuilder.getParameters().toArray());
         if (total == null || total == 0) {
             return new PageImpl<>(new ArrayList<>(), pageable, 0);
         }
@@ -322,7 +370,7 @@ public class JdbcQueryService {
         );
         log.info("Dataset data SQL: {}", dataSql);
 
-        List<DatasetDTO> datasets = jdbcTemplate.query(dataSql, DatasetDTO.ROW_MAPPER);
+        List<DatasetDTO> datasets = jdbcTemplate.query(dataSql, DatasetDTO.ROW_MAPPER, whereBuilder.getParameters().toArray());
 
         if (datasets.isEmpty()) {
             return new PageImpl<>(datasets, pageable, total);
@@ -398,7 +446,7 @@ public class JdbcQueryService {
         TableMetadata meta = TABLES.get("finding");
 
         // Build WHERE clause
-        SqlWhereBuilder whereBuilder = new SqlWhereBuilder(meta);
+        SqlWhereBuilder whereBuilder = new SqlWhereBuilder(meta, trigramAvailable);
         String whereClause = whereBuilder.build(params);
 
         // Build ORDER BY
@@ -409,7 +457,7 @@ public class JdbcQueryService {
             (whereClause.isEmpty() ? "" : " WHERE " + whereClause);
         log.debug("Finding count SQL: {}", countSql);
 
-        Long total = jdbcTemplate.queryForObject(countSql, Long.class);
+        Long total = jdbcTemplate.queryForObject(countSql, Long.class, whereBuilder.getParameters().toArray());
         if (total == null || total == 0) {
             return new PageImpl<>(new ArrayList<>(), pageable, 0);
         }
@@ -432,10 +480,57 @@ public class JdbcQueryService {
         String dataSql = sb.toString();
         log.info("Finding data SQL: {}", dataSql);
 
-        List<FindingDTO> findings = jdbcTemplate.query(dataSql, FindingDTO.ROW_MAPPER);
+        List<FindingDTO> findings = jdbcTemplate.query(dataSql, FindingDTO.ROW_MAPPER, whereBuilder.getParameters().toArray());
         return new PageImpl<>(findings, pageable, total);
     }
 
+    /**
+     * Execute a query for DatasourceEvent, loading the payload as the "payload" parameter asks. Values named by the
+     * "payloadFields" parameter are streamed out of the payload into payloadFields. The payload defaults to FULL, or
+     * to NONE when payloadFields is given as those callers usually want nothing else from it.
+     */
+    public Page<DatasourceEventDTO> queryDatasourceEvent(Map<String, String> params, Pageable pageable) {
+        TableMetadata meta = TABLES.get("datasourceevent");
+
+        var payloadFieldsParam = params.get(PayloadFieldExtractor.PARAMETER);
+        var payloadFieldPaths = payloadFieldsParam == null || payloadFieldsParam.isBlank()
+            ? List.<PayloadFieldExtractor.Path>of()
+            : PayloadFieldExtractor.parse(payloadFieldsParam);
+
+        var payloadParam = params.get(DatasourceEventDTO.PayloadMode.PARAMETER);
+        var payloadMode = payloadParam == null && !payloadFieldPaths.isEmpty()
+            ? DatasourceEventDTO.PayloadMode.NONE
+            : DatasourceEventDTO.PayloadMode
+                .fromParameter(payloadParam)
+                .orElseThrow(() -> new IllegalArgumentException("invalid payload argument: " + payloadParam));
+
+        SqlWhereBuilder whereBuilder = new SqlWhereBuilder(meta, trigramAvailable);
+        String whereClause = whereBuilder.build(params);
+        String orderBy = buildOrderBy(pageable, meta);
+
+        String countSql = buildCountSql(meta.getTableName(), whereClause);
+        Long total = jdbcTemplate.queryForObject(countSql, Long.class, whereBuilder.getParameters().toArray());
+        if (total == null || total == 0) {
+            return new PageImpl<>(new ArrayList<>(), pageable, 0);
+        }
+
+        String dataSql = buildDataSql(
+            DatasourceEventDTO.selectColumns(payloadMode, !payloadFieldPaths.isEmpty()),
+            meta.getTableName(),
+            whereClause,
+            orderBy,
+            pageable
+        );
+        log.info("DatasourceEvent data SQL ({} payload): {}", payloadMode, dataSql);
+
+        List<DatasourceEventDTO> events = jdbcTemplate.query(
+            dataSql,
+            DatasourceEventDTO.rowMapper(payloadMode, payloadFieldPaths),
+            whereBuilder.getParameters().toArray()
+        );
+        return new PageImpl<>(events, pageable, total);
+    }
+
     /**
      * Build ORDER BY with table alias prefix.
      */
@@ -485,6 +580,10 @@ public class JdbcQueryService {
             return (Page<T>) queryFinding(params, pageable);
         }
 
+        if ("datasourceevent".equals(table)) {
+            return (Page<T>) queryDatasourceEvent(params, pageable);
+        }
+
         // For other tables, use simple query without relationship loading
         return querySimple(tableName, params, pageable);
     }
@@ -501,12 +600,12 @@ public class JdbcQueryService {
 
         RowMapper<T> rowMapper = getRowMapper(tableName);
 
-        SqlWhereBuilder whereBuilder = new SqlWhereBuilder(meta);
+        SqlWhereBuilder whereBuilder = new SqlWhereBuilder(meta, trigramAvailable);
         String whereClause = whereBuilder.build(params);
         String orderBy = buildOrderBy(pageable, meta);
 
         String countSql = buildCountSql(meta.getTableName(), whereClause);
-        Long total = jdbcTemplate.queryForObject(countSql, Long.class);
+        Long total = jdbcTemplate.queryForObject(countSql, Long.class, whereBuilder.getParameters().toArray());
         if (total == null) {
             total = 0L;
         }
@@ -524,7 +623,7 @@ public class JdbcQueryService {
         );
         log.info("Data SQL: {}", dataSql);
 
-        List<T> content = jdbcTemplate.query(dataSql, rowMapper);
+        List<T> content = jdbcTemplate.query(dataSql, rowMapper, whereBuilder.getParameters().toArray());
         return new PageImpl<>(content, pageable, total);
     }
 
@@ -563,6 +662,61 @@ public class JdbcQueryService {
         };
     }
 
+    /**
+     * Check if rows of a given table can be looked up in bulk by a given field.
+     */
+    public boolean supportsLookup(String tableName, String keyField) {
+        return LOOKUP_KEYS.getOrDefault(tableName.toLowerCase(), Map.of()).containsKey(keyField);
+    }
+
+    /**
+     * Bulk lookup by key. The keys are bound as one array and joined in with their position, so there's no IN list
+     * to build and rows come back in the order their keys were given. A key with no row is skipped and a key given
+     * twice gives its row twice. Rows are handed to the consumer as they are read, fetchSize at a time - callers must
+     * be in a transaction for the driver to use a cursor rather than read everything up front.
+     *
+     * @param keys Long[] for id fields, String[] for the rest
+     * @param found the 0 based position of every key that matched a row is set here
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void lookup(
+        String tableName,
+        String keyField,
+        Object[] keys,
+        int fetchSize,
+        BitSet found,
+        Consumer<T> consumer
+    ) {
+        String table = tableName.toLowerCase();
+        LookupKey key = LOOKUP_KEYS.getOrDefault(table, Map.of()).get(keyField);
+        if (key == null) {
+            throw new IllegalArgumentException("table " + tableName + " can't be looked up by " + keyField);
+        }
+
+        String from = "finding".equals(table) ? FindingDTO.FROM_CLAUSE : TABLES.get(table).getTableName();
+        String sql = "SELECT " + getSelectColumns(table) + ", lookup.lookup_ord" +
+            " FROM " + from +
+            " JOIN unnest(?::" + key.arrayType() + "[]) WITH ORDINALITY AS lookup(lookup_key, lookup_ord)" +
+            " ON " + key.column() + " = lookup.lookup_key" +
+            " ORDER BY lookup.lookup_ord";
+        log.debug("Lookup SQL: {} ({} keys)", sql, keys.length);
+
+        RowMapper<T> rowMapper = getRowMapper(table);
+        int[] rowNum = {0};
+        jdbcTemplate.query(
+            con -> {
+                var ps = con.prepareStatement(sql);
+                ps.setFetchSize(fetchSize);
+                ps.setObject(1, keys);
+                return ps;
+            },
+            (RowCallbackHandler) rs -> {
+                found.set((int) rs.getLong("lookup_ord") - 1);
+                consumer.accept(rowMapper.mapRow(rs, rowNum[0]++));
+            }
+        );
+    }
+
     /**
      * Check if this service supports a given table.
      */
@@ -614,23 +768,23 @@ public class JdbcQueryService {
         String datasetName = params.remove("dataset.name");
 
         // Build WHERE clause
-        SqlWhereBuilder whereBuilder = new SqlWhereBuilder(meta);
+        SqlWhereBuilder whereBuilder = new SqlWhereBuilder(meta, trigramAvailable);
         String whereClause = whereBuilder.build(params);
 
         // If dataset.name is specified, we need to JOIN and filter
         String fromClause = "dataset_metrics dm";
         String additionalWhere = "";
+        List<Object> parameters = new ArrayList<>(whereBuilder.getParameters());
         if (datasetName != null && !datasetName.isEmpty()) {
             fromClause = "dataset_metrics dm JOIN dataset d ON dm.dataset_id = d.id";
             // Handle multiple dataset names (comma-separated)
             String[] names = datasetName.split(",");
             if (names.length == 1) {
-                additionalWhere = "d.name = '" + names[0].trim().replace("'", "''") + "'";
+                additionalWhere = "d.name = ?";
+                parameters.add(names[0].trim());
             } else {
-                String inClause = Arrays.stream(names)
-                    .map(n -> "'" + n.trim().replace("'", "''") + "'")
-                    .collect(Collectors.joining(", "));
-                additionalWhere = "d.name IN (" + inClause + ")";
+                additionalWhere = "d.name = ANY(?)";
+                parameters.add(Arrays.stream(names).map(String::trim).toArray(String[]::new));
             }
         }
 
@@ -652,7 +806,7 @@ public class JdbcQueryService {
             (fullWhere.isEmpty() ? "" : " WHERE " + fullWhere);
         log.debug("DatasetMetrics count SQL: {}", countSql);
 
-        Long total = jdbcTemplate.queryForObject(countSql, Long.class);
+        Long total = jdbcTemplate.queryForObject(countSql, Long.class, parameters.toArray());
         if (total == null || total == 0) {
             return new PageImpl<>(new ArrayList<>(), pageable, 0);
         }
@@ -676,7 +830,7 @@ public class JdbcQueryService {
         String dataSql = sb.toString();
         log.info("DatasetMetrics data SQL: {}", dataSql);
 
-        List<DatasetMetricsDTO> results = jdbcTemplate.query(dataSql, DatasetMetricsDTO.ROW_MAPPER);
+        List<DatasetMetricsDTO> results = jdbcTemplate.query(dataSql, DatasetMetricsDTO.ROW_MAPPER, parameters.toArray());
         return new PageImpl<>(results, pageable, total);
     }
 
@@ -710,7 +864,7 @@ public class JdbcQueryService {
             .collect(Collectors.joining(", "));
 
         String sql = String.format(
-            "SELECT e.id, e.dataset_metrics_id, e.commit_date_time, ds.purl as datasource_purl " +
+            "SELECT e.id, e.dataset_metrics_id, e.datasource_id, e.commit_date_time, ds.purl as datasource_purl " +
             "FROM edit e " +
             "JOIN datasource ds ON e.datasource_id = ds.id " +
             "WHERE e.dataset_metrics_id IN (%s)",
@@ -721,6 +875,7 @@ public class JdbcQueryService {
             EditWithDatasourcePurl ewp = new EditWithDatasourcePurl();
             ewp.editId = rs.getLong("id");
             ewp.datasetMetricsId = rs.getLong("dataset_metrics_id");
+            ewp.datasourceId = rs.getLong("datasource_id");
             ewp.datasourcePurl = rs.getString("datasource_purl");
             java.time.OffsetDateTime cdt = rs.getObject("commit_date_time", java.time.OffsetDateTime.class);
             if (cdt != null) {
@@ -736,6 +891,7 @@ public class JdbcQueryService {
     public static class EditWithDatasourcePurl {
         public Long editId;
         public Long datasetMetricsId;
+        public Long datasourceId;
         public String datasourcePurl;
         public java.time.ZonedDateTime commitDateTime;
     }
@@ -774,33 +930,46 @@ public class JdbcQueryService {
 
     /**
      * Load package purls for a list of datasource event IDs.
-     * JOINs datasource_event_package with package table.
+     * Package ids come from datasource_event_package and are resolved through the PurlCatalog; only packages
+     * the catalog hasn't picked up yet are read from the package table.
      */
     public Map<Long, List<String>> getPackagePurlsForDatasourceEvents(List<Long> datasourceEventIds) {
         if (datasourceEventIds == null || datasourceEventIds.isEmpty()) {
             return new HashMap<>();
         }
 
-        String idList = datasourceEventIds.stream()
-            .map(String::valueOf)
-            .collect(Collectors.joining(", "));
-
-        String sql = String.format(
-            "SELECT dep.datasource_event_id, p.purl FROM datasource_event_package dep " +
-            "JOIN package p ON dep.package_id = p.id " +
-            "WHERE dep.datasource_event_id IN (%s)",
-            idList
-        );
+        Map<Long, List<Long>> packageIds = getPackageIdsForDatasourceEvents(datasourceEventIds);
 
         Map<Long, List<String>> result = new HashMap<>();
-        for (Long id : datasourceEventIds) {
-            result.put(id, new ArrayList<>());
+        Map<Long, List<Long>> misses = new HashMap<>();
+        for (Long eventId : datasourceEventIds) {
+            List<String> purls = new ArrayList<>();
+            result.put(eventId, purls);
+            for (Long packageId : packageIds.get(eventId)) {
+                int catalogId = purlCatalog.idOfPackage(packageId);
+                if (catalogId < 0) {
+                    misses.computeIfAbsent(packageId, k -> new ArrayList<>()).add(eventId);
+                } else {
+                    purls.add(purlCatalog.entry(catalogId).purl());
+                }
+            }
         }
 
+        if (misses.isEmpty()) {
+            return result;
+        }
+
+        String idList = misses.keySet().stream()
+            .map(String::valueOf)
+            .collect(Collectors.joining(", "));
+
+        String sql = String.format("SELECT id, purl FROM package WHERE id IN (%s)", idList);
+
         jdbcTemplate.query(sql, (rs, rowNum) -> {
-            Long eventId = rs.getLong("datasource_event_id");
             String purl = rs.getString("purl");
-            result.get(eventId).add(purl);
+            for (Long eventId : misses.get(rs.getLong("id"))) {
+                result.get(eventId).add(purl);
+            }
             return null;
         });
 
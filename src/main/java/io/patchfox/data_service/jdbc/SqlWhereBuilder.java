@@ -1,5 +1,6 @@
 package io.patchfox.data_service.jdbc;
 
+import java.math.BigDecimal;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -7,29 +8,56 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+
+import org.springframework.jdbc.support.SqlArrayValue;
 
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * Translates QueryDSL-style query parameters to SQL WHERE clauses.
+ * Translates QueryDSL-style query parameters to a parameterized SQL WHERE clause. Every value is bound - the clause
+ * only ever holds column names, operators and placeholders - so pass getParameters() along with the SQL.
  *
  * Supports:
  * - Operators: gt., gte., lt., lte., eq. (default is equals or ILIKE for strings)
- * - Multiple values: comma-separated values become IN clauses
+ * - String operators: sw. (starts with, case sensitive LIKE 'x%'. a B-tree index only serves it under the C collation
+ *   or with text_pattern_ops) and sim. (pg_trgm similarity, the % operator - rejected when the extension isn't installed)
+ * - Ranges: between.low,high (inclusive)
+ * - Lists: in.a,b,c and nin.a,b,c. a bare comma-separated value is the same as in.
+ * - Negation: not. in front of any of the above. a null field matches a negated condition.
+ * - Groups: or=(field.op.value,...) and and=(...). groups nest as or(...), and(...), not.or(...) and not.and(...)
+ *   - a negated group matches every row the group doesn't, including rows it's unknown for because of a null field
+ *   - eg - or=(severity.in.(CRITICAL,HIGH),and(publishedAt.gte.2024-01-01,reporter.not.eq.x)). inside a group a list
+ *   is parenthesized and a value holding a comma or paren is double quoted.
  * - Types: String, Long, Integer, Double, Boolean, ZonedDateTime, UUID, Enums
+ *
+ * Lists are bound as a single array (column = ANY(?)) so their size doesn't count against the bind parameter limit.
  */
 @Slf4j
 public class SqlWhereBuilder {
 
-    private static final Set<String> SKIP_PARAMS = Set.of("sort", "size", "page", "select");
+    private static final Set<String> SKIP_PARAMS = Set.of("sort", "size", "page", "select", "payload", "payloadFields");
+
+    public static final String OR_PARAM = "or";
+    public static final String AND_PARAM = "and";
+
+    private static final String NOT = "not.";
+    private static final String IN = "in.";
+    private static final String NOT_IN = "nin.";
+    private static final String BETWEEN = "between.";
+    private static final String STARTS_WITH = "sw.";
+    private static final String SIMILAR_TO = "sim.";
 
     private final TableMetadata meta;
+    private final boolean similarityAvailable;
     private final List<String> conditions = new ArrayList<>();
     private final List<Object> parameters = new ArrayList<>();
 
-    public SqlWhereBuilder(TableMetadata meta) {
+    /**
+     * @param similarityAvailable whether the database has the pg_trgm extension sim. needs
+     */
+    public SqlWhereBuilder(TableMetadata meta, boolean similarityAvailable) {
         this.meta = meta;
+        this.similarityAvailable = similarityAvailable;
     }
 
     /**
@@ -52,6 +80,11 @@ public class SqlWhereBuilder {
                 continue;
             }
 
+            if (OR_PARAM.equals(fieldName) || AND_PARAM.equals(fieldName)) {
+                conditions.add(buildGroup(value.trim(), OR_PARAM.equals(fieldName) ? "OR" : "AND"));
+                continue;
+            }
+
             // Skip nested fields for now - they need JOIN support
             if (fieldName.contains(".")) {
                 log.debug("Skipping nested field {} - not supported in JDBC mode", fieldName);
@@ -70,18 +103,7 @@ public class SqlWhereBuilder {
                 continue;
             }
 
-            try {
-                if (value.contains(",")) {
-                    conditions.add(buildInClause(column, value, fieldType));
-                } else {
-                    conditions.add(buildCondition(column, value, fieldType));
-                }
-            } catch (Exception e) {
-                log.error("Error building condition for field {} with value {}: {}",
-                    fieldName, value, e.getMessage());
-                throw new IllegalArgumentException(
-                    "Invalid value '" + value + "' for field '" + fieldName + "'", e);
-            }
+            conditions.add(buildFieldCondition(fieldName, column, value, fieldType, true));
         }
 
         if (conditions.isEmpty()) {
@@ -91,10 +113,67 @@ public class SqlWhereBuilder {
         return String.join(" AND ", conditions);
     }
 
+    /**
+     * Values bound to the clause's placeholders, in order. Valid after build().
+     */
+    public List<Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Build a condition, wrapping value errors so the caller can report which field was bad.
+     */
+    private String buildFieldCondition(String fieldName, String column, String value, Class<?> type, boolean topLevel) {
+        try {
+            return buildCondition(column, value, type, topLevel);
+        } catch (Exception e) {
+            log.error("Error building condition for field {} with value {}: {}",
+                fieldName, value, e.getMessage());
+            throw new IllegalArgumentException(
+                "Invalid value '" + value + "' for field '" + fieldName + "': " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Build a single condition with operator support.
+     *
+     * @param topLevel true for a plain query parameter, where a list may be unparenthesized and a bare comma means IN
      */
-    private String buildCondition(String column, String value, Class<?> type) {
+    private String buildCondition(String column, String value, Class<?> type, boolean topLevel) {
+        if (value.startsWith(NOT)) {
+            String inner = buildCondition(column, value.substring(NOT.length()), type, topLevel);
+            return String.format("(%s IS NULL OR NOT (%s))", column, inner);
+        }
+        if (value.startsWith(IN)) {
+            return buildAnyClause(column, parseList(value.substring(IN.length()), topLevel), type);
+        }
+        if (value.startsWith(NOT_IN)) {
+            String inner = buildAnyClause(column, parseList(value.substring(NOT_IN.length()), topLevel), type);
+            return String.format("(%s IS NULL OR NOT (%s))", column, inner);
+        }
+        if (value.startsWith(BETWEEN)) {
+            List<String> bounds = parseList(value.substring(BETWEEN.length()), topLevel);
+            if (bounds.size() != 2) {
+                throw new IllegalArgumentException(BETWEEN + " takes exactly two values");
+            }
+            String placeholder = placeholder(type);
+            parameters.add(bindValue(bounds.get(0), type));
+            parameters.add(bindValue(bounds.get(1), type));
+            return String.format("%s BETWEEN %s AND %s", column, placeholder, placeholder);
+        }
+        if (value.startsWith(STARTS_WITH) || value.startsWith(SIMILAR_TO)) {
+            return buildTextCondition(column, topLevel ? value : unquoteOperand(value), type);
+        }
+        // a bare comma separated value is a list. inside a group the tokenizer already split on unquoted commas
+        if (topLevel && value.contains(",")) {
+            List<String> values = Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(v -> !v.isEmpty())
+                .map(v -> v.startsWith("eq.") ? v.substring(3) : v)
+                .toList();
+            return buildAnyClause(column, values, type);
+        }
+
         String op = "=";
         String val = value;
 
@@ -115,84 +194,249 @@ public class SqlWhereBuilder {
             op = "=";
             val = value.substring(3);
         }
+        if (!topLevel) {
+            val = unquote(val);
+        }
+
+        if (type == String.class && op.equals("=") && !value.startsWith("eq.")) {
+            // Default string behavior: case-insensitive contains (matches QueryDslHelpers)
+            parameters.add("%" + val + "%");
+            return String.format("%s ILIKE ?", column);
+        }
+
+        parameters.add(bindValue(val, type));
+        return String.format("%s %s %s", column, op, placeholder(type));
+    }
+
+    /**
+     * Build a sw. or sim. condition. Both only make sense against text columns.
+     */
+    private String buildTextCondition(String column, String value, Class<?> type) {
+        if (type != String.class) {
+            throw new IllegalArgumentException(STARTS_WITH + " and " + SIMILAR_TO + " only apply to text fields");
+        }
+
+        if (value.startsWith(STARTS_WITH)) {
+            parameters.add(escapeLike(value.substring(STARTS_WITH.length())) + "%");
+            return String.format("%s LIKE ?", column);
+        }
+
+        if (!similarityAvailable) {
+            throw new IllegalArgumentException(SIMILAR_TO + " is unavailable - the database has no pg_trgm extension");
+        }
+        parameters.add(value.substring(SIMILAR_TO.length()));
+        return String.format("%s %% ?", column);
+    }
 
-        // Format based on type
-        if (type == String.class) {
-            if (op.equals("=") && !value.startsWith("eq.")) {
-                // Default string behavior: case-insensitive contains (matches QueryDslHelpers)
-                return String.format("%s ILIKE '%%%s%%'", column, escapeSql(val));
+    /**
+     * Build column = ANY(?) for a list of values, bound as one array.
+     */
+    private String buildAnyClause(String column, List<String> values, Class<?> type) {
+        if (values.isEmpty()) {
+            // Return a condition that's always false if no values
+            return "1 = 0";
+        }
+
+        parameters.add(bindArray(values, type));
+        return String.format("%s = ANY(%s)", column, arrayPlaceholder(type));
+    }
+
+    /**
+     * Build a parenthesized group of conditions joined by argument joiner. Terms are field.condition or a nested
+     * and(...), or(...), not.and(...) or not.or(...).
+     */
+    private String buildGroup(String group, String joiner) {
+        if (!group.startsWith("(") || !group.endsWith(")")) {
+            throw new IllegalArgumentException(
+                "a group is a parenthesized list of conditions, eg - or=(type.eq.npm,type.eq.maven) - got: " + group);
+        }
+
+        List<String> parts = new ArrayList<>();
+        for (String raw : splitTopLevel(group.substring(1, group.length() - 1), ',')) {
+            String term = raw.trim();
+            if (term.isEmpty()) {
+                continue;
             }
-            return String.format("%s %s '%s'", column, op, escapeSql(val));
-        } else if (type == ZonedDateTime.class) {
-            return String.format("%s %s '%s'::timestamptz", column, op, val);
-        } else if (type == UUID.class) {
-            return String.format("%s %s '%s'::uuid", column, op, val);
-        } else if (type.isEnum()) {
-            return String.format("%s %s '%s'", column, op, escapeSql(val));
-        } else if (type == Boolean.class || type == boolean.class) {
-            return String.format("%s %s %s", column, op, Boolean.parseBoolean(val));
-        } else if (type == Long.class || type == long.class) {
-            return String.format("%s %s %d", column, op, Long.parseLong(val));
-        } else if (type == Integer.class || type == int.class) {
-            return String.format("%s %s %d", column, op, Integer.parseInt(val));
-        } else if (type == Double.class || type == double.class) {
-            return String.format("%s %s %s", column, op, Double.parseDouble(val));
-        } else {
-            // Fallback for other numeric types
-            return String.format("%s %s %s", column, op, val);
+
+            boolean negated = term.startsWith(NOT + "and(") || term.startsWith(NOT + "or(");
+            String unnegated = negated ? term.substring(NOT.length()) : term;
+            String part;
+            if (unnegated.startsWith("and(")) {
+                part = buildGroup(unnegated.substring(3), "AND");
+            } else if (unnegated.startsWith("or(")) {
+                part = buildGroup(unnegated.substring(2), "OR");
+            } else {
+                part = buildGroupTerm(term);
+            }
+            // IS NOT TRUE rather than NOT so a null field matches, the same as it does a negated field condition
+            parts.add(negated ? part + " IS NOT TRUE" : part);
         }
+
+        if (parts.isEmpty()) {
+            throw new IllegalArgumentException("empty condition group: " + group);
+        }
+        return "(" + String.join(" " + joiner + " ", parts) + ")";
     }
 
     /**
-     * Build IN clause for comma-separated values.
+     * field.condition inside a group. unlike a top level parameter an unknown field is an error, as dropping one side
+     * of an OR would widen the result instead of narrowing it.
      */
-    private String buildInClause(String column, String value, Class<?> type) {
-        String[] values = value.split(",");
+    private String buildGroupTerm(String term) {
+        int dot = term.indexOf('.');
+        if (dot <= 0 || dot == term.length() - 1) {
+            throw new IllegalArgumentException("expected field.condition in group but got: " + term);
+        }
+
+        String fieldName = term.substring(0, dot);
+        String column = meta.getColumn(fieldName);
+        Class<?> fieldType = meta.getFieldType(fieldName);
+        if (column == null || fieldType == null) {
+            throw new IllegalArgumentException("unknown field '" + fieldName + "' for table " + meta.getTableName());
+        }
+
+        return buildFieldCondition(fieldName, column, term.substring(dot + 1), fieldType, false);
+    }
 
-        List<String> formatted = Arrays.stream(values)
+    /**
+     * Values of an in., nin. or between. list. inside a group the list must be parenthesized.
+     */
+    private List<String> parseList(String list, boolean topLevel) {
+        String body = list.trim();
+        if (body.startsWith("(") && body.endsWith(")")) {
+            body = body.substring(1, body.length() - 1);
+        } else if (!topLevel) {
+            throw new IllegalArgumentException("a list inside a group must be parenthesized, eg - in.(a,b) - got: " + list);
+        }
+
+        return splitTopLevel(body, ',').stream()
             .map(String::trim)
             .filter(v -> !v.isEmpty())
-            .map(v -> v.startsWith("eq.") ? v.substring(3) : v)
-            .map(v -> formatValueForIn(v, type))
-            .collect(Collectors.toList());
+            .map(this::unquote)
+            .toList();
+    }
 
-        if (formatted.isEmpty()) {
-            // Return a condition that's always false if no values
-            return "1 = 0";
+    /**
+     * Split on argument separator where it isn't inside parens or double quotes.
+     */
+    private static List<String> splitTopLevel(String value, char separator) {
+        List<String> rv = new ArrayList<>();
+        int depth = 0;
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (quoted) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth < 0) {
+                    throw new IllegalArgumentException("unbalanced parentheses in: " + value);
+                }
+            } else if (c == separator && depth == 0) {
+                rv.add(value.substring(start, i));
+                start = i + 1;
+            }
+        }
+
+        if (quoted || depth != 0) {
+            throw new IllegalArgumentException("unbalanced quotes or parentheses in: " + value);
         }
+        rv.add(value.substring(start));
+        return rv;
+    }
+
+    /**
+     * Strip surrounding double quotes and unescape \" and \\ within them.
+     */
+    private String unquote(String value) {
+        if (value.length() < 2 || !value.startsWith("\"") || !value.endsWith("\"")) {
+            return value;
+        }
+        return value.substring(1, value.length() - 1).replaceAll("\\\\(.)", "$1");
+    }
 
-        return String.format("%s IN (%s)", column, String.join(", ", formatted));
+    /**
+     * unquote the operand of a sw. or sim. condition
+     */
+    private String unquoteOperand(String value) {
+        int dot = value.indexOf('.');
+        return value.substring(0, dot + 1) + unquote(value.substring(dot + 1));
     }
 
     /**
-     * Format a single value for use in IN clause.
+     * Placeholder for a single value. timestamps and uuids are bound as text and cast by the db, so it parses them
+     * exactly as it would a literal.
      */
-    private String formatValueForIn(String val, Class<?> type) {
-        if (type == String.class || type.isEnum()) {
-            return "'" + escapeSql(val) + "'";
-        } else if (type == ZonedDateTime.class) {
-            return "'" + val + "'::timestamptz";
+    private String placeholder(Class<?> type) {
+        if (type == ZonedDateTime.class) {
+            return "?::timestamptz";
         } else if (type == UUID.class) {
-            return "'" + val + "'::uuid";
-        } else if (type == Boolean.class || type == boolean.class) {
-            return String.valueOf(Boolean.parseBoolean(val));
+            return "?::uuid";
+        }
+        return "?";
+    }
+
+    private String arrayPlaceholder(Class<?> type) {
+        if (type == ZonedDateTime.class) {
+            return "?::timestamptz[]";
+        } else if (type == UUID.class) {
+            return "?::uuid[]";
+        }
+        return "?";
+    }
+
+    /**
+     * Convert a single value for binding.
+     */
+    private Object bindValue(String val, Class<?> type) {
+        if (type == Boolean.class || type == boolean.class) {
+            return Boolean.parseBoolean(val);
         } else if (type == Long.class || type == long.class) {
-            return String.valueOf(Long.parseLong(val));
+            return Long.parseLong(val);
         } else if (type == Integer.class || type == int.class) {
-            return String.valueOf(Integer.parseInt(val));
+            return Integer.parseInt(val);
         } else if (type == Double.class || type == double.class) {
-            return String.valueOf(Double.parseDouble(val));
+            return Double.parseDouble(val);
+        } else if (Number.class.isAssignableFrom(type) || (type.isPrimitive() && type != char.class)) {
+            // Fallback for other numeric types
+            return new BigDecimal(val);
         }
+        // strings, enums (stored as their name) and text cast by the placeholder
         return val;
     }
 
     /**
-     * Escape single quotes in SQL strings to prevent SQL injection.
+     * Convert a list of values to a typed array for binding as one parameter.
      */
-    private String escapeSql(String value) {
-        if (value == null) {
-            return "";
+    private Object bindArray(List<String> values, Class<?> type) {
+        if (type == Boolean.class || type == boolean.class) {
+            return values.stream().map(Boolean::parseBoolean).toArray(Boolean[]::new);
+        } else if (type == Long.class || type == long.class) {
+            return values.stream().map(Long::parseLong).toArray(Long[]::new);
+        } else if (type == Integer.class || type == int.class) {
+            return values.stream().map(Integer::parseInt).toArray(Integer[]::new);
+        } else if (type == Double.class || type == double.class) {
+            return values.stream().map(Double::parseDouble).toArray(Double[]::new);
+        } else if (Number.class.isAssignableFrom(type) || (type.isPrimitive() && type != char.class)) {
+            // the driver has no mapping of its own for a BigDecimal[] - build the numeric[] explicitly
+            return new SqlArrayValue("numeric", values.stream().map(BigDecimal::new).toArray());
         }
-        return value.replace("'", "''");
+        return values.toArray(String[]::new);
+    }
+
+    /**
+     * Escape LIKE wildcards so they match literally.
+     */
+    private String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 }
@@ -0,0 +1,62 @@
+package io.patchfox.data_service.json;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+
+/**
+ * everything currently exposed to one finding - the package versions it affects that something still holds, the
+ * datasets whose current DatasetMetrics include them and the datasources whose latest event includes them
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BlastRadiusView {
+
+    @JsonProperty("identifier")
+    private String identifier;
+
+    @JsonProperty("indexBuiltAt")
+    private String indexBuiltAt;
+
+    @JsonProperty("packageCount")
+    private int packageCount;
+
+    @JsonProperty("datasetCount")
+    private int datasetCount;
+
+    @JsonProperty("datasourceCount")
+    private int datasourceCount;
+
+    @JsonProperty("packages")
+    private List<AffectedPackage> packages;
+
+    @JsonProperty("datasets")
+    private List<String> datasets;
+
+    @JsonProperty("datasources")
+    private List<String> datasources;
+
+
+    @AllArgsConstructor
+    @Getter
+    @Setter
+    public static class AffectedPackage {
+        @JsonProperty("purl")
+        String purl;
+
+        @JsonProperty("datasetCount")
+        int datasetCount;
+
+        @JsonProperty("datasourceCount")
+        int datasourceCount;
+    }
+
+}
@@ -0,0 +1,41 @@
+package io.patchfox.data_service.json;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+
+/**
+ * One named query of a POST /api/v1/db/batch request - the table and query string parameters a GET
+ * /api/v1/db/{table}/query would be given, including page, size and sort.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DatabaseBatchQuery {
+
+    @JsonProperty("table")
+    private String table;
+
+    @JsonProperty("params")
+    private Map<String, String> params;
+
+
+    /**
+     * parameters in sorted order so identical queries print identically (used as a request coalescing key)
+     */
+    @Override
+    public String toString() {
+        return table + (params == null ? "{}" : new TreeMap<>(params).toString());
+    }
+
+}
@@ -0,0 +1,33 @@
+package io.patchfox.data_service.json;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+
+/**
+ * outcome of one named query of a batch. data is what GET /api/v1/db/{table}/query would have answered with.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DatabaseBatchQueryResult {
+
+    @JsonProperty("code")
+    private int code;
+
+    @JsonProperty("serverMessage")
+    private String serverMessage;
+
+    @JsonProperty("data")
+    private Map<String, Object> data;
+
+}
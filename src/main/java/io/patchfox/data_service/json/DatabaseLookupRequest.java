@@ -0,0 +1,85 @@
+package io.patchfox.data_service.json;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+
+/**
+ * Body of a POST /api/v1/db/{table}/lookup - exactly one list of keys to look rows up by. findings have no purl and
+ * are looked up by identifier (eg - CVE-2024-1234) instead.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DatabaseLookupRequest {
+
+    @JsonProperty("ids")
+    private List<Long> ids;
+
+    @JsonProperty("purls")
+    private List<String> purls;
+
+    @JsonProperty("identifiers")
+    private List<String> identifiers;
+
+
+    /**
+     * @return the name of the field the keys are matched against, or null if not exactly one list was given
+     */
+    @JsonIgnore
+    public String getKeyField() {
+        var rv = (String) null;
+        var given = 0;
+        if (ids != null) { rv = "id"; given++; }
+        if (purls != null) { rv = "purl"; given++; }
+        if (identifiers != null) { rv = "identifier"; given++; }
+        return given == 1 ? rv : null;
+    }
+
+
+    /**
+     * @return the keys as an array ready to bind - Long[] for ids, String[] otherwise
+     */
+    @JsonIgnore
+    public Object[] getKeys() {
+        if (ids != null) { return ids.toArray(Long[]::new); }
+        if (purls != null) { return purls.toArray(String[]::new); }
+        return identifiers == null ? new Object[0] : identifiers.toArray(String[]::new);
+    }
+
+
+    /**
+     * @return what's wrong with this request - empty if nothing
+     */
+    @JsonIgnore
+    public List<String> getValidationErrors(int maxKeys) {
+        var rv = new ArrayList<String>();
+        if (getKeyField() == null) {
+            rv.add("expected exactly one of ids, purls, identifiers");
+            return rv;
+        }
+
+        var keys = getKeys();
+        if (keys.length == 0) { rv.add("no keys to look up"); }
+        if (keys.length > maxKeys) { rv.add(String.format("more than %d keys to look up", maxKeys)); }
+        for (var key : keys) {
+            if (key == null) {
+                rv.add("keys can't be null");
+                break;
+            }
+        }
+        return rv;
+    }
+
+}
@@ -0,0 +1,74 @@
+package io.patchfox.data_service.json;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+
+/**
+ * A DatasourceEvent as submitted for ingestion: the event metadata plus its payload (eg - the syft SBOM and git blame
+ * of the build file). Buffered by DatasourceEventBufferService until its datasource is ready and then released
+ * downstream in commitDateTime order.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DatasourceEventSubmission {
+
+    @JsonProperty("datasourcePurl")
+    private String datasourcePurl;
+
+    @JsonProperty("purl")
+    private String purl;
+
+    @JsonProperty("txid")
+    private UUID txid;
+
+    @JsonProperty("jobId")
+    private UUID jobId;
+
+    @JsonProperty("commitHash")
+    private String commitHash;
+
+    @JsonProperty("commitBranch")
+    private String commitBranch;
+
+    @JsonProperty("commitDateTime")
+    private ZonedDateTime commitDateTime;
+
+    @JsonProperty("eventDateTime")
+    private ZonedDateTime eventDateTime;
+
+    @JsonProperty("payload")
+    private JsonNode payload;
+
+
+    /**
+     * @return what's wrong with this submission - empty if nothing
+     */
+    @JsonIgnore
+    public List<String> getValidationErrors() {
+        var rv = new ArrayList<String>();
+        if (datasourcePurl == null || datasourcePurl.isBlank()) { rv.add("missing datasourcePurl"); }
+        if (purl == null || purl.isBlank()) { rv.add("missing purl"); }
+        if (txid == null) { rv.add("missing txid"); }
+        if (commitHash == null || commitHash.isBlank()) { rv.add("missing commitHash"); }
+        if (commitDateTime == null) { rv.add("missing commitDateTime"); }
+        if (payload == null || payload.isNull()) { rv.add("missing payload"); }
+        return rv;
+    }
+
+}
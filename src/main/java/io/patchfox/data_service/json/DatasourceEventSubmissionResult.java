@@ -0,0 +1,37 @@
+package io.patchfox.data_service.json;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+
+/**
+ * outcome of one item of a bulk datasource event submission. index is the item's 0 based position in the request.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DatasourceEventSubmissionResult {
+
+    @JsonProperty("index")
+    private int index;
+
+    @JsonProperty("txid")
+    private UUID txid;
+
+    @JsonProperty("code")
+    private int code;
+
+    @JsonProperty("errors")
+    private List<String> errors;
+
+}
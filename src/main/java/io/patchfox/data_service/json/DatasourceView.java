@@ -31,10 +31,10 @@ public class DatasourceView {
     private String type;
 
     @JsonProperty("numberEventsReceived")
-    private double numberEventsReceived;
+    private Double numberEventsReceived;
 
     @JsonProperty("numberEventProcessingErrors")
-    private double numberEventProcessingErrors;
+    private Double numberEventProcessingErrors;
     
     @JsonProperty("firstEventReceivedAt")
     private String firstEventReceivedAt;
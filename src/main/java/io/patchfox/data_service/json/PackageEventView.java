@@ -0,0 +1,47 @@
+package io.patchfox.data_service.json;
+
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+
+/**
+ * a DatasourceEvent found to contain a package, with enough of its datasource to say where it came from
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PackageEventView {
+
+    @JsonProperty("eventId")
+    private Long eventId;
+
+    @JsonProperty("datasourcePurl")
+    private String datasourcePurl;
+
+    @JsonProperty("purl")
+    private String purl;
+
+    @JsonProperty("txid")
+    private String txid;
+
+    @JsonProperty("commitHash")
+    private String commitHash;
+
+    @JsonProperty("commitBranch")
+    private String commitBranch;
+
+    @JsonProperty("commitDatetime")
+    private String commitDatetime;
+
+    @JsonProperty("status")
+    private String status;
+
+}
@@ -0,0 +1,43 @@
+package io.patchfox.data_service.json;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+
+/**
+ * one package search hit - a purl without version standing for every version of it the catalog holds
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PackageSearchResultView {
+
+    @JsonProperty("purl")
+    private String purl;
+
+    @JsonProperty("kind")
+    private String kind;
+
+    @JsonProperty("type")
+    private String type;
+
+    @JsonProperty("namespace")
+    private String namespace;
+
+    @JsonProperty("name")
+    private String name;
+
+    @JsonProperty("versionCount")
+    private int versionCount;
+
+    @JsonProperty("score")
+    private double score;
+
+}
@@ -0,0 +1,40 @@
+package io.patchfox.data_service.json;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+
+/**
+ * where an async query job is at. expiresAt is set once the job is done - its result can be fetched until then.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class QueryJobView {
+
+    @JsonProperty("id")
+    private UUID id;
+
+    @JsonProperty("status")
+    private String status;
+
+    @JsonProperty("createdAt")
+    private ZonedDateTime createdAt;
+
+    @JsonProperty("completedAt")
+    private ZonedDateTime completedAt;
+
+    @JsonProperty("expiresAt")
+    private ZonedDateTime expiresAt;
+
+}
@@ -1,62 +1,64 @@
 package io.patchfox.data_service.kafka;
 
-import java.lang.reflect.InvocationTargetException;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
-import java.util.Optional;
-import java.util.Set;
-import java.util.UUID;
 
 import org.apache.catalina.connector.Response;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.http.ResponseEntity;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
 import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
-import org.springframework.web.method.HandlerMethod;
-import org.springframework.web.util.UriTemplate;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 
 import io.patchfox.data_service.components.EnvironmentComponent;
-import io.patchfox.data_service.controllers.DatabaseQueryController;
-import io.patchfox.data_service.controllers.DatasourceController;
-import io.patchfox.data_service.controllers.DatasourceEventController;
-import io.patchfox.data_service.controllers.HealthCheckController;
-import io.patchfox.data_service.controllers.RecommendViewController;
+import io.patchfox.data_service.config.KafkaConfig;
 import io.patchfox.package_utils.json.ApiRequest;
 import io.patchfox.package_utils.json.ApiResponse;
-import io.patchfox.data_service.controllers.RestInfoController;
-import io.patchfox.data_service.controllers.TrackViewController;
-import io.patchfox.data_service.services.RestInfoService;
-import io.patchfox.package_utils.util.Pair;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Component
 public class KafkaBeans {
 
+    public static final String CONCURRENT_REQUEST_LISTENER_ID = "concurrentRequestListener";
+
     @Autowired
     private KafkaTemplate<String, ApiRequest> kafkaRequestTemplate;
 
     @Autowired
-    private KafkaTemplate<String, ApiResponse> kafkaResponseTemplate;
+    KafkaResponseSender kafkaResponseSender;
 
-    @Autowired 
-    RestInfoService restInfoService;
+    @Autowired
+    KafkaDispatchTable kafkaDispatchTable;
 
     @Autowired
-    ApplicationContext context;
+    KeyOrderedExecutor kafkaRequestExecutor;
 
     @Autowired
     EnvironmentComponent env;
 
+    @Autowired
+    KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+
+    @PostConstruct
+    void resumeRequestsOnCapacity() {
+        kafkaRequestExecutor.setCapacityListener(() -> {
+            var container = kafkaListenerEndpointRegistry.getListenerContainer(CONCURRENT_REQUEST_LISTENER_ID);
+            if (container != null && container.isPauseRequested()) {
+                log.info("request capacity freed - resuming request topic consumption");
+                container.resume();
+            }
+        });
+    }
+
     //
     // create topics for other services to send and receive messages on 
     //
@@ -93,42 +95,49 @@ public class KafkaBeans {
         clientIdPrefix = "#'${spring.kafka.request.client-id-prefix}'",
         groupId = "#'${spring.kafka.group-name}'",
         topics = "#{'${spring.kafka.request-topic}'}",
+        autoStartup = "#{'${custom.kafka.request.processing-mode}' != 'concurrent'}",
         properties = {"spring.json.value.default.type=io.patchfox.package_utils.json.ApiRequest"}
     )
     public void listenToRequestTopic(ApiRequest apiRequest) throws Exception {
         log.info("received apiRequest message: {}", apiRequest);
-        var now = ZonedDateTime.ofInstant(Instant.now(), ZoneOffset.UTC);
-        var responseTopicName = apiRequest.getResponseTopicName();
-        var txid = apiRequest.getTxid();
-        var verb = apiRequest.getVerb();
-        var resource = apiRequest.getUri();
-        var resourceSignature = verb + "_" + resource.toString();
-        try {
-            var requestPair = new Pair<>(verb, resource);
-            var handlerMethod = restInfoService.getHandlerFor(requestPair);
-            var apiResponse = invokeMethod(txid, verb.toString(), resource.toString(), handlerMethod, now, apiRequest);
-            apiResponse.setResponderName(env.getServiceName());
-            apiResponse.setResponderResourceSignature(resourceSignature);
-            kafkaResponseTemplate.send(responseTopicName, apiResponse);
-        } catch (NullPointerException e) {
-            var notFoundResponse = ApiResponse.builder()
-                                              .responderName(env.getServiceName())
-                                              .code(Response.SC_NOT_FOUND)
-                                              .txid(txid)
-                                              .requestReceivedAt(now)
-                                              .build();
-
-            kafkaResponseTemplate.send(responseTopicName, notFoundResponse);
-        } catch (Exception e) {
-            log.error("exception was: ", e);
-            var serverErrorResponse = ApiResponse.builder()
-                                              .responderName(env.getServiceName())
-                                              .code(Response.SC_INTERNAL_SERVER_ERROR)
-                                              .txid(txid)
-                                              .requestReceivedAt(now)
-                                              .build();
+        handleRequest(apiRequest, ZonedDateTime.ofInstant(Instant.now(), ZoneOffset.UTC));
+    }
 
-            kafkaResponseTemplate.send(responseTopicName, serverErrorResponse);
+    /**
+     * "concurrent" processing mode. the listener thread only hands the record off - it's handled on a virtual thread
+     * behind any earlier record with the same key and acked when done. see KafkaConfig for how acks become commits.
+     *
+     * once max-in-flight records are being handled the container is paused rather than the listener thread blocked, so
+     * the consumer keeps polling inside max.poll.interval.ms and isn't rebalanced away. it's resumed as soon as a record
+     * finishes. records already fetched by the last poll are still handed off, so the cap can be overshot by up to
+     * max.poll.records.
+     */
+    @KafkaListener(
+        id = CONCURRENT_REQUEST_LISTENER_ID,
+        clientIdPrefix = "#'${spring.kafka.request.client-id-prefix}'",
+        groupId = "#'${spring.kafka.group-name}'",
+        topics = "#{'${spring.kafka.request-topic}'}",
+        containerFactory = KafkaConfig.CONCURRENT_REQUEST_CONTAINER_FACTORY,
+        autoStartup = "#{'${custom.kafka.request.processing-mode}' == 'concurrent'}",
+        properties = {"spring.json.value.default.type=io.patchfox.package_utils.json.ApiRequest"}
+    )
+    public void listenToRequestTopicConcurrently(
+        ConsumerRecord<String, ApiRequest> record, 
+        Acknowledgment acknowledgment
+    ) throws Exception {
+        var now = ZonedDateTime.ofInstant(Instant.now(), ZoneOffset.UTC);
+        var apiRequest = record.value();
+        log.info("received apiRequest message: {}", apiRequest);
+        var key = record.key() != null ? record.key() : String.valueOf(apiRequest.getTxid());
+        kafkaRequestExecutor.submit(key, () -> handleRequest(apiRequest, now))
+                            .thenRun(acknowledgment::acknowledge);
+
+        if (kafkaRequestExecutor.isSaturated()) {
+            var container = kafkaListenerEndpointRegistry.getListenerContainer(CONCURRENT_REQUEST_LISTENER_ID);
+            log.info("{} requests in flight - pausing request topic consumption", env.getKafkaRequestMaxInFlight());
+            container.pause();
+            // a record may have finished between the check and the pause, in which case no resume is coming
+            if ( !kafkaRequestExecutor.isSaturated() ) { container.resume(); }
         }
     }
 
@@ -149,6 +158,62 @@ public class KafkaBeans {
     //
 
 
+    /**
+     * routes argument request to its handler and sends the response. never throws - every failure is turned into an
+     * error response for the caller.
+     * 
+     * @param apiRequest
+     * @param now when the request was taken off the topic
+     */
+    private void handleRequest(ApiRequest apiRequest, ZonedDateTime now) {
+        var responseTopicName = apiRequest.getResponseTopicName();
+        var txid = apiRequest.getTxid();
+        var verb = apiRequest.getVerb();
+        var resource = apiRequest.getUri();
+        var resourceSignature = verb + "_" + resource.toString();
+        var codec = KafkaCodec.negotiate(apiRequest.getHeaders());
+        try {
+            var apiResponseOptional = kafkaDispatchTable.dispatch(apiRequest, now);
+            if (apiResponseOptional.isEmpty()) {
+                var notFoundResponse = ApiResponse.builder()
+                                                  .responderName(env.getServiceName())
+                                                  .code(Response.SC_NOT_FOUND)
+                                                  .txid(txid)
+                                                  .requestReceivedAt(now)
+                                                  .build();
+
+                kafkaResponseSender.send(responseTopicName, notFoundResponse, codec);
+                return;
+            }
+
+            var apiResponse = apiResponseOptional.get();
+            apiResponse.setResponderName(env.getServiceName());
+            apiResponse.setResponderResourceSignature(resourceSignature);
+            kafkaResponseSender.send(responseTopicName, apiResponse, codec);
+        } catch (KafkaDispatchTable.BadArgumentException e) {
+            log.warn("rejecting apiRequest for {}: {}", resourceSignature, e.getMessage());
+            var badRequestResponse = ApiResponse.builder()
+                                                .responderName(env.getServiceName())
+                                                .code(Response.SC_BAD_REQUEST)
+                                                .txid(txid)
+                                                .requestReceivedAt(now)
+                                                .serverMessage(e.getMessage())
+                                                .build();
+
+            kafkaResponseSender.send(responseTopicName, badRequestResponse, codec);
+        } catch (Throwable e) {
+            log.error("exception was: ", e);
+            var serverErrorResponse = ApiResponse.builder()
+                                              .responderName(env.getServiceName())
+                                              .code(Response.SC_INTERNAL_SERVER_ERROR)
+                                              .txid(txid)
+                                              .requestReceivedAt(now)
+                                              .build();
+
+            kafkaResponseSender.send(responseTopicName, serverErrorResponse, codec);
+        }
+    }
+
     /**
      * 
      * @param topic
@@ -164,152 +229,4 @@ public class KafkaBeans {
         kafkaRequestTemplate.send(topic, apiRequest);
     }
 
-
-    /**
-     * helper to invoke the handler method we already know is associated with a given REST URI. The method allows us 
-     * to invoke the method with the correct arguments w/o having to deal with a lot of wonky reflection that would 
-     * otherwise be necessary. 
-     * 
-     * @param txid
-     * @param verb
-     * @param resource
-     * @param handlerMethod
-     * @param requestReceivedAt
-     * @return
-     * @throws InvocationTargetException 
-     * @throws IllegalAccessException 
-     */
-    @SuppressWarnings("unchecked")
-    private ApiResponse invokeMethod(
-            UUID txid,
-            String verb,
-            String resource,
-            HandlerMethod handlerMethod, 
-            ZonedDateTime requestReceivedAt,
-            ApiRequest apiRequest
-    ) throws IllegalAccessException, InvocationTargetException  {
-        // this should never happen so long as we call the RestInfoService helper methods first to 
-        // get a hold of the reflected Method obj representing the controller for the requested resource.
-        // I don't like returning null so we assume we can't find what we're looking for until we find it
-        // and replace this with whatever is more appropriate. 
-        var rv = ApiResponse.builder()
-                            .responderName(env.getServiceName())
-                            .code(Response.SC_NOT_FOUND)
-                            .txid(txid)
-                            .requestReceivedAt(requestReceivedAt)
-                            .build();
-                            
-        var restSignature = verb + "_" + resource;
-
-        var bean = handlerMethod.getBean();
-        // I think this is a name only until the object is actually created. It's typed as an "Object" in the 
-        // HandlerMethod class.
-        if (bean.getClass() == String.class) { bean = context.getBean((String)bean); }
-        var beanMethod = handlerMethod.getMethod();
-        log.debug("bean method name is: {}", beanMethod.getName());
-        log.debug("bean var class is: {}", bean.getClass());
-        log.debug("bean type is: {}", handlerMethod.getBeanType());
-        log.debug("beanMethod is: {}", beanMethod);
-
-        /*
-         * 
-         * WHEN YOU ADD A NEW REST CONTROLLER/SERVICE THIS IS WHERE YOU ADD THE HOOK TO ENSURE THE KAFKA LISTENER
-         * KNOWS HOW TO INVOKE THE CONTROLLER METHOD
-         * 
-         */
-
-         // because GET_TABLE_QUERY has a path parameter that we need to handle differently 
-        if (restSignature.matches("GET_" + DatabaseQueryController.API_PATH_PREFIX + "/[^/]+/query")) {
-            restSignature = DatabaseQueryController.GET_TABLE_QUERY_SIGNATURE;
-        }
-
-        switch(restSignature) {
-            case HealthCheckController.GET_PING_SIGNATURE:
-            case RestInfoController.GET_REST_INFO_SIGNATURE:
-            case RecommendViewController.GET_RECOMMEND_TOP_SIGNATURE:
-            case RecommendViewController.GET_RECOMMEND_DETAIL_SIGNATURE:
-            case DatasourceController.GET_DATASOURCES_SIGNATURE:
-            case TrackViewController.GET_TRACK_SIGNATURE: 
-                var qp = apiRequest.getQueryStringParameters();
-                /*
-                @TODO add support for RECOMMEND "dataset" query string parameter 
-                */
-                var re = (ResponseEntity<ApiResponse>)beanMethod.invoke(bean, txid, requestReceivedAt);
-                rv = re.getBody();
-                break;      
-            case DatasourceController.GET_DATASOURCES_BY_DATASET_SIGNATURE:
-            case TrackViewController.GET_TRACK_BY_DATASET_SIGNATURE:
-                var dataset = apiRequest.getQueryStringParameters().getOrDefault("dataset", null);
-                re = (ResponseEntity<ApiResponse>)beanMethod.invoke(bean, txid, requestReceivedAt, dataset);
-                rv = re.getBody();
-                break;  
-            
-
-            case DatasourceEventController.GET_DATASOURCES_LATEST_SIGNATURE:
-                qp = apiRequest.getQueryStringParameters();
-                var expectedKeys = Set.of("domain", "name", "branch", "type");
-                if ( !qp.keySet().containsAll(expectedKeys) ) {
-                    log.warn(
-                        "caller attempted to access {} resource without the correct parameters", 
-                        DatasourceEventController.GET_DATASOURCES_LATEST_SIGNATURE
-                    );
-                } else {
-                    re = (ResponseEntity<ApiResponse>)beanMethod.invoke(
-                        bean, 
-                        txid, 
-                        requestReceivedAt,
-                        qp.get("domain"),
-                        qp.get("name"),
-                        qp.get("branch"),
-                        qp.get("type")
-                    );
-                    rv = re.getBody();
-                    break;  
-                }
-
-            case DatabaseQueryController.GET_TABLE_QUERY_SIGNATURE:
-                var uriTemplate = new UriTemplate(DatabaseQueryController.TABLE_QUERY_PATH);
-                var table = uriTemplate.match(resource).get("table");
-
-                var queryParams = apiRequest.getQueryStringParameters();
-                int page = Integer.parseInt(queryParams.getOrDefault("page", "0"));
-                int size = Integer.parseInt(queryParams.getOrDefault("size", "20"));
-                
-                Pageable pageable = PageRequest.of(page, size);
-
-                re = (ResponseEntity<ApiResponse>)beanMethod.invoke(
-                    bean, 
-                    txid, 
-                    requestReceivedAt,
-                    table,
-                    queryParams,
-                    pageable
-                );
-                rv = re.getBody();
-                break;  
-            case DatabaseQueryController.GET_DATASET_METRICS_EDIT_QUERY_SIGNATURE:
-            case DatabaseQueryController.GET_DATASET_METRICS_PACKAGE_FINDING_QUERY_SIGNATURE:
-            case DatabaseQueryController.GET_DATASET_METRICS_PACKAGE_QUERY_SIGNATURE:
-            case DatabaseQueryController.GET_DATASET_METRICS_PACKAGE_TYPE_QUERY_SIGNATURE:
-            case DatabaseQueryController.GET_DATASOURCE_EDIT_QUERY_SIGNATURE:    
-                queryParams = apiRequest.getQueryStringParameters();
-                page = Integer.parseInt(queryParams.getOrDefault("page", "0"));
-                size = Integer.parseInt(queryParams.getOrDefault("size", "20"));
-                
-                pageable = PageRequest.of(page, size);
-
-                re = (ResponseEntity<ApiResponse>)beanMethod.invoke(
-                    bean, 
-                    txid, 
-                    requestReceivedAt,
-                    queryParams,
-                    pageable
-                );
-                rv = re.getBody();
-                break;
-
-        }
-        return rv;
-    }
-
 }
@@ -0,0 +1,90 @@
+package io.patchfox.data_service.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.kafka.common.header.Headers;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.cfg.MapperBuilder;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import lombok.Getter;
+
+
+/**
+ * Wire formats the kafka bridge can read and write. The codec a record was written with travels in its "pf-codec"
+ * header. Records without the header are JSON, which is what every producer wrote before codecs existed.
+ *
+ * All three share the same databind configuration as spring-kafka's JsonSerializer so a value round trips to the same
+ * object whichever codec carried it.
+ */
+public enum KafkaCodec {
+
+    JSON("json", JsonMapper.builder()),
+    SMILE("smile", SmileMapper.builder()),
+    CBOR("cbor", CBORMapper.builder());
+
+    // record header naming the codec the record value was written with
+    public static final String CODEC_HEADER = "pf-codec";
+
+    // ApiRequest header a requester uses to ask for responses in a codec other than JSON. may be a comma separated
+    // list in order of preference, eg - "smile,cbor"
+    public static final String ACCEPT_CODEC_HEADER = "pf-accept-codec";
+
+    @Getter
+    private final String headerValue;
+
+    @Getter
+    private final ObjectMapper objectMapper;
+
+
+    KafkaCodec(String headerValue, MapperBuilder<?, ?> mapperBuilder) {
+        this.headerValue = headerValue;
+        this.objectMapper = mapperBuilder.findAndAddModules()
+                                         .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                                         .disable(MapperFeature.DEFAULT_VIEW_INCLUSION)
+                                         .build();
+    }
+
+
+    public static Optional<KafkaCodec> fromHeaderValue(String headerValue) {
+        if (headerValue == null) { return Optional.empty(); }
+        var trimmed = headerValue.trim();
+        return Arrays.stream(values()).filter(c -> c.headerValue.equalsIgnoreCase(trimmed)).findFirst();
+    }
+
+
+    /**
+     * @return the codec named in argument record headers, if any
+     */
+    public static Optional<KafkaCodec> fromHeaders(Headers headers) {
+        if (headers == null) { return Optional.empty(); }
+        var header = headers.lastHeader(CODEC_HEADER);
+        return header == null
+                ? Optional.empty()
+                : fromHeaderValue(new String(header.value(), StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * @return the first codec we support out of the ones the requester listed in its ApiRequest headers, if any
+     */
+    public static Optional<KafkaCodec> negotiate(Map<String, String> apiRequestHeaders) {
+        if (apiRequestHeaders == null) { return Optional.empty(); }
+        var accepted = apiRequestHeaders.get(ACCEPT_CODEC_HEADER);
+        if (accepted == null) { return Optional.empty(); }
+
+        return Arrays.stream(accepted.split(","))
+                     .map(KafkaCodec::fromHeaderValue)
+                     .flatMap(Optional::stream)
+                     .findFirst();
+    }
+
+}
@@ -0,0 +1,72 @@
+package io.patchfox.data_service.kafka;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.util.ClassUtils;
+
+
+/**
+ * Value deserializer for the kafka bridge. Reads with the codec named in the record's "pf-codec" header, or as JSON
+ * when there is none (records from producers that predate codecs). The target type comes from the same
+ * "spring.json.value.default.type" property the listeners already set for JsonDeserializer.
+ */
+public class KafkaCodecDeserializer<T> implements Deserializer<T> {
+
+    private Class<T> targetType;
+
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        var configured = configs.get(JsonDeserializer.VALUE_DEFAULT_TYPE);
+        if (configured == null) { return; }
+
+        if (configured instanceof Class<?> clazz) {
+            targetType = (Class<T>) clazz;
+            return;
+        }
+
+        try {
+            targetType = (Class<T>) ClassUtils.forName(configured.toString().trim(), ClassUtils.getDefaultClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            throw new IllegalStateException(
+                String.format("unable to load %s: %s", JsonDeserializer.VALUE_DEFAULT_TYPE, configured),
+                e
+            );
+        }
+    }
+
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        return read(KafkaCodec.JSON, data);
+    }
+
+
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        return read(KafkaCodec.fromHeaders(headers).orElse(KafkaCodec.JSON), data);
+    }
+
+
+    private T read(KafkaCodec codec, byte[] data) {
+        if (data == null) { return null; }
+        if (targetType == null) {
+            throw new SerializationException(
+                String.format("no target type - set %s on the listener", JsonDeserializer.VALUE_DEFAULT_TYPE)
+            );
+        }
+
+        try {
+            return codec.getObjectMapper().readValue(data, targetType);
+        } catch (IOException e) {
+            throw new SerializationException(String.format("unable to read %s as %s", targetType, codec), e);
+        }
+    }
+
+}
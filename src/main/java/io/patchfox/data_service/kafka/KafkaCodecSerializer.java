@@ -0,0 +1,85 @@
+package io.patchfox.data_service.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.mapping.AbstractJavaTypeMapper;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+
+/**
+ * Value serializer for the kafka bridge. Writes with the codec named in the record's "pf-codec" header when the
+ * sender set one, otherwise with the configured default ("pf.codec" producer property, JSON if unset), and stamps
+ * the header on the record so the consumer knows how to read it.
+ *
+ * JSON records also get the type id header spring-kafka's JsonSerializer writes, so consumers still on
+ * JsonDeserializer read them exactly as before.
+ */
+public class KafkaCodecSerializer<T> implements Serializer<T> {
+
+    public static final String DEFAULT_CODEC_CONFIG = "pf.codec";
+
+    private KafkaCodec defaultCodec = KafkaCodec.JSON;
+
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        var configured = configs.get(DEFAULT_CODEC_CONFIG);
+        if (configured == null) { return; }
+
+        defaultCodec = KafkaCodec.fromHeaderValue(configured.toString())
+                                 .orElseThrow(() -> new IllegalArgumentException(
+                                     String.format("unknown %s value: %s", DEFAULT_CODEC_CONFIG, configured)
+                                 ));
+    }
+
+
+    @Override
+    public byte[] serialize(String topic, T data) {
+        return write(defaultCodec, data);
+    }
+
+
+    /**
+     * a value the sender already wrote (eg - to size it before sending) goes out as is. the sender stamps the record
+     * headers itself with stamp() in that case.
+     */
+    @Override
+    public byte[] serialize(String topic, Headers headers, T data) {
+        if (data instanceof byte[] written) { return written; }
+
+        var codec = KafkaCodec.fromHeaders(headers).orElse(defaultCodec);
+        stamp(headers, codec, data == null ? null : data.getClass());
+        return write(codec, data);
+    }
+
+
+    /**
+     * puts the codec header, and for JSON the type id header, on a record whose value is written with argument codec
+     */
+    public static void stamp(Headers headers, KafkaCodec codec, Class<?> type) {
+        if (KafkaCodec.fromHeaders(headers).isEmpty()) {
+            headers.add(KafkaCodec.CODEC_HEADER, codec.getHeaderValue().getBytes(StandardCharsets.UTF_8));
+        }
+
+        if (codec == KafkaCodec.JSON && type != null) {
+            headers.remove(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME);
+            headers.add(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, type.getName().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+
+    static byte[] write(KafkaCodec codec, Object data) {
+        if (data == null) { return null; }
+        try {
+            return codec.getObjectMapper().writeValueAsBytes(data);
+        } catch (JsonProcessingException e) {
+            throw new SerializationException(String.format("unable to write %s as %s", data.getClass(), codec), e);
+        }
+    }
+
+}
@@ -0,0 +1,363 @@
+package io.patchfox.data_service.kafka;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ValueConstants;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import io.patchfox.package_utils.json.ApiRequest;
+import io.patchfox.package_utils.json.ApiResponse;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Routing table for requests arriving on the Kafka request topic. Built once, after every controller bean exists, from
+ * the same RequestMappingHandlerMapping that serves REST so the two transports can't drift apart.
+ *
+ * Each verb gets a trie of path segments. A "{name}" segment becomes a variable child whose value is captured during
+ * the match, so routing a message is one walk over its path segments. Every route carries a MethodHandle pre-bound to
+ * its controller bean plus one argument adapter per handler parameter that builds the argument from the ApiRequest.
+ */
+@Slf4j
+@Component
+public class KafkaDispatchTable implements SmartInitializingSingleton {
+
+    private static final int DEFAULT_PAGE = 0;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    private final RequestMappingHandlerMapping handlerMapping;
+
+    private final DefaultConversionService conversionService = new DefaultConversionService();
+
+    private final Map<ApiRequest.httpVerb, Node> roots = new EnumMap<>(ApiRequest.httpVerb.class);
+
+
+    @Autowired
+    public KafkaDispatchTable(RequestMappingHandlerMapping handlerMapping) {
+        this.handlerMapping = handlerMapping;
+    }
+
+
+    /**
+     * thrown when the ApiRequest can't be turned into the arguments the handler needs (eg - missing required query
+     * string parameter or a value that doesn't convert to the parameter type)
+     */
+    public static class BadArgumentException extends RuntimeException {
+        public BadArgumentException(String message) {
+            super(message);
+        }
+    }
+
+
+    /**
+     * everything a route needs from the inbound message to build its arguments
+     */
+    private record DispatchContext(
+        UUID txid,
+        ZonedDateTime requestReceivedAt,
+        Map<String, String> pathVariables,
+        Map<String, String> queryStringParameters
+    ) {}
+
+
+    @FunctionalInterface
+    private interface ArgumentAdapter {
+        Object resolve(DispatchContext context);
+    }
+
+
+    private record Route(String handler, MethodHandle invoker, ArgumentAdapter[] adapters) {}
+
+
+    private static class Node {
+        final Map<String, Node> literals = new HashMap<>();
+        Node variable;
+        Route route;
+        // names of the path variables of the pattern that ends here, in the order they appear in the path
+        String[] variableNames;
+    }
+
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        var routeCount = 0;
+        for (var entry : handlerMapping.getHandlerMethods().entrySet()) {
+            var handlerMethod = entry.getValue().createWithResolvedBean();
+            var method = handlerMethod.getMethod();
+            // only handlers that answer with an ApiResponse can be relayed back over kafka
+            var returnType = ResolvableType.forMethodReturnType(method);
+            if ( !ResponseEntity.class.isAssignableFrom(returnType.toClass()) ) { continue; }
+            if ( !ApiResponse.class.isAssignableFrom(returnType.getGeneric(0).toClass()) ) { continue; }
+
+            // the internal /error mapping has no verb associated with it and so isn't reachable over kafka
+            var verbs = entry.getKey().getMethodsCondition().getMethods();
+            if (verbs.isEmpty()) { continue; }
+
+            Route route;
+            try {
+                route = toRoute(handlerMethod);
+            } catch (IllegalAccessException e) {
+                log.error("unable to build kafka dispatch route for handler: {}", method, e);
+                continue;
+            }
+
+            for (var requestMethod : verbs) {
+                ApiRequest.httpVerb verb;
+                try {
+                    verb = ApiRequest.httpVerb.valueOf(requestMethod.name());
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+
+                for (var pattern : entry.getKey().getPatternValues()) {
+                    register(verb, pattern, route);
+                    routeCount++;
+                }
+            }
+        }
+
+        log.info("kafka dispatch table built with {} routes", routeCount);
+    }
+
+
+    /**
+     * routes argument request to its controller handler.
+     *
+     * @return the handler's response body or empty if no handler is registered for the request verb and path
+     * @throws BadArgumentException if the request parameters can't be adapted to the handler's arguments
+     */
+    public Optional<ApiResponse> dispatch(ApiRequest apiRequest, ZonedDateTime requestReceivedAt) throws Throwable {
+        var root = roots.get(apiRequest.getVerb());
+        if (root == null) { return Optional.empty(); }
+
+        var segments = segments(apiRequest.getUri().getPath());
+        var captured = new String[segments.length];
+        var node = match(root, segments, 0, captured, 0);
+        if (node == null) { return Optional.empty(); }
+
+        var pathVariables = new HashMap<String, String>();
+        for (int i = 0; i < node.variableNames.length; i++) {
+            pathVariables.put(node.variableNames[i], captured[i]);
+        }
+
+        var queryStringParameters = apiRequest.getQueryStringParameters() == null
+                ? Map.<String, String>of()
+                : apiRequest.getQueryStringParameters();
+
+        var context = new DispatchContext(
+            apiRequest.getTxid(),
+            requestReceivedAt,
+            pathVariables,
+            queryStringParameters
+        );
+
+        var route = node.route;
+        var args = new Object[route.adapters().length];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = route.adapters()[i].resolve(context);
+        }
+
+        var responseEntity = (ResponseEntity<?>) route.invoker().invokeExact(args);
+        return Optional.ofNullable((ApiResponse) responseEntity.getBody());
+    }
+
+
+    //
+    // helpers
+    //
+
+
+    /**
+     * depth first match preferring literal segments over variables. values consumed by variable nodes on the matching
+     * path are left in argument captured, in path order.
+     */
+    private static Node match(Node node, String[] segments, int index, String[] captured, int capturedCount) {
+        if (index == segments.length) { return node.route == null ? null : node; }
+
+        var literal = node.literals.get(segments[index]);
+        if (literal != null) {
+            var rv = match(literal, segments, index + 1, captured, capturedCount);
+            if (rv != null) { return rv; }
+        }
+
+        if (node.variable != null) {
+            captured[capturedCount] = segments[index];
+            return match(node.variable, segments, index + 1, captured, capturedCount + 1);
+        }
+
+        return null;
+    }
+
+
+    private void register(ApiRequest.httpVerb verb, String pattern, Route route) {
+        var node = roots.computeIfAbsent(verb, v -> new Node());
+        var variableNames = new ArrayList<String>();
+        for (var segment : segments(pattern)) {
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                var name = segment.substring(1, segment.length() - 1);
+                if (name.contains(":")) {
+                    log.warn("skipping kafka dispatch route with regex path variable: {} {}", verb, pattern);
+                    return;
+                }
+
+                variableNames.add(name);
+                if (node.variable == null) { node.variable = new Node(); }
+                node = node.variable;
+            } else if (segment.contains("*") || segment.contains("{")) {
+                log.warn("skipping kafka dispatch route with wildcard path: {} {}", verb, pattern);
+                return;
+            } else {
+                node = node.literals.computeIfAbsent(segment, s -> new Node());
+            }
+        }
+
+        if (node.route != null) {
+            log.warn("duplicate kafka dispatch route for {} {} - keeping {}", verb, pattern, node.route.handler());
+            return;
+        }
+
+        node.route = route;
+        node.variableNames = variableNames.toArray(String[]::new);
+    }
+
+
+    private static String[] segments(String path) {
+        return path == null
+                ? new String[0]
+                : Arrays.stream(path.split("/")).filter(s -> !s.isEmpty()).toArray(String[]::new);
+    }
+
+
+    private Route toRoute(HandlerMethod handlerMethod) throws IllegalAccessException {
+        var method = handlerMethod.getMethod();
+        // handlers are package-private by convention so they aren't reachable from here without this
+        method.setAccessible(true);
+
+        var parameters = handlerMethod.getMethodParameters();
+        var invoker = MethodHandles.lookup()
+                                   .unreflect(method)
+                                   .bindTo(handlerMethod.getBean())
+                                   .asSpreader(Object[].class, parameters.length)
+                                   .asType(MethodType.methodType(ResponseEntity.class, Object[].class));
+
+        var adapters = new ArgumentAdapter[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            adapters[i] = toAdapter(handlerMethod, parameters[i]);
+        }
+
+        var handler = handlerMethod.getBeanType().getSimpleName() + "#" + method.getName();
+        return new Route(handler, invoker, adapters);
+    }
+
+
+    private ArgumentAdapter toAdapter(HandlerMethod handlerMethod, MethodParameter parameter) {
+        parameter.initParameterNameDiscovery(new DefaultParameterNameDiscoverer());
+        var type = parameter.getParameterType();
+        var isOptional = type == Optional.class;
+        var targetType = isOptional ? parameter.nestedIfOptional().getNestedParameterType() : type;
+
+        var requestAttribute = parameter.getParameterAnnotation(RequestAttribute.class);
+        if (requestAttribute != null) {
+            var name = nameOf(requestAttribute.name(), parameter);
+            return switch (name) {
+                case "txid" -> DispatchContext::txid;
+                case "requestReceivedAt" -> DispatchContext::requestReceivedAt;
+                default -> {
+                    log.warn("request attribute {} of {} is not available over kafka", name, handlerMethod);
+                    yield context -> null;
+                }
+            };
+        }
+
+        var pathVariable = parameter.getParameterAnnotation(PathVariable.class);
+        if (pathVariable != null) {
+            var name = nameOf(pathVariable.name(), parameter);
+            return context -> wrap(convert(context.pathVariables().get(name), targetType, name), isOptional);
+        }
+
+        var requestParam = parameter.getParameterAnnotation(RequestParam.class);
+        if (requestParam != null) {
+            if (Map.class.isAssignableFrom(type)) {
+                return context -> new HashMap<>(context.queryStringParameters());
+            }
+
+            var name = nameOf(requestParam.name(), parameter);
+            var defaultValue = ValueConstants.DEFAULT_NONE.equals(requestParam.defaultValue())
+                    ? null
+                    : requestParam.defaultValue();
+            var required = requestParam.required() && !isOptional && defaultValue == null;
+
+            return context -> {
+                var raw = context.queryStringParameters().getOrDefault(name, defaultValue);
+                if (raw == null && required) {
+                    throw new BadArgumentException(String.format("missing required parameter: %s", name));
+                }
+                return wrap(convert(raw, targetType, name), isOptional);
+            };
+        }
+
+        if (Pageable.class.isAssignableFrom(type)) {
+            return context -> {
+                var qp = context.queryStringParameters();
+                var page = convert(qp.getOrDefault("page", String.valueOf(DEFAULT_PAGE)), Integer.class, "page");
+                var size = convert(qp.getOrDefault("size", String.valueOf(DEFAULT_PAGE_SIZE)), Integer.class, "size");
+                // PageRequest would throw IllegalArgumentException for these, which answers 500 rather than 400
+                if (page == null || page < 0) {
+                    throw new BadArgumentException(String.format("page must be 0 or more - got: %s", qp.get("page")));
+                }
+                if (size == null || size < 1) {
+                    throw new BadArgumentException(String.format("size must be 1 or more - got: %s", qp.get("size")));
+                }
+                return PageRequest.of(page, size);
+            };
+        }
+
+        log.warn("parameter {} of {} can't be resolved over kafka and will be null", parameter, handlerMethod);
+        return context -> null;
+    }
+
+
+    private static String nameOf(String annotatedName, MethodParameter parameter) {
+        return annotatedName.isEmpty() ? parameter.getParameterName() : annotatedName;
+    }
+
+
+    private static Object wrap(Object value, boolean isOptional) {
+        return isOptional ? Optional.ofNullable(value) : value;
+    }
+
+
+    private <T> T convert(String raw, Class<T> targetType, String name) {
+        if (raw == null) { return null; }
+        try {
+            return conversionService.convert(raw, targetType);
+        } catch (RuntimeException e) {
+            throw new BadArgumentException(String.format("unable to convert parameter %s value: %s", name, raw));
+        }
+    }
+
+}
@@ -0,0 +1,199 @@
+package io.patchfox.data_service.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import io.patchfox.data_service.components.EnvironmentComponent;
+import io.patchfox.data_service.controllers.ClaimCheckController;
+import io.patchfox.data_service.services.ClaimCheckService;
+import io.patchfox.package_utils.json.ApiResponse;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Puts ApiResponse objects on a response topic. Every record is keyed by txid so all the records belonging to one
+ * response land on the same partition in the order they were sent.
+ *
+ * A response whose data holds a page (or list) of more than "chunk-rows" rows is sent as a sequence of records, each a
+ * copy of the response carrying the next slice of rows. Chunk position is carried in record headers:
+ *
+ *   pf-chunk-seq   0 based position of the record in the sequence
+ *   pf-chunk-last  "true" on the final record of the sequence, "false" otherwise
+ *   pf-chunk-key   the data key whose rows were split
+ *
+ * Any single record that still serializes to more than "claim-check-threshold-bytes" is parked in the claim check
+ * store and replaced by a record whose data is a reference to it (and which carries a pf-claim-check header).
+ *
+ * Records are written here, in the codec they go out in, so the threshold is checked against the bytes actually sent
+ * and the serializer passes those same bytes through rather than writing the response a second time.
+ */
+@Slf4j
+@Component
+public class KafkaResponseSender {
+
+    public static final String CHUNK_SEQ_HEADER = "pf-chunk-seq";
+    public static final String CHUNK_LAST_HEADER = "pf-chunk-last";
+    public static final String CHUNK_KEY_HEADER = "pf-chunk-key";
+    public static final String CLAIM_CHECK_HEADER = "pf-claim-check";
+
+    public static final String CLAIM_CHECK_DATA_KEY = "claimCheck";
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaResponseTemplate;
+
+    @Autowired
+    ClaimCheckService claimCheckService;
+
+    @Autowired
+    EnvironmentComponent env;
+
+
+    public void send(String topic, ApiResponse apiResponse) {
+        send(topic, apiResponse, Optional.empty());
+    }
+
+
+    /**
+     * @param codec codec the requester asked for. responses go out in the serializer's default codec if empty.
+     */
+    public void send(String topic, ApiResponse apiResponse, Optional<KafkaCodec> codec) {
+        var key = apiResponse.getTxid() == null ? null : apiResponse.getTxid().toString();
+        var chunkRows = env.getKafkaResponseChunkRows();
+        var recordCodec = codec.orElseGet(this::getDefaultCodec);
+
+        var chunkKeyOptional = findChunkKey(apiResponse, chunkRows);
+        if (chunkKeyOptional.isEmpty()) {
+            sendRecord(topic, key, apiResponse, recordCodec, List.of());
+            return;
+        }
+
+        var chunkKey = chunkKeyOptional.get();
+        var rows = apiResponse.getData().get(chunkKey);
+        var rowList = rows instanceof Page<?> page ? page.getContent() : new ArrayList<>((Collection<?>) rows);
+        var chunkCount = (rowList.size() + chunkRows - 1) / chunkRows;
+        log.info("sending response for txid {} as {} chunks of up to {} rows", key, chunkCount, chunkRows);
+
+        for (int seq = 0; seq < chunkCount; seq++) {
+            var slice = rowList.subList(seq * chunkRows, Math.min(rowList.size(), (seq + 1) * chunkRows));
+            Object sliceValue = rows instanceof Page<?> page
+                    ? new PageImpl<>(slice, page.getPageable(), page.getTotalElements())
+                    : slice;
+
+            var data = new LinkedHashMap<>(apiResponse.getData());
+            data.put(chunkKey, sliceValue);
+            var chunk = copyOf(apiResponse, data);
+
+            var headers = new ArrayList<Header>();
+            headers.add(new RecordHeader(CHUNK_SEQ_HEADER, bytes(String.valueOf(seq))));
+            headers.add(new RecordHeader(CHUNK_LAST_HEADER, bytes(String.valueOf(seq == chunkCount - 1))));
+            headers.add(new RecordHeader(CHUNK_KEY_HEADER, bytes(chunkKey)));
+            sendRecord(topic, key, chunk, recordCodec, headers);
+        }
+    }
+
+
+    //
+    // helpers
+    //
+
+
+    /**
+     * @return the data key of the first page or collection with more than argument number of rows, if any
+     */
+    private static Optional<String> findChunkKey(ApiResponse apiResponse, int chunkRows) {
+        if (apiResponse.getData() == null) { return Optional.empty(); }
+
+        for (var entry : apiResponse.getData().entrySet()) {
+            var value = entry.getValue();
+            var rowCount = value instanceof Page<?> page
+                    ? page.getNumberOfElements()
+                    : value instanceof Collection<?> collection ? collection.size() : 0;
+
+            if (rowCount > chunkRows) { return Optional.of(entry.getKey()); }
+        }
+
+        return Optional.empty();
+    }
+
+
+    /**
+     * codec records go out in when the requester didn't ask for one - the same default the serializer falls back on
+     */
+    private KafkaCodec getDefaultCodec() {
+        return KafkaCodec.fromHeaderValue(env.getKafkaProducerCodec()).orElse(KafkaCodec.JSON);
+    }
+
+
+    private void sendRecord(String topic, String key, ApiResponse apiResponse, KafkaCodec codec, List<Header> headers) {
+        var allHeaders = new RecordHeaders(headers);
+        KafkaCodecSerializer.stamp(allHeaders, codec, ApiResponse.class);
+
+        Object toSend;
+        try {
+            var body = KafkaCodecSerializer.write(codec, apiResponse);
+            if (body.length > env.getKafkaResponseClaimCheckThresholdBytes()) {
+                // the claim check endpoint serves JSON whatever codec the record would have gone out in. it's written by
+                // the JSON codec so it reads back the same as the record would have, dates included
+                var claimCheckBody = KafkaCodecSerializer.write(KafkaCodec.JSON, apiResponse);
+                var claimCheckId = claimCheckService.store(apiResponse.getTxid(), claimCheckBody);
+                var reference = copyOf(
+                    apiResponse,
+                    Map.of(
+                        CLAIM_CHECK_DATA_KEY,
+                        Map.of(
+                            "id", claimCheckId.toString(),
+                            "uri", ClaimCheckController.CLAIM_CHECK_PATH.replace("{id}", claimCheckId.toString()),
+                            "bytes", claimCheckBody.length,
+                            "retentionHours", claimCheckService.getRetention().toHours()
+                        )
+                    )
+                );
+                allHeaders.add(new RecordHeader(CLAIM_CHECK_HEADER, bytes(claimCheckId.toString())));
+                body = KafkaCodecSerializer.write(codec, reference);
+            }
+            toSend = body;
+        } catch (SerializationException e) {
+            // let the kafka serializer have its go at it - it will report the failure on send
+            log.warn("unable to write response for txid {} - sending as is", apiResponse.getTxid(), e);
+            toSend = apiResponse;
+        }
+
+        var record = new ProducerRecord<String, Object>(topic, null, key, toSend, allHeaders);
+        kafkaResponseTemplate.send(record);
+    }
+
+
+    private static ApiResponse copyOf(ApiResponse apiResponse, Map<String, Object> data) {
+        return ApiResponse.builder()
+                          .code(apiResponse.getCode())
+                          .txid(apiResponse.getTxid())
+                          .requestReceivedAt(apiResponse.getRequestReceivedAt())
+                          .serverMessage(apiResponse.getServerMessage())
+                          .responderName(apiResponse.getResponderName())
+                          .responderResourceSignature(apiResponse.getResponderResourceSignature())
+                          .data(data)
+                          .build();
+    }
+
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,99 @@
+package io.patchfox.data_service.kafka;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Runs tasks on virtual threads such that tasks sharing a key run one after another in submission order while tasks
+ * with different keys run concurrently.
+ *
+ * submit never blocks. Once the tasks submitted but not yet finished reach the cap the executor reports itself
+ * saturated, and the capacity listener is run when a finishing task takes it back under. The kafka consumer pauses on
+ * one and resumes on the other, so it keeps polling (and keeps its partitions) while it waits.
+ */
+@Slf4j
+public class KeyOrderedExecutor implements AutoCloseable {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final int maxInFlight;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile Runnable capacityListener = () -> {};
+
+    // most recently submitted task for each key that still has work queued or running
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+
+    public KeyOrderedExecutor(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+
+    /**
+     * @param listener run, on the thread of the task that finished, each time the executor stops being saturated
+     */
+    public void setCapacityListener(Runnable listener) {
+        this.capacityListener = listener;
+    }
+
+
+    /**
+     * @return true when at least the cap's worth of tasks are submitted and not yet finished
+     */
+    public boolean isSaturated() {
+        return inFlight.get() >= maxInFlight;
+    }
+
+
+    /**
+     * queues argument task behind any earlier task with the same key. the returned future completes when the task does
+     * and never completes exceptionally - failures are logged and swallowed so one bad task doesn't stall its key.
+     */
+    public CompletableFuture<Void> submit(String key, Runnable task) {
+        inFlight.incrementAndGet();
+
+        var next = new CompletableFuture<Void>();
+        var previous = tails.put(key, next);
+        var after = previous == null ? CompletableFuture.<Void>completedFuture(null) : previous;
+
+        after.thenRunAsync(task, executor).whenComplete((ignored, e) -> {
+            if (e != null) { log.error("task for key {} failed", key, e); }
+            // only drop the key if nothing was queued behind us in the meantime
+            tails.remove(key, next);
+            next.complete(null);
+            if (inFlight.decrementAndGet() == maxInFlight - 1) { capacityListener.run(); }
+        });
+
+        return next;
+    }
+
+
+    /**
+     * waits a while for in flight tasks to finish. if interrupted while waiting they're cut short and the interrupt is
+     * passed on to the caller's thread.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if ( !executor.awaitTermination(30, TimeUnit.SECONDS) ) {
+                log.warn("timed out waiting for in flight tasks to finish");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            log.warn("interrupted waiting for in flight tasks to finish");
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
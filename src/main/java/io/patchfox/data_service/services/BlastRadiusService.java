@@ -0,0 +1,140 @@
+package io.patchfox.data_service.services;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import io.patchfox.data_service.components.BlastRadiusIndex;
+import io.patchfox.data_service.components.PurlCatalog;
+import io.patchfox.data_service.controllers.BlastRadiusController;
+import io.patchfox.data_service.json.BlastRadiusView;
+import io.patchfox.package_utils.json.ApiResponse;
+import lombok.extern.slf4j.Slf4j;
+
+
+@Slf4j
+@Service
+public class BlastRadiusService {
+
+    public static final String BLAST_RADIUS_KEY = "blastRadius";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    BlastRadiusIndex blastRadiusIndex;
+
+    @Autowired
+    PurlCatalog purlCatalog;
+
+    private static final String PACKAGE_PURLS_SQL = "SELECT id, purl FROM package WHERE id = ANY(?)";
+
+
+    /**
+     * datasets, datasources and package versions currently exposed to argument finding. findings reported since the
+     * index was last built are resolved against the db and then walked through the same index.
+     */
+    public ApiResponse getBlastRadius(UUID txid, ZonedDateTime requestReceivedAt, String identifier) {
+        var apiResponseBuilder = ApiResponse.builder()
+                                            .txid(txid)
+                                            .requestReceivedAt(requestReceivedAt)
+                                            .responderResourceSignature(
+                                                BlastRadiusController.GET_BLAST_RADIUS_SIGNATURE
+                                            );
+
+        var snapshotOptional = blastRadiusIndex.getSnapshot();
+        if (snapshotOptional.isEmpty()) {
+            return apiResponseBuilder.code(HttpStatus.SERVICE_UNAVAILABLE.value())
+                                     .serverMessage("blast radius index is not available yet")
+                                     .build();
+        }
+        var snapshot = snapshotOptional.get();
+
+        var packageIds = snapshot.packagesByFinding().get(identifier);
+        if (packageIds == null) {
+            packageIds = blastRadiusIndex.loadPackagesForFinding(identifier);
+            if (packageIds.length == 0) {
+                return apiResponseBuilder.code(HttpStatus.NOT_FOUND.value())
+                                         .serverMessage("no packages linked to finding " + identifier)
+                                         .build();
+            }
+        }
+
+        var datasetIndexes = new TreeSet<Integer>();
+        var datasourceIndexes = new TreeSet<Integer>();
+        var counts = new HashMap<Long, int[]>();
+        for (var packageId : packageIds) {
+            var datasets = snapshot.datasetsByPackage().getOrDefault(packageId, new int[0]);
+            var datasources = snapshot.datasourcesByPackage().getOrDefault(packageId, new int[0]);
+            if (datasets.length == 0 && datasources.length == 0) { continue; }
+
+            Arrays.stream(datasets).forEach(datasetIndexes::add);
+            Arrays.stream(datasources).forEach(datasourceIndexes::add);
+            counts.put(packageId, new int[] { datasets.length, datasources.length });
+        }
+
+        var packages = new ArrayList<BlastRadiusView.AffectedPackage>(counts.size());
+        var uncataloged = new ArrayList<Long>();
+        counts.forEach((packageId, packageCounts) -> {
+            var catalogId = purlCatalog.idOfPackage(packageId);
+            if (catalogId < 0) {
+                uncataloged.add(packageId);
+                return;
+            }
+            packages.add(new BlastRadiusView.AffectedPackage(
+                purlCatalog.entry(catalogId).purl(),
+                packageCounts[0],
+                packageCounts[1]
+            ));
+        });
+
+        if ( !uncataloged.isEmpty() ) {
+            jdbcTemplate.query(
+                PACKAGE_PURLS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", uncataloged.toArray())),
+                rs -> {
+                    var packageCounts = counts.get(rs.getLong("id"));
+                    packages.add(
+                        new BlastRadiusView.AffectedPackage(rs.getString("purl"), packageCounts[0], packageCounts[1])
+                    );
+                }
+            );
+        }
+        packages.sort(Comparator.comparing(BlastRadiusView.AffectedPackage::getPurl));
+
+        var view = new BlastRadiusView(
+            identifier,
+            snapshot.builtAt().withZoneSameInstant(ZoneOffset.UTC).toString(),
+            packages.size(),
+            datasetIndexes.size(),
+            datasourceIndexes.size(),
+            packages,
+            datasetIndexes.stream().map(i -> snapshot.datasetNames()[i]).sorted().toList(),
+            datasourceIndexes.stream().map(i -> snapshot.datasourcePurls()[i]).sorted().toList()
+        );
+
+        log.info(
+            "{} reaches {} packages, {} datasets and {} datasources",
+            identifier,
+            view.getPackageCount(),
+            view.getDatasetCount(),
+            view.getDatasourceCount()
+        );
+
+        return apiResponseBuilder.code(HttpStatus.OK.value())
+                                 .data(Map.of(BLAST_RADIUS_KEY, view))
+                                 .build();
+    }
+
+}
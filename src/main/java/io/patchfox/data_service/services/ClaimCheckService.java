@@ -0,0 +1,95 @@
+package io.patchfox.data_service.services;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import io.patchfox.data_service.components.EnvironmentComponent;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Claim check storage for response bodies too large to put on a kafka topic. The serialized body is parked in the
+ * kafka_claim_check table and the caller is sent its id instead. Bodies are deleted once past the retention window.
+ */
+@Slf4j
+@Service
+public class ClaimCheckService {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EnvironmentComponent env;
+
+    // not a mapped entity on purpose - nothing outside this service reads or writes it
+    private static final String CREATE_TABLE_SQL = """
+        CREATE TABLE IF NOT EXISTS kafka_claim_check (
+            id uuid PRIMARY KEY,
+            txid uuid,
+            created_at timestamptz NOT NULL,
+            body bytea NOT NULL
+        )
+        """;
+
+    private static final String INSERT_SQL =
+        "INSERT INTO kafka_claim_check (id, txid, created_at, body) VALUES (?, ?, ?, ?)";
+
+    private static final String SELECT_SQL = "SELECT body FROM kafka_claim_check WHERE id = ? AND created_at > ?";
+
+    private static final String DELETE_EXPIRED_SQL = "DELETE FROM kafka_claim_check WHERE created_at <= ?";
+
+
+    @PostConstruct
+    void createTable() {
+        jdbcTemplate.execute(CREATE_TABLE_SQL);
+    }
+
+
+    /**
+     * stores argument serialized body
+     *
+     * @return the claim check id the body can be fetched back with
+     */
+    public UUID store(UUID txid, byte[] body) {
+        var id = UUID.randomUUID();
+        jdbcTemplate.update(INSERT_SQL, id, txid, OffsetDateTime.now(ZoneOffset.UTC), body);
+        log.info("stored {} byte body for txid {} under claim check {}", body.length, txid, id);
+        return id;
+    }
+
+
+    /**
+     * @return the serialized body stored under argument id or empty if there is none or it has expired
+     */
+    public Optional<byte[]> fetch(UUID id) {
+        var rows = jdbcTemplate.queryForList(SELECT_SQL, byte[].class, id, expiryCutoff());
+        return rows.stream().findFirst();
+    }
+
+
+    public Duration getRetention() {
+        return Duration.ofHours(env.getKafkaResponseClaimCheckRetentionHours());
+    }
+
+
+    @Scheduled(fixedDelayString = "PT1H", initialDelayString = "PT1M")
+    public void deleteExpired() {
+        var deleted = jdbcTemplate.update(DELETE_EXPIRED_SQL, expiryCutoff());
+        if (deleted > 0) { log.info("deleted {} expired claim checks", deleted); }
+    }
+
+
+    private OffsetDateTime expiryCutoff() {
+        return OffsetDateTime.now(ZoneOffset.UTC).minus(getRetention());
+    }
+
+}
@@ -0,0 +1,269 @@
+package io.patchfox.data_service.services;
+
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.patchfox.data_service.components.EnvironmentComponent;
+import io.patchfox.data_service.controllers.DatabaseQueryController;
+import io.patchfox.data_service.dto.DatasourceEventDTO;
+import io.patchfox.data_service.helpers.PayloadFieldExtractor;
+import io.patchfox.data_service.json.DatabaseBatchQuery;
+import io.patchfox.data_service.json.DatabaseBatchQueryResult;
+import io.patchfox.package_utils.json.ApiResponse;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Runs several /api/v1/db/{table}/query queries as one request, all against the same snapshot of the db so their
+ * pages agree with each other (eg - counts on one page match the rows on another).
+ *
+ * A REPEATABLE READ transaction exports its snapshot with pg_export_snapshot() and holds it open while up to
+ * "parallelism" queries run concurrently, each in its own transaction that imports the snapshot with SET TRANSACTION
+ * SNAPSHOT. With a parallelism of 1, a single query, or when "max-connections" across all batches are already in use,
+ * the queries run one after another in the exporting transaction itself and so on one connection.
+ */
+@Slf4j
+@Service
+public class DatabaseBatchQueryService {
+
+    public static final String RESULTS_KEY = "results";
+
+    private static final int DEFAULT_PAGE = 0;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    @Autowired
+    DatabaseQueryService databaseQueryService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EnvironmentComponent env;
+
+    // connections all batches together may hold at once, so concurrent batches can't starve the pool between them
+    private Semaphore connectionPermits;
+
+
+    @PostConstruct
+    void init() {
+        connectionPermits = new Semaphore(env.getDbBatchMaxConnections());
+    }
+
+
+    /**
+     * @param queries named queries - results are keyed by the same names
+     */
+    public ApiResponse process(UUID txid, ZonedDateTime requestReceivedAt, Map<String, DatabaseBatchQuery> queries) {
+        var apiResponseBuilder = ApiResponse.builder()
+                                            .txid(txid)
+                                            .requestReceivedAt(requestReceivedAt)
+                                            .responderResourceSignature(
+                                                DatabaseQueryController.POST_BATCH_QUERY_SIGNATURE
+                                            );
+
+        var results = new HashMap<String, DatabaseBatchQueryResult>();
+        var runnable = new LinkedHashMap<String, DatabaseBatchQuery>();
+        queries.forEach((name, query) -> {
+            var error = validate(query);
+            if (error == null) {
+                runnable.put(name, query);
+            } else {
+                log.warn("rejecting batch query {}: {}", name, error);
+                results.put(name, new DatabaseBatchQueryResult(HttpStatus.BAD_REQUEST.value(), error, null));
+            }
+        });
+
+        if ( !runnable.isEmpty() ) {
+            var connections = acquireConnections(runnable.size());
+            try {
+                var workers = connections - 1;
+                results.putAll(snapshotTransaction().execute(status -> run(txid, requestReceivedAt, runnable, workers)));
+            } finally {
+                connectionPermits.release(connections);
+            }
+        }
+
+        var ok = results.values().stream().filter(r -> r.getCode() == HttpStatus.OK.value()).count();
+        log.info("batch query {} ran {} queries, {} succeeded", txid, results.size(), ok);
+
+        // in the order they were asked for
+        var ordered = new LinkedHashMap<String, DatabaseBatchQueryResult>();
+        queries.keySet().forEach(name -> ordered.put(name, results.get(name)));
+
+        var code = ok == results.size() ? HttpStatus.OK : (ok == 0 ? HttpStatus.BAD_REQUEST : HttpStatus.MULTI_STATUS);
+        return apiResponseBuilder.code(code.value())
+                                 .data(Map.of(RESULTS_KEY, ordered))
+                                 .build();
+    }
+
+
+    //
+    // helpers
+    //
+
+
+    /**
+     * takes the connection permits a batch of argument size will use - the exporting transaction plus one per
+     * concurrent query if that many are free, otherwise (waiting if need be) just the one to run serially on
+     *
+     * @return number of permits taken
+     */
+    private int acquireConnections(int size) {
+        var parallelism = Math.min(env.getDbBatchParallelism(), size);
+        if (parallelism > 1 && connectionPermits.tryAcquire(parallelism + 1)) { return parallelism + 1; }
+
+        try {
+            connectionPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for a connection for batch query", e);
+        }
+        return 1;
+    }
+
+
+    /**
+     * runs inside the exporting transaction, which is kept open until every query is done
+     *
+     * @param workers connections held for concurrent queries - 0 runs them one after another in this transaction
+     */
+    private Map<String, DatabaseBatchQueryResult> run(
+        UUID txid,
+        ZonedDateTime requestReceivedAt,
+        Map<String, DatabaseBatchQuery> queries,
+        int workers
+    ) {
+        var rv = new HashMap<String, DatabaseBatchQueryResult>();
+        if (workers < 1) {
+            // each query gets a savepoint so one failing doesn't abort the transaction the rest run in
+            var nested = snapshotTransaction();
+            nested.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+            queries.forEach((name, query) -> rv.put(
+                name,
+                runGuarded(name, () -> nested.execute(status -> runOne(txid, requestReceivedAt, query)))
+            ));
+            return rv;
+        }
+
+        var snapshotId = jdbcTemplate.queryForObject("SELECT pg_export_snapshot()", String.class);
+        // can't be bound as a parameter - guard the literal even though it came from the db
+        if (snapshotId == null || !snapshotId.matches("[0-9A-Fa-f-]+")) {
+            throw new IllegalStateException("unexpected snapshot id: " + snapshotId);
+        }
+
+        var futures = new HashMap<String, CompletableFuture<DatabaseBatchQueryResult>>();
+        var permits = new Semaphore(workers);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var entry : queries.entrySet()) {
+                permits.acquire();
+                futures.put(
+                    entry.getKey(),
+                    CompletableFuture.supplyAsync(
+                        () -> runGuarded(entry.getKey(), () -> snapshotTransaction().execute(status -> {
+                            jdbcTemplate.execute("SET TRANSACTION SNAPSHOT '" + snapshotId + "'");
+                            return runOne(txid, requestReceivedAt, entry.getValue());
+                        })),
+                        executor
+                    ).whenComplete((r, e) -> permits.release())
+                );
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while running batch query", e);
+        }
+
+        futures.forEach((name, future) -> rv.put(name, future.join()));
+        return rv;
+    }
+
+
+    /**
+     * a query that throws fails its own entry of the batch rather than the whole batch
+     */
+    private DatabaseBatchQueryResult runGuarded(String name, Supplier<DatabaseBatchQueryResult> query) {
+        try {
+            return query.get();
+        } catch (RuntimeException e) {
+            log.error("batch query {} failed", name, e);
+            return new DatabaseBatchQueryResult(
+                HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                "query failed: " + e.getClass().getSimpleName(),
+                null
+            );
+        }
+    }
+
+
+    private DatabaseBatchQueryResult runOne(UUID txid, ZonedDateTime requestReceivedAt, DatabaseBatchQuery query) {
+        // process() consumes sort and size from the map it's given
+        var params = query.getParams() == null
+                ? new HashMap<String, String>()
+                : new HashMap<String, String>(query.getParams());
+
+        var page = Integer.parseInt(params.getOrDefault("page", String.valueOf(DEFAULT_PAGE)));
+        var pageable = PageRequest.of(page, DEFAULT_PAGE_SIZE);
+        var response = databaseQueryService.process(txid, requestReceivedAt, query.getTable(), params, pageable);
+        return new DatabaseBatchQueryResult(response.getCode(), response.getServerMessage(), response.getData());
+    }
+
+
+    /**
+     * the same checks GET /api/v1/db/{table}/query makes before running a query
+     *
+     * @return what's wrong with argument query or null if nothing
+     */
+    private String validate(DatabaseBatchQuery query) {
+        if (query == null || query.getTable() == null) { return "missing table"; }
+
+        var table = query.getTable();
+        if (env.getValidDbTables().stream().noneMatch(t -> t.equalsIgnoreCase(table))) {
+            return "invalid table argument";
+        }
+
+        var params = query.getParams() == null ? Map.<String, String>of() : query.getParams();
+        var payloadArgument = params.get(DatasourceEventDTO.PayloadMode.PARAMETER);
+        if (DatasourceEventDTO.PayloadMode.fromParameter(payloadArgument).isEmpty()) {
+            return "invalid payload argument - expected one of none, lazy, full";
+        }
+
+        var payloadFieldsError = PayloadFieldExtractor.getValidationError(params);
+        if (payloadFieldsError.isPresent()) { return payloadFieldsError.get(); }
+
+        var page = params.get("page");
+        if (page != null && !page.matches("\\d{1,9}")) { return "invalid page argument: " + page; }
+
+        var size = params.get("size");
+        if (size != null && !size.matches("\\d{1,9}")) { return "invalid size argument: " + size; }
+
+        return null;
+    }
+
+
+    private TransactionTemplate snapshotTransaction() {
+        var rv = new TransactionTemplate(transactionManager);
+        rv.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        rv.setReadOnly(true);
+        return rv;
+    }
+
+}
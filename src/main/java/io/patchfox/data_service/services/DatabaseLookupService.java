@@ -0,0 +1,112 @@
+package io.patchfox.data_service.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.patchfox.data_service.components.EnvironmentComponent;
+import io.patchfox.data_service.controllers.DatabaseQueryController;
+import io.patchfox.data_service.jdbc.JdbcQueryService;
+import io.patchfox.data_service.json.DatabaseLookupRequest;
+import io.patchfox.package_utils.json.ApiResponse;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Bulk lookup of package, finding, edit and datasource rows by id or purl (identifier for findings). Keys come in a
+ * request body rather than a query string, so there's no URL length ceiling on how many can be asked for at once, and
+ * rows come back in the order their keys were given.
+ */
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+public class DatabaseLookupService {
+
+    public static final String RESULTS_KEY = "results";
+    public static final String NOT_FOUND_KEY = "notFound";
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    @Autowired
+    JdbcQueryService jdbcQueryService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    EnvironmentComponent env;
+
+
+    /**
+     * @return what's wrong with looking argument request up in argument table - empty if nothing
+     */
+    public List<String> getValidationErrors(String table, DatabaseLookupRequest request) {
+        if (request == null) { return List.of("missing request body"); }
+
+        var rv = request.getValidationErrors(env.getDbLookupMaxKeys());
+        if (rv.isEmpty() && !jdbcQueryService.supportsLookup(table, request.getKeyField())) {
+            rv.add(String.format("table %s can't be looked up by %s", table, request.getKeyField()));
+        }
+        return rv;
+    }
+
+
+    /**
+     * every matching row plus the keys that matched none
+     */
+    public ApiResponse lookup(UUID txid, ZonedDateTime requestReceivedAt, String table, DatabaseLookupRequest request) {
+        var keys = request.getKeys();
+        var found = new BitSet(keys.length);
+        var results = new ArrayList<Object>();
+        jdbcQueryService.lookup(table, request.getKeyField(), keys, env.getDbLookupFetchSize(), found, results::add);
+
+        var notFound = new ArrayList<Object>();
+        for (int i = found.nextClearBit(0); i < keys.length; i = found.nextClearBit(i + 1)) { notFound.add(keys[i]); }
+        log.info("lookup of {} {} keys found {} rows, {} keys matched none", keys.length, table, results.size(), notFound.size());
+
+        return ApiResponse.builder()
+                          .txid(txid)
+                          .requestReceivedAt(requestReceivedAt)
+                          .code(HttpStatus.OK.value())
+                          .responderResourceSignature(DatabaseQueryController.POST_TABLE_LOOKUP_SIGNATURE)
+                          .data(Map.of(RESULTS_KEY, results, NOT_FOUND_KEY, notFound))
+                          .build();
+    }
+
+
+    /**
+     * writes every matching row to argument stream as it's read from the db, one JSON object per line, so neither the
+     * rows nor the response are ever held in memory all at once
+     */
+    public void stream(String table, DatabaseLookupRequest request, OutputStream out) throws IOException {
+        var keys = request.getKeys();
+        try {
+            jdbcQueryService.lookup(table, request.getKeyField(), keys, env.getDbLookupFetchSize(), new BitSet(), row -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(row));
+                    out.write(NEWLINE);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // most likely the client went away - nothing left to send it
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+}
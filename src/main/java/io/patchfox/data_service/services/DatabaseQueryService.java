@@ -11,6 +11,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.LongStream;
@@ -28,6 +29,7 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import io.patchfox.QueryDslHelpers;
+import io.patchfox.data_service.components.PurlCatalog;
 import io.patchfox.data_service.controllers.DatabaseQueryController;
 import io.patchfox.data_service.jdbc.JdbcQueryService;
 import io.patchfox.data_service.dto.DatasetDTO;
@@ -135,6 +137,9 @@ public class DatabaseQueryService {
     @Autowired
     private JdbcQueryService jdbcQueryService;
 
+    @Autowired
+    private PurlCatalog purlCatalog;
+
     @PersistenceContext
     private EntityManager entityManager;
 
@@ -234,8 +239,7 @@ public class DatabaseQueryService {
         var editIndexes = "*".equals(datasourcesPurlValue)
             ? editsWithPurl.stream().map(ewp -> ewp.editId).toList()
             : editsWithPurl.stream()
-                           .filter(ewp -> datasourcePurls.stream()
-                                                         .anyMatch(p -> ewp.datasourcePurl.contains(p)))
+                           .filter(datasourceFilter(datasourcePurls))
                            .map(ewp -> ewp.editId)
                            .toList();
 
@@ -415,8 +419,7 @@ public class DatabaseQueryService {
                           .filter(cdt -> cdt != null)
                           .toList()
             : editsWithPurl.stream()
-                          .filter(ewp -> datasourcePurls.stream()
-                                                        .anyMatch(p -> ewp.datasourcePurl.contains(p)))
+                          .filter(datasourceFilter(datasourcePurls))
                           .map(ewp -> ewp.commitDateTime)
                           .filter(cdt -> cdt != null)
                           .toList();
@@ -599,8 +602,7 @@ public class DatabaseQueryService {
                           .filter(cdt -> cdt != null)
                           .toList()
             : editsWithPurl.stream()
-                          .filter(ewp -> datasourcePurls.stream()
-                                                        .anyMatch(p -> ewp.datasourcePurl.contains(p)))
+                          .filter(datasourceFilter(datasourcePurls))
                           .map(ewp -> ewp.commitDateTime)
                           .filter(cdt -> cdt != null)
                           .toList();
@@ -859,7 +861,19 @@ public class DatabaseQueryService {
         Map<String, String> params, 
         Pageable pageable
     ) {
-        var mappedResult = getMappedResult(txid, requestReceivedAt, table, params, pageable);
+        Map<String, Object> mappedResult;
+        try {
+            mappedResult = getMappedResult(txid, requestReceivedAt, table, params, pageable);
+        } catch (IllegalArgumentException e) {
+            // malformed filter expressions and values land here - the caller's mistake, not ours
+            log.warn("rejecting query against {}: {}", table, e.getMessage());
+            return ApiResponse.builder()
+                              .txid(txid)
+                              .requestReceivedAt(requestReceivedAt)
+                              .code(HttpStatus.BAD_REQUEST.value())
+                              .serverMessage(e.getMessage())
+                              .build();
+        }
 
         return ApiResponse.builder()
                           .txid(txid)
@@ -1037,6 +1051,24 @@ public class DatabaseQueryService {
     }
 
 
+    /**
+     * edits whose datasource purl contains any of argument purl fragments. the fragments are matched against each
+     * datasource in the PurlCatalog once, so each edit is a lookup by id rather than a substring scan per fragment.
+     * datasources the catalog hadn't seen when the fragments were matched fall back to the substring scan.
+     */
+    private Predicate<EditWithDatasourcePurl> datasourceFilter(List<String> datasourcePurls) {
+        // the catalog can grow while the predicate is in use - ids at or above this weren't matched
+        var matchedBelow = purlCatalog.size();
+        var matching = purlCatalog.datasourcesContaining(datasourcePurls);
+        return ewp -> {
+            var catalogId = purlCatalog.idOfDatasource(ewp.datasourceId);
+            return catalogId < 0 || catalogId >= matchedBelow
+                ? datasourcePurls.stream().anyMatch(p -> ewp.datasourcePurl.contains(p))
+                : matching.get(catalogId);
+        };
+    }
+
+
     //
     // here and not in db-entities because we don't want any Spring dependencies in db-entities 
     //
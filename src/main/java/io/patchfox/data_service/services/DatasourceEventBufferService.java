@@ -0,0 +1,345 @@
+package io.patchfox.data_service.services;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.patchfox.data_service.components.DatasourceEventLog;
+import io.patchfox.data_service.components.EnvironmentComponent;
+import io.patchfox.data_service.json.DatasourceEventSubmission;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Holds submitted DatasourceEvents until their datasource is ready for them and then releases them downstream in
+ * commitDateTime order.
+ *
+ * Submissions are made durable in DatasourceEventLog (one file per datasource purl) before they are acknowledged, and
+ * only their commitDateTime and log offset are kept in memory - payloads are read back from the log at release time.
+ * That lets a burst like a monorepo re-scan of ten thousand events be absorbed at disk speed and drained at whatever
+ * rate "release-max-per-tick" allows.
+ *
+ * Ordering: events arrive out of commit order, so each datasource keeps a watermark of the latest commitDateTime seen
+ * minus "allowed-lateness-ms". Events at or below the watermark are released oldest first. Once a datasource has had
+ * no new submissions for "idle-release-ms" everything it holds is released. An event arriving later than the lateness
+ * allowance is still released, just out of order, and logged as such.
+ *
+ * Release is at least once: an event is marked released in the log only after the broker has acked it, so a crash in
+ * between sends it again on restart.
+ */
+@Slf4j
+@Service
+public class DatasourceEventBufferService {
+
+    @Autowired
+    DatasourceEventLog eventLog;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    EnvironmentComponent env;
+
+    private static final String DATASOURCE_STATUS_SQL = "SELECT purl, status FROM datasource WHERE purl = ANY(?)";
+
+    private static final Comparator<Pending> RELEASE_ORDER =
+        Comparator.comparing(Pending::commitDateTime).thenComparingLong(Pending::offset);
+
+    private final ConcurrentHashMap<String, DatasourceBuffer> buffers = new ConcurrentHashMap<>();
+
+    private record Pending(Instant commitDateTime, long offset) {}
+
+
+    /**
+     * everything held for a single datasource. guarded by its own monitor.
+     */
+    private static class DatasourceBuffer {
+        final TreeSet<Pending> pending = new TreeSet<>(RELEASE_ORDER);
+        Instant maxCommitDateTime = Instant.MIN;
+        Instant lastReleasedCommitDateTime = Instant.MIN;
+        long lastSubmittedAtMillis = System.currentTimeMillis();
+        int appendsInFlight = 0;
+
+        void add(Pending p) {
+            pending.add(p);
+            if (p.commitDateTime().isAfter(maxCommitDateTime)) { maxCommitDateTime = p.commitDateTime(); }
+        }
+    }
+
+
+    /**
+     * rebuilds the in memory index from whatever the log still holds unreleased. runs before the web server or kafka
+     * listeners start, so before anything can submit.
+     */
+    @PostConstruct
+    void replay() throws IOException {
+        var replayed = eventLog.replay();
+        var count = 0;
+        for (var entry : replayed.entrySet()) {
+            var buffer = buffers.computeIfAbsent(entry.getKey(), k -> new DatasourceBuffer());
+            synchronized (buffer) {
+                for (var logEntry : entry.getValue()) {
+                    var submission = objectMapper.readValue(logEntry.body(), DatasourceEventSubmission.class);
+                    buffer.add(new Pending(submission.getCommitDateTime().toInstant(), logEntry.offset()));
+                    count++;
+                }
+            }
+        }
+
+        log.info("replayed {} unreleased events for {} datasources from the event log", count, replayed.size());
+    }
+
+
+    /**
+     * appends argument submission to the log
+     *
+     * @return future that completes once the submission is durable
+     */
+    public CompletableFuture<Long> submit(DatasourceEventSubmission submission) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(submission);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        var datasourcePurl = submission.getDatasourcePurl();
+        var commitDateTime = submission.getCommitDateTime().toInstant();
+
+        // the buffer must stay visible (not be dropped as empty by the releaser) until the append lands
+        var buffer = buffers.compute(datasourcePurl, (k, held) -> {
+            var rv = held == null ? new DatasourceBuffer() : held;
+            synchronized (rv) {
+                rv.appendsInFlight++;
+                rv.lastSubmittedAtMillis = System.currentTimeMillis();
+            }
+            return rv;
+        });
+
+        return eventLog.appendEvent(datasourcePurl, body).whenComplete((offset, e) -> {
+            synchronized (buffer) {
+                buffer.appendsInFlight--;
+                if (e == null) {
+                    if ( !commitDateTime.isAfter(buffer.lastReleasedCommitDateTime) ) {
+                        log.warn(
+                            "event {} for datasource {} arrived after later commits were released - it will be released out of order",
+                            submission.getTxid(),
+                            datasourcePurl
+                        );
+                    }
+                    buffer.add(new Pending(commitDateTime, offset));
+                }
+            }
+        });
+    }
+
+
+    /**
+     * @return number of events currently held across all datasources
+     */
+    public int size() {
+        var rv = 0;
+        for (var buffer : buffers.values()) {
+            synchronized (buffer) { rv += buffer.pending.size(); }
+        }
+        return rv;
+    }
+
+
+    /**
+     * one tick: every releasable event is sent without waiting, the tick waits once for all the broker acks, and then
+     * the RELEASED records of everything acked are appended together so the log syncs them in one group commit.
+     */
+    @Scheduled(
+        fixedDelayString = "${custom.ingest.release-interval-ms}",
+        initialDelayString = "${custom.ingest.release-interval-ms}"
+    )
+    public void release() {
+        if (buffers.isEmpty()) { return; }
+
+        var heldStatuses = Set.copyOf(env.getIngestHoldStatuses());
+        var statuses = getDatasourceStatuses(new ArrayList<>(buffers.keySet()));
+        var budget = env.getIngestReleaseMaxPerTick();
+        var now = System.currentTimeMillis();
+
+        // records of one datasource stay in release order - they share a key and so a partition
+        var sends = new LinkedHashMap<String, List<Send>>();
+        for (var entry : buffers.entrySet()) {
+            if (budget <= 0) { break; }
+
+            var datasourcePurl = entry.getKey();
+            var status = statuses.get(datasourcePurl);
+            if (status == null || heldStatuses.contains(status)) {
+                continue;
+            }
+
+            var datasourceSends = new ArrayList<Send>();
+            for (var pending : releasable(entry.getValue(), now, budget)) {
+                try {
+                    datasourceSends.add(new Send(pending, send(datasourcePurl, pending)));
+                } catch (Exception e) {
+                    // stop this datasource here so nothing after the unreadable event goes out ahead of it
+                    log.error("unable to release event at offset {} for datasource {}", pending.offset(), datasourcePurl, e);
+                    break;
+                }
+                budget--;
+            }
+            if ( !datasourceSends.isEmpty() ) { sends.put(datasourcePurl, datasourceSends); }
+        }
+
+        awaitAll(sends.values().stream().flatMap(List::stream).map(Send::ack).toList());
+
+        // only the acked prefix of each datasource is marked released. anything after a failed send goes out again
+        // next tick, which the at least once contract already allows for
+        var appends = new ArrayList<CompletableFuture<Long>>();
+        var released = new HashMap<String, List<Pending>>();
+        sends.forEach((datasourcePurl, datasourceSends) -> {
+            for (var send : datasourceSends) {
+                if (send.ack().isCompletedExceptionally() || !send.ack().isDone()) {
+                    log.error(
+                        "unable to release event at offset {} for datasource {}",
+                        send.pending().offset(),
+                        datasourcePurl,
+                        send.ack().isDone() ? send.ack().exceptionNow() : null
+                    );
+                    break;
+                }
+                appends.add(eventLog.appendReleased(datasourcePurl, send.pending().offset()));
+                released.computeIfAbsent(datasourcePurl, k -> new ArrayList<>()).add(send.pending());
+            }
+        });
+
+        try {
+            CompletableFuture.allOf(appends.toArray(CompletableFuture[]::new)).join();
+        } catch (RuntimeException e) {
+            // unmarked events are sent again after a restart - still at least once
+            log.error("unable to mark {} released events in the event log", appends.size(), e);
+            return;
+        }
+
+        released.forEach((datasourcePurl, pendings) -> {
+            var buffer = buffers.get(datasourcePurl);
+            if (buffer == null) { return; }
+            synchronized (buffer) {
+                for (var pending : pendings) {
+                    buffer.pending.remove(pending);
+                    if (pending.commitDateTime().isAfter(buffer.lastReleasedCommitDateTime)) {
+                        buffer.lastReleasedCommitDateTime = pending.commitDateTime();
+                    }
+                }
+            }
+        });
+
+        sends.keySet().forEach(datasourcePurl -> {
+            var buffer = buffers.get(datasourcePurl);
+            if (buffer != null) { dropIfDrained(datasourcePurl, buffer); }
+        });
+    }
+
+
+    //
+    // helpers
+    //
+
+
+    private record Send(Pending pending, CompletableFuture<?> ack) {}
+
+
+    /**
+     * @return the events of argument buffer that can go out now, oldest first, at most argument limit of them
+     */
+    private List<Pending> releasable(DatasourceBuffer buffer, long now, int limit) {
+        var rv = new ArrayList<Pending>();
+        synchronized (buffer) {
+            var idle = buffer.appendsInFlight == 0 && now - buffer.lastSubmittedAtMillis >= env.getIngestIdleReleaseMillis();
+            var watermark = buffer.maxCommitDateTime.minusMillis(env.getIngestAllowedLatenessMillis());
+            for (var pending : buffer.pending) {
+                if (rv.size() >= limit) { break; }
+                if ( !idle && pending.commitDateTime().isAfter(watermark) ) { break; }
+                rv.add(pending);
+            }
+        }
+        return rv;
+    }
+
+
+    private CompletableFuture<?> send(String datasourcePurl, Pending pending) throws IOException {
+        var body = eventLog.readEvent(datasourcePurl, pending.offset());
+        var submission = objectMapper.readValue(body, DatasourceEventSubmission.class);
+
+        // keyed by datasource so the topic preserves the per datasource order we release in
+        return kafkaTemplate.send(env.getIngestReleaseTopicName(), datasourcePurl, submission);
+    }
+
+
+    /**
+     * waits up to release-send-timeout-ms in total, not per ack. failures are left on the futures for the caller
+     */
+    private void awaitAll(List<CompletableFuture<?>> acks) {
+        try {
+            CompletableFuture.allOf(acks.toArray(CompletableFuture[]::new))
+                             .get(env.getIngestReleaseSendTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("not every released event was acked by the broker this tick: {}", e.toString());
+        }
+    }
+
+
+    /**
+     * forgets a datasource and deletes its log file once everything it held has been released
+     */
+    private void dropIfDrained(String datasourcePurl, DatasourceBuffer buffer) {
+        var deleted = new ArrayList<CompletableFuture<Long>>(1);
+        buffers.computeIfPresent(datasourcePurl, (k, held) -> {
+            synchronized (held) {
+                if (held != buffer || !held.pending.isEmpty() || held.appendsInFlight > 0) { return held; }
+            }
+            // queued while the key is locked so it lands ahead of the first append of any new submission
+            deleted.add(eventLog.delete(datasourcePurl));
+            return null;
+        });
+
+        deleted.forEach(CompletableFuture::join);
+    }
+
+
+    private Map<String, String> getDatasourceStatuses(List<String> datasourcePurls) {
+        var rv = new HashMap<String, String>();
+        jdbcTemplate.query(
+            DATASOURCE_STATUS_SQL,
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", datasourcePurls.toArray())),
+            rs -> { rv.put(rs.getString("purl"), rs.getString("status")); }
+        );
+        return rv;
+    }
+
+}
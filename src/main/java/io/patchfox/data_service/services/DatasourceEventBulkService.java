@@ -0,0 +1,157 @@
+package io.patchfox.data_service.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.patchfox.data_service.components.EnvironmentComponent;
+import io.patchfox.data_service.controllers.DatasourceEventController;
+import io.patchfox.data_service.json.DatasourceEventSubmission;
+import io.patchfox.data_service.json.DatasourceEventSubmissionResult;
+import io.patchfox.package_utils.json.ApiResponse;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Bulk datasource event ingestion. Reads a stream of JSON events (NDJSON, or several streams for a multipart upload)
+ * and pipelines them: while the request thread parses the next item, already parsed items are bound, validated,
+ * compressed and appended on their own virtual threads. Appends that land together are group committed by the event
+ * log so a thousand item upload costs a handful of fsyncs. At most "bulk-parallelism" items are in flight at once,
+ * which also bounds how far parsing runs ahead.
+ */
+@Slf4j
+@Service
+public class DatasourceEventBulkService {
+
+    public static final String RESULTS_KEY = "results";
+    public static final String ACCEPTED_KEY = "accepted";
+    public static final String REJECTED_KEY = "rejected";
+
+    @Autowired
+    DatasourceEventBufferService datasourceEventBufferService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    EnvironmentComponent env;
+
+
+    /**
+     * @param inputs streams of whitespace separated JSON objects, read in order
+     */
+    public ApiResponse ingest(UUID txid, ZonedDateTime requestReceivedAt, List<InputStream> inputs) {
+        var apiResponseBuilder = ApiResponse.builder()
+                                            .txid(txid)
+                                            .requestReceivedAt(requestReceivedAt)
+                                            .responderResourceSignature(
+                                                DatasourceEventController.POST_DATASOURCE_EVENTS_BULK_SIGNATURE
+                                            );
+
+        var maxItems = env.getIngestBulkMaxItems();
+        var futures = new ArrayList<CompletableFuture<DatasourceEventSubmissionResult>>();
+        var permits = new Semaphore(env.getIngestBulkParallelism());
+        var serverMessage = (String) null;
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            read:
+            for (var input : inputs) {
+                try (var items = objectMapper.readerFor(JsonNode.class).<JsonNode>readValues(input)) {
+                    while (items.hasNextValue()) {
+                        if (futures.size() >= maxItems) {
+                            serverMessage = String.format("request exceeds %d items - the rest were not read", maxItems);
+                            break read;
+                        }
+
+                        var index = futures.size();
+                        var node = items.nextValue();
+                        permits.acquire();
+                        futures.add(
+                            CompletableFuture.supplyAsync(() -> ingestOne(index, node), executor)
+                                             .whenComplete((r, e) -> permits.release())
+                        );
+                    }
+                } catch (IOException e) {
+                    // the parser can't resync after malformed input so whatever follows it is lost
+                    log.warn("malformed bulk submission after item {}", futures.size(), e);
+                    serverMessage = String.format(
+                        "malformed JSON after item %d - the rest were not read: %s",
+                        futures.size(),
+                        e.getMessage()
+                    );
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            serverMessage = "interrupted while reading request";
+        }
+
+        var results = futures.stream().map(CompletableFuture::join).toList();
+        var accepted = results.stream().filter(r -> r.getCode() == HttpStatus.ACCEPTED.value()).count();
+        var rejected = results.size() - accepted;
+        log.info("bulk submission {} accepted {} and rejected {} events", txid, accepted, rejected);
+
+        var code = HttpStatus.MULTI_STATUS;
+        if (accepted == 0) {
+            code = HttpStatus.BAD_REQUEST;
+            if (serverMessage == null && results.isEmpty()) { serverMessage = "no events in request body"; }
+        } else if (rejected == 0 && serverMessage == null) {
+            code = HttpStatus.ACCEPTED;
+        }
+
+        return apiResponseBuilder.code(code.value())
+                                 .serverMessage(serverMessage)
+                                 .data(Map.of(RESULTS_KEY, results, ACCEPTED_KEY, accepted, REJECTED_KEY, rejected))
+                                 .build();
+    }
+
+
+    private DatasourceEventSubmissionResult ingestOne(int index, JsonNode node) {
+        DatasourceEventSubmission submission;
+        try {
+            submission = objectMapper.treeToValue(node, DatasourceEventSubmission.class);
+        } catch (IOException | IllegalArgumentException e) {
+            return new DatasourceEventSubmissionResult(
+                index,
+                null,
+                HttpStatus.BAD_REQUEST.value(),
+                List.of("not a datasource event: " + e.getMessage())
+            );
+        }
+
+        var errors = submission.getValidationErrors();
+        if ( !errors.isEmpty() ) {
+            return new DatasourceEventSubmissionResult(index, submission.getTxid(), HttpStatus.BAD_REQUEST.value(), errors);
+        }
+
+        try {
+            datasourceEventBufferService.submit(submission).join();
+        } catch (RuntimeException e) {
+            log.error("unable to buffer item {} of bulk submission", index, e);
+            return new DatasourceEventSubmissionResult(
+                index,
+                submission.getTxid(),
+                HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                List.of("unable to buffer event")
+            );
+        }
+
+        return new DatasourceEventSubmissionResult(index, submission.getTxid(), HttpStatus.ACCEPTED.value(), null);
+    }
+
+}
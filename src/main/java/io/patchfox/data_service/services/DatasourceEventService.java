@@ -1,19 +1,19 @@
 package io.patchfox.data_service.services;
 
+import java.io.IOException;
 import java.time.ZonedDateTime;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
-import io.patchfox.data_service.json.DatasourceEventView;
-import io.patchfox.data_service.repositories.DatasourceEventRepository;
-import io.patchfox.data_service.repositories.DatasourceRepository;
-import io.patchfox.data_service.repositories.DatasourceEventRepository;
-import io.patchfox.data_service.json.DatasourceEventView;
-
+import io.patchfox.data_service.components.LatestDatasourceEventIndex;
+import io.patchfox.data_service.helpers.InflaterPool;
 import io.patchfox.package_utils.json.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
 
@@ -23,14 +23,55 @@ import lombok.extern.slf4j.Slf4j;
 public class DatasourceEventService {
 
     @Autowired
-    DatasourceRepository datasourceRepository;
+    JdbcTemplate jdbcTemplate;
 
     @Autowired
-    DatasourceEventRepository datasourceEventRepository;
+    LatestDatasourceEventIndex latestDatasourceEventIndex;
+
+    private final InflaterPool inflaterPool = new InflaterPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * one row per datasource matching the purl. event columns are null when the datasource has no events.
+     */
+    private static final String LATEST_EVENT_SQL = """
+        SELECT ds.purl AS datasource_purl, e.id, e.purl, e.txid, e.commit_hash, e.commit_branch, e.commit_date_time, e.status
+        FROM datasource ds
+        LEFT JOIN LATERAL (
+            SELECT de.id, de.purl, de.txid, de.commit_hash, de.commit_branch, de.commit_date_time, de.status
+            FROM datasource_event de
+            WHERE de.datasource_id = ds.id
+            ORDER BY de.commit_date_time DESC, de.id DESC
+            LIMIT 1
+        ) e ON true
+        WHERE ds.purl = ?
+        """;
+
+
+    private static final String PAYLOAD_SQL = "SELECT payload FROM datasource_event WHERE id = ?";
+
+
+    /**
+     * @return payload of argument event exactly as stored (zlib deflated JSON), empty if the event doesn't exist or
+     *         has no payload
+     */
+    public Optional<byte[]> getCompressedPayload(long id) {
+        var rows = jdbcTemplate.queryForList(PAYLOAD_SQL, byte[].class, id);
+        return rows.stream().filter(Objects::nonNull).findFirst();
+    }
 
 
     /**
-     * 
+     * @return argument payload as stored by getCompressedPayload, inflated back to JSON
+     */
+    public byte[] inflatePayload(byte[] compressed) throws IOException {
+        return inflaterPool.inflate(compressed);
+    }
+
+
+    /**
+     * latest event for argument datasource. served from LatestDatasourceEventIndex when it holds the datasource,
+     * otherwise from a single projection query whose result is handed back to the index.
+     *
      * @param txid
      * @param requestReceivedAt
      * @param datasourcePurl
@@ -41,56 +82,47 @@ public class DatasourceEventService {
         var baseResponse = ApiResponse.builder()
                                       .txid(txid)
                                       .requestReceivedAt(requestReceivedAt)
-                                      .build();     
+                                      .build();
+
+        var indexed = latestDatasourceEventIndex.get(datasourcePurl);
+        if (indexed.isPresent()) {
+            baseResponse.setCode(HttpStatus.OK.value());
+            baseResponse.setData(Map.of("datasourceEvent", indexed.get().toView()));
+            return baseResponse;
+        }
 
-        var datasources = datasourceRepository.findAllByPurl(datasourcePurl);
-        if (datasources.isEmpty()) { 
+        var rows = jdbcTemplate.query(LATEST_EVENT_SQL, LatestDatasourceEventIndex.ROW_MAPPER, datasourcePurl);
+        if (rows.isEmpty()) {
             baseResponse.setCode(HttpStatus.NOT_FOUND.value());
             baseResponse.setServerMessage(String.format("datasource %s not found", datasourcePurl));
             return baseResponse;
         }
 
-        // TODO -- move this to a standard helper. you've got these checks all over the place 
-        //         and they all do the same thing. 
-        if (datasources.size() > 1) {
+        // TODO -- move this to a standard helper. you've got these checks all over the place
+        //         and they all do the same thing.
+        if (rows.size() > 1) {
             log.error(
-                "something went wrong. expected only one record but found: {} for datasource purl: {}", 
-                datasources.size(),
+                "something went wrong. expected only one record but found: {} for datasource purl: {}",
+                rows.size(),
                 datasourcePurl
             );
-            
+
             baseResponse.setCode(HttpStatus.INTERNAL_SERVER_ERROR.value());
             return baseResponse;
 
         }
 
-        var datasource = datasources.get(0);
-        var lastEventReceivedAt = datasource.getLastEventReceivedAt();
-
-        var datasourceEvents = 
-                datasourceEventRepository.findFirstByDatasourcePurlOrderByCommitDateTimeDesc(datasourcePurl);
-
-        // TODO - not doing the check here because it's fucking reduntant. MAKE THE HELPER METHODS for this 
-        if (datasourceEvents.isEmpty()) {
+        var latestEvent = rows.get(0);
+        if (latestEvent.getId() == null) {
             baseResponse.setCode(HttpStatus.NOT_FOUND.value());
             baseResponse.setServerMessage(String.format("no events for datasource %s were found", datasourcePurl));
             return baseResponse;
         }
 
-        // we did findFirst - so we know there's only going to be one record if any at all
-        var datasourceEvent = datasourceEvents.get(0);
-
-        var datasourceEventView = new DatasourceEventView(
-            datasourceEvent.getPurl(),
-            datasourceEvent.getTxid().toString(),
-            datasourceEvent.getCommitHash(),
-            datasourceEvent.getCommitBranch(),
-            datasourceEvent.getCommitDateTime().toString(),
-            datasourceEvent.getStatus().toString()
-        );
+        latestDatasourceEventIndex.offer(datasourcePurl, latestEvent);
 
         baseResponse.setCode(HttpStatus.OK.value());
-        baseResponse.setData(Map.of("datasourceEvent", datasourceEventView));
+        baseResponse.setData(Map.of("datasourceEvent", latestEvent.toView()));
         return baseResponse;
 
     }
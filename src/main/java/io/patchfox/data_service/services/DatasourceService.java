@@ -3,21 +3,24 @@ package io.patchfox.data_service.services;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
 
 import io.patchfox.data_service.json.DatasourceView;
-import io.patchfox.data_service.repositories.DatasourceRepository;
-import io.patchfox.db_entities.entities.Datasource;
 import io.patchfox.package_utils.json.ApiResponse;
 
 import lombok.extern.slf4j.Slf4j;
@@ -26,12 +29,38 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 @Service
 public class DatasourceService {
-    @Autowired
-    DatasourceRepository datasourceRepository;
-    
+
     @Autowired
     JdbcTemplate jdbcTemplate;
-    
+
+    /**
+     * DatasourceView field name -> the SQL expression that produces it. dataset membership is aggregated in the same
+     * statement so no per-row lookups are needed.
+     */
+    public static final Map<String, String> VIEW_COLUMNS = new LinkedHashMap<>();
+    static {
+        VIEW_COLUMNS.put("domain", "ds.domain");
+        VIEW_COLUMNS.put("packedName", "ds.name");
+        VIEW_COLUMNS.put("type", "ds.type");
+        VIEW_COLUMNS.put("numberEventsReceived", "ds.number_events_received");
+        VIEW_COLUMNS.put("numberEventProcessingErrors", "ds.number_event_processing_errors");
+        VIEW_COLUMNS.put("firstEventReceivedAt", "ds.first_event_received_at");
+        VIEW_COLUMNS.put("lastEventReceivedAt", "ds.last_event_received_at");
+        VIEW_COLUMNS.put("lastEventReceivedStatus", "ds.last_event_received_status");
+        VIEW_COLUMNS.put("datasets", "array_agg(d.name ORDER BY d.name) FILTER (WHERE d.name IS NOT NULL)");
+    }
+
+    private static final String IN_DATASET_FILTER = """
+        WHERE EXISTS (
+            SELECT 1 
+            FROM datasource_dataset fdd
+            INNER JOIN dataset fd ON fdd.dataset_id = fd.id
+            WHERE fdd.datasource_id = ds.id AND fd.name = ?
+        )
+        """;
+
+    private static final String COUNT_SQL = "SELECT count(*) FROM datasource ds ";
+
 
     /**
      * Get all datasources, optionally filtered by dataset name
@@ -39,127 +68,123 @@ public class DatasourceService {
      * @param txid
      * @param requestReceivedAt
      * @param dataset optional dataset name to filter by
+     * @param fields optional subset of DatasourceView fields to return - fields not asked for are left out entirely
+     * @param page optional zero based page - only applies when size is present
+     * @param size optional page size - when absent every datasource is returned
      * @return
      */
     public ApiResponse getDatasources(
-            UUID txid, ZonedDateTime 
-            requestReceivedAt, 
-            Optional<String> dataset
+            UUID txid, 
+            ZonedDateTime requestReceivedAt, 
+            Optional<String> dataset,
+            Set<String> fields,
+            Optional<Integer> page,
+            Optional<Integer> size
     ) {
-        
-        List<Datasource> datasources;
-        
-        if (dataset.isEmpty()) {
-            datasources = findAllDatasources(); //datasourceRepository.findAll();
-        } else {
-            datasources = findDatasourcesByDataset(dataset.get());
+        var selectedFields = fields.isEmpty() ? VIEW_COLUMNS.keySet() : fields;
+
+        var sql = new StringBuilder("SELECT ");
+        for (var field : selectedFields) {
+            sql.append(VIEW_COLUMNS.get(field)).append(" AS ").append(toAlias(field)).append(", ");
+        }
+        sql.append("count(*) OVER () AS total_elements ");
+
+        sql.append("""
+            FROM datasource ds
+            LEFT JOIN datasource_dataset dd ON ds.id = dd.datasource_id
+            LEFT JOIN dataset d ON dd.dataset_id = d.id
+            """);
+
+        var args = new ArrayList<Object>();
+        if (dataset.isPresent()) {
+            // filter with a semi-join so the aggregated membership list still carries every dataset
+            sql.append(IN_DATASET_FILTER);
+            args.add(dataset.get());
+        }
+
+        sql.append("GROUP BY ds.id ORDER BY ds.id");
+
+        if (size.isPresent()) {
+            sql.append(" LIMIT ? OFFSET ?");
+            args.add(size.get());
+            args.add((long) page.orElse(0) * size.get());
+        }
+
+        var totalElements = new long[1];
+        var data = jdbcTemplate.query(
+            sql.toString(), 
+            (rs, rowNum) -> {
+                totalElements[0] = rs.getLong("total_elements");
+                return mapRow(rs, selectedFields);
+            },
+            args.toArray()
+        );
+
+        // total_elements rides along on the rows, so a page past the last one has nothing to read it from
+        if (data.isEmpty() && page.orElse(0) > 0) {
+            totalElements[0] = dataset.isPresent()
+                ? jdbcTemplate.queryForObject(COUNT_SQL + IN_DATASET_FILTER, Long.class, dataset.get())
+                : jdbcTemplate.queryForObject(COUNT_SQL, Long.class);
         }
-        
-        var data = datasources.stream().map(ds ->
-            new DatasourceView(
-                ds.getDomain(),
-                ds.getName(),
-                ds.getType(),
-                ds.getNumberEventsReceived(),
-                ds.getNumberEventProcessingErrors(),
-                ds.getFirstEventReceivedAt().toString(),
-                ds.getLastEventReceivedAt().toString(),
-                ds.getLastEventReceivedStatus(),
-                ds.getDatasets().stream().map(x -> x.getName()).toList()
-            )
-        ).toList();
-        
+
+        var rv = new LinkedHashMap<String, Object>();
+        rv.put("datasources", data);
+        if (size.isPresent()) {
+            rv.put(
+                "page", 
+                Map.of(
+                    "number", page.orElse(0),
+                    "size", size.get(),
+                    "totalElements", totalElements[0],
+                    "totalPages", (totalElements[0] + size.get() - 1) / size.get()
+                )
+            );
+        }
+
         return ApiResponse.builder()
                           .txid(txid)
                           .requestReceivedAt(requestReceivedAt)
                           .code(HttpStatus.OK.value())
-                          .data(Map.of("datasources", data))
+                          .data(rv)
                           .build();
     }
-    
+
 
     /**
-     * Find all datasources using JDBC
-     * 
-     * @return list of all datasources
+     * maps a row straight into a DatasourceView, only touching the columns that were selected 
      */
-    private List<Datasource> findAllDatasources() {
-        String sql = """
-            SELECT ds.*
-            FROM datasource ds
-            """;
-        
-        return jdbcTemplate.query(sql, new DatasourceRowMapper());
+    private DatasourceView mapRow(ResultSet rs, Set<String> selectedFields) throws SQLException {
+        var rv = new DatasourceView();
+        for (var field : selectedFields) {
+            var alias = toAlias(field);
+            switch (field) {
+                case "domain" -> rv.setDomain(rs.getString(alias));
+                case "packedName" -> rv.setPackedName(rs.getString(alias));
+                case "type" -> rv.setType(rs.getString(alias));
+                case "numberEventsReceived" -> rv.setNumberEventsReceived(rs.getDouble(alias));
+                case "numberEventProcessingErrors" -> rv.setNumberEventProcessingErrors(rs.getDouble(alias));
+                case "firstEventReceivedAt" -> rv.setFirstEventReceivedAt(toUtcString(rs.getObject(alias, OffsetDateTime.class)));
+                case "lastEventReceivedAt" -> rv.setLastEventReceivedAt(toUtcString(rs.getObject(alias, OffsetDateTime.class)));
+                case "lastEventReceivedStatus" -> rv.setLastEventReceivedStatus(rs.getString(alias));
+                case "datasets" -> {
+                    var datasetsArray = rs.getArray(alias);
+                    rv.setDatasets(
+                        datasetsArray == null ? List.of() : Arrays.asList((String[]) datasetsArray.getArray())
+                    );
+                }
+                default -> log.warn("unknown datasource view field: {}", field);
+            }
+        }
+        return rv;
     }
 
 
-    /**
-     * Find datasources that are associated with a specific dataset using JDBC
-     * 
-     * @param datasetName the name of the dataset to filter by
-     * @return list of datasources associated with the given dataset
-     */
-    private List<Datasource> findDatasourcesByDataset(String datasetName) {
-        String sql = """
-            SELECT DISTINCT ds.*
-            FROM datasource ds
-            INNER JOIN datasource_dataset dd ON ds.id = dd.datasource_id
-            INNER JOIN dataset d ON dd.dataset_id = d.id
-            WHERE d.name = ?
-            """;
-        
-        return jdbcTemplate.query(sql, new DatasourceRowMapper(), datasetName);
+    private String toAlias(String field) {
+        return "v_" + field.toLowerCase();
     }
-    
 
-    /**
-     * RowMapper to convert ResultSet to Datasource entity
-     */
-    private static class DatasourceRowMapper implements RowMapper<Datasource> {
-        @Override
-        public Datasource mapRow(ResultSet rs, int rowNum) throws SQLException {
-            Datasource datasource = new Datasource();
-            datasource.setId(rs.getLong("id"));
-            datasource.setDomain(rs.getString("domain"));
-            datasource.setName(rs.getString("name"));
-            datasource.setPurl(rs.getString("purl"));
-            datasource.setType(rs.getString("type"));
-            datasource.setCommitBranch(rs.getString("commit_branch"));
-            datasource.setNumberEventsReceived(rs.getDouble("number_events_received"));
-            datasource.setNumberEventProcessingErrors(rs.getDouble("number_event_processing_errors"));
-            
-            // Convert Timestamp to ZonedDateTime
-            var firstEventTimestamp = rs.getTimestamp("first_event_received_at");
-            if (firstEventTimestamp != null) {
-                datasource.setFirstEventReceivedAt(ZonedDateTime.ofInstant(
-                    firstEventTimestamp.toInstant(), 
-                    java.time.ZoneOffset.UTC
-                ));
-            }
-            
-            var lastEventTimestamp = rs.getTimestamp("last_event_received_at");
-            if (lastEventTimestamp != null) {
-                datasource.setLastEventReceivedAt(ZonedDateTime.ofInstant(
-                    lastEventTimestamp.toInstant(), 
-                    java.time.ZoneOffset.UTC
-                ));
-            }
-            
-            datasource.setLastEventReceivedStatus(rs.getString("last_event_received_status"));
-            datasource.setStatus(Datasource.Status.valueOf(rs.getString("status")));
-            
-            // Handle optional fields
-            String latestTxidStr = rs.getString("latest_txid");
-            if (latestTxidStr != null) {
-                datasource.setLatestTxid(UUID.fromString(latestTxidStr));
-            }
-            
-            String latestJobIdStr = rs.getString("latest_job_id");
-            if (latestJobIdStr != null) {
-                datasource.setLatestJobId(UUID.fromString(latestJobIdStr));
-            }
-            
-            return datasource;
-        }
+
+    private String toUtcString(OffsetDateTime offsetDateTime) {
+        return offsetDateTime == null ? null : offsetDateTime.atZoneSameInstant(ZoneOffset.UTC).toString();
     }
 }
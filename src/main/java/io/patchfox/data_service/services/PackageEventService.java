@@ -0,0 +1,117 @@
+package io.patchfox.data_service.services;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import io.patchfox.data_service.components.PackageEventIndex;
+import io.patchfox.data_service.controllers.PackageEventController;
+import io.patchfox.data_service.json.PackageEventView;
+import io.patchfox.package_utils.json.ApiResponse;
+import lombok.extern.slf4j.Slf4j;
+
+
+@Slf4j
+@Service
+public class PackageEventService {
+
+    public static final String EVENTS_KEY = "events";
+    public static final String EVENT_COUNT_KEY = "eventCount";
+    public static final String DATASOURCE_COUNT_KEY = "datasourceCount";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PackageEventIndex packageEventIndex;
+
+    private static final String EVENTS_SQL =
+        "SELECT ds.purl AS datasource_purl, e.id, e.purl, e.txid, e.commit_hash, e.commit_branch, e.commit_date_time, e.status " +
+        "FROM datasource_event e " +
+        "INNER JOIN datasource ds ON e.datasource_id = ds.id " +
+        "WHERE e.id = ANY(?)";
+
+
+    /**
+     * events containing argument package, newest event first. only the page asked for is read from the db - the
+     * counts come straight from the index.
+     *
+     * @param purl full purl for one version, or purl without version for every version of the package
+     */
+    public ApiResponse getPackageEvents(UUID txid, ZonedDateTime requestReceivedAt, String purl, int page, int size) {
+        var apiResponseBuilder = ApiResponse.builder()
+                                            .txid(txid)
+                                            .requestReceivedAt(requestReceivedAt)
+                                            .responderResourceSignature(
+                                                PackageEventController.GET_PACKAGE_EVENTS_SIGNATURE
+                                            );
+
+        // postings are ascending by event id so the newest are at the end - only the page asked for is decoded
+        var sliceOptional = packageEventIndex.get(purl, (int) Math.min(Integer.MAX_VALUE, (long) page * size), size);
+        if (sliceOptional.isEmpty()) {
+            return apiResponseBuilder.code(HttpStatus.SERVICE_UNAVAILABLE.value())
+                                     .serverMessage("package event index is not available yet")
+                                     .build();
+        }
+
+        var slice = sliceOptional.get();
+        var total = slice.total();
+        var datasourceCount = slice.datasourceCount();
+        var pageIds = Arrays.stream(slice.postings().eventIds()).boxed().toArray(Long[]::new);
+
+        var views = new HashMap<Long, PackageEventView>();
+        if (pageIds.length > 0) {
+            jdbcTemplate.query(
+                EVENTS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", pageIds)),
+                rs -> {
+                    var commitDateTime = rs.getObject("commit_date_time", OffsetDateTime.class);
+                    views.put(
+                        rs.getLong("id"),
+                        new PackageEventView(
+                            rs.getLong("id"),
+                            rs.getString("datasource_purl"),
+                            rs.getString("purl"),
+                            rs.getString("txid"),
+                            rs.getString("commit_hash"),
+                            rs.getString("commit_branch"),
+                            commitDateTime == null
+                                ? null
+                                : commitDateTime.atZoneSameInstant(ZoneOffset.UTC).toString(),
+                            rs.getString("status")
+                        )
+                    );
+                }
+            );
+        }
+
+        var content = views.values()
+                           .stream()
+                           .sorted(Comparator.comparing(PackageEventView::getEventId).reversed())
+                           .toList();
+
+        var eventsPage = new PageImpl<>(content, PageRequest.of(page, size), total);
+        log.info("found {} events across {} datasources containing {}", total, datasourceCount, purl);
+
+        return apiResponseBuilder.code(HttpStatus.OK.value())
+                                 .data(Map.of(
+                                     EVENTS_KEY, eventsPage,
+                                     EVENT_COUNT_KEY, total,
+                                     DATASOURCE_COUNT_KEY, datasourceCount
+                                 ))
+                                 .build();
+    }
+
+}
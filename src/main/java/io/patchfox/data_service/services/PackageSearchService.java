@@ -0,0 +1,69 @@
+package io.patchfox.data_service.services;
+
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import io.patchfox.data_service.components.PackageSearchIndex;
+import io.patchfox.data_service.controllers.PackageSearchController;
+import io.patchfox.data_service.json.PackageSearchResultView;
+import io.patchfox.package_utils.json.ApiResponse;
+import lombok.extern.slf4j.Slf4j;
+
+
+@Slf4j
+@Service
+public class PackageSearchService {
+
+    public static final String RESULTS_KEY = "results";
+    public static final String MODE_KEY = "mode";
+
+    @Autowired
+    PackageSearchIndex packageSearchIndex;
+
+
+    public ApiResponse search(
+        UUID txid,
+        ZonedDateTime requestReceivedAt,
+        String query,
+        PackageSearchIndex.Mode mode,
+        int limit
+    ) {
+        var apiResponseBuilder = ApiResponse.builder()
+                                            .txid(txid)
+                                            .requestReceivedAt(requestReceivedAt)
+                                            .responderResourceSignature(
+                                                PackageSearchController.GET_PACKAGE_SEARCH_SIGNATURE
+                                            );
+
+        var hitsOptional = packageSearchIndex.search(query, mode, limit);
+        if (hitsOptional.isEmpty()) {
+            return apiResponseBuilder.code(HttpStatus.SERVICE_UNAVAILABLE.value())
+                                     .serverMessage("package search index is not available yet")
+                                     .build();
+        }
+
+        var results = hitsOptional.get()
+                                  .stream()
+                                  .map(hit -> new PackageSearchResultView(
+                                      hit.purl(),
+                                      hit.kind().name(),
+                                      hit.type(),
+                                      hit.namespace(),
+                                      hit.name(),
+                                      hit.versionCount(),
+                                      hit.score()
+                                  ))
+                                  .toList();
+
+        log.debug("{} search for '{}' found {} results", mode, query, results.size());
+        return apiResponseBuilder.code(HttpStatus.OK.value())
+                                 .data(Map.of(RESULTS_KEY, results, MODE_KEY, mode.name().toLowerCase()))
+                                 .build();
+    }
+
+}
@@ -0,0 +1,437 @@
+package io.patchfox.data_service.services;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import io.patchfox.data_service.components.EnvironmentComponent;
+import io.patchfox.data_service.helpers.DeflaterPool;
+import io.patchfox.data_service.helpers.InflaterPool;
+import io.patchfox.data_service.json.QueryJobView;
+import io.patchfox.package_utils.json.ApiResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Async mode for db queries too slow to answer inside a request. A submitted query is parked in the query_job table
+ * and run on a small fixed pool of background threads. Its response data is stored as deflated Smile (binary JSON)
+ * for a while after it completes, to be fetched by job id from any instance.
+ *
+ * Submitting a query identical to one that is queued, running or done and not yet expired returns the existing job,
+ * so a heavy query asked for by several callers is run once.
+ */
+@Slf4j
+@Service
+public class QueryJobService {
+
+    public static final String JOB_KEY = "job";
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    EnvironmentComponent env;
+
+    private static final SmileMapper SMILE_MAPPER = new SmileMapper();
+
+    // results are written once and may be read many times so it's worth compressing harder than the ingest log does
+    private static final int DEFLATE_LEVEL = 6;
+
+    private DeflaterPool deflaterPool;
+
+    private InflaterPool inflaterPool;
+
+    private ThreadPoolExecutor executor;
+
+    // jobs this instance queued that haven't completed yet - failed on shutdown rather than left to be reused
+    private final Set<UUID> unfinished = ConcurrentHashMap.newKeySet();
+
+    // not a mapped entity on purpose - nothing outside this service reads or writes it
+    private static final String CREATE_TABLE_SQL = """
+        CREATE TABLE IF NOT EXISTS query_job (
+            id uuid PRIMARY KEY,
+            request_hash text NOT NULL,
+            status text NOT NULL,
+            created_at timestamptz NOT NULL,
+            completed_at timestamptz,
+            code int,
+            server_message text,
+            body bytea
+        )
+        """;
+
+    private static final String CREATE_INDEX_SQL =
+        "CREATE INDEX IF NOT EXISTS query_job_request_hash_idx ON query_job (request_hash)";
+
+    // at most one queued or running job per request, so identical submits racing each other share one job
+    private static final String CREATE_ACTIVE_INDEX_SQL =
+        "CREATE UNIQUE INDEX IF NOT EXISTS query_job_request_hash_active_idx ON query_job (request_hash) " +
+        "WHERE completed_at IS NULL";
+
+    // duplicates from before the unique index existed would stop it being built. all but the newest are failed
+    private static final String FAIL_DUPLICATES_SQL =
+        "UPDATE query_job SET status = ?, completed_at = ?, code = ?, server_message = ? " +
+        "WHERE completed_at IS NULL AND id NOT IN (" +
+        "SELECT DISTINCT ON (request_hash) id FROM query_job WHERE completed_at IS NULL " +
+        "ORDER BY request_hash, created_at DESC" +
+        ")";
+
+    private static final String INSERT_SQL =
+        "INSERT INTO query_job (id, request_hash, status, created_at) VALUES (?, ?, ?, ?) " +
+        "ON CONFLICT (request_hash) WHERE completed_at IS NULL DO NOTHING";
+
+    private static final String SELECT_ACTIVE_SQL =
+        "SELECT id FROM query_job WHERE request_hash = ? AND completed_at IS NULL";
+
+    private static final String SELECT_REUSABLE_SQL =
+        "SELECT id FROM query_job WHERE request_hash = ? AND status <> ? " +
+        "AND (completed_at > ? OR (completed_at IS NULL AND created_at > ?)) " +
+        "ORDER BY created_at DESC LIMIT 1";
+
+    private static final String SELECT_SQL =
+        "SELECT status, created_at, completed_at, code, server_message, body FROM query_job WHERE id = ?";
+
+    private static final String UPDATE_STATUS_SQL = "UPDATE query_job SET status = ? WHERE id = ?";
+
+    private static final String UPDATE_COMPLETED_SQL =
+        "UPDATE query_job SET status = ?, completed_at = ?, code = ?, server_message = ?, body = ? WHERE id = ?";
+
+    private static final String DELETE_SQL = "DELETE FROM query_job WHERE id = ?";
+
+    private static final String DELETE_EXPIRED_SQL = "DELETE FROM query_job WHERE completed_at <= ?";
+
+    private static final String FAIL_UNFINISHED_SQL =
+        "UPDATE query_job SET status = ?, completed_at = ?, code = ?, server_message = ? " +
+        "WHERE id = ANY(?) AND completed_at IS NULL";
+
+    // jobs whose instance went away mid run never complete on their own
+    private static final String FAIL_ABANDONED_SQL =
+        "UPDATE query_job SET status = ?, completed_at = ?, code = ?, server_message = ? " +
+        "WHERE completed_at IS NULL AND created_at <= ?";
+
+    // an abandoned job the sweep hasn't got to yet would otherwise hold a new submit's place in the active index
+    private static final String FAIL_ABANDONED_FOR_REQUEST_SQL = FAIL_ABANDONED_SQL + " AND request_hash = ?";
+
+
+    private record Row(
+        String status,
+        OffsetDateTime createdAt,
+        OffsetDateTime completedAt,
+        Integer code,
+        String serverMessage,
+        byte[] body
+    ) {}
+
+
+    @PostConstruct
+    void init() {
+        jdbcTemplate.execute(CREATE_TABLE_SQL);
+        jdbcTemplate.execute(CREATE_INDEX_SQL);
+        var duplicates = jdbcTemplate.update(
+            FAIL_DUPLICATES_SQL,
+            FAILED,
+            OffsetDateTime.now(ZoneOffset.UTC),
+            HttpStatus.INTERNAL_SERVER_ERROR.value(),
+            "query job was a duplicate of a later identical one"
+        );
+        if (duplicates > 0) { log.warn("failed {} duplicate query jobs", duplicates); }
+        jdbcTemplate.execute(CREATE_ACTIVE_INDEX_SQL);
+
+        var parallelism = env.getQueryJobParallelism();
+        deflaterPool = new DeflaterPool(parallelism, DEFLATE_LEVEL);
+        inflaterPool = new InflaterPool(Runtime.getRuntime().availableProcessors());
+        executor = new ThreadPoolExecutor(
+            parallelism,
+            parallelism,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(env.getQueryJobMaxQueued()),
+            Thread.ofPlatform().name("query-job-", 0).daemon().factory()
+        );
+    }
+
+
+    /**
+     * fails every job this instance still has queued (the runnables shutdownNow() hands back) or running, so an
+     * identical query submitted elsewhere starts a fresh job instead of waiting on one that will never complete
+     */
+    @PreDestroy
+    void shutdown() {
+        var neverStarted = executor.shutdownNow().size();
+        if (unfinished.isEmpty()) { return; }
+
+        var ids = unfinished.toArray(UUID[]::new);
+        try {
+            var failed = jdbcTemplate.update(FAIL_UNFINISHED_SQL, ps -> {
+                ps.setString(1, FAILED);
+                ps.setObject(2, OffsetDateTime.now(ZoneOffset.UTC));
+                ps.setInt(3, HttpStatus.SERVICE_UNAVAILABLE.value());
+                ps.setString(4, "query job was interrupted by a shutdown - submit it again");
+                ps.setArray(5, ps.getConnection().createArrayOf("uuid", ids));
+            });
+            log.warn("failed {} unfinished query jobs on shutdown, {} of them never started", failed, neverStarted);
+        } catch (RuntimeException e) {
+            // left for the abandoned job sweep of another instance
+            log.error("unable to fail {} unfinished query jobs on shutdown", ids.length, e);
+        }
+    }
+
+
+    /**
+     * queues argument computation as a job, or finds an identical one already queued, running or done
+     *
+     * @param requestKey identifies the query and its arguments, eg - a RequestCoalescer key
+     * @return 202 with the job, or 503 if too many jobs are already queued
+     */
+    public ApiResponse submit(
+        UUID txid,
+        ZonedDateTime requestReceivedAt,
+        String requestKey,
+        Supplier<ApiResponse> computation
+    ) {
+        var apiResponseBuilder = ApiResponse.builder().txid(txid).requestReceivedAt(requestReceivedAt);
+        var requestHash = hash(requestKey);
+        var now = OffsetDateTime.now(ZoneOffset.UTC);
+
+        var existing = jdbcTemplate.queryForList(
+            SELECT_REUSABLE_SQL,
+            UUID.class,
+            requestHash,
+            FAILED,
+            now.minus(getTtl()),
+            now.minus(getMaxRun())
+        );
+        if ( !existing.isEmpty() ) {
+            log.info("reusing query job {} for {}", existing.getFirst(), requestKey);
+            return fetch(txid, requestReceivedAt, existing.getFirst());
+        }
+
+        jdbcTemplate.update(
+            FAIL_ABANDONED_FOR_REQUEST_SQL,
+            FAILED,
+            now,
+            HttpStatus.INTERNAL_SERVER_ERROR.value(),
+            "query job was abandoned before it completed",
+            now.minus(getMaxRun()),
+            requestHash
+        );
+
+        var id = UUID.randomUUID();
+        if (jdbcTemplate.update(INSERT_SQL, id, requestHash, QUEUED, now) == 0) {
+            // an identical submit got its job in between our lookup and insert
+            var active = jdbcTemplate.queryForList(SELECT_ACTIVE_SQL, UUID.class, requestHash);
+            if ( !active.isEmpty() ) {
+                log.info("reusing query job {} for {}", active.getFirst(), requestKey);
+                return fetch(txid, requestReceivedAt, active.getFirst());
+            }
+            // and it completed before we could read it - whatever it left is reusable
+            return submit(txid, requestReceivedAt, requestKey, computation);
+        }
+        unfinished.add(id);
+        try {
+            executor.execute(() -> run(id, computation));
+        } catch (RejectedExecutionException e) {
+            unfinished.remove(id);
+            jdbcTemplate.update(DELETE_SQL, id);
+            log.warn("rejecting query job for {} - {} jobs already queued", requestKey, executor.getQueue().size());
+            return apiResponseBuilder.code(HttpStatus.SERVICE_UNAVAILABLE.value())
+                                     .serverMessage("too many query jobs queued - try again later")
+                                     .build();
+        }
+
+        log.info("queued query job {} for {}", id, requestKey);
+        var view = new QueryJobView(id, QUEUED, now.toZonedDateTime(), null, null);
+        return apiResponseBuilder.code(HttpStatus.ACCEPTED.value())
+                                 .data(Map.of(JOB_KEY, view))
+                                 .build();
+    }
+
+
+    /**
+     * @return 202 with the job while it's queued or running, the query's own response plus the job once it's done,
+     *         500 if it failed (503 if a shutdown cut it short) or 404 if there's no such job or its result has expired
+     */
+    public ApiResponse fetch(UUID txid, ZonedDateTime requestReceivedAt, UUID id) {
+        var apiResponseBuilder = ApiResponse.builder().txid(txid).requestReceivedAt(requestReceivedAt);
+
+        var rows = jdbcTemplate.query(
+            SELECT_SQL,
+            (rs, rowNum) -> new Row(
+                rs.getString("status"),
+                rs.getObject("created_at", OffsetDateTime.class),
+                rs.getObject("completed_at", OffsetDateTime.class),
+                (Integer) rs.getObject("code"),
+                rs.getString("server_message"),
+                rs.getBytes("body")
+            ),
+            id
+        );
+
+        var expiryCutoff = OffsetDateTime.now(ZoneOffset.UTC).minus(getTtl());
+        var expired = !rows.isEmpty()
+                && rows.getFirst().completedAt() != null
+                && !rows.getFirst().completedAt().isAfter(expiryCutoff);
+        if (rows.isEmpty() || expired) {
+            log.warn("query job {} not found or expired", id);
+            return apiResponseBuilder.code(HttpStatus.NOT_FOUND.value())
+                                     .serverMessage("no such query job or its result has expired")
+                                     .build();
+        }
+
+        var row = rows.getFirst();
+        var view = new QueryJobView(
+            id,
+            row.status(),
+            row.createdAt().toZonedDateTime(),
+            row.completedAt() == null ? null : row.completedAt().toZonedDateTime(),
+            row.completedAt() == null ? null : row.completedAt().plus(getTtl()).toZonedDateTime()
+        );
+
+        if (row.completedAt() == null) {
+            return apiResponseBuilder.code(HttpStatus.ACCEPTED.value())
+                                     .data(Map.of(JOB_KEY, view))
+                                     .build();
+        }
+
+        var data = new LinkedHashMap<String, Object>();
+        if (row.body() != null) {
+            try {
+                var tree = inflaterPool.inflate(row.body(), SMILE_MAPPER::readTree);
+                tree.fields().forEachRemaining(field -> data.put(field.getKey(), field.getValue()));
+            } catch (IOException e) {
+                log.error("unable to decode result of query job {}", id, e);
+                return apiResponseBuilder.code(HttpStatus.INTERNAL_SERVER_ERROR.value())
+                                         .serverMessage("unable to decode query job result")
+                                         .build();
+            }
+        }
+        data.put(JOB_KEY, view);
+
+        return apiResponseBuilder.code(row.code())
+                                 .serverMessage(row.serverMessage())
+                                 .data(data)
+                                 .build();
+    }
+
+
+    @Scheduled(fixedDelayString = "PT1M", initialDelayString = "PT1M")
+    public void deleteExpired() {
+        var now = OffsetDateTime.now(ZoneOffset.UTC);
+        var abandoned = jdbcTemplate.update(
+            FAIL_ABANDONED_SQL,
+            FAILED,
+            now,
+            HttpStatus.INTERNAL_SERVER_ERROR.value(),
+            "query job was abandoned before it completed",
+            now.minus(getMaxRun())
+        );
+        if (abandoned > 0) { log.warn("failed {} abandoned query jobs", abandoned); }
+
+        var deleted = jdbcTemplate.update(DELETE_EXPIRED_SQL, now.minus(getTtl()));
+        if (deleted > 0) { log.info("deleted {} expired query jobs", deleted); }
+    }
+
+
+    //
+    // helpers
+    //
+
+
+    private void run(UUID id, Supplier<ApiResponse> computation) {
+        jdbcTemplate.update(UPDATE_STATUS_SQL, RUNNING, id);
+        var startedAt = System.nanoTime();
+        try {
+            var result = computation.get();
+            // converted with the application mapper first so dates and the like read back as they'd have been sent
+            var body = result.getData() == null
+                    ? null
+                    : deflaterPool.deflate(SMILE_MAPPER.writeValueAsBytes(objectMapper.valueToTree(result.getData())));
+
+            jdbcTemplate.update(
+                UPDATE_COMPLETED_SQL,
+                DONE,
+                OffsetDateTime.now(ZoneOffset.UTC),
+                result.getCode(),
+                result.getServerMessage(),
+                body,
+                id
+            );
+            log.info(
+                "query job {} done in {} ms, {} byte result",
+                id,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt),
+                body == null ? 0 : body.length
+            );
+        } catch (IOException | RuntimeException e) {
+            log.error("query job {} failed", id, e);
+            jdbcTemplate.update(
+                UPDATE_COMPLETED_SQL,
+                FAILED,
+                OffsetDateTime.now(ZoneOffset.UTC),
+                HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                "query job failed",
+                null,
+                id
+            );
+        } finally {
+            unfinished.remove(id);
+        }
+    }
+
+
+    private Duration getTtl() {
+        return Duration.ofMillis(env.getQueryJobTtlMillis());
+    }
+
+
+    private Duration getMaxRun() {
+        return Duration.ofMillis(env.getQueryJobMaxRunMillis());
+    }
+
+
+    private static String hash(String requestKey) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(requestKey.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // every JRE is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -4,8 +4,6 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -17,13 +15,13 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 
+import io.patchfox.data_service.components.EnvironmentComponent;
+import io.patchfox.data_service.helpers.BoundedCache;
 import io.patchfox.data_service.json.RecommendDetailView;
 import io.patchfox.data_service.json.RecommendTopView;
 import io.patchfox.data_service.json.RecommendDetailView.RecommendationCard;
 import io.patchfox.data_service.repositories.DatasetMetricsRepository;
 import io.patchfox.db_entities.entities.DatasetMetrics;
-import io.patchfox.db_entities.entities.Datasource;
-import io.patchfox.db_entities.entities.Edit;
 import io.patchfox.package_utils.json.ApiResponse;
 import io.patchfox.package_utils.util.Pair;
 import lombok.extern.slf4j.Slf4j;
@@ -39,18 +37,41 @@ public class RecommendViewService {
     @Autowired
     JdbcTemplate jdbcTemplate;
 
+    // a job can write a later txid while it's still running, so job -> txid is resolved on every request and the
+    // caches are keyed by txid instead. the records of one txid don't change once written, so anything non-empty
+    // keyed by txid can be held until evicted
+    private final BoundedCache<String, List<DatasetMetrics>> recommendationsByTxidAndDataset;
+
+    private final BoundedCache<String, Map<String, Object>> detailPagesByTxidDatasetAndType;
+
+    // number of patches grouped into a single recommendation card
+    private static final int CARD_SIZE = 3;
+
+    // cards findRecommendationCards would return across all pages - each datasource's edits rounded up to whole cards
+    private static final String COUNT_CARDS_SQL = """
+        SELECT COALESCE(sum((edits + ? - 1) / ?), 0)
+        FROM (
+            SELECT count(*) AS edits
+            FROM edit e
+            INNER JOIN datasource d ON e.datasource_id = d.id
+            WHERE e.dataset_metrics_id = ?
+            GROUP BY e.datasource_id
+        ) per_datasource
+        """;
+
+    public RecommendViewService(EnvironmentComponent env) {
+        var maxEntries = env.getRecommendCacheMaxEntries();
+        this.recommendationsByTxidAndDataset = new BoundedCache<>("recommendationsByTxidAndDataset", maxEntries);
+        this.detailPagesByTxidDatasetAndType = new BoundedCache<>("detailPagesByTxidDatasetAndType", maxEntries);
+    }
+
     public ApiResponse getTopRecommendView(UUID jobId, ZonedDateTime requestReceivedAt, Optional<String> dataset) {
 
         // we are counting on the controller to validate arguments
-        var txidOptional = datasetMetricsRepository.getLatestDatasetMetricsRecordTxidForJobId(jobId);
-
-        List<DatasetMetrics> currentRecords;
-        if (dataset.isPresent()) {
-            currentRecords = findDatasetMetricsByTxidAndDataset(txidOptional.get(), dataset.get());
-        } else {
-            currentRecords = findDatasetMetricsByTxid(txidOptional.get());
-        }
+        var txidOptional = getTxidForJobId(jobId);
+        var currentRecords = txidOptional.isEmpty() ? List.<DatasetMetrics>of() : getRecommendations(txidOptional.get(), dataset);
 
+        // the view itself is built per request because card icon orientation is randomized
         var rv = new RecommendTopView();
 
         for (var currentRecord : currentRecords) {
@@ -64,179 +85,221 @@ public class RecommendViewService {
     }
 
 
-    public ApiResponse getDetailRecommendView(UUID jobId, ZonedDateTime requestReceivedAt, String type, Optional<String> dataset) {
+    /**
+     * one page of recommendation cards for argument type. edits are grouped by datasource and chunked into cards of
+     * CARD_SIZE patches in SQL so only the requested page of cards is ever read or rendered.
+     *
+     * @param page zero based card page
+     * @param size cards per page
+     */
+    public ApiResponse getDetailRecommendView(
+            UUID jobId, 
+            ZonedDateTime requestReceivedAt, 
+            String type, 
+            Optional<String> dataset,
+            int page,
+            int size
+    ) {
 
         // we are counting on the controller to validate arguments
-        var txidOptional = datasetMetricsRepository.getLatestDatasetMetricsRecordTxidForJobId(jobId);
+        var txidOptional = getTxidForJobId(jobId);
+        if (txidOptional.isEmpty()) { return emptyDetailRecommendView(jobId, page, size); }
 
-        List<DatasetMetrics> currentRecords;
-        if (dataset.isPresent()) {
-            currentRecords = findDatasetMetricsByTxidAndDataset(txidOptional.get(), dataset.get());
-        } else {
-            currentRecords = findDatasetMetricsByTxid(txidOptional.get());
+        var key = txidOptional.get() + "|" + dataset.orElse("") + "|" + type + "|" + page + "|" + size;
+        var cached = detailPagesByTxidDatasetAndType.get(key);
+        if (cached.isPresent()) {
+            return ApiResponse.builder()
+                              .code(Response.SC_OK)
+                              .data(cached.get())
+                              .build();
         }
 
+        var currentRecords = getRecommendations(txidOptional.get(), dataset);
+
         log.info("type is: {}", type);
         DatasetMetrics currentRecord = null;
         for (var currentRecordTemp : currentRecords) {
             if (currentRecordTemp.getRecommendationType().toString().equals(type)) {
                 currentRecord = currentRecordTemp;
             }
-        }                                                  
-
-        log.info("currentRecord is: {}", currentRecord);
-        if (currentRecord == null) {
-            return ApiResponse.builder()
-                              .code(Response.SC_OK)
-                              .txid(jobId)
-                              .data(Map.of("payload", new RecommendDetailView()))
-                              .build();           
         }
 
-        // Fetch edits for this dataset_metrics record using JDBC
-        var edits = findEditsByDatasetMetricsId(currentRecord.getId());
-        currentRecord.setEdits(new HashSet<>(edits));
+        log.info("currentRecord is: {}", currentRecord);
+        if (currentRecord == null) { return emptyDetailRecommendView(jobId, page, size); }
 
         var rv = new RecommendDetailView();
         rv.title = type.replace("_", " ");
 
-        var editMap = new HashMap<String, List<Edit>>();
-        
-        for (var edit : currentRecord.getEdits()) {
-            var datasourcePurl = edit.getDatasource().getPurl();
-            if ( !editMap.containsKey(datasourcePurl) ) {
-                editMap.put(datasourcePurl, new ArrayList<Edit>());
-            }
+        var totalCards = new long[1];
+        rv.recommendations = findRecommendationCards(rv, currentRecord.getId(), page, size, totalCards);
 
-            editMap.get(datasourcePurl).add(edit);
-        }
+        var data = Map.<String, Object>of(
+            "payload", rv,
+            "page", getPageMetadata(page, size, totalCards[0])
+        );
 
-        var recCards = new ArrayList<RecommendationCard>();
-        for (var entry : editMap.entrySet()) {
-            var patch_ds = entry.getKey();
-
-            var patchBuffer = new ArrayList<Pair<String, String>>();
-            var count = 0;
-            var avoidsVulnerabilitiesTotal = 0;
-            var decreaseVulnerabilitiesTotal = 0;
-            var decreaseBacklogTotal = 0;
-            var increaseImpacttotal = 0;
-            for (var edit : entry.getValue()) {
-                patchBuffer.add(new Pair<>(edit.getBefore(), edit.getAfter()));
-                count += 1;
-                avoidsVulnerabilitiesTotal += edit.getAvoidsVulnerabilitiesRank();
-                decreaseVulnerabilitiesTotal += edit.getDecreaseVulnerabilityCountRank();
-                decreaseBacklogTotal += edit.getDecreaseBacklogRank();
-                increaseImpacttotal += edit.getIncreaseImpactRank();
-
-                if (count > 2) {
-                    var recCard = rv.new RecommendationCard();
-                    var ticketText = String.format(
-                        "in git repository: %s\n" + 
-                        "\npatch the following: \n" +
-                        "* %s --> %s \n" +
-                        "* %s --> %s \n" + 
-                        "* %s --> %s \n",
-                        entry.getKey(),
-                        patchBuffer.get(0).getLeft(),
-                        patchBuffer.get(0).getRight(),
-                        patchBuffer.get(1).getLeft(),
-                        patchBuffer.get(1).getRight(),
-                        patchBuffer.get(2).getLeft(),
-                        patchBuffer.get(2).getRight()
-                    );
-                    recCard.avoidsVulnerabilitiesScore = avoidsVulnerabilitiesTotal / count;
-                    recCard.decreaseVulnerabilitiesScore = decreaseVulnerabilitiesTotal / count;
-                    recCard.decreaseBacklogScore = decreaseBacklogTotal / count;
-                    recCard.increaseImpactScore = increaseImpacttotal / count;
-                    recCard.ticketText = ticketText;
-                    recCard.patches = Map.of(patch_ds, new ArrayList<>(patchBuffer));
-                    log.info("patches now: {}", recCard.patches);
-                    recCards.add(recCard);
-
-                    patchBuffer.clear();
-                    count = 0;
-                    avoidsVulnerabilitiesTotal = 0;
-                    decreaseVulnerabilitiesTotal = 0;
-                    decreaseBacklogTotal = 0;
-                    increaseImpacttotal = 0;
-                }
-            }
+        // an empty page may only be empty because its edits haven't been written yet
+        if ( !rv.recommendations.isEmpty() ) { detailPagesByTxidDatasetAndType.put(key, data); }
 
-            if ( !patchBuffer.isEmpty() ) {
-                var ticketText = String.format(
-                    "in git repository: %s\n" + 
-                    "patch the following: \n", 
-                    entry.getKey()
-                );
+        return ApiResponse.builder()
+                          .code(Response.SC_OK)
+                          .data(data)
+                          .build();
+    }
 
-                for (var e : patchBuffer) {
-                    ticketText = ticketText + "\n * " + e.getLeft() + " " + e.getRight();
-                }
 
-                var recCard = rv.new RecommendationCard();
-                recCard.avoidsVulnerabilitiesScore = avoidsVulnerabilitiesTotal / count;
-                recCard.decreaseVulnerabilitiesScore = decreaseVulnerabilitiesTotal / count;
-                recCard.decreaseBacklogScore = decreaseBacklogTotal / count;
-                recCard.increaseImpactScore = increaseImpacttotal / count;
-                recCard.ticketText = ticketText;
-                recCard.patches = Map.of(patch_ds, new ArrayList<>(patchBuffer));
-                log.info("adding patches: {}", recCard.patches);
-                recCards.add(recCard);
-            }
-        }     
-        
-        
-        rv.recommendations = recCards;
-        var apiResponse = ApiResponse.builder()
-                                    .code(Response.SC_OK)
-                                    .data(Map.of("payload", rv))
-                                    .build();
+    private ApiResponse emptyDetailRecommendView(UUID jobId, int page, int size) {
+        return ApiResponse.builder()
+                          .code(Response.SC_OK)
+                          .txid(jobId)
+                          .data(Map.of("payload", new RecommendDetailView(), "page", getPageMetadata(page, size, 0)))
+                          .build();
+    }
 
-        return apiResponse;
+
+    private Map<String, Object> getPageMetadata(int page, int size, long totalElements) {
+        return Map.of(
+            "number", page,
+            "size", size,
+            "totalElements", totalElements,
+            "totalPages", (totalElements + size - 1) / size
+        );
+    }
+
+
+    /**
+     * recommendation records of argument txid, optionally restricted to a single dataset. cached unless there are
+     * none, as a txid with no records yet may still be being written.
+     *
+     * @return empty list if the txid has no records
+     */
+    private List<DatasetMetrics> getRecommendations(UUID txid, Optional<String> dataset) {
+        var key = txid + "|" + dataset.orElse("");
+        var rv = recommendationsByTxidAndDataset.get(key, () -> {
+            var records = dataset.isPresent()
+                ? findDatasetMetricsByTxidAndDataset(txid, dataset.get())
+                : findDatasetMetricsByTxid(txid);
+            return records.isEmpty() ? null : records;
+        });
+
+        return rv == null ? List.of() : rv;
+    }
+
+
+    /**
+     * latest txid of argument job - never cached as it moves on for as long as the job is running
+     */
+    private Optional<UUID> getTxidForJobId(UUID jobId) {
+        var rv = datasetMetricsRepository.getLatestDatasetMetricsRecordTxidForJobId(jobId);
+        if (rv.isEmpty()) { log.warn("no dataset_metrics records found for jobId: {}", jobId); }
+        return rv;
     }
 
+
     /**
-     * Find edits for a given dataset_metrics_id using JDBC
+     * Groups the edits of argument dataset_metrics record by datasource, numbers them within each datasource and 
+     * folds every CARD_SIZE of them into one card with averaged ranks - all in SQL, so only the requested page of 
+     * cards leaves the database. Cards are ordered by datasource purl then position within the datasource.
      * 
-     * @param datasetMetricsId the dataset metrics id
-     * @return list of edits
+     * @param view the view the cards belong to (RecommendationCard is an inner class)
+     * @param totalCards out param - set to the total number of cards across all pages
+     * @return the requested page of cards
      */
-    private List<Edit> findEditsByDatasetMetricsId(Long datasetMetricsId) {
+    private List<RecommendationCard> findRecommendationCards(
+            RecommendDetailView view,
+            Long datasetMetricsId,
+            int page,
+            int size,
+            long[] totalCards
+    ) {
         String sql = """
-            SELECT e.*, d.purl as datasource_purl
-            FROM edit e
-            INNER JOIN datasource d ON e.datasource_id = d.id
-            WHERE e.dataset_metrics_id = ?
+            WITH numbered AS (
+                SELECT e.id, e.before, e.after,
+                       COALESCE(e.avoids_vulnerabilities_rank, 0) AS avoids_vulnerabilities_rank,
+                       COALESCE(e.decrease_vulnerability_count_rank, 0) AS decrease_vulnerability_count_rank,
+                       COALESCE(e.decrease_backlog_rank, 0) AS decrease_backlog_rank,
+                       COALESCE(e.increase_impact_rank, 0) AS increase_impact_rank,
+                       d.purl AS datasource_purl,
+                       (row_number() OVER (PARTITION BY e.datasource_id ORDER BY e.id) - 1) / ? AS card_index
+                FROM edit e
+                INNER JOIN datasource d ON e.datasource_id = d.id
+                WHERE e.dataset_metrics_id = ?
+            )
+            SELECT datasource_purl,
+                   card_index,
+                   array_agg(before ORDER BY id) AS befores,
+                   array_agg(after ORDER BY id) AS afters,
+                   sum(avoids_vulnerabilities_rank) / count(*) AS avoids_vulnerabilities_score,
+                   sum(decrease_vulnerability_count_rank) / count(*) AS decrease_vulnerabilities_score,
+                   sum(decrease_backlog_rank) / count(*) AS decrease_backlog_score,
+                   sum(increase_impact_rank) / count(*) AS increase_impact_score,
+                   count(*) OVER () AS total_cards
+            FROM numbered
+            GROUP BY datasource_purl, card_index
+            ORDER BY datasource_purl, card_index
+            LIMIT ? OFFSET ?
             """;
-        
-        return jdbcTemplate.query(sql, new EditRowMapper(), datasetMetricsId);
+
+        var rv = jdbcTemplate.query(
+            sql, 
+            (rs, rowNum) -> {
+                totalCards[0] = rs.getLong("total_cards");
+
+                var datasourcePurl = rs.getString("datasource_purl");
+                var befores = (String[]) rs.getArray("befores").getArray();
+                var afters = (String[]) rs.getArray("afters").getArray();
+
+                var patches = new ArrayList<Pair<String, String>>(befores.length);
+                for (int i = 0; i < befores.length; i++) {
+                    patches.add(new Pair<>(befores[i], afters[i]));
+                }
+
+                var recCard = view.new RecommendationCard();
+                recCard.avoidsVulnerabilitiesScore = rs.getInt("avoids_vulnerabilities_score");
+                recCard.decreaseVulnerabilitiesScore = rs.getInt("decrease_vulnerabilities_score");
+                recCard.decreaseBacklogScore = rs.getInt("decrease_backlog_score");
+                recCard.increaseImpactScore = rs.getInt("increase_impact_score");
+                recCard.ticketText = getTicketText(datasourcePurl, patches);
+                recCard.patches = Map.of(datasourcePurl, patches);
+                return recCard;
+            },
+            CARD_SIZE,
+            datasetMetricsId,
+            size,
+            (long) page * size
+        );
+
+        // total_cards rides along on the rows, so a page past the last one has nothing to read it from
+        if (rv.isEmpty() && page > 0) {
+            totalCards[0] = jdbcTemplate.queryForObject(COUNT_CARDS_SQL, Long.class, CARD_SIZE, CARD_SIZE, datasetMetricsId);
+        }
+        return rv;
     }
 
+
     /**
-     * RowMapper to convert ResultSet to Edit entity
+     * full cards list their patches as "before --> after" bullets, the trailing partial card of a datasource uses
+     * the shorter form
      */
-    private static class EditRowMapper implements RowMapper<Edit> {
-        @Override
-        public Edit mapRow(ResultSet rs, int rowNum) throws SQLException {
-            Edit edit = new Edit();
-            edit.setId(rs.getLong("id"));
-            edit.setBefore(rs.getString("before"));
-            edit.setAfter(rs.getString("after"));
-            edit.setAvoidsVulnerabilitiesRank(rs.getInt("avoids_vulnerabilities_rank"));
-            edit.setDecreaseVulnerabilityCountRank(rs.getInt("decrease_vulnerability_count_rank"));
-            edit.setDecreaseBacklogRank(rs.getInt("decrease_backlog_rank"));
-            edit.setIncreaseImpactRank(rs.getInt("increase_impact_rank"));
-            
-            // Create a minimal Datasource object with just the purl
-            Datasource datasource = new Datasource();
-            datasource.setPurl(rs.getString("datasource_purl"));
-            edit.setDatasource(datasource);
-            
-            return edit;
+    private String getTicketText(String datasourcePurl, List<Pair<String, String>> patches) {
+        var ticketText = new StringBuilder("in git repository: ").append(datasourcePurl).append("\n");
+
+        if (patches.size() == CARD_SIZE) {
+            ticketText.append("\npatch the following: \n");
+            for (var patch : patches) {
+                ticketText.append("* ").append(patch.getLeft()).append(" --> ").append(patch.getRight()).append(" \n");
+            }
+            return ticketText.toString();
+        }
+
+        ticketText.append("patch the following: \n");
+        for (var patch : patches) {
+            ticketText.append("\n * ").append(patch.getLeft()).append(" ").append(patch.getRight());
         }
+        return ticketText.toString();
     }
 
+
     /**
      * Find dataset metrics by txid using JDBC (no dataset filter)
      * 
@@ -245,13 +308,13 @@ public class RecommendViewService {
      */
     private List<DatasetMetrics> findDatasetMetricsByTxid(UUID txid) {
         String sql = """
-            SELECT dm.*
+            SELECT dm.id, dm.recommendation_type, dm.recommendation_headline
             FROM dataset_metrics dm
             WHERE dm.txid = ?
             AND dm.is_forecast_recommendations_taken = true
             """;
         
-        return jdbcTemplate.query(sql, new DatasetMetricsRowMapper(), txid);
+        return jdbcTemplate.query(sql, new RecommendationRowMapper(), txid);
     }
 
     /**
@@ -263,7 +326,7 @@ public class RecommendViewService {
      */
     private List<DatasetMetrics> findDatasetMetricsByTxidAndDataset(UUID txid, String datasetName) {
         String sql = """
-            SELECT dm.*
+            SELECT dm.id, dm.recommendation_type, dm.recommendation_headline
             FROM dataset_metrics dm
             INNER JOIN dataset d ON dm.dataset_id = d.id
             WHERE dm.txid = ?
@@ -271,134 +334,24 @@ public class RecommendViewService {
             AND dm.is_forecast_recommendations_taken = true
             """;
         
-        return jdbcTemplate.query(sql, new DatasetMetricsRowMapper(), txid, datasetName);
+        return jdbcTemplate.query(sql, new RecommendationRowMapper(), txid, datasetName);
     }
 
     /**
-     * RowMapper to convert ResultSet to DatasetMetrics entity
+     * RowMapper to convert ResultSet to a DatasetMetrics entity carrying only what the recommendation views read
      */
-    private static class DatasetMetricsRowMapper implements RowMapper<DatasetMetrics> {
+    private static class RecommendationRowMapper implements RowMapper<DatasetMetrics> {
         @Override
         public DatasetMetrics mapRow(ResultSet rs, int rowNum) throws SQLException {
             DatasetMetrics dm = new DatasetMetrics();
             dm.setId(rs.getLong("id"));
-            dm.setDatasourceCount(rs.getLong("datasource_count"));
-            dm.setDatasourceEventCount(rs.getLong("datasource_event_count"));
-            
-            // Convert Timestamp to ZonedDateTime in UTC
-            var commitTimestamp = rs.getTimestamp("commit_date_time");
-            if (commitTimestamp != null) {
-                dm.setCommitDateTime(ZonedDateTime.ofInstant(
-                    commitTimestamp.toInstant(), 
-                    java.time.ZoneOffset.UTC
-                ));
-            }
-            
-            var eventTimestamp = rs.getTimestamp("event_date_time");
-            if (eventTimestamp != null) {
-                dm.setEventDateTime(ZonedDateTime.ofInstant(
-                    eventTimestamp.toInstant(), 
-                    java.time.ZoneOffset.UTC
-                ));
-            }
-            
-            var forecastTimestamp = rs.getTimestamp("forecast_maturity_date");
-            if (forecastTimestamp != null) {
-                dm.setForecastMaturityDate(ZonedDateTime.ofInstant(
-                    forecastTimestamp.toInstant(), 
-                    java.time.ZoneOffset.UTC
-                ));
-            }
-            
-            // Handle UUIDs
-            String txidStr = rs.getString("txid");
-            if (txidStr != null) {
-                dm.setTxid(UUID.fromString(txidStr));
-            }
-            
-            String jobIdStr = rs.getString("job_id");
-            if (jobIdStr != null) {
-                dm.setJobId(UUID.fromString(jobIdStr));
-            }
-            
-            dm.setCurrent(rs.getBoolean("is_current"));
-            dm.setForecastSameCourse(rs.getBoolean("is_forecast_same_course"));
-            dm.setForecastRecommendationsTaken(rs.getBoolean("is_forecast_recommendations_taken"));
-            
+
             String recTypeStr = rs.getString("recommendation_type");
             if (recTypeStr != null) {
                 dm.setRecommendationType(DatasetMetrics.RecommendationType.valueOf(recTypeStr));
             }
-            
+
             dm.setRecommendationHeadline(rs.getString("recommendation_headline"));
-            dm.setRpsScore(rs.getDouble("rps_score"));
-            
-            // Set all the findings fields
-            dm.setTotalFindings(rs.getLong("total_findings"));
-            dm.setCriticalFindings(rs.getLong("critical_findings"));
-            dm.setHighFindings(rs.getLong("high_findings"));
-            dm.setMediumFindings(rs.getLong("medium_findings"));
-            dm.setLowFindings(rs.getLong("low_findings"));
-            
-            dm.setFindingsAvoidedByPatchingPastYear(rs.getLong("findings_avoided_by_patching_past_year"));
-            dm.setCriticalFindingsAvoidedByPatchingPastYear(rs.getLong("critical_findings_avoided_by_patching_past_year"));
-            dm.setHighFindingsAvoidedByPatchingPastYear(rs.getLong("high_findings_avoided_by_patching_past_year"));
-            dm.setMediumFindingsAvoidedByPatchingPastYear(rs.getLong("medium_findings_avoided_by_patching_past_year"));
-            dm.setLowFindingsAvoidedByPatchingPastYear(rs.getLong("low_findings_avoided_by_patching_past_year"));
-            
-            // Backlog fields
-            dm.setFindingsInBacklogBetweenThirtyAndSixtyDays(rs.getDouble("findings_in_backlog_between_thirty_and_sixty_days"));
-            dm.setCriticalFindingsInBacklogBetweenThirtyAndSixtyDays(rs.getDouble("critical_findings_in_backlog_between_thirty_and_sixty_days"));
-            dm.setHighFindingsInBacklogBetweenThirtyAndSixtyDays(rs.getDouble("high_findings_in_backlog_between_thirty_and_sixty_days"));
-            dm.setMediumFindingsInBacklogBetweenThirtyAndSixtyDays(rs.getDouble("medium_findings_in_backlog_between_thirty_and_sixty_days"));
-            dm.setLowFindingsInBacklogBetweenThirtyAndSixtyDays(rs.getDouble("low_findings_in_backlog_between_thirty_and_sixty_days"));
-            
-            dm.setFindingsInBacklogBetweenSixtyAndNinetyDays(rs.getDouble("findings_in_backlog_between_sixty_and_ninety_days"));
-            dm.setCriticalFindingsInBacklogBetweenSixtyAndNinetyDays(rs.getDouble("critical_findings_in_backlog_between_sixty_and_ninety_days"));
-            dm.setHighFindingsInBacklogBetweenSixtyAndNinetyDays(rs.getDouble("high_findings_in_backlog_between_sixty_and_ninety_days"));
-            dm.setMediumFindingsInBacklogBetweenSixtyAndNinetyDays(rs.getDouble("medium_findings_in_backlog_between_sixty_and_ninety_days"));
-            dm.setLowFindingsInBacklogBetweenSixtyAndNinetyDays(rs.getDouble("low_findings_in_backlog_between_sixty_and_ninety_days"));
-            
-            dm.setFindingsInBacklogOverNinetyDays(rs.getDouble("findings_in_backlog_over_ninety_days"));
-            dm.setCriticalFindingsInBacklogOverNinetyDays(rs.getDouble("critical_findings_in_backlog_over_ninety_days"));
-            dm.setHighFindingsInBacklogOverNinetyDays(rs.getDouble("high_findings_in_backlog_over_ninety_days"));
-            dm.setMediumFindingsInBacklogOverNinetyDays(rs.getDouble("medium_findings_in_backlog_over_ninety_days"));
-            dm.setLowFindingsInBacklogOverNinetyDays(rs.getDouble("low_findings_in_backlog_over_ninety_days"));
-            
-            // Package fields
-            dm.setPackages(rs.getLong("packages"));
-            dm.setPackagesWithFindings(rs.getLong("packages_with_findings"));
-            dm.setPackagesWithCriticalFindings(rs.getLong("packages_with_critical_findings"));
-            dm.setPackagesWithHighFindings(rs.getLong("packages_with_high_findings"));
-            dm.setPackagesWithMediumFindings(rs.getLong("packages_with_medium_findings"));
-            dm.setPackagesWithLowFindings(rs.getLong("packages_with_low_findings"));
-            
-            // Downlevel packages
-            dm.setDownlevelPackages(rs.getLong("downlevel_packages"));
-            dm.setDownlevelPackagesMajor(rs.getLong("downlevel_packages_major"));
-            dm.setDownlevelPackagesMinor(rs.getLong("downlevel_packages_minor"));
-            dm.setDownlevelPackagesPatch(rs.getLong("downlevel_packages_patch"));
-            
-            // Stale packages
-            dm.setStalePackages(rs.getLong("stale_packages"));
-            dm.setStalePackagesSixMonths(rs.getLong("stale_packages_six_months"));
-            dm.setStalePackagesOneYear(rs.getLong("stale_packages_one_year"));
-            dm.setStalePackagesOneYearSixMonths(rs.getLong("stale_packages_one_year_six_months"));
-            dm.setStalePackagesTwoYears(rs.getLong("stale_packages_two_years"));
-            
-            // Patches
-            dm.setPatches(rs.getLong("patches"));
-            dm.setSamePatches(rs.getLong("same_patches"));
-            dm.setDifferentPatches(rs.getLong("different_patches"));
-            dm.setPatchFoxPatches(rs.getLong("patch_fox_patches"));
-            
-            dm.setPatchEfficacyScore(rs.getDouble("patch_efficacy_score"));
-            dm.setPatchImpact(rs.getDouble("patch_impact"));
-            dm.setPatchEffort(rs.getDouble("patch_effort"));
-            
-            // Note: edits and dataset relationships are lazy-loaded and won't be populated here
-            // If you need them, you'll need to fetch them separately
-            
             return dm;
         }
     }
@@ -1,6 +1,5 @@
 package io.patchfox.data_service.services;
 
-import java.net.URI;
 import java.time.ZonedDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -13,15 +12,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.stereotype.Component;
-import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import io.patchfox.data_service.components.EnvironmentComponent;
-import io.patchfox.package_utils.json.ApiRequest;
 import io.patchfox.package_utils.json.ApiResponse;
-import io.patchfox.package_utils.util.Pair;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -105,32 +101,6 @@ public class RestInfoService {
         return rv;
     }
 
-    /**
-     * 
-     * @param requestPair
-     * @return
-     */
-    public HandlerMethod getHandlerFor(Pair<ApiRequest.httpVerb, URI> requestPair) throws NullPointerException {
-        HandlerMethod rv = null;
-        log.debug("method is: {}", requestPair.getLeft());
-        log.debug("signature is: {}", requestPair.getRight());
-
-        for (var entry : handlerMapping.getHandlerMethods().entrySet()) {
-            var method = entry.getKey().getMethodsCondition().toString();
-            // because we get something like "[GET]" and we want just "GET"
-            method = trimMethod(method);
-            var httpMethod = HttpMethod.valueOf(method).toString();
-            log.debug("httpmethod is: {}", httpMethod);
-            log.debug("patternvalues is: {}", entry.getKey().getPatternValues());
-            if ( !requestPair.getLeft().toString().equals(httpMethod) ) { continue; }
-            if ( !entry.getKey().getPatternValues().contains(requestPair.getRight().toString()) ) { continue; }
-            rv = entry.getValue();
-        }    
-
-        if (rv == null) { throw new NullPointerException(); }
-        return rv;
-    }
-
     /**
      * 
      * @param method
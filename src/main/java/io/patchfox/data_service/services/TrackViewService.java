@@ -1,5 +1,7 @@
 package io.patchfox.data_service.services;
 
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
@@ -12,8 +14,11 @@ import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import io.patchfox.data_service.dto.DatasetMetricsSeries;
+import io.patchfox.data_service.dto.DatasetMetricsSeries.Column;
 import io.patchfox.data_service.json.TrackCveBacklogView;
 import io.patchfox.data_service.json.TrackCveSeverityView;
 import io.patchfox.data_service.json.TrackCvesAvoidedView;
@@ -22,8 +27,6 @@ import io.patchfox.data_service.json.TrackPesView;
 import io.patchfox.data_service.json.TrackDoubleView;
 import io.patchfox.data_service.json.TrackStalePackagesView;
 
-import io.patchfox.data_service.repositories.DatasetMetricsRepository;
-import io.patchfox.db_entities.entities.DatasetMetrics;
 import io.patchfox.package_utils.json.ApiResponse;
 import io.patchfox.package_utils.util.CvssSeverity;
 import lombok.extern.slf4j.Slf4j;
@@ -33,64 +36,80 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 @Slf4j
 public class TrackViewService {
- 
+
     @Autowired
-    DatasetMetricsRepository datasetMetricsRepository;
+    JdbcTemplate jdbcTemplate;
 
     public static String ISO_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
 
+    private static final String LATEST_COMMIT_DATE_TIME_SQL =
+        "SELECT max(commit_date_time) FROM dataset_metrics WHERE is_current = true";
+
+    private static final String HISTORY_SQL =
+        "SELECT " + DatasetMetricsSeries.SELECT_COLUMNS + " " +
+        "FROM dataset_metrics dm " +
+        "WHERE dm.is_current = true AND dm.commit_date_time > ? " +
+        "ORDER BY dm.commit_date_time ASC";
+
+    private static final String HISTORY_BY_DATASET_SQL =
+        "SELECT " + DatasetMetricsSeries.SELECT_COLUMNS + " " +
+        "FROM dataset_metrics dm " +
+        "JOIN dataset d ON dm.dataset_id = d.id " +
+        "WHERE dm.is_current = true AND dm.commit_date_time > ? AND d.name = ? " +
+        "ORDER BY dm.commit_date_time ASC";
+
+    // one range scan for every requested dataset, partitioned by dataset_id so rows for a dataset arrive together
+    private static final String HISTORY_BY_DATASETS_SQL =
+        "SELECT " + DatasetMetricsSeries.SELECT_COLUMNS + ", d.name AS dataset_name " +
+        "FROM dataset_metrics dm " +
+        "JOIN dataset d ON dm.dataset_id = d.id " +
+        "WHERE dm.is_current = true AND dm.commit_date_time > ? AND d.name = ANY(?) " +
+        "ORDER BY dm.dataset_id ASC, dm.commit_date_time ASC";
+
     public ApiResponse getTrackView(
-            UUID txid, 
-            ZonedDateTime requestReceivedAt, 
+            UUID txid,
+            ZonedDateTime requestReceivedAt,
             Optional<Boolean> synopsisOptional,
             Optional<String> dataset
     ) {
         var synopsisFlag = synopsisOptional.isPresent() ? synopsisOptional.get() : true;
         var rv = new HashMap<String, Object>();
 
-        var latestDatasetMetricsRecordOptional = 
-            datasetMetricsRepository.findFirstByIsCurrentOrderByCommitDateTimeDesc(true);
+        var latestCommitDateTimeOptional = getLatestCommitDateTime();
 
-        if (latestDatasetMetricsRecordOptional.isPresent()) {
-            var latestDatasetMetricsRecord = latestDatasetMetricsRecordOptional.get();
-            log.info("latestDatasetMetricsRecord id is: {}", latestDatasetMetricsRecord.getId());
+        if (latestCommitDateTimeOptional.isPresent()) {
+            var commitDateTime = latestCommitDateTimeOptional.get();
+            log.info("latest is_current commitDateTime is: {}", commitDateTime);
 
-            var commitDateTime = latestDatasetMetricsRecord.getCommitDateTime();
             var threeMonthsPriorToCommitDateTime = commitDateTime.minusMonths(3);
             log.info("threeMonthsPriorCommit datetime is: {}", threeMonthsPriorToCommitDateTime);
 
-            var historicalDatasetMetricsRecordsAsc = 
-                datasetMetricsRepository.findByIsCurrentAndCommitDateTimeAfterOrderByCommitDateTimeAsc(
-                    true,
-                    threeMonthsPriorToCommitDateTime
-                );
-
-            if (dataset.isPresent()) {
-                historicalDatasetMetricsRecordsAsc = filterByDataset(historicalDatasetMetricsRecordsAsc, dataset.get());
-
-                // no records present for requested dataset
-                if (historicalDatasetMetricsRecordsAsc.isEmpty()) {
-                    return ApiResponse.builder()
-                                      .requestReceivedAt(requestReceivedAt)
-                                      .txid(txid)
-                                      .code(HttpStatus.NOT_FOUND.value())
-                                      .serverMessage("unknown dataset")
-                                      .build();
-                }
+            var history = getHistory(threeMonthsPriorToCommitDateTime, dataset);
+
+            // no records present for requested dataset
+            if (dataset.isPresent() && history.isEmpty()) {
+                return ApiResponse.builder()
+                                  .requestReceivedAt(requestReceivedAt)
+                                  .txid(txid)
+                                  .code(HttpStatus.NOT_FOUND.value())
+                                  .serverMessage("unknown dataset")
+                                  .build();
+            }
+
+            if (synopsisFlag) {
+                var removed = history.applySynopsis();
+                log.info("synopsis filtered: {} datapoints leaving: {}", removed, history.getSize());
             }
 
-            historicalDatasetMetricsRecordsAsc = applySynopsisCondition(synopsisFlag, historicalDatasetMetricsRecordsAsc);
             rv.put("latestCommitDateTime", commitDateTime.format(DateTimeFormatter.ofPattern(ISO_FORMAT)));
 
             rv.put(
-                "historicalCommitDateTime", 
-                historicalDatasetMetricsRecordsAsc.get(0)
-                                                  .getCommitDateTime()
-                                                  .format(DateTimeFormatter.ofPattern(ISO_FORMAT))
+                "historicalCommitDateTime",
+                history.getCommitDateTime(0).format(DateTimeFormatter.ofPattern(ISO_FORMAT))
             );
 
-            // eject with empty reponse if there's not enough data to do what we need to do. 
-            if (historicalDatasetMetricsRecordsAsc.size() < 2) {
+            // eject with empty reponse if there's not enough data to do what we need to do.
+            if (history.getSize() < 2) {
                 return ApiResponse.builder()
                                   .requestReceivedAt(requestReceivedAt)
                                   .txid(txid)
@@ -100,19 +119,7 @@ public class TrackViewService {
                                   .build();
             }
 
-            rv.put("cvesAvoided", getTrackCvesAvoidedView(historicalDatasetMetricsRecordsAsc));
-    
-            rv.put("cveSeverity", getTrackCveSeverityView(historicalDatasetMetricsRecordsAsc));
-    
-            rv.put("cveBacklog", getTrackCveBacklogView(historicalDatasetMetricsRecordsAsc));
-    
-            rv.put("stalePackages", getTrackStalePackagesView(historicalDatasetMetricsRecordsAsc));
-    
-            rv.put("downLevelPackages", getTrackDownlevelPackagesView(historicalDatasetMetricsRecordsAsc));
-    
-            rv.put("pes", getTrackPesView(historicalDatasetMetricsRecordsAsc));
-    
-            rv.put("rps", getTrackRpsView(historicalDatasetMetricsRecordsAsc));
+            rv.putAll(getTrackCards(history));
         }
 
         return ApiResponse.builder()
@@ -125,615 +132,434 @@ public class TrackViewService {
 
 
     /**
-     * Filter dataset metrics by dataset name, preserving order
-     * 
-     * @param metrics the list of dataset metrics to filter
-     * @param datasetName the name of the dataset to filter by
-     * @return filtered list maintaining original order
+     * Track view for several datasets at once. History for every requested dataset is fetched in one query and
+     * the cards for each dataset are computed concurrently.
+     *
+     * @param datasets distinct, already validated dataset names
+     * @return data map holding "latestCommitDateTime", "datasets" (dataset name -> track view) and
+     *         "unknownDatasets" (requested names with no records in the window)
      */
-    private List<DatasetMetrics> filterByDataset(List<DatasetMetrics> metrics, String datasetName) {
-        return metrics.stream()
-                      .filter(dm -> dm.getDataset() != null && datasetName.equals(dm.getDataset().getName()))
-                      .collect(Collectors.toList());
-    }
+    public ApiResponse getTrackViewForDatasets(
+            UUID txid,
+            ZonedDateTime requestReceivedAt,
+            Optional<Boolean> synopsisOptional,
+            List<String> datasets
+    ) {
+        var synopsisFlag = synopsisOptional.isPresent() ? synopsisOptional.get() : true;
+        var rv = new HashMap<String, Object>();
 
+        var latestCommitDateTimeOptional = getLatestCommitDateTime();
+        if (latestCommitDateTimeOptional.isEmpty()) {
+            rv.put("datasets", Map.of());
+            rv.put("unknownDatasets", datasets);
+            return ApiResponse.builder()
+                              .requestReceivedAt(requestReceivedAt)
+                              .txid(txid)
+                              .code(HttpStatus.OK.value())
+                              .data(rv)
+                              .build();
+        }
 
-    /**
-     * if synopsisFlag, method returns a view of argument series with only one datapoint per calendar day 
-     */
-    public List<DatasetMetrics> applySynopsisCondition(boolean synopsisFlag, List<DatasetMetrics> series) {
+        var commitDateTime = latestCommitDateTimeOptional.get();
+        var threeMonthsPriorToCommitDateTime = commitDateTime.minusMonths(3);
+        log.info("threeMonthsPriorCommit datetime is: {}", threeMonthsPriorToCommitDateTime);
 
-        if (!synopsisFlag) { return series; }
+        var histories = getHistories(threeMonthsPriorToCommitDateTime, datasets);
 
-        Map<String, List<DatasetMetrics>> bucketedByDate = 
-            series.stream()
-                .collect(
-                    Collectors.groupingBy(
-                        x -> x.getCommitDateTime()
-                              .format(DateTimeFormatter.ofPattern("MM_dd_yyyy")
-                    )
-                )
-            );
+        var views = histories.entrySet()
+                             .parallelStream()
+                             .collect(
+                                Collectors.toMap(
+                                    Map.Entry::getKey,
+                                    e -> getDatasetTrackView(e.getValue(), synopsisFlag)
+                                )
+                             );
 
-        log.debug("bucketedByDate is: {}", bucketedByDate);
-        var rv = new ArrayList<DatasetMetrics>();
-        for (var entrySet : bucketedByDate.entrySet()) {
-            var numberOfDatapoints = entrySet.getValue().size();
-            if (numberOfDatapoints < 2) { 
-                rv.add(entrySet.getValue().getFirst());
-                continue; 
-            }
-            log.info("filtering: {} of {} datapoints for date: {}", numberOfDatapoints - 1, numberOfDatapoints, entrySet.getKey());
-            rv.add(entrySet.getValue().getLast());
-        }
+        var unknownDatasets = datasets.stream().filter(d -> !histories.containsKey(d)).toList();
 
-        rv.sort((x1, x2) -> x1.getCommitDateTime().compareTo(x2.getCommitDateTime()));
-        return rv;
-    }
+        rv.put("latestCommitDateTime", commitDateTime.format(DateTimeFormatter.ofPattern(ISO_FORMAT)));
+        rv.put("datasets", views);
+        rv.put("unknownDatasets", unknownDatasets);
 
-
-    /**
-     * 
-     * @return
-     */
-    //
-    // TODO update card to be in alignment with current production ones 
-    //
-    //
-    //    
-    public TrackCvesAvoidedView getTrackCvesAvoidedView(List<DatasetMetrics> historicalDatasetMetricsRecordsAsc) {
-        var historicalRecord = historicalDatasetMetricsRecordsAsc.get(0);
-        var currentRecord = historicalDatasetMetricsRecordsAsc.getLast();
-        var rv = new TrackCvesAvoidedView();
-        rv.setName("CVEs avoided");
-        return rv;
+        return ApiResponse.builder()
+                          .requestReceivedAt(requestReceivedAt)
+                          .txid(txid)
+                          .code(HttpStatus.OK.value())
+                          .data(rv)
+                          .build();
     }
 
 
     /**
-     * 
-     * @return
+     * track view for a single dataset's history - the per dataset equivalent of what getTrackView puts in its data map
      */
-    public TrackCveSeverityView getTrackCveSeverityView(List<DatasetMetrics> historicalDatasetMetricsRecordsAsc) {
-        var rv = new TrackCveSeverityView();
-        rv.setName("CVE Severity");
-
-        if (historicalDatasetMetricsRecordsAsc.isEmpty()) { 
-            log.warn("no historical data found - returning empty payload");
-            return rv; 
-        }
-
-        var series = historicalDatasetMetricsRecordsAsc.stream().map(hsdsm -> cveSeverityViewHelper(hsdsm)).toList();
-        rv.setSeries(series);
-        rv.setCurrent(series.getLast());
+    private Map<String, Object> getDatasetTrackView(DatasetMetricsSeries history, boolean synopsisFlag) {
+        if (synopsisFlag) { history.applySynopsis(); }
 
-        var prior = series.size() < 2 ? series.getLast() : series.get(series.size() - 2);
-        rv.setPrior(prior);
-
-        rv.setHistorical(series.getFirst());
-
-        var currentRecord = historicalDatasetMetricsRecordsAsc.getLast();
-        var priorRecord = historicalDatasetMetricsRecordsAsc.get(historicalDatasetMetricsRecordsAsc.size() - 2);
-        var historicalRecord = historicalDatasetMetricsRecordsAsc.getFirst();
-
-
-
-        //
-        var currentTotal = 
-            currentRecord.getCriticalFindings()
-            + currentRecord.getHighFindings()
-            + currentRecord.getMediumFindings()
-            + currentRecord.getLowFindings();
-
-        var priorTotal = 
-            priorRecord.getCriticalFindings()
-            + priorRecord.getHighFindings()
-            + priorRecord.getMediumFindings()
-            + priorRecord.getLowFindings();
-        
-        var historicalTotal = 
-            historicalRecord.getCriticalFindings()
-            + historicalRecord.getHighFindings()
-            + historicalRecord.getMediumFindings()
-            + historicalRecord.getLowFindings();       
-
-        var percentChangePrior = calculatePercentageDifference(currentTotal, priorTotal);
-        //(double)(currentTotal - priorTotal) / currentTotal;
-        percentChangePrior = percentChangePrior == 0 ? percentChangePrior *= -1 : percentChangePrior;
-        rv.setPercentChangePrior(doubleHelper(percentChangePrior));
-
-        var positiveImpactPrior = percentChangePrior > 0 ? false : true;
-        rv.setPositiveImpactPrior(positiveImpactPrior);
-
-        var trendingUpPrior = !positiveImpactPrior;
-        rv.setTrendingUpPrior(trendingUpPrior);
-
-        var percentChangeHistorical = calculatePercentageDifference(currentTotal, historicalTotal);
-        //(double)(currentTotal - historicalTotal) / currentTotal;
-        percentChangeHistorical = percentChangeHistorical == 0 ? percentChangeHistorical *= -1 : percentChangeHistorical;
-        rv.setPercentChangeHistorical(doubleHelper(percentChangeHistorical));
-
-        var positiveImpactHistorical = percentChangeHistorical > 0 ? false : true;
-        rv.setPositiveImpactHistorical(positiveImpactHistorical);
+        var rv = new HashMap<String, Object>();
+        rv.put(
+            "historicalCommitDateTime",
+            history.getCommitDateTime(0).format(DateTimeFormatter.ofPattern(ISO_FORMAT))
+        );
 
-        var trendingUpHistorical = !positiveImpactHistorical;
-        rv.setTrendingUpHistorical(trendingUpHistorical);
+        if (history.getSize() < 2) {
+            rv.put("serverMessage", "not enough historical data to render track data");
+            return rv;
+        }
 
+        rv.putAll(getTrackCards(history));
         return rv;
     }
 
 
     /**
-     * 
-     * @param record
-     * @return
+     * commitDateTime of the most recent is_current DatasetMetrics record across all datasets
      */
-    public TrackCveSeverityView.Value cveSeverityViewHelper(DatasetMetrics record) {
-        var name = record.getCommitDateTime().toString();
-
-        var value = List.of(
-            new TrackDoubleView.Value(
-                CvssSeverity.CRITICAL.toString(), 
-                record.getCriticalFindings(),
-                ""
-            ),        
-            new TrackDoubleView.Value(
-                CvssSeverity.HIGH.toString(), 
-                record.getHighFindings(),
-                ""
-            ), 
-            new TrackDoubleView.Value(
-                CvssSeverity.MEDIUM.toString(), 
-                record.getMediumFindings(),
-                ""
-            ), 
-            new TrackDoubleView.Value(
-                CvssSeverity.LOW.toString(), 
-                record.getLowFindings(),
-                ""
-            )
+    private Optional<ZonedDateTime> getLatestCommitDateTime() {
+        var rv = jdbcTemplate.query(
+            LATEST_COMMIT_DATE_TIME_SQL,
+            (rs, rowNum) -> rs.getObject(1, OffsetDateTime.class)
         );
 
-        return new TrackCveSeverityView.Value(name, value, "");
-
+        if (rv.isEmpty() || rv.getFirst() == null) { return Optional.empty(); }
+        return Optional.of(rv.getFirst().atZoneSameInstant(ZoneOffset.UTC));
     }
 
 
-
     /**
-     * 
-     * @return
+     * loads the is_current history after argument datetime, optionally restricted to a single dataset,
+     * straight into a columnar series in ascending commit order
      */
-    public TrackCveBacklogView getTrackCveBacklogView(List<DatasetMetrics> historicalDatasetMetricsRecordsAsc) {
-        var rv = new TrackCveBacklogView();
-        rv.setName("CVE Backlog");
+    private DatasetMetricsSeries getHistory(ZonedDateTime after, Optional<String> dataset) {
+        var rv = new DatasetMetricsSeries();
+        var afterArg = after.toOffsetDateTime();
 
-        if (historicalDatasetMetricsRecordsAsc.isEmpty()) { 
-            log.warn("no historical data found - returning empty payload");
-            return rv; 
+        if (dataset.isPresent()) {
+            jdbcTemplate.query(HISTORY_BY_DATASET_SQL, rs -> { rv.append(rs); }, afterArg, dataset.get());
+        } else {
+            jdbcTemplate.query(HISTORY_SQL, rs -> { rv.append(rs); }, afterArg);
         }
 
-        var series = historicalDatasetMetricsRecordsAsc.stream().map(hsdsr -> cveBacklogViewHelper(hsdsr)).toList();
-        rv.setSeries(series);
-        rv.setCurrent(series.getLast());
-        var prior = series.size() == 1 ? series.getLast() : series.get(series.size() - 2);
-        rv.setPrior(prior);
-        rv.setHistorical(series.getFirst());
-
-
-        //
-        var currentRecord = historicalDatasetMetricsRecordsAsc.getLast();
-        var currentBacklogTotal = 
-            currentRecord.getFindingsInBacklogBetweenThirtyAndSixtyDays()
-            + currentRecord.getFindingsInBacklogBetweenSixtyAndNinetyDays()
-            + currentRecord.getFindingsInBacklogOverNinetyDays();
-
-            
-        var priorRecord = historicalDatasetMetricsRecordsAsc.size() == 1 
-                                ? historicalDatasetMetricsRecordsAsc.getLast()
-                                : historicalDatasetMetricsRecordsAsc.get(historicalDatasetMetricsRecordsAsc.size() - 2);
-
-        var priorBacklogTotal = 
-            priorRecord.getFindingsInBacklogBetweenThirtyAndSixtyDays()
-            + priorRecord.getFindingsInBacklogBetweenSixtyAndNinetyDays()
-            + priorRecord.getFindingsInBacklogOverNinetyDays();
-        
-
-        var historicalRecord = historicalDatasetMetricsRecordsAsc.getFirst();
-        var historicalBacklogTotal = 
-            historicalRecord.getFindingsInBacklogBetweenThirtyAndSixtyDays()
-            + historicalRecord.getFindingsInBacklogBetweenSixtyAndNinetyDays()
-            + historicalRecord.getFindingsInBacklogOverNinetyDays();        
-
-        var percentChangePrior = calculatePercentageDifference(currentBacklogTotal, priorBacklogTotal);
-        //(double)(currentBacklogTotal - priorBacklogTotal) / Math.abs(currentBacklogTotal);
-        //percentChangePrior = priorBacklogTotal == 0 ? percentChangePrior *= -1 : percentChangePrior;
-        rv.setPercentChangePrior(doubleHelper(percentChangePrior));
-
-        var positiveImpactPrior = percentChangePrior > 0 ? false : true;
-        rv.setPositiveImpactPrior(positiveImpactPrior);
-
-        var trendingUpPrior = !positiveImpactPrior;
-        rv.setTrendingUpPrior(trendingUpPrior);
-
-        var percentChangeHistorical = calculatePercentageDifference(currentBacklogTotal, historicalBacklogTotal);
-        //(double)(currentBacklogTotal - historicalBacklogTotal) / Math.abs(currentBacklogTotal);
-        //percentChangeHistorical = historicalBacklogTotal == 0 ? percentChangeHistorical *= -1 : percentChangeHistorical;
-        rv.setPercentChangeHistorical(doubleHelper(percentChangeHistorical));
-
-        var positiveImpactHistorical = percentChangeHistorical > 0 ? false : true;
-        rv.setPositiveImpactHistorical(positiveImpactHistorical);
-
-        var trendingUpHistorical = !positiveImpactHistorical;
-        rv.setTrendingUpHistorical(trendingUpHistorical);
-
+        log.info("loaded {} historical datapoints", rv.getSize());
         return rv;
     }
 
 
     /**
-     * 
-     * @param record
-     * @return
+     * loads the is_current history after argument datetime for every argument dataset in one query, splitting the
+     * dataset_id partitioned rows into one columnar series per dataset. datasets without records are absent.
      */
-    public TrackCveBacklogView.Value cveBacklogViewHelper(DatasetMetrics record) {
-        var currentThirty = List.of(
-            new TrackDoubleView.Value(
-                CvssSeverity.CRITICAL.toString(), 
-                record.getCriticalFindingsInBacklogBetweenThirtyAndSixtyDays(),
-                ""
-            ),        
-            new TrackDoubleView.Value(
-                CvssSeverity.HIGH.toString(), 
-                record.getHighFindingsInBacklogBetweenThirtyAndSixtyDays(),
-                ""
-            ), 
-            new TrackDoubleView.Value(
-                CvssSeverity.MEDIUM.toString(), 
-                record.getMediumFindingsInBacklogBetweenThirtyAndSixtyDays(),
-                ""
-            ), 
-            new TrackDoubleView.Value(
-                CvssSeverity.LOW.toString(), 
-                record.getLowFindingsInBacklogBetweenThirtyAndSixtyDays(),
-                ""
-            )
+    private Map<String, DatasetMetricsSeries> getHistories(ZonedDateTime after, List<String> datasets) {
+        var rv = new HashMap<String, DatasetMetricsSeries>();
+
+        jdbcTemplate.query(
+            HISTORY_BY_DATASETS_SQL,
+            ps -> {
+                ps.setObject(1, after.toOffsetDateTime());
+                ps.setArray(2, ps.getConnection().createArrayOf("text", datasets.toArray()));
+            },
+            rs -> {
+                var datasetName = rs.getString("dataset_name");
+                rv.computeIfAbsent(datasetName, k -> new DatasetMetricsSeries()).append(rs);
+            }
         );
 
-        var currentSixty = List.of(
-            new TrackDoubleView.Value(
-                CvssSeverity.CRITICAL.toString(), 
-                record.getCriticalFindingsInBacklogBetweenSixtyAndNinetyDays(),
-                ""
-            ),        
-            new TrackDoubleView.Value(
-                CvssSeverity.HIGH.toString(), 
-                record.getHighFindingsInBacklogBetweenSixtyAndNinetyDays(),
-                ""
-            ), 
-            new TrackDoubleView.Value(
-                CvssSeverity.MEDIUM.toString(), 
-                record.getMediumFindingsInBacklogBetweenSixtyAndNinetyDays(),
-                ""
-            ), 
-            new TrackDoubleView.Value(
-                CvssSeverity.LOW.toString(), 
-                record.getLowFindingsInBacklogBetweenSixtyAndNinetyDays(),
-                ""
-            )
-        );
+        log.info("loaded historical datapoints for {} of {} datasets", rv.size(), datasets.size());
+        return rv;
+    }
 
-        var currentNinety = List.of(
-            new TrackDoubleView.Value(
-                CvssSeverity.CRITICAL.toString(), 
-                record.getCriticalFindingsInBacklogOverNinetyDays(),
-                ""
-            ),        
-            new TrackDoubleView.Value(
-                CvssSeverity.HIGH.toString(), 
-                record.getHighFindingsInBacklogOverNinetyDays(),
-                ""
-            ), 
-            new TrackDoubleView.Value(
-                CvssSeverity.MEDIUM.toString(), 
-                record.getMediumFindingsInBacklogOverNinetyDays(),
-                ""
-            ), 
-            new TrackDoubleView.Value(
-                CvssSeverity.LOW.toString(), 
-                record.getLowFindingsInBacklogOverNinetyDays(),
-                ""
-            )
-        ); 
-
-        var name = record.getCommitDateTime().toString();
-
-        var value = Map.of(
-            "betweenThirtyAndSixtyDays", currentThirty,
-            "betweenSixtyAndNinetyDays", currentSixty,
-            "ninetyDaysPlus", currentNinety
-        );
 
-        return new TrackCveBacklogView.Value(name, value, "");
+    /**
+     * Computes every track card from argument history. All series are built in a single pass over the
+     * columns and share the timestamp labels formatted when the history was loaded.
+     *
+     * @param history at least two datapoints in ascending commit order
+     * @return card name -> card view
+     */
+    public Map<String, Object> getTrackCards(DatasetMetricsSeries history) {
+        var size = history.getSize();
+
+        var critical = history.column(Column.CRITICAL_FINDINGS);
+        var high = history.column(Column.HIGH_FINDINGS);
+        var medium = history.column(Column.MEDIUM_FINDINGS);
+        var low = history.column(Column.LOW_FINDINGS);
+
+        var criticalThirty = history.column(Column.CRITICAL_FINDINGS_IN_BACKLOG_THIRTY_TO_SIXTY);
+        var highThirty = history.column(Column.HIGH_FINDINGS_IN_BACKLOG_THIRTY_TO_SIXTY);
+        var mediumThirty = history.column(Column.MEDIUM_FINDINGS_IN_BACKLOG_THIRTY_TO_SIXTY);
+        var lowThirty = history.column(Column.LOW_FINDINGS_IN_BACKLOG_THIRTY_TO_SIXTY);
+
+        var criticalSixty = history.column(Column.CRITICAL_FINDINGS_IN_BACKLOG_SIXTY_TO_NINETY);
+        var highSixty = history.column(Column.HIGH_FINDINGS_IN_BACKLOG_SIXTY_TO_NINETY);
+        var mediumSixty = history.column(Column.MEDIUM_FINDINGS_IN_BACKLOG_SIXTY_TO_NINETY);
+        var lowSixty = history.column(Column.LOW_FINDINGS_IN_BACKLOG_SIXTY_TO_NINETY);
+
+        var criticalNinety = history.column(Column.CRITICAL_FINDINGS_IN_BACKLOG_OVER_NINETY);
+        var highNinety = history.column(Column.HIGH_FINDINGS_IN_BACKLOG_OVER_NINETY);
+        var mediumNinety = history.column(Column.MEDIUM_FINDINGS_IN_BACKLOG_OVER_NINETY);
+        var lowNinety = history.column(Column.LOW_FINDINGS_IN_BACKLOG_OVER_NINETY);
+
+        var stale = history.column(Column.STALE_PACKAGES);
+        var staleSixMonths = history.column(Column.STALE_PACKAGES_SIX_MONTHS);
+        var staleOneYear = history.column(Column.STALE_PACKAGES_ONE_YEAR);
+        var staleOneYearSixMonths = history.column(Column.STALE_PACKAGES_ONE_YEAR_SIX_MONTHS);
+        var staleTwoYears = history.column(Column.STALE_PACKAGES_TWO_YEARS);
+
+        var downlevel = history.column(Column.DOWNLEVEL_PACKAGES);
+        var downlevelMajor = history.column(Column.DOWNLEVEL_PACKAGES_MAJOR);
+        var downlevelMinor = history.column(Column.DOWNLEVEL_PACKAGES_MINOR);
+        var downlevelPatch = history.column(Column.DOWNLEVEL_PACKAGES_PATCH);
+
+        var pes = history.column(Column.PATCH_EFFICACY_SCORE);
+        var impact = history.column(Column.PATCH_IMPACT);
+        var effort = history.column(Column.PATCH_EFFORT);
+        var rps = history.column(Column.RPS_SCORE);
+
+        var severitySeries = new ArrayList<TrackCveSeverityView.Value>(size);
+        var backlogSeries = new ArrayList<TrackCveBacklogView.Value>(size);
+        var staleSeries = new ArrayList<TrackStalePackagesView.Value>(size);
+        var downlevelSeries = new ArrayList<TrackStalePackagesView.Value>(size);
+        var pesSeries = new ArrayList<TrackDoubleView.Value>(size);
+        var impactSeries = new ArrayList<TrackDoubleView.Value>(size);
+        var effortSeries = new ArrayList<TrackDoubleView.Value>(size);
+        var rpsSeries = new ArrayList<TrackDoubleView.Value>(size);
+
+        for (int i = 0; i < size; i++) {
+            var label = history.getLabel(i);
+
+            severitySeries.add(
+                new TrackCveSeverityView.Value(
+                    label,
+                    severityValues(critical[i], high[i], medium[i], low[i]),
+                    ""
+                )
+            );
 
-    }
+            backlogSeries.add(
+                new TrackCveBacklogView.Value(
+                    label,
+                    Map.of(
+                        "betweenThirtyAndSixtyDays", severityValues(criticalThirty[i], highThirty[i], mediumThirty[i], lowThirty[i]),
+                        "betweenSixtyAndNinetyDays", severityValues(criticalSixty[i], highSixty[i], mediumSixty[i], lowSixty[i]),
+                        "ninetyDaysPlus", severityValues(criticalNinety[i], highNinety[i], mediumNinety[i], lowNinety[i])
+                    ),
+                    ""
+                )
+            );
 
+            staleSeries.add(
+                new TrackStalePackagesView.Value(
+                    label,
+                    Map.of(
+                        "totalStalePackages", new TrackDoubleView.Value("Total Stale Packages", stale[i], ""),
+                        "sixMonthStalePackages", new TrackDoubleView.Value("Stale Packages Six Months", staleSixMonths[i], ""),
+                        "oneYearStalePackages", new TrackDoubleView.Value("Stale Packages One Year", staleOneYear[i], ""),
+                        "oneYearSixMonthsStalePackages", new TrackDoubleView.Value("Stale Packages One Year Six Months", staleOneYearSixMonths[i], ""),
+                        "twoYearStalePackages", new TrackDoubleView.Value("Stale Packages Two Years", staleTwoYears[i], "")
+                    ),
+                    ""
+                )
+            );
 
-    /**
-     * 
-     * @return
-     */  
-    public TrackStalePackagesView getTrackStalePackagesView(List<DatasetMetrics> historicalDatasetMetricsRecordsAsc) {
-        var historicalRecord = historicalDatasetMetricsRecordsAsc.get(0);
-        var currentRecord = historicalDatasetMetricsRecordsAsc.getLast();      
-        var priorRecord = historicalDatasetMetricsRecordsAsc.get(historicalDatasetMetricsRecordsAsc.size() - 2); 
-        
-        var rv = new TrackStalePackagesView();
-        rv.setName("Stale Packages");
-
-        List<TrackStalePackagesView.Value> series = new ArrayList<>();
-        for (var hdsm : historicalDatasetMetricsRecordsAsc) {
-            var seriesValue = new TrackStalePackagesView.Value(
-                hdsm.getCommitDateTime().toString(), 
-                Map.of(
-                    "totalStalePackages", new TrackDoubleView.Value("Total Stale Packages", (double)hdsm.getStalePackages(), ""),
-                    "sixMonthStalePackages", new TrackDoubleView.Value("Stale Packages Six Months", (double)hdsm.getStalePackagesSixMonths(), ""),
-                    "oneYearStalePackages", new TrackDoubleView.Value("Stale Packages One Year", (double)hdsm.getStalePackagesOneYear(), ""),
-                    "oneYearSixMonthsStalePackages", new TrackDoubleView.Value("Stale Packages One Year Six Months", (double)hdsm.getStalePackagesOneYearSixMonths(), ""),
-                    "twoYearStalePackages", new TrackDoubleView.Value("Stale Packages Two Years", (double)hdsm.getStalePackagesTwoYears(), "")
-                ), 
-                ""
+            downlevelSeries.add(
+                new TrackStalePackagesView.Value(
+                    label,
+                    Map.of(
+                        "totalDownlevelPackages", new TrackDoubleView.Value("Total Downlevel Packages", downlevel[i], ""),
+                        "majorDownlevelPackages", new TrackDoubleView.Value("Major Downlevel Packages", downlevelMajor[i], ""),
+                        "minorDownlevelPackages", new TrackDoubleView.Value("Minor Downlevel Packages", downlevelMinor[i], ""),
+                        "patchDownlevelPackages", new TrackDoubleView.Value("Patch Downlevel Packages", downlevelPatch[i], "")
+                    ),
+                    ""
+                )
             );
 
-            series.add(seriesValue);
+            pesSeries.add(new TrackDoubleView.Value(label, pes[i], ""));
+            impactSeries.add(new TrackDoubleView.Value(label, impact[i], ""));
+            effortSeries.add(new TrackDoubleView.Value(label, effort[i], ""));
+            rpsSeries.add(new TrackDoubleView.Value(label, rps[i], ""));
         }
 
-        rv.setSeries(series);
-        rv.setCurrent(series.getLast());
-        rv.setPrior(series.get(series.size() - 2));
-        rv.setHistorical(series.get(0));
+        var current = size - 1;
+        var prior = size - 2;
+        var historical = 0;
 
-        // var percentChangedPrior = 
-        //     (double)currentRecord.getStalePackages() / 
-        //         (double)(currentRecord.getStalePackages() - priorRecord.getStalePackages()) * 100;
-        
-        var percentChangedPrior = calculatePercentageDifference(currentRecord.getStalePackages(), priorRecord.getStalePackages());
-        percentChangedPrior = doubleHelper(percentChangedPrior);        
+        var rv = new HashMap<String, Object>();
 
-        rv.setPercentChangePrior(percentChangedPrior);
-        rv.setPositiveImpactPrior(percentChangedPrior <= 0);
-        rv.setTrendingUpPrior(percentChangedPrior > 0);
+        //
+        // TODO update card to be in alignment with current production ones
+        //
+        var cvesAvoidedView = new TrackCvesAvoidedView();
+        cvesAvoidedView.setName("CVEs avoided");
+        rv.put("cvesAvoided", cvesAvoidedView);
 
-        // var percentChangedHistorical = 
-        //     (double)currentRecord.getStalePackages() / 
-        //         (double)(currentRecord.getStalePackages() - historicalRecord.getStalePackages()) * 100;
-        
-        var percentChangedHistorical = calculatePercentageDifference(currentRecord.getStalePackages(), historicalRecord.getStalePackages());
-        percentChangedHistorical = doubleHelper(percentChangedHistorical);        
+        //
+        var severityView = new TrackCveSeverityView();
+        severityView.setName("CVE Severity");
+        severityView.setSeries(severitySeries);
+        severityView.setCurrent(severitySeries.get(current));
+        severityView.setPrior(severitySeries.get(prior));
+        severityView.setHistorical(severitySeries.get(historical));
 
-        rv.setPercentChangeHistorical(percentChangedHistorical);
-        rv.setPositiveImpactHistorical(percentChangedHistorical <= 0);
-        rv.setTrendingUpHistorical(percentChangedHistorical > 0);
+        var currentTotal = critical[current] + high[current] + medium[current] + low[current];
+        var priorTotal = critical[prior] + high[prior] + medium[prior] + low[prior];
+        var historicalTotal = critical[historical] + high[historical] + medium[historical] + low[historical];
+
+        var percentChangePrior = calculatePercentageDifference(currentTotal, priorTotal);
+        percentChangePrior = percentChangePrior == 0 ? percentChangePrior *= -1 : percentChangePrior;
+        severityView.setPercentChangePrior(doubleHelper(percentChangePrior));
+        severityView.setPositiveImpactPrior(!(percentChangePrior > 0));
+        severityView.setTrendingUpPrior(percentChangePrior > 0);
+
+        var percentChangeHistorical = calculatePercentageDifference(currentTotal, historicalTotal);
+        percentChangeHistorical = percentChangeHistorical == 0 ? percentChangeHistorical *= -1 : percentChangeHistorical;
+        severityView.setPercentChangeHistorical(doubleHelper(percentChangeHistorical));
+        severityView.setPositiveImpactHistorical(!(percentChangeHistorical > 0));
+        severityView.setTrendingUpHistorical(percentChangeHistorical > 0);
+
+        rv.put("cveSeverity", severityView);
+
+        //
+        var backlogView = new TrackCveBacklogView();
+        backlogView.setName("CVE Backlog");
+        backlogView.setSeries(backlogSeries);
+        backlogView.setCurrent(backlogSeries.get(current));
+        backlogView.setPrior(backlogSeries.get(prior));
+        backlogView.setHistorical(backlogSeries.get(historical));
+
+        var thirty = history.column(Column.FINDINGS_IN_BACKLOG_THIRTY_TO_SIXTY);
+        var sixty = history.column(Column.FINDINGS_IN_BACKLOG_SIXTY_TO_NINETY);
+        var ninety = history.column(Column.FINDINGS_IN_BACKLOG_OVER_NINETY);
+        var currentBacklogTotal = thirty[current] + sixty[current] + ninety[current];
+        var priorBacklogTotal = thirty[prior] + sixty[prior] + ninety[prior];
+        var historicalBacklogTotal = thirty[historical] + sixty[historical] + ninety[historical];
+
+        var backlogPercentChangePrior = calculatePercentageDifference(currentBacklogTotal, priorBacklogTotal);
+        backlogView.setPercentChangePrior(doubleHelper(backlogPercentChangePrior));
+        backlogView.setPositiveImpactPrior(!(backlogPercentChangePrior > 0));
+        backlogView.setTrendingUpPrior(backlogPercentChangePrior > 0);
+
+        var backlogPercentChangeHistorical = calculatePercentageDifference(currentBacklogTotal, historicalBacklogTotal);
+        backlogView.setPercentChangeHistorical(doubleHelper(backlogPercentChangeHistorical));
+        backlogView.setPositiveImpactHistorical(!(backlogPercentChangeHistorical > 0));
+        backlogView.setTrendingUpHistorical(backlogPercentChangeHistorical > 0);
+
+        rv.put("cveBacklog", backlogView);
+
+        //
+        var staleView = new TrackStalePackagesView();
+        staleView.setName("Stale Packages");
+        setPackageCountChange(staleView, staleSeries, stale, current, prior, historical);
+        rv.put("stalePackages", staleView);
+
+        //
+        var downlevelView = new TrackDownlevelPackagesView();
+        downlevelView.setName("Downlevel Packages");
+        setPackageCountChange(downlevelView, downlevelSeries, downlevel, current, prior, historical);
+        rv.put("downLevelPackages", downlevelView);
+
+        // positiveImpact means Patch Efficacy Score went up
+        var pesView = new TrackPesView();
+        pesView.setName("Patch Efficacy Score (PES)");
+        pesView.setImpactSeries(impactSeries);
+        pesView.setEffortSeries(effortSeries);
+        setScoreChange(pesView, pesSeries, current, prior, historical, true);
+        rv.put("pes", pesView);
+
+        // positiveImpact means Redundant Package Score did not go up
+        var rpsView = new TrackDoubleView();
+        rpsView.setName("Redundant Package Score (RPS)");
+        setScoreChange(rpsView, rpsSeries, current, prior, historical, false);
+        rv.put("rps", rpsView);
 
-        // TODO deal with future trends 
-        
         return rv;
     }
 
- 
+
     /**
-     * 
-     * @return
+     *
+     * @return CRITICAL, HIGH, MEDIUM, LOW values in that order
      */
-    public TrackDownlevelPackagesView getTrackDownlevelPackagesView(List<DatasetMetrics> historicalDatasetMetricsRecordsAsc) {
-        var historicalRecord = historicalDatasetMetricsRecordsAsc.get(0);
-        var currentRecord = historicalDatasetMetricsRecordsAsc.getLast();      
-        var priorRecord = historicalDatasetMetricsRecordsAsc.get(historicalDatasetMetricsRecordsAsc.size() - 2); 
-
-        var rv = new TrackDownlevelPackagesView();
-        rv.setName("Downlevel Packages");
-        
-        List<TrackStalePackagesView.Value> series = new ArrayList<>();
-        for (var hdsm : historicalDatasetMetricsRecordsAsc) {
-            var seriesValue = new TrackStalePackagesView.Value(
-                hdsm.getCommitDateTime().toString(), 
-                Map.of(
-                    "totalDownlevelPackages", new TrackDoubleView.Value("Total Downlevel Packages", (double)hdsm.getDownlevelPackages(), ""),
-                    "majorDownlevelPackages", new TrackDoubleView.Value("Major Downlevel Packages", (double)hdsm.getDownlevelPackagesMajor(), ""),
-                    "minorDownlevelPackages", new TrackDoubleView.Value("Minor Downlevel Packages", (double)hdsm.getDownlevelPackagesMinor(), ""),
-                    "patchDownlevelPackages", new TrackDoubleView.Value("Patch Downlevel Packages", (double)hdsm.getDownlevelPackagesPatch(), "")
-                ), 
-                ""
-            );
+    private List<TrackDoubleView.Value> severityValues(double critical, double high, double medium, double low) {
+        return List.of(
+            new TrackDoubleView.Value(CvssSeverity.CRITICAL.toString(), critical, ""),
+            new TrackDoubleView.Value(CvssSeverity.HIGH.toString(), high, ""),
+            new TrackDoubleView.Value(CvssSeverity.MEDIUM.toString(), medium, ""),
+            new TrackDoubleView.Value(CvssSeverity.LOW.toString(), low, "")
+        );
+    }
 
-            series.add(seriesValue);
-        }
 
+    /**
+     * stale and downlevel packages cards - fewer packages is a positive impact
+     */
+    private void setPackageCountChange(
+            TrackStalePackagesView rv,
+            List<TrackStalePackagesView.Value> series,
+            double[] totals,
+            int current,
+            int prior,
+            int historical
+    ) {
         rv.setSeries(series);
-        rv.setCurrent(series.getLast());
-        rv.setPrior(series.get(series.size() - 2));
-        rv.setHistorical(series.get(0));
-
-        // var percentChangedPrior = 
-        //     (double)currentRecord.getDownlevelPackages() / 
-        //         (double)(currentRecord.getDownlevelPackages() - priorRecord.getDownlevelPackages()) * 100;
-            
-        var percentChangedPrior = calculatePercentageDifference(currentRecord.getDownlevelPackages(), priorRecord.getDownlevelPackages());
-        percentChangedPrior = doubleHelper(percentChangedPrior);
+        rv.setCurrent(series.get(current));
+        rv.setPrior(series.get(prior));
+        rv.setHistorical(series.get(historical));
 
+        var percentChangedPrior = doubleHelper(calculatePercentageDifference(totals[current], totals[prior]));
         rv.setPercentChangePrior(percentChangedPrior);
         rv.setPositiveImpactPrior(percentChangedPrior <= 0);
         rv.setTrendingUpPrior(percentChangedPrior > 0);
 
-        // var percentChangedHistorical = 
-        //     (double)currentRecord.getDownlevelPackages() / 
-        //         (double)(currentRecord.getDownlevelPackages() - historicalRecord.getDownlevelPackages()) * 100;
-        
-        var percentChangedHistorical = calculatePercentageDifference(currentRecord.getDownlevelPackages(), historicalRecord.getDownlevelPackages());
-        percentChangedHistorical = doubleHelper(percentChangedHistorical);
-
+        var percentChangedHistorical = doubleHelper(calculatePercentageDifference(totals[current], totals[historical]));
         rv.setPercentChangeHistorical(percentChangedHistorical);
         rv.setPositiveImpactHistorical(percentChangedHistorical <= 0);
         rv.setTrendingUpHistorical(percentChangedHistorical > 0);
 
-        // TODO deal with future trends 
-        
-        return rv;
+        // TODO deal with future trends
     }
 
 
     /**
-     * 
-     * @return
+     * score cards (PES, RPS)
+     *
+     * @param higherIsPositive whether an increase in the score is a positive impact
      */
-    public TrackPesView getTrackPesView(List<DatasetMetrics> historicalDatasetMetricsRecordsAsc) {
-        var rv = new TrackPesView();
-        rv.setName("Patch Efficacy Score (PES)");
-
-        var series = historicalDatasetMetricsRecordsAsc.stream()
-                                                       .map(
-                                                          hdsmr -> 
-                                                          new TrackPesView.Value(
-                                                              hdsmr.getCommitDateTime().toString(),
-                                                              hdsmr.getPatchEfficacyScore(),
-                                                              ""
-                                                          )
-                                                       )
-                                                       .toList();
-
+    private void setScoreChange(
+            TrackDoubleView rv,
+            List<TrackDoubleView.Value> series,
+            int current,
+            int prior,
+            int historical,
+            boolean higherIsPositive
+    ) {
         rv.setSeries(series);
 
-        if (series.isEmpty()) { 
-            log.warn("no historical data found - returning empty payload");
-            return rv; 
-        }
+        var currentValue = series.get(current);
+        var priorValue = series.get(prior);
+        var historicalValue = series.get(historical);
+        rv.setCurrent(currentValue);
+        rv.setPrior(priorValue);
+        rv.setHistorical(historicalValue);
 
-        var impactSeries = historicalDatasetMetricsRecordsAsc.stream()
-                                                             .map(
-                                                                 hdsmr -> 
-                                                                 new TrackPesView.Value(
-                                                                     hdsmr.getCommitDateTime().toString(),
-                                                                     hdsmr.getPatchImpact(),
-                                                                     ""
-                                                                 )
-                                                             )
-                                                             .toList();
-
-        rv.setImpactSeries(impactSeries);
-
-        var effortSeries = historicalDatasetMetricsRecordsAsc.stream()
-                                                             .map(
-                                                                hdsmr -> 
-                                                                    new TrackPesView.Value(
-                                                                        hdsmr.getCommitDateTime().toString(),
-                                                                        hdsmr.getPatchEffort(),
-                                                                        ""
-                                                                    )
-                                                                )
-                                                             .toList();
-
-        rv.setEffortSeries(effortSeries);
-
-        var current = series.getLast();
-        rv.setCurrent(current);
-
-        var prior = series.get(series.size() - 2);
-        rv.setPrior(prior);
-
-        var historical = series.get(0);
-        rv.setHistorical(historical);
-
-        //var percentChangeFromPrior = (double)(current.getData() - prior.getData()) / Math.abs(current.getData());
-        var percentChangeFromPrior = calculatePercentageDifference(current.getData(), prior.getData());
-        //percentChangeFromPrior = prior == 0 ? percentChangeFromPrior *= -1 : percentChangeFromPrior;
+        var percentChangeFromPrior = calculatePercentageDifference(currentValue.getData(), priorValue.getData());
         rv.setPercentChangePrior(doubleHelper(percentChangeFromPrior));
 
-        // positiveImpact means Redundant Package Score did not go up 
-        var positiveImpactPrior = current.getData() > prior.getData() ? true : false;
-        rv.setPositiveImpactPrior(positiveImpactPrior);
-
-        var trendingUpPrior = positiveImpactPrior;
-        rv.setTrendingUpPrior(trendingUpPrior);
+        var wentUpFromPrior = currentValue.getData() > priorValue.getData();
+        rv.setPositiveImpactPrior(higherIsPositive == wentUpFromPrior);
+        rv.setTrendingUpPrior(wentUpFromPrior);
 
-        //var percentChangeHistorical = (double)(current.getData() - historical.getData()) / Math.abs(current.getData());
-        var percentChangeHistorical = calculatePercentageDifference(current.getData(), historical.getData());
-        //percentChangeHistorical = historical == 0 ? percentChangeHistorical *= -1 : percentChangeHistorical;
+        var percentChangeHistorical = calculatePercentageDifference(currentValue.getData(), historicalValue.getData());
         rv.setPercentChangeHistorical(doubleHelper(percentChangeHistorical));
 
-        var positiveImpactHistorical = current.getData() > historical.getData() ? true : false;
-        rv.setPositiveImpactHistorical(positiveImpactHistorical);
-
-        var trendingUpHistorical = positiveImpactHistorical;
-        rv.setTrendingUpHistorical(trendingUpHistorical);
-
-        return rv;
+        var wentUpFromHistorical = currentValue.getData() > historicalValue.getData();
+        rv.setPositiveImpactHistorical(higherIsPositive == wentUpFromHistorical);
+        rv.setTrendingUpHistorical(wentUpFromHistorical);
     }
-    
-  
-    /**
-     * 
-     * @return
-     */
-    public TrackDoubleView getTrackRpsView(List<DatasetMetrics> historicalDatasetMetricsRecordsAsc) {
-
-        var rv = new TrackDoubleView();
-        rv.setName("Redundant Package Score (RPS)");
-        
-        var series = historicalDatasetMetricsRecordsAsc.stream()
-                                                       .map(
-                                                            hdsmr -> 
-                                                                new TrackDoubleView.Value(
-                                                                    hdsmr.getCommitDateTime().toString(),
-                                                                    hdsmr.getRpsScore(),
-                                                                    ""
-                                                                )
-                                                       )
-                                                       .toList();
-
-        rv.setSeries(series);
-
-        if (series.isEmpty()) { 
-            log.warn("no historical data found - returning empty payload");
-            return rv; 
-        }
-
-        var current = series.getLast();
-        rv.setCurrent(current);
-
-        var prior = series.get(series.size() - 2);
-        rv.setPrior(prior);
 
-        var historical = series.get(0);
-        rv.setHistorical(historical);
-
-        //var percentChangeFromPrior = (double)(current.getData() - prior.getData()) / Math.abs(current.getData());
-        var percentChangeFromPrior = calculatePercentageDifference(current.getData(), prior.getData());
-        //percentChangeFromPrior = prior == 0 ? percentChangeFromPrior *= -1 : percentChangeFromPrior;
-        rv.setPercentChangePrior(doubleHelper(percentChangeFromPrior));
-
-        // positiveImpact means Redundant Package Score did not go up 
-        var positiveImpactPrior = current.getData() > prior.getData() ? false : true;
-        rv.setPositiveImpactPrior(positiveImpactPrior);
-
-        var trendingUpPrior = !positiveImpactPrior;
-        rv.setTrendingUpPrior(trendingUpPrior);
-
-        //var percentChangeHistorical = (double)(current.getData() - historical.getData()) / Math.abs(current.getData());
-        var percentChangeHistorical = calculatePercentageDifference(current.getData(), historical.getData());
-        //percentChangeHistorical = historical == 0 ? percentChangeHistorical *= -1 : percentChangeHistorical;
-        rv.setPercentChangeHistorical(doubleHelper(percentChangeHistorical));
-
-        var positiveImpactHistorical = current.getData() > historical.getData() ? false : true;
-        rv.setPositiveImpactHistorical(positiveImpactHistorical);
-
-        var trendingUpHistorical = !positiveImpactHistorical;
-        rv.setTrendingUpHistorical(trendingUpHistorical);
-
-        return rv;
-    }
 
     /**
-     * 
+     *
      * @param d
      */
     public double doubleHelper(double d) {
@@ -746,7 +572,7 @@ public class TrackViewService {
 
 
     /**
-     * 
+     *
      * @param num1
      * @param num2
      * @return
@@ -0,0 +1,135 @@
+package io.patchfox.data_service.components;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class DatasourceEventLogTest {
+
+    private static final String PURL = "pkg:generic/github.com/patchfox/data-service::main@pom.xml";
+
+    @TempDir
+    Path directory;
+
+    private final List<DatasourceEventLog> opened = new ArrayList<>();
+
+
+    @AfterEach
+    void stopAll() throws InterruptedException {
+        for (var eventLog : opened) { eventLog.stop(); }
+    }
+
+
+    @Test
+    void replaysUnreleasedEvents() throws Exception {
+        var eventLog = open();
+        var first = eventLog.appendEvent(PURL, submission(1)).get();
+        var second = eventLog.appendEvent(PURL, submission(2)).get();
+        eventLog.appendReleased(PURL, first).get();
+        eventLog.stop();
+
+        var replayed = open().replay();
+
+        assertThat(replayed).containsOnlyKeys(PURL);
+        assertThat(replayed.get(PURL)).hasSize(1);
+        assertThat(replayed.get(PURL).getFirst().offset()).isEqualTo(second);
+        assertThat(replayed.get(PURL).getFirst().body()).isEqualTo(submission(2));
+    }
+
+
+    @Test
+    void truncatesATornTail() throws Exception {
+        var eventLog = open();
+        eventLog.appendEvent(PURL, submission(1)).get();
+        eventLog.stop();
+
+        var file = logFile();
+        var intactSize = Files.size(file);
+        // a crash part way through the next record - a header claiming more body than made it to disk
+        Files.write(file, new byte[] { 0, 0, 1, 0, 1, 2, 3, 4, 3, 42, 42 }, StandardOpenOption.APPEND);
+
+        var replayed = open().replay();
+
+        assertThat(replayed.get(PURL)).extracting(DatasourceEventLog.Entry::body).containsExactly(submission(1));
+        assertThat(Files.size(file)).isEqualTo(intactSize);
+    }
+
+
+    @Test
+    void stopsAtACrcMismatch() throws Exception {
+        var eventLog = open();
+        eventLog.appendEvent(PURL, submission(1)).get();
+        long second = eventLog.appendEvent(PURL, submission(2)).get();
+        eventLog.appendEvent(PURL, submission(3)).get();
+        eventLog.stop();
+
+        // flip a bit in the second record's body. it and everything after it are dropped
+        var file = logFile();
+        var bytes = Files.readAllBytes(file);
+        bytes[(int) second + 9] ^= 0x01;
+        Files.write(file, bytes);
+
+        var replayed = open().replay();
+
+        assertThat(replayed.get(PURL)).extracting(DatasourceEventLog.Entry::body).containsExactly(submission(1));
+        assertThat(Files.size(file)).isEqualTo(second);
+    }
+
+
+    @Test
+    void deletesFullyReleasedFiles() throws Exception {
+        var eventLog = open();
+        var offset = eventLog.appendEvent(PURL, submission(1)).get();
+        eventLog.appendReleased(PURL, offset).get();
+        eventLog.stop();
+
+        assertThat(open().replay()).isEmpty();
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+
+    //
+    // helpers
+    //
+
+
+    private DatasourceEventLog open() throws IOException {
+        var env = new EnvironmentComponent();
+        env.ingestLogDirectory = directory.toString();
+        env.ingestLogMaxBatch = 100;
+        env.ingestLogDeflateLevel = 1;
+
+        var eventLog = new DatasourceEventLog();
+        eventLog.env = env;
+        eventLog.start();
+        opened.add(eventLog);
+        return eventLog;
+    }
+
+
+    private Path logFile() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(f -> f.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+    }
+
+
+    private static byte[] submission(int n) {
+        var json = "{\"datasourcePurl\":\"" + PURL + "\",\"commitHash\":\"" + "c".repeat(40) + n + "\"}";
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,101 @@
+package io.patchfox.data_service.components;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class PurlCatalogSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private static final PurlCatalog.Entry[] ENTRIES = new PurlCatalog.Entry[] {
+        new PurlCatalog.Entry(
+            0,
+            PurlCatalog.Kind.PACKAGE,
+            11,
+            "pkg:maven/org.apache.logging.log4j/log4j-core@2.14.1",
+            "maven",
+            "org.apache.logging.log4j",
+            "log4j-core",
+            "2.14.1",
+            new PurlCatalog.VersionLag(12, 0, 3, 9, "2.24.3")
+        ),
+        new PurlCatalog.Entry(1, PurlCatalog.Kind.PACKAGE, 12, "not a purl", null, null, null, null, null),
+        new PurlCatalog.Entry(
+            2,
+            PurlCatalog.Kind.DATASOURCE,
+            3,
+            "pkg:generic/github.com/patchfox/ünïcode::main@pom.xml",
+            "generic",
+            "github.com/patchfox",
+            "ünïcode::main",
+            "pom.xml",
+            null
+        )
+    };
+
+
+    @Test
+    void roundTrips() throws IOException {
+        var path = directory.resolve("catalog.snapshot");
+        var header = new PurlCatalogSnapshot.Header(ENTRIES.length, 12, 3, 1_700_000_000_000_000L);
+
+        PurlCatalogSnapshot.write(path, header, ENTRIES);
+        var contents = PurlCatalogSnapshot.read(path, UnaryOperator.identity());
+
+        assertThat(contents.header()).isEqualTo(header);
+        assertThat(contents.entries()).containsExactly(ENTRIES);
+        assertThat(Files.exists(path.resolveSibling("catalog.snapshot.tmp"))).isFalse();
+    }
+
+
+    @Test
+    void writesOnlyTheCountedEntries() throws IOException {
+        var path = directory.resolve("catalog.snapshot");
+        var header = new PurlCatalogSnapshot.Header(2, 12, 0, 0);
+
+        PurlCatalogSnapshot.write(path, header, ENTRIES);
+
+        assertThat(PurlCatalogSnapshot.read(path, UnaryOperator.identity()).entries())
+            .containsExactly(ENTRIES[0], ENTRIES[1]);
+    }
+
+
+    @Test
+    void rejectsABadChecksum() throws IOException {
+        var path = directory.resolve("catalog.snapshot");
+        PurlCatalogSnapshot.write(path, new PurlCatalogSnapshot.Header(ENTRIES.length, 12, 3, 0), ENTRIES);
+
+        var bytes = Files.readAllBytes(path);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(path, bytes);
+
+        assertThatThrownBy(() -> PurlCatalogSnapshot.read(path, UnaryOperator.identity()))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("checksum");
+    }
+
+
+    @Test
+    void rejectsATruncatedFile() throws IOException {
+        var path = directory.resolve("catalog.snapshot");
+        PurlCatalogSnapshot.write(path, new PurlCatalogSnapshot.Header(ENTRIES.length, 12, 3, 0), ENTRIES);
+
+        var bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, 20));
+
+        assertThatThrownBy(() -> PurlCatalogSnapshot.read(path, UnaryOperator.identity()))
+            .isInstanceOf(IOException.class);
+    }
+
+}
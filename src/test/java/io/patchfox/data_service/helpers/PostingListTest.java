@@ -0,0 +1,113 @@
+package io.patchfox.data_service.helpers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+
+class PostingListTest {
+
+    @Test
+    void varintsRoundTrip() {
+        // gaps and ids either side of each varint byte boundary, up to ones that need the full 10 bytes
+        var eventIds = new long[] { 1, 2, 129, 130, 16_514, 2_113_666, 1L << 40, Long.MAX_VALUE };
+        var datasourceIds = new long[] { 0, 127, 128, 16_383, 16_384, 1L << 35, Long.MAX_VALUE, 7 };
+
+        var list = new PostingList();
+        for (int i = 0; i < eventIds.length; i++) { list.add(eventIds[i], datasourceIds[i]); }
+
+        var postings = list.decode();
+        assertThat(postings.eventIds()).containsExactly(eventIds);
+        assertThat(postings.datasourceIds()).containsExactly(datasourceIds);
+        assertThat(list.size()).isEqualTo(eventIds.length);
+    }
+
+
+    @Test
+    void denseIdsStaySmall() {
+        var list = new PostingList();
+        for (int i = 1; i <= 10_000; i++) { list.add(i, i % 100); }
+
+        assertThat(list.byteSize()).isLessThan(10_000 * 4);
+    }
+
+
+    @Test
+    void outOfOrderAddsAreMergedInOrder() {
+        var list = new PostingList();
+        list.add(10, 1);
+        list.add(30, 3);
+        list.add(20, 2);
+        list.add(5, 0);
+        list.add(40, 4);
+
+        var postings = list.decode();
+        assertThat(postings.eventIds()).containsExactly(5, 10, 20, 30, 40);
+        assertThat(postings.datasourceIds()).containsExactly(0, 1, 2, 3, 4);
+
+        // appends after a merge carry on from the last id
+        list.add(50, 5);
+        list.add(15, 9);
+        list.mergeLate();
+        assertThat(list.decode().eventIds()).containsExactly(5, 10, 15, 20, 30, 40, 50);
+    }
+
+
+    @Test
+    void duplicatesAreIgnored() {
+        var list = new PostingList();
+        list.add(10, 1);
+        list.add(20, 2);
+        list.add(20, 99);
+        list.add(10, 99);
+        list.add(5, 0);
+        list.add(5, 99);
+
+        var postings = list.decode();
+        assertThat(postings.eventIds()).containsExactly(5, 10, 20);
+        assertThat(postings.datasourceIds()).containsExactly(0, 1, 2);
+        assertThat(list.size()).isEqualTo(3);
+    }
+
+
+    @Test
+    void randomOrderMatchesSortedMap() {
+        var random = new Random(42);
+        var expected = new TreeMap<Long, Long>();
+        var list = new PostingList();
+
+        for (int i = 0; i < 5_000; i++) {
+            long eventId = random.nextInt(3_000) + 1;
+            long datasourceId = random.nextInt(50);
+            expected.putIfAbsent(eventId, datasourceId);
+            list.add(eventId, datasourceId);
+            if (i % 500 == 0) { list.mergeLate(); }
+        }
+
+        var postings = list.decode();
+        assertThat(postings.eventIds()).containsExactly(expected.keySet().stream().mapToLong(Long::longValue).toArray());
+        assertThat(postings.datasourceIds())
+            .containsExactly(expected.values().stream().mapToLong(Long::longValue).toArray());
+    }
+
+
+    @Test
+    void decodeNewestReturnsOnlyThePageAskedFor() {
+        var list = new PostingList();
+        for (int i = 1; i <= 100; i++) { list.add(i, i % 7); }
+        list.add(0, 42);
+
+        var slice = list.decodeNewest(10, 5);
+        assertThat(slice.postings().eventIds()).containsExactly(86, 87, 88, 89, 90);
+        assertThat(slice.total()).isEqualTo(101);
+        assertThat(slice.datasourceCount()).isEqualTo(8);
+
+        assertThat(list.decodeNewest(98, 5).postings().eventIds()).containsExactly(0, 1, 2);
+        assertThat(list.decodeNewest(101, 5).postings().size()).isZero();
+        assertThat(list.decodeNewest(Integer.MAX_VALUE, 5).postings().size()).isZero();
+    }
+
+}
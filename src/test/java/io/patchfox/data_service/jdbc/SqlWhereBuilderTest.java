@@ -0,0 +1,306 @@
+package io.patchfox.data_service.jdbc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.support.SqlArrayValue;
+
+
+class SqlWhereBuilderTest {
+
+    enum Severity { LOW, HIGH, CRITICAL }
+
+    // stands in for an entity - TableMetadata only reads its field types
+    static class Row {
+        String name;
+        Long count;
+        Integer rank;
+        Double score;
+        BigDecimal cost;
+        Boolean active;
+        ZonedDateTime publishedAt;
+        UUID txid;
+        Severity severity;
+    }
+
+    private static final TableMetadata META = new TableMetadata(
+        "row",
+        Row.class,
+        Map.of(
+            "name", "name",
+            "count", "count",
+            "rank", "rank",
+            "score", "score",
+            "cost", "cost",
+            "active", "active",
+            "publishedAt", "published_at",
+            "txid", "txid",
+            "severity", "severity"
+        )
+    );
+
+
+    @Test
+    void plainStringIsCaseInsensitiveContains() {
+        var builder = new SqlWhereBuilder(META, true);
+
+        assertThat(builder.build(Map.of("name", "log4j"))).isEqualTo("name ILIKE ?");
+        assertThat(builder.getParameters()).containsExactly("%log4j%");
+    }
+
+
+    @Test
+    void comparisonOperatorsBindTypedValues() {
+        var builder = new SqlWhereBuilder(META, true);
+
+        assertThat(builder.build(Map.of("count", "gte.5"))).isEqualTo("count >= ?");
+        assertThat(builder.getParameters()).containsExactly(5L);
+
+        assertThat(builder.build(Map.of("score", "lt.0.5"))).isEqualTo("score < ?");
+        assertThat(builder.getParameters()).containsExactly(0.5);
+
+        assertThat(builder.build(Map.of("name", "eq.log4j"))).isEqualTo("name = ?");
+        assertThat(builder.getParameters()).containsExactly("log4j");
+
+        assertThat(builder.build(Map.of("active", "true"))).isEqualTo("active = ?");
+        assertThat(builder.getParameters()).containsExactly(true);
+    }
+
+
+    @Test
+    void timestampsAndUuidsAreCastByTheDatabase() {
+        var builder = new SqlWhereBuilder(META, true);
+        var txid = UUID.randomUUID().toString();
+
+        assertThat(builder.build(params("publishedAt", "gt.2024-01-01T00:00:00Z", "txid", txid)))
+            .isEqualTo("published_at > ?::timestamptz AND txid = ?::uuid");
+        assertThat(builder.getParameters()).containsExactly("2024-01-01T00:00:00Z", txid);
+    }
+
+
+    @Test
+    void enumsBindAsTheirName() {
+        var builder = new SqlWhereBuilder(META, true);
+
+        assertThat(builder.build(Map.of("severity", "eq.HIGH"))).isEqualTo("severity = ?");
+        assertThat(builder.getParameters()).containsExactly("HIGH");
+
+        assertThat(builder.build(Map.of("severity", "in.LOW,HIGH"))).isEqualTo("severity = ANY(?)");
+        assertThat(builder.getParameters()).hasSize(1);
+        assertThat(builder.getParameters().getFirst()).isEqualTo(new String[] { "LOW", "HIGH" });
+    }
+
+
+    @Test
+    void listsBindAsOneTypedArray() {
+        var builder = new SqlWhereBuilder(META, true);
+
+        assertThat(builder.build(Map.of("count", "in.1,2,3"))).isEqualTo("count = ANY(?)");
+        assertThat(builder.getParameters().getFirst()).isEqualTo(new Long[] { 1L, 2L, 3L });
+
+        // a bare comma separated value is the same as in.
+        assertThat(builder.build(Map.of("rank", "1,eq.2"))).isEqualTo("rank = ANY(?)");
+        assertThat(builder.getParameters().getFirst()).isEqualTo(new Integer[] { 1, 2 });
+
+        var txids = UUID.randomUUID() + "," + UUID.randomUUID();
+        assertThat(builder.build(Map.of("txid", "in." + txids))).isEqualTo("txid = ANY(?::uuid[])");
+        assertThat(builder.getParameters().getFirst()).isEqualTo(txids.split(","));
+
+        assertThat(builder.build(Map.of("cost", "in.1.5,2"))).isEqualTo("cost = ANY(?)");
+        assertThat(builder.getParameters().getFirst()).isInstanceOf(SqlArrayValue.class);
+    }
+
+
+    @Test
+    void negationMatchesNullFields() {
+        var builder = new SqlWhereBuilder(META, true);
+
+        assertThat(builder.build(Map.of("name", "not.eq.x"))).isEqualTo("(name IS NULL OR NOT (name = ?))");
+        assertThat(builder.getParameters()).containsExactly("x");
+
+        assertThat(builder.build(Map.of("rank", "nin.1,2"))).isEqualTo("(rank IS NULL OR NOT (rank = ANY(?)))");
+        assertThat(builder.getParameters().getFirst()).isEqualTo(new Integer[] { 1, 2 });
+    }
+
+
+    @Test
+    void betweenIsInclusiveAndTakesTwoValues() {
+        var builder = new SqlWhereBuilder(META, true);
+
+        assertThat(builder.build(Map.of("count", "between.1,10"))).isEqualTo("count BETWEEN ? AND ?");
+        assertThat(builder.getParameters()).containsExactly(1L, 10L);
+
+        assertThat(builder.build(Map.of("publishedAt", "between.2024-01-01T00:00:00Z,2024-02-01T00:00:00Z")))
+            .isEqualTo("published_at BETWEEN ?::timestamptz AND ?::timestamptz");
+
+        assertThatThrownBy(() -> builder.build(Map.of("count", "between.1,2,3")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("count");
+    }
+
+
+    @Test
+    void groupsNest() {
+        var builder = new SqlWhereBuilder(META, true);
+
+        var clause = builder.build(Map.of(
+            "or", "(severity.in.(CRITICAL,HIGH),and(publishedAt.gte.2024-01-01T00:00:00Z,name.not.eq.x))"
+        ));
+
+        assertThat(clause).isEqualTo(
+            "(severity = ANY(?) OR (published_at >= ?::timestamptz AND (name IS NULL OR NOT (name = ?))))"
+        );
+        assertThat(builder.getParameters()).hasSize(3);
+        assertThat(builder.getParameters().get(0)).isEqualTo(new String[] { "CRITICAL", "HIGH" });
+        assertThat(builder.getParameters().get(1)).isEqualTo("2024-01-01T00:00:00Z");
+        assertThat(builder.getParameters().get(2)).isEqualTo("x");
+    }
+
+
+    @Test
+    void negatedGroupMatchesWhereTheGroupIsUnknown() {
+        var builder = new SqlWhereBuilder(META, true);
+
+        assertThat(builder.build(Map.of("and", "(not.or(rank.eq.1,rank.eq.2),active.eq.true)")))
+            .isEqualTo("((rank = ? OR rank = ?) IS NOT TRUE AND active = ?)");
+        assertThat(builder.getParameters()).containsExactly(1, 2, true);
+    }
+
+
+    @Test
+    void quotedValuesInGroupsKeepCommasAndParens() {
+        var builder = new SqlWhereBuilder(META, true);
+
+        assertThat(builder.build(Map.of("or", "(name.eq.\"a,b\",name.eq.\"say \\\"hi\\\" (twice)\")")))
+            .isEqualTo("(name = ? OR name = ?)");
+        assertThat(builder.getParameters()).containsExactly("a,b", "say \"hi\" (twice)");
+
+        assertThat(builder.build(Map.of("or", "(name.in.(\"a,b\",c))"))).isEqualTo("(name = ANY(?))");
+        assertThat(builder.getParameters().getFirst()).isEqualTo(new String[] { "a,b", "c" });
+    }
+
+
+    @Test
+    void malformedGroupsAreRejected() {
+        var builder = new SqlWhereBuilder(META, true);
+
+        assertThatThrownBy(() -> builder.build(Map.of("or", "name.eq.x")))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.build(Map.of("or", "(name.eq.x,rank.in.1,2)")))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.build(Map.of("or", "(name.eq.\"x)")))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.build(Map.of("or", "()")))
+            .isInstanceOf(IllegalArgumentException.class);
+        // dropping an unknown field from an OR would widen the result
+        assertThatThrownBy(() -> builder.build(Map.of("or", "(bogus.eq.x,name.eq.y)")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("bogus");
+    }
+
+
+    @Test
+    void unknownAndPagingParametersAreSkipped() {
+        var builder = new SqlWhereBuilder(META, true);
+
+        assertThat(builder.build(params("bogus", "x", "page", "2", "size", "10", "sort", "name"))).isEmpty();
+        assertThat(builder.getParameters()).isEmpty();
+    }
+
+
+    @Test
+    void badValuesNameTheField() {
+        var builder = new SqlWhereBuilder(META, true);
+
+        assertThatThrownBy(() -> builder.build(Map.of("count", "gt.many")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("count");
+    }
+
+
+    @Test
+    void startsWithEscapesWildcardsAndKeepsCommas() {
+        var builder = new SqlWhereBuilder(META, true);
+
+        assertThat(builder.build(Map.of("name", "sw.50%_off,now"))).isEqualTo("name LIKE ?");
+        assertThat(builder.getParameters()).containsExactly("50\\%\\_off,now%");
+
+        assertThatThrownBy(() -> builder.build(Map.of("count", "sw.1")))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+
+    @Test
+    void similarityNeedsTheExtension() {
+        var builder = new SqlWhereBuilder(META, true);
+        assertThat(builder.build(Map.of("name", "sim.deserialization"))).isEqualTo("name % ?");
+        assertThat(builder.getParameters()).containsExactly("deserialization");
+
+        var withoutExtension = new SqlWhereBuilder(META, false);
+        assertThatThrownBy(() -> withoutExtension.build(Map.of("name", "sim.deserialization")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("pg_trgm");
+    }
+
+
+    @Test
+    void parametersLineUpWithPlaceholders() {
+        var builder = new SqlWhereBuilder(META, true);
+
+        var clause = builder.build(params(
+            "name", "sw.spring",
+            "count", "between.1,10",
+            "or", "(severity.in.(LOW,HIGH),rank.gt.3)",
+            "publishedAt", "lt.2024-01-01T00:00:00Z",
+            "active", "not.eq.false"
+        ));
+
+        assertThat(clause).isEqualTo(
+            "name LIKE ? AND count BETWEEN ? AND ? AND (severity = ANY(?) OR rank > ?) " +
+            "AND published_at < ?::timestamptz AND (active IS NULL OR NOT (active = ?))"
+        );
+        assertThat(clause.chars().filter(c -> c == '?').count()).isEqualTo(builder.getParameters().size());
+        assertThat(builder.getParameters().get(0)).isEqualTo("spring%");
+        assertThat(builder.getParameters().get(1)).isEqualTo(1L);
+        assertThat(builder.getParameters().get(2)).isEqualTo(10L);
+        assertThat(builder.getParameters().get(3)).isEqualTo(new String[] { "LOW", "HIGH" });
+        assertThat(builder.getParameters().get(4)).isEqualTo(3);
+        assertThat(builder.getParameters().get(5)).isEqualTo("2024-01-01T00:00:00Z");
+        assertThat(builder.getParameters().get(6)).isEqualTo(false);
+    }
+
+
+    @Test
+    void buildStartsOver() {
+        var builder = new SqlWhereBuilder(META, true);
+
+        builder.build(Map.of("name", "x"));
+        assertThat(builder.build(Map.of("count", "1"))).isEqualTo("count = ?");
+        assertThat(builder.getParameters()).containsExactly(1L);
+    }
+
+
+    //
+    // helpers
+    //
+
+
+    /**
+     * argument key value pairs, in order
+     */
+    private static Map<String, String> params(String... keysAndValues) {
+        var rv = new LinkedHashMap<String, String>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            rv.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return rv;
+    }
+
+}
@@ -0,0 +1,219 @@
+package io.patchfox.data_service.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.URI;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import io.patchfox.package_utils.json.ApiRequest;
+import io.patchfox.package_utils.json.ApiResponse;
+
+
+class KafkaDispatchTableTest {
+
+    /**
+     * handlers answer with which of them ran and what they were given
+     */
+    static class TestController {
+
+        ResponseEntity<ApiResponse> thing(@RequestAttribute UUID txid, @PathVariable("id") long id) {
+            return respond("thing", Map.of("txid", txid, "id", id));
+        }
+
+        ResponseEntity<ApiResponse> latestThing() {
+            return respond("latestThing", Map.of());
+        }
+
+        ResponseEntity<ApiResponse> part(@PathVariable("id") long id, @PathVariable("partId") String partId) {
+            return respond("part", Map.of("id", id, "partId", partId));
+        }
+
+        ResponseEntity<ApiResponse> things(
+            @RequestParam("type") String type,
+            @RequestParam(value = "limit", defaultValue = "10") int limit,
+            @RequestParam(value = "tag", required = false) Optional<String> tag,
+            Pageable pageable
+        ) {
+            return respond("things", Map.of("type", type, "limit", limit, "tag", tag, "pageable", pageable));
+        }
+
+        ResponseEntity<ApiResponse> createThing(@RequestParam Map<String, String> params) {
+            return respond("createThing", Map.of("params", params));
+        }
+
+        // not an ApiResponse, so not reachable over kafka
+        ResponseEntity<byte[]> download(@PathVariable("id") long id) {
+            return ResponseEntity.ok(new byte[0]);
+        }
+
+        private static ResponseEntity<ApiResponse> respond(String handler, Map<String, Object> data) {
+            return ResponseEntity.ok(ApiResponse.builder().serverMessage(handler).data(data).build());
+        }
+    }
+
+    private KafkaDispatchTable table;
+
+
+    @BeforeEach
+    void buildTable() throws NoSuchMethodException {
+        var mapping = new RequestMappingHandlerMapping();
+        var controller = new TestController();
+        register(mapping, controller, RequestMethod.GET, "/api/v1/things/{id}", "thing", UUID.class, long.class);
+        register(mapping, controller, RequestMethod.GET, "/api/v1/things/latest", "latestThing");
+        register(
+            mapping,
+            controller,
+            RequestMethod.GET,
+            "/api/v1/things/{id}/parts/{partId}",
+            "part",
+            long.class,
+            String.class
+        );
+        register(
+            mapping,
+            controller,
+            RequestMethod.GET,
+            "/api/v1/things",
+            "things",
+            String.class,
+            int.class,
+            Optional.class,
+            Pageable.class
+        );
+        register(mapping, controller, RequestMethod.POST, "/api/v1/things", "createThing", Map.class);
+        register(mapping, controller, RequestMethod.GET, "/api/v1/things/{id}/download", "download", long.class);
+
+        table = new KafkaDispatchTable(mapping);
+        table.afterSingletonsInstantiated();
+    }
+
+
+    @Test
+    void capturesPathVariables() throws Throwable {
+        var txid = UUID.randomUUID();
+        var response = dispatch(ApiRequest.httpVerb.GET, "/api/v1/things/42", Map.of(), txid).orElseThrow();
+
+        assertThat(response.getServerMessage()).isEqualTo("thing");
+        assertThat(response.getData()).containsEntry("id", 42L).containsEntry("txid", txid);
+
+        response = dispatch(ApiRequest.httpVerb.GET, "/api/v1/things/42/parts/p-7", Map.of()).orElseThrow();
+        assertThat(response.getServerMessage()).isEqualTo("part");
+        assertThat(response.getData()).containsEntry("id", 42L).containsEntry("partId", "p-7");
+    }
+
+
+    @Test
+    void prefersLiteralSegmentsOverVariables() throws Throwable {
+        var response = dispatch(ApiRequest.httpVerb.GET, "/api/v1/things/latest", Map.of()).orElseThrow();
+
+        assertThat(response.getServerMessage()).isEqualTo("latestThing");
+    }
+
+
+    @Test
+    void routesByVerb() throws Throwable {
+        var response = dispatch(ApiRequest.httpVerb.POST, "/api/v1/things", Map.of("a", "b")).orElseThrow();
+
+        assertThat(response.getServerMessage()).isEqualTo("createThing");
+        assertThat(response.getData()).containsEntry("params", Map.of("a", "b"));
+        assertThat(dispatch(ApiRequest.httpVerb.DELETE, "/api/v1/things", Map.of())).isEmpty();
+        assertThat(dispatch(ApiRequest.httpVerb.POST, "/api/v1/things/42", Map.of())).isEmpty();
+    }
+
+
+    @Test
+    void unmatchedPathsAreEmpty() throws Throwable {
+        assertThat(dispatch(ApiRequest.httpVerb.GET, "/api/v1/nothing", Map.of())).isEmpty();
+        assertThat(dispatch(ApiRequest.httpVerb.GET, "/api/v1/things/42/parts", Map.of())).isEmpty();
+        assertThat(dispatch(ApiRequest.httpVerb.GET, "/api/v1/things/42/download", Map.of())).isEmpty();
+    }
+
+
+    @Test
+    void adaptsQueryStringParameters() throws Throwable {
+        var response = dispatch(
+            ApiRequest.httpVerb.GET,
+            "/api/v1/things",
+            Map.of("type", "maven", "tag", "x", "page", "2", "size", "5")
+        ).orElseThrow();
+
+        assertThat(response.getData())
+            .containsEntry("type", "maven")
+            .containsEntry("limit", 10)
+            .containsEntry("tag", Optional.of("x"));
+        var pageable = (Pageable) response.getData().get("pageable");
+        assertThat(pageable.getPageNumber()).isEqualTo(2);
+        assertThat(pageable.getPageSize()).isEqualTo(5);
+    }
+
+
+    @Test
+    void rejectsBadArguments() {
+        assertThatThrownBy(() -> dispatch(ApiRequest.httpVerb.GET, "/api/v1/things", Map.of()))
+            .isInstanceOf(KafkaDispatchTable.BadArgumentException.class)
+            .hasMessageContaining("type");
+        assertThatThrownBy(() -> dispatch(ApiRequest.httpVerb.GET, "/api/v1/things/forty-two", Map.of()))
+            .isInstanceOf(KafkaDispatchTable.BadArgumentException.class);
+        assertThatThrownBy(() -> dispatch(ApiRequest.httpVerb.GET, "/api/v1/things", Map.of("type", "x", "page", "-1")))
+            .isInstanceOf(KafkaDispatchTable.BadArgumentException.class)
+            .hasMessageContaining("page");
+        assertThatThrownBy(() -> dispatch(ApiRequest.httpVerb.GET, "/api/v1/things", Map.of("type", "x", "size", "0")))
+            .isInstanceOf(KafkaDispatchTable.BadArgumentException.class)
+            .hasMessageContaining("size");
+    }
+
+
+    //
+    // helpers
+    //
+
+
+    private static void register(
+        RequestMappingHandlerMapping mapping,
+        TestController controller,
+        RequestMethod verb,
+        String path,
+        String methodName,
+        Class<?>... parameterTypes
+    ) throws NoSuchMethodException {
+        mapping.registerMapping(
+            RequestMappingInfo.paths(path).methods(verb).build(),
+            controller,
+            TestController.class.getDeclaredMethod(methodName, parameterTypes)
+        );
+    }
+
+
+    private Optional<ApiResponse> dispatch(ApiRequest.httpVerb verb, String path, Map<String, String> params)
+        throws Throwable {
+        return dispatch(verb, path, params, UUID.randomUUID());
+    }
+
+
+    private Optional<ApiResponse> dispatch(ApiRequest.httpVerb verb, String path, Map<String, String> params, UUID txid)
+        throws Throwable {
+        var apiRequest = ApiRequest.builder()
+                                   .txid(txid)
+                                   .verb(verb)
+                                   .uri(URI.create(path))
+                                   .queryStringParameters(params)
+                                   .build();
+        return table.dispatch(apiRequest, ZonedDateTime.now());
+    }
+
+}